@@ -3,6 +3,8 @@ package edu.ntnu.idatt2001.paths.controller;
 import edu.ntnu.idatt2001.paths.model.actions.Action;
 import edu.ntnu.idatt2001.paths.model.filehandlers.factories.ActionFactory;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileReader;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileWriter;
 import edu.ntnu.idatt2001.paths.model.story.Link;
 import edu.ntnu.idatt2001.paths.model.story.Mood;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
@@ -39,12 +41,17 @@ import javafx.scene.layout.VBox;
  * between the UI and the Story model. It configures the buttons for adding and deleting passages,
  * adding and deleting actions, saving the story, exiting the story creation, editing a passage, and
  * deleting a link. It also manages drag and drop functionality and the updating of views.
+ *
+ * <p>Stories in the .paths format are saved by writing only the passages changed in the editor.
+ * Since the .paths format does not support moods or single visit passages, these properties cannot
+ * be edited for .paths stories.
  */
 public class CreateStoryViewController {
 
   private final ObservableList<Passage> passages;
   private final CreateStoryView createStoryView;
   private final Story story;
+  private final boolean isPathsStory;
   private Passage selectedPassage;
   private Link selectedLink;
   private Action selectedAction;
@@ -57,7 +64,19 @@ public class CreateStoryViewController {
    * @param chosenStory The story to create a view controller for.
    */
   public CreateStoryViewController(Story chosenStory) {
+    this(chosenStory, false);
+  }
+
+  /**
+   * Constructs a CreateStoryViewController for a specified story, saved in either the .json or the
+   * .paths format.
+   *
+   * @param chosenStory  The story to create a view controller for.
+   * @param isPathsStory Whether the story is saved in the .paths format.
+   */
+  public CreateStoryViewController(Story chosenStory, boolean isPathsStory) {
     story = chosenStory;
+    this.isPathsStory = isPathsStory;
     createStoryView = new CreateStoryView();
     passages = FXCollections.observableArrayList(story.getPassages());
     passages.add(0, story.getOpeningPassage());
@@ -82,7 +101,7 @@ public class CreateStoryViewController {
     deleteLinkButton.setOnAction(
         event -> {
           if (selectedLink != null) {
-            selectedPassage.getLinks().remove(selectedLink);
+            selectedPassage.removeLink(selectedLink);
             createStoryView
                 .getLinksView()
                 .getItems()
@@ -129,10 +148,12 @@ public class CreateStoryViewController {
     moodChoiceBox.getItems().addAll(Mood.values());
     moodChoiceBox.setPromptText("Select mood");
     moodChoiceBox.setValue(passage.getMood());
+    moodChoiceBox.setDisable(isPathsStory);
 
     Label singleVisitLabel = new Label("Support a single visit only?");
     CheckBox isSingleVisit = new CheckBox();
     isSingleVisit.setSelected(passage.isSingleVisitOnly());
+    isSingleVisit.setDisable(isPathsStory);
     HBox singleVisitHbox = new HBox(singleVisitLabel, isSingleVisit);
 
     VBox vBox = new VBox();
@@ -191,8 +212,9 @@ public class CreateStoryViewController {
 
   /**
    * Configures the Save Story Button. On action, opens a dialog to confirm the save operation,
-   * which overwrites the old file. If an error occurs during the save operation, an error alert is
-   * shown.
+   * which overwrites the old file. Stories in the .paths format only have their changed passages
+   * written. The summary shown in the stories overview is updated with the saved story. If an
+   * error occurs during the save operation, an error alert is shown.
    */
   private void configureSaveStoryButton() {
     createStoryView
@@ -208,9 +230,16 @@ public class CreateStoryViewController {
               dialog.setResultConverter(
                   dialogButton -> {
                     if (dialogButton == saveButtonType) {
-                      StoryFileHandler storyFileHandler = new StoryFileHandler();
                       try {
-                        storyFileHandler.saveStoryToFile(story);
+                        if (isPathsStory) {
+                          StoryFileWriter.saveChangedPassages(story);
+                          StoriesViewController.updateMetadataInBackground(
+                              story.getTitle() + StoryFileReader.getFileEnding(), story);
+                        } else {
+                          new StoryFileHandler().saveStoryToFile(story);
+                          StoriesViewController.updateMetadataInBackground(
+                              story.getTitle() + ".json", story);
+                        }
                         createStoryView
                             .getSaveButton()
                             .getScene()
@@ -284,7 +313,7 @@ public class CreateStoryViewController {
         .setOnAction(
             event -> {
               if (selectedPassage != null && selectedLink != null && selectedAction != null) {
-                selectedLink.getActions().remove(selectedAction);
+                selectedLink.removeAction(selectedAction);
                 updateActionsListView();
               }
             });
@@ -416,9 +445,11 @@ public class CreateStoryViewController {
     ComboBox<Mood> moodChoiceBox = new ComboBox<>();
     moodChoiceBox.getItems().addAll(Mood.values());
     moodChoiceBox.setPromptText("Select mood");
+    moodChoiceBox.setDisable(isPathsStory);
 
     Label singleVisitLabel = new Label("Support a single visit only?");
     CheckBox isSingleVisit = new CheckBox();
+    isSingleVisit.setDisable(isPathsStory);
     HBox singleVisitHbox = new HBox(singleVisitLabel, isSingleVisit);
 
     VBox vBox = new VBox();
@@ -1,9 +1,10 @@
 package edu.ntnu.idatt2001.paths.controller;
 
-import static edu.ntnu.idatt2001.paths.model.media.IconHandler.getInventoryIcon;
+import static edu.ntnu.idatt2001.paths.model.media.IconHandler.getInventoryIconAtlas;
 import static edu.ntnu.idatt2001.paths.view.util.Widgets.createAlert;
 
 import edu.ntnu.idatt2001.paths.model.actions.Action;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameData;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameFileHandler;
 import edu.ntnu.idatt2001.paths.model.game.Game;
@@ -14,10 +15,15 @@ import edu.ntnu.idatt2001.paths.model.goals.HealthGoal;
 import edu.ntnu.idatt2001.paths.model.goals.InventoryGoal;
 import edu.ntnu.idatt2001.paths.model.goals.ScoreGoal;
 import edu.ntnu.idatt2001.paths.model.media.BackgroundHandler;
+import edu.ntnu.idatt2001.paths.model.media.IconAtlas;
+import edu.ntnu.idatt2001.paths.model.media.MediaManifest;
+import edu.ntnu.idatt2001.paths.model.media.MediaPrefetcher;
+import edu.ntnu.idatt2001.paths.model.media.MediaWorkers;
 import edu.ntnu.idatt2001.paths.model.media.SoundHandler;
 import edu.ntnu.idatt2001.paths.model.story.Link;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.view.GameView;
+import edu.ntnu.idatt2001.paths.view.util.TypewriterRenderer;
 import edu.ntnu.idatt2001.paths.view.util.Widgets;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -25,24 +31,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
-import javafx.util.Duration;
 
 /**
  * The GameController class is responsible for managing the game logic, updating the game view,
@@ -56,14 +55,22 @@ import javafx.util.Duration;
  */
 public class GameViewController {
 
+  private static final double CONTENT_CHARACTERS_PER_SECOND = 1000.0 / 30;
+  private static final System.Logger LOGGER =
+      System.getLogger(GameViewController.class.getName());
   private static Passage currentPassage;
+  private static boolean isIconAtlasErrorLogged;
   private final SoundHandler soundHandler;
   private final BackgroundHandler backgroundHandler;
+  private final MediaPrefetcher mediaPrefetcher;
+  private final MediaManifest mediaManifest;
   private final List<Passage> visitedPassages;
   private final Game currentGame;
+  private final StoryReference storyReference;
+  private String saveSlotName;
   private final GameView gameView;
   private final Player initialPlayer;
-  private final AtomicBoolean isAnimationSkipped;
+  private final TypewriterRenderer contentTypewriter;
 
   /**
    * Creates a new GameController object, initializes the game view, player, sound, and background
@@ -73,18 +80,38 @@ public class GameViewController {
    *                 passages.
    */
   public GameViewController(GameData gameData) {
+    this(gameData, null);
+  }
+
+  /**
+   * Creates a new GameController object for a game loaded from the given save slot. When the game
+   * is saved, it replaces the game in the same slot.
+   *
+   * @param gameData     The game data containing the game model, current passage, and visited
+   *                     passages.
+   * @param saveSlotName The name of the save slot the game was loaded from, or {@code null} if
+   *                     the game has not been saved yet.
+   */
+  public GameViewController(GameData gameData, String saveSlotName) {
+    this.saveSlotName = saveSlotName;
     currentGame = gameData.getGame();
     currentPassage = gameData.getPassage();
+    storyReference = gameData.getStoryReference();
     soundHandler = SoundHandler.getInstance();
     backgroundHandler = BackgroundHandler.getInstance();
-    soundHandler.updateMusic(currentPassage, currentGame.getStory().getTitle());
+    mediaPrefetcher = MediaPrefetcher.getInstance();
+    mediaManifest = MediaManifest.forStory(currentGame.getStory());
+    soundHandler.updateMusic(currentPassage, mediaManifest);
+    MediaWorkers.getExecutor().execute(() -> soundHandler.preloadSound("death"));
     visitedPassages = new ArrayList<>();
     visitedPassages.addAll(gameData.getVisitedPassages());
     initialPlayer = new Player.Builder(currentGame.getPlayer()).build();
 
     gameView = new GameView();
-    backgroundHandler.updateBackground(
-        gameView.getRoot(), currentPassage, currentGame.getStory().getTitle());
+    contentTypewriter =
+        new TypewriterRenderer(gameView.getContentBar(), CONTENT_CHARACTERS_PER_SECOND);
+    backgroundHandler.updateBackground(gameView.getRoot(), currentPassage, mediaManifest);
+    mediaPrefetcher.prefetch(getAvailableLinks(), currentGame.getStory(), mediaManifest);
 
     updatePlayerHealth();
     animateContentBar();
@@ -97,7 +124,6 @@ public class GameViewController {
     configureDeathExitButton();
     configureSkipLabel();
     configurePlayerName();
-    isAnimationSkipped = new AtomicBoolean(false);
   }
 
   private void configurePlayerName() {
@@ -108,7 +134,7 @@ public class GameViewController {
    * Configures the behavior of the content bar scroll pane to skip the animation when clicked.
    */
   private void configureContentBarScrollPane() {
-    gameView.getContentbarScrollPane().setOnMouseClicked(event -> isAnimationSkipped.set(true));
+    gameView.getContentbarScrollPane().setOnMouseClicked(event -> contentTypewriter.skip());
   }
 
   /**
@@ -126,49 +152,19 @@ public class GameViewController {
   }
 
   /**
-   * Creates and animates the content string of the current passage.
+   * Creates and animates the content string of the current passage. The content is revealed by the
+   * typewriter renderer, and the links are shown when the whole content is shown.
    */
   private void animateContentBar() {
-    gameView.getContentBar().set("");
-    char[] charArray = currentPassage.getContent().toCharArray();
-    AtomicInteger index = new AtomicInteger(0);
-
     gameView.getSkipLabel().setVisible(true);
     gameView.getLinks().setVisible(false);
 
-    Timeline timeline = new Timeline();
-    KeyFrame keyFrame =
-        new KeyFrame(
-            Duration.millis(30),
-            event -> {
-              if (index.get() < charArray.length) {
-                gameView
-                    .getContentBar()
-                    .set(gameView.getContentBar().getValue() + charArray[index.get()]);
-                index.incrementAndGet();
-              }
-              if (isAnimationSkipped.get()) {
-                gameView.getContentBar().set(currentPassage.getContent());
-                gameView.getLinks().setVisible(true);
-                timeline.stop();
-              }
-            });
-
-    timeline.getKeyFrames().add(keyFrame);
-    timeline.setCycleCount(charArray.length);
-
-    timeline
-        .statusProperty()
-        .addListener(
-            (observable, oldValue, newValue) -> {
-              if (newValue == Animation.Status.STOPPED) {
-                gameView.getSkipLabel().setVisible(false);
-                gameView.getLinks().setVisible(true);
-                isAnimationSkipped.set(false);
-              }
-            });
-
-    timeline.play();
+    contentTypewriter.play(
+        currentPassage.getContent(),
+        () -> {
+          gameView.getSkipLabel().setVisible(false);
+          gameView.getLinks().setVisible(true);
+        });
   }
 
   /**
@@ -276,9 +272,9 @@ public class GameViewController {
     updateScoreLabel();
     updateLinkChoices();
 
-    soundHandler.updateMusic(currentPassage, currentGame.getStory().getTitle());
-    backgroundHandler.updateBackground(
-        getRoot(), currentPassage, currentGame.getStory().getTitle());
+    soundHandler.updateMusic(currentPassage, mediaManifest);
+    backgroundHandler.updateBackground(getRoot(), currentPassage, mediaManifest);
+    mediaPrefetcher.prefetch(getAvailableLinks(), currentGame.getStory(), mediaManifest);
     updatePlayerHealth();
 
     if (currentPassage.getLinks().size() == 0) {
@@ -325,7 +321,12 @@ public class GameViewController {
         GameFileHandler gameFileHandler = new GameFileHandler();
 
         try {
-          gameFileHandler.saveGameToFile(currentGame, currentPassage, visitedPassages);
+          if (saveSlotName == null) {
+            saveSlotName = GameFileHandler.createSlotName(currentGame.getStory().getTitle());
+          }
+          gameFileHandler.saveGameToSlot(
+              new GameData(currentGame, currentPassage, visitedPassages, storyReference),
+              saveSlotName);
           switchToMainMenu();
 
         } catch (IOException e) {
@@ -346,17 +347,29 @@ public class GameViewController {
   private void switchToMainMenu() {
     MainMenuViewController mainMenuViewController = new MainMenuViewController();
     Region mainMenuRoot = mainMenuViewController.getRoot();
+    dispose();
     SoundHandler.getInstance().playMenuMusic();
     gameView.getRoot().getScene().setRoot(mainMenuRoot);
   }
 
+  /**
+   * Stops the work this controller runs in the background, before the game view is left: the media
+   * prefetches of the next passages and the reveal of the passage text.
+   */
+  private void dispose() {
+    mediaPrefetcher.cancel();
+    contentTypewriter.stop();
+  }
+
   /**
    * Restarts the game by resetting the game state and the game view.
    */
   private void restartGame() {
+    dispose();
     Game game = new Game(initialPlayer, currentGame.getStory(), currentGame.getGoals());
-    GameData gameData = new GameData(game, game.getStory().getOpeningPassage());
-    Region gameRoot = new GameViewController(gameData).getRoot();
+    GameData gameData =
+        new GameData(game, game.getStory().getOpeningPassage(), new ArrayList<>(), storyReference);
+    Region gameRoot = new GameViewController(gameData, saveSlotName).getRoot();
     gameView.getRoot().getScene().setRoot(gameRoot);
   }
 
@@ -445,7 +458,8 @@ public class GameViewController {
   /**
    * Updates the inventory section of the game view based on the player's inventory. If there is an
    * image located in the inventory-icons folder with the same name as the item, that image will be
-   * used. Otherwise, the item name will be displayed as text.
+   * used. Otherwise, the item name will be displayed as text. The icons are shown as slices of the
+   * shared inventory icon atlas, so no icon is decoded when the inventory changes.
    */
   private void updateInventory() {
     gameView.getInventory().getChildren().clear();
@@ -454,31 +468,35 @@ public class GameViewController {
     inventoryTitle.getStyleClass().add("inventory-view-title");
     List<String> playerItems = currentGame.getPlayer().getInventory();
 
+    IconAtlas loadedIconAtlas = null;
+    try {
+      loadedIconAtlas = getInventoryIconAtlas();
+    } catch (IOException e) {
+      if (!isIconAtlasErrorLogged) {
+        LOGGER.log(
+            System.Logger.Level.WARNING,
+            "Could not load the inventory icons, items are shown as text",
+            e);
+        isIconAtlasErrorLogged = true;
+      }
+    }
+    IconAtlas iconAtlas = loadedIconAtlas;
+
     playerItems.forEach(
         item -> {
           HBox itemContainer = new HBox();
           itemContainer.setAlignment(Pos.CENTER);
 
-          try {
-            Image icon = getInventoryIcon(item);
-
-            if (icon != null) {
-              ImageView imageView = new ImageView(icon);
-              imageView.setFitHeight(40);
-              imageView.setFitWidth(40);
-              itemContainer.getChildren().add(imageView);
-
-            } else {
-              Label itemText = new Label(item);
-              itemText.getStyleClass().add("inventory-view-text");
-              itemContainer.getChildren().add(itemText);
-            }
-            gameView.getInventory().getChildren().add(itemContainer);
-
-          } catch (IOException e) {
-            Widgets.createAlert("Error", "Error loading inventory icon", e.getMessage())
-                .showAndWait();
+          ImageView imageView = iconAtlas != null ? iconAtlas.createView(item, 40) : null;
+          if (imageView != null) {
+            itemContainer.getChildren().add(imageView);
+
+          } else {
+            Label itemText = new Label(item);
+            itemText.getStyleClass().add("inventory-view-text");
+            itemContainer.getChildren().add(itemText);
           }
+          gameView.getInventory().getChildren().add(itemContainer);
         });
   }
 
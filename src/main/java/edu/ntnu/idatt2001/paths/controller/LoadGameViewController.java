@@ -4,12 +4,12 @@ import static edu.ntnu.idatt2001.paths.view.util.Widgets.createAlert;
 
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameData;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameFileHandler;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.SaveSlot;
 import edu.ntnu.idatt2001.paths.view.LoadGameView;
 import java.io.IOException;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.layout.Region;
-import org.apache.commons.io.FilenameUtils;
 
 /**
  * This class is the controller for the Load Game screen of the Paths application. This screen
@@ -59,13 +59,13 @@ public class LoadGameViewController {
 
               } else {
                 GameFileHandler gameFileHandler = new GameFileHandler();
+                SaveSlot saveSlot = loadGameView.getSaveSelect().getValue();
 
                 try {
-                  GameData gameData =
-                      gameFileHandler.loadGameFromFile(
-                          FilenameUtils.removeExtension(loadGameView.getSaveSelect().getValue()));
+                  GameData gameData = gameFileHandler.loadGameFromFile(saveSlot.getSlotName());
 
-                  Region gameRoot = new GameViewController(gameData).getRoot();
+                  Region gameRoot =
+                      new GameViewController(gameData, saveSlot.getSlotName()).getRoot();
                   loadGameView.getLoadButton().getScene().setRoot(gameRoot);
 
                 } catch (IOException e) {
@@ -93,12 +93,13 @@ public class LoadGameViewController {
 
   /**
    * Configures the dropdown menu for selecting a saved game. This method populates the dropdown
-   * menu with the names of all saved games. If an error occurs while retrieving the names of saved
-   * games, an alert dialog is shown.
+   * menu with the save slots of all saved games, most recent first. The slots are read from the
+   * save manifest, so the saved games themselves are not loaded until one is selected. If an error
+   * occurs while retrieving the save slots, an alert dialog is shown.
    */
   private void configureSaveSelect() {
     try {
-      loadGameView.getSaveSelect().getItems().addAll(GameFileHandler.getGameFiles());
+      loadGameView.getSaveSelect().getItems().addAll(GameFileHandler.getSaveSlots());
     } catch (IOException e) {
       Alert alert = createAlert("Error", "Unexpected error:", e.getMessage());
       alert.show();
@@ -1,5 +1,8 @@
 package edu.ntnu.idatt2001.paths.controller;
 
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryCatalog;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
+import edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryReader;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameData;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
 import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileReader;
@@ -9,6 +12,7 @@ import edu.ntnu.idatt2001.paths.model.goals.Goal;
 import edu.ntnu.idatt2001.paths.model.goals.ScoreGoal;
 import edu.ntnu.idatt2001.paths.model.story.Story;
 import edu.ntnu.idatt2001.paths.view.NewGameView;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import javafx.scene.control.Alert;
@@ -93,6 +97,7 @@ public class NewGameViewController {
   private void configureStorySelect() {
     newGameView.getStorySelect().getItems().addAll(StoryFileReader.getSavedStories());
     newGameView.getStorySelect().getItems().addAll(StoryFileHandler.getSavedStories());
+    newGameView.getStorySelect().getItems().addAll(BinaryStoryReader.getSavedStories());
     newGameView.getStorySelect().selectionModelProperty().get().selectFirst();
   }
 
@@ -117,13 +122,15 @@ public class NewGameViewController {
 
   /**
    * Starts a new game with the given player name and story. Depending on the game options
-   * customization, it creates a new player with specific attributes and goals.
+   * customization, it creates a new player with specific attributes and goals. The game refers to
+   * the story file it was started from, so that saves of the game do not need a copy of the story.
    *
    * @param name the name of the player
    * @param story the selected story
    */
   private void startNewGame(String name, String story) {
     Story loadedStory = loadStoryFromFile(story);
+    StoryReference storyReference = createStoryReference(story);
     Player player;
     List<Goal> goals;
 
@@ -144,7 +151,12 @@ public class NewGameViewController {
       }
 
       Game currentGame = new Game(player, loadedStory, goals);
-      GameData gameData = new GameData(currentGame, currentGame.getStory().getOpeningPassage());
+      GameData gameData =
+          new GameData(
+              currentGame,
+              currentGame.getStory().getOpeningPassage(),
+              new ArrayList<>(),
+              storyReference);
 
       Region gameRoot = new GameViewController(gameData).getRoot();
       newGameView.getStartNewGameButton().getScene().setRoot(gameRoot);
@@ -152,8 +164,9 @@ public class NewGameViewController {
   }
 
   /**
-   * Loads a story from a file with the provided story name. The method supports both the custom
-   * story file format and JSON.
+   * Loads a story from a file with the provided story name. The method supports the custom story
+   * file format, JSON and the binary format. Stories in the custom format are loaded lazily, so
+   * that only the content of the passages visited during the game is kept in memory.
    *
    * @param story the name of the story file
    * @return the loaded Story object, or null if an error occurred during loading
@@ -161,20 +174,30 @@ public class NewGameViewController {
   private Story loadStoryFromFile(String story) {
     Story loadedStory = null;
     try {
-      if (story.endsWith(StoryFileReader.getFileEnding())) {
-        story = story.replace(StoryFileReader.getFileEnding(), "");
-        loadedStory = StoryFileReader.readStoryFromFile(story);
-
-      } else if (story.endsWith(".json")) {
-        story = story.replace(".json", "");
-        loadedStory = new StoryFileHandler().loadStoryFromFile(story);
-      }
+      loadedStory = StoryCatalog.loadStory(story);
     } catch (Exception e) {
       e.printStackTrace();
     }
     return loadedStory;
   }
 
+  /**
+   * Creates a reference to the story file with the provided name. It is created after the story
+   * has been loaded, so that its hash is taken from the sidecar files written while loading, and
+   * the story file is not hashed again on the JavaFX application thread.
+   *
+   * @param story the name of the story file
+   * @return the reference to the story file, or null if the file could not be read, in which case
+   * saves of the game hold a copy of the story instead
+   */
+  private StoryReference createStoryReference(String story) {
+    try {
+      return StoryCatalog.createReference(story);
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
   /** Shows a warning dialog when the player name or the selected story is invalid. */
   private void showWarningDialog() {
     Alert alert =
@@ -1,8 +1,13 @@
 package edu.ntnu.idatt2001.paths.controller;
 
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryCatalog;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryMetadata;
+import edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryReader;
+import edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryWriter;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
 import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileReader;
 import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseResult;
 import edu.ntnu.idatt2001.paths.model.story.Mood;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
@@ -13,8 +18,11 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import javafx.application.Platform;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Region;
@@ -22,11 +30,24 @@ import org.apache.commons.io.FilenameUtils;
 
 /**
  * Controller class for the Stories View. Handles all interactions and logic for the view. This
- * includes story selection, conversion between JSON and paths formats, updating story info, and
- * more.
+ * includes story selection, conversion between the JSON, paths and binary formats, updating story
+ * info, and more.
+ *
+ * <p>The story info is shown from the {@link StoryMetadata} summary kept next to the story file,
+ * so selecting a story does not parse it. A missing or stale summary is rebuilt on a background
+ * thread, and the story itself is only loaded when it is edited, converted, or its broken links are
+ * shown. The errors in a story are kept in its summary, so showing them does not parse the story.
  */
 public class StoriesViewController {
 
+  private static final ExecutorService METADATA_EXECUTOR =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "story-metadata-loader");
+            thread.setDaemon(true);
+            return thread;
+          });
+
   private final StoriesView storiesView;
   private Story loadedStory;
 
@@ -36,17 +57,19 @@ public class StoriesViewController {
    */
   public StoriesViewController() {
     storiesView = new StoriesView();
+    storiesView.getGetParseErrorsButton().setDisable(true);
     configureBackButton();
     configureStorySelect();
     configureConvertToJsonButton();
     configureConvertToPathsButton();
+    configureConvertToBinaryButton();
     configureEditStoryButton();
   }
 
   /**
    * Configures the action for the Edit Story button. The button is disabled if there is no story
-   * loaded. When clicked, the button will take the user to a new view to edit the currently loaded
-   * story.
+   * loaded, or if the loaded story has errors. When clicked, the button will take the user to a new
+   * view to edit the currently loaded story, in either the .json or the .paths format.
    */
   private void configureEditStoryButton() {
     storiesView.getEditStoryButton().setDisable(true);
@@ -54,11 +77,16 @@ public class StoriesViewController {
         .getEditStoryButton()
         .setOnAction(
             event -> {
-              if (loadedStory != null) {
+              if (ensureStoryLoaded()) {
                 storiesView
                     .getEditStoryButton()
                     .getScene()
-                    .setRoot(new CreateStoryViewController(loadedStory).getRoot());
+                    .setRoot(
+                        new CreateStoryViewController(
+                                loadedStory,
+                                FilenameUtils.isExtension(
+                                    storiesView.getStorySelect().getValue(), "paths"))
+                            .getRoot());
               }
             });
   }
@@ -74,51 +102,168 @@ public class StoriesViewController {
 
   /**
    * Configures the Story Select dropdown. The dropdown allows the user to select a saved story.
-   * When a story is selected, it is loaded into the view and the appropriate information is updated
-   * and displayed.
+   * When a story is selected, the summary of the story is shown, and the appropriate conversion
+   * buttons are shown.
    */
   private void configureStorySelect() {
     storiesView.getStorySelect().getItems().addAll(StoryFileHandler.getSavedStories());
     storiesView.getStorySelect().getItems().addAll(StoryFileReader.getSavedStories());
+    storiesView.getStorySelect().getItems().addAll(BinaryStoryReader.getSavedStories());
     storiesView
         .getStorySelect()
         .setOnAction(
             event -> {
               String fileName = storiesView.getStorySelect().getValue();
               if (fileName != null) {
+                loadedStory = null;
+                storiesView
+                    .getConvertToJsonButton()
+                    .setVisible(!FilenameUtils.isExtension(fileName, "json"));
+                storiesView
+                    .getConvertToPathsButton()
+                    .setVisible(!FilenameUtils.isExtension(fileName, "paths"));
+                storiesView.getConvertToBinaryButton().setVisible(!isBinaryStorySelected());
+                updateStoryFileInfo();
+                updateConvertStoryInfo();
 
                 try {
-                  if (FilenameUtils.isExtension(fileName, "json")) {
-                    loadedStory =
-                        new StoryFileHandler()
-                            .loadStoryFromFile(storiesView.getStorySelect().getValue());
-
-                    storiesView.getConvertToJsonButton().setVisible(false);
-                    storiesView.getConvertToPathsButton().setVisible(true);
-
-                  } else if (FilenameUtils.isExtension(fileName, "paths")) {
-                    loadedStory = StoryFileReader.readStoryFromFile(fileName);
-                    storiesView.getConvertToJsonButton().setVisible(true);
-                    storiesView.getConvertToPathsButton().setVisible(false);
+                  StoryMetadata metadata = StoryCatalog.getMetadata(fileName);
+                  if (metadata != null) {
+                    updateStoryInfo(metadata);
+                  } else {
+                    clearStoryInfo();
+                    computeMetadataInBackground(fileName);
                   }
-                  updateValidStoryInfo();
-                  updateStoryFileInfo();
-                  updateNumberOfPassages();
-                  updateBrokenLinks();
-                  updateMediaFilesLabel();
-                  updateMediaFilesLabel();
-                  updateConvertStoryInfo();
-                } catch (IOException | ParseException e) {
-                  Widgets.createAlert(
-                          "Error",
-                          "Error loading the story, check for errors in the story file",
-                          "Detailed error message:\n\n" + e.getMessage())
-                      .showAndWait();
+                } catch (IllegalArgumentException e) {
+                  showLoadError(e);
                 }
               }
             });
   }
 
+  /**
+   * Rebuilds the missing or stale summary of the story file with the given name on a background
+   * thread, and shows it when it is done if the story is still selected.
+   *
+   * @param fileName The name of the story file.
+   */
+  private void computeMetadataInBackground(String fileName) {
+    METADATA_EXECUTOR.execute(
+        () -> {
+          try {
+            StoryMetadata metadata = StoryCatalog.computeMetadata(fileName);
+            Platform.runLater(
+                () -> {
+                  if (fileName.equals(storiesView.getStorySelect().getValue())) {
+                    updateStoryInfo(metadata);
+                  }
+                });
+          } catch (IOException | RuntimeException e) {
+            Platform.runLater(
+                () -> {
+                  if (fileName.equals(storiesView.getStorySelect().getValue())) {
+                    showLoadError(e);
+                  }
+                });
+          }
+        });
+  }
+
+  /**
+   * Writes the summary of the given story, which has just been saved to the story file with the
+   * given name, on the thread that loads the summaries. Writing the summary audits the custom media
+   * of the story, which decodes its images, so it is kept off the JavaFX application thread.
+   *
+   * @param fileName The name of the story file, including the file ending.
+   * @param story    The saved story.
+   */
+  static void updateMetadataInBackground(String fileName, Story story) {
+    METADATA_EXECUTOR.execute(() -> StoryCatalog.updateMetadata(fileName, story));
+  }
+
+  /**
+   * Loads the selected story if it has not been loaded yet. A .paths story with errors is loaded
+   * as far as it can be built from the file. An alert is shown if the story cannot be loaded.
+   *
+   * @return true if a story is loaded, false otherwise
+   */
+  private boolean ensureStoryLoaded() {
+    if (loadedStory != null) {
+      return true;
+    }
+    String fileName = storiesView.getStorySelect().getValue();
+    if (fileName == null) {
+      return false;
+    }
+    try {
+      if (FilenameUtils.isExtension(fileName, "paths")) {
+        loadPathsStory(fileName);
+      } else {
+        loadedStory = StoryCatalog.loadStory(fileName);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      showLoadError(e);
+    }
+    return loadedStory != null;
+  }
+
+  /**
+   * Shows an alert telling the user that the selected story could not be loaded, and marks the
+   * story as invalid.
+   *
+   * @param e The exception thrown while loading the story.
+   */
+  private void showLoadError(Exception e) {
+    loadedStory = null;
+    storiesView.getEditStoryButton().setDisable(true);
+    storiesView.getValidStoryLabel().setText("No");
+    Widgets.createAlert(
+            "Error",
+            "Error loading the story, check for errors in the story file",
+            "Detailed error message:\n\n" + e.getMessage())
+        .showAndWait();
+  }
+
+  /**
+   * Loads the .paths story with the given file name. A valid story is taken from the
+   * {@link StoryCatalog}, so it is only parsed again if the file has changed. If the story has
+   * errors, it is parsed again with diagnostics, so that the story is built as far as possible.
+   *
+   * @param fileName The name of the story file.
+   * @return true if a story could be built from the file, false otherwise
+   * @throws IOException If there is a problem reading the file.
+   */
+  private boolean loadPathsStory(String fileName) throws IOException {
+    try {
+      loadedStory = StoryCatalog.loadStory(fileName);
+      return true;
+    } catch (IOException e) {
+      if (!(e.getCause() instanceof ParseException)) {
+        throw e;
+      }
+    }
+    StoryParseResult result = StoryFileReader.readStoryWithDiagnostics(fileName);
+    loadedStory = result.getStory();
+    return result.hasStory();
+  }
+
+  /**
+   * Opens an alert dialog showing all problems found while parsing the selected story, with the
+   * line and column of each problem. The problems are taken from the summary of the story, so the
+   * story is not parsed again.
+   *
+   * @param metadata The summary of the selected story.
+   * @return The Alert dialog to be shown
+   */
+  private Alert onParseErrorsButtonClick(StoryMetadata metadata) {
+    String parseErrors =
+        metadata.getDiagnostics().stream()
+            .map(diagnostic -> diagnostic + "\n")
+            .collect(Collectors.joining());
+    return Widgets.createAlert(
+        "Story errors", "The following problems were found in the story file", parseErrors);
+  }
+
   /**
    * Opens an alert dialog showing all broken links in the loaded story when the corresponding
    * button is clicked.
@@ -133,14 +278,23 @@ public class StoriesViewController {
     return Widgets.createAlert("Broken links", "The following links are broken", brokenLinks);
   }
 
-  /** Updates the label displaying the number of broken links in the loaded story. */
-  private void updateBrokenLinks() {
-    storiesView.getBrokenLinksLabel().setText(String.valueOf(loadedStory.getBrokenLinks().size()));
-    if (loadedStory.getBrokenLinks().size() > 0) {
+  /**
+   * Updates the label displaying the number of broken links in the selected story.
+   *
+   * @param metadata The summary of the selected story.
+   */
+  private void updateBrokenLinks(StoryMetadata metadata) {
+    storiesView.getBrokenLinksLabel().setText(String.valueOf(metadata.getBrokenLinkCount()));
+    if (metadata.getBrokenLinkCount() > 0) {
       storiesView.getGetBrokenLinksButton().setDisable(false);
       storiesView
           .getGetBrokenLinksButton()
-          .setOnAction(event -> onBrokenLinksButtonClick().showAndWait());
+          .setOnAction(
+              event -> {
+                if (ensureStoryLoaded()) {
+                  onBrokenLinksButtonClick().showAndWait();
+                }
+              });
     } else {
       storiesView.getGetBrokenLinksButton().setDisable(true);
     }
@@ -175,23 +329,71 @@ public class StoriesViewController {
     if (selectedFile.endsWith(".json")) {
       updateJsonConvertInfo();
     }
+    if (isBinaryStorySelected()) {
+      updateBinaryConvertInfo();
+    }
   }
 
-  /** Updates the label displaying whether the loaded story is valid. */
-  private void updateValidStoryInfo() {
-    try {
-      if (storiesView.getStorySelect().getValue().endsWith(".json")) {
-        StoryFileHandler storyFileHandler = new StoryFileHandler();
-        storyFileHandler.loadStoryFromFile(storiesView.getStorySelect().getValue());
-        storiesView.getEditStoryButton().setDisable(false);
-      } else if (storiesView.getStorySelect().getValue().endsWith(".paths")) {
-        StoryFileReader.readStoryFromFile(storiesView.getStorySelect().getValue());
-        storiesView.getEditStoryButton().setDisable(true);
-      }
+  /**
+   * Checks if the selected story file is in the binary format.
+   *
+   * @return true if the selected story is a binary story, false otherwise
+   */
+  private boolean isBinaryStorySelected() {
+    String selectedFile = storiesView.getStorySelect().getValue();
+    return selectedFile != null && selectedFile.endsWith(BinaryStoryReader.getFileEnding());
+  }
+
+  /**
+   * Updates all story info labels from the summary of the selected story.
+   *
+   * @param metadata The summary of the selected story.
+   */
+  private void updateStoryInfo(StoryMetadata metadata) {
+    updateValidStoryInfo(metadata);
+    updateNumberOfPassages(metadata);
+    updateBrokenLinks(metadata);
+    updateMediaFilesLabel(metadata);
+  }
+
+  /**
+   * Clears the story info labels and disables the buttons that depend on them, while the summary
+   * of the selected story is being rebuilt.
+   */
+  private void clearStoryInfo() {
+    storiesView.getValidStoryLabel().setText("...");
+    storiesView.getNumberOfPassagesLabel().setText("...");
+    storiesView.getBrokenLinksLabel().setText("...");
+    storiesView.getCustomImagesLabel().setText("");
+    storiesView.getCustomSoundsLabel().setText("");
+    storiesView.getBrokenFilesLabel().setText("");
+    storiesView.getEditStoryButton().setDisable(true);
+    storiesView.getGetParseErrorsButton().setDisable(true);
+    storiesView.getGetBrokenLinksButton().setDisable(true);
+  }
+
+  /**
+   * Updates the label displaying whether the selected story is valid. The validity is taken from
+   * the summary of the story, so the story file is not parsed. Binary stories cannot be edited, and
+   * must be converted to JSON or paths first.
+   *
+   * @param metadata The summary of the selected story.
+   */
+  private void updateValidStoryInfo(StoryMetadata metadata) {
+    storiesView
+        .getEditStoryButton()
+        .setDisable(!metadata.isValid() || isBinaryStorySelected());
+
+    if (metadata.isValid()) {
       storiesView.getValidStoryLabel().setText("Yes");
-    } catch (Exception e) {
-      storiesView.getValidStoryLabel().setText("No");
-      e.printStackTrace();
+      storiesView.getGetParseErrorsButton().setDisable(true);
+    } else {
+      String errors = metadata.getProblemCount() == 1 ? " error)" : " errors)";
+      storiesView.getValidStoryLabel().setText("No (" + metadata.getProblemCount() + errors);
+      storiesView.getGetParseErrorsButton().setDisable(false);
+      storiesView
+          .getGetParseErrorsButton()
+          .setOnAction(event -> onParseErrorsButtonClick(metadata).showAndWait());
     }
   }
 
@@ -209,6 +411,20 @@ public class StoriesViewController {
     storiesView.getConvertInfoLabel().setText(info);
   }
 
+  /** Updates the label with information about converting from binary format. */
+  private void updateBinaryConvertInfo() {
+    String info =
+        """
+                The selected story is in a binary
+                .pathsb format. This format loads
+                much faster than the other formats
+                and supports all current features,
+                but cannot be edited. Convert the
+                story to json or paths to edit it.""";
+
+    storiesView.getConvertInfoLabel().setText(info);
+  }
+
   /** Updates the label with information about converting to paths format. */
   private void updatePathsConvertInfo() {
     String info =
@@ -228,8 +444,9 @@ public class StoriesViewController {
 
   /**
    * Configures the action for the Convert to JSON button. The button is visible if the loaded story
-   * is in .paths format, and hidden otherwise. When clicked, the loaded story will be converted to
-   * JSON format.
+   * is in .paths or binary format, and hidden otherwise. When clicked, the loaded story will be
+   * converted to JSON format. Stories converted from .paths format can be given the additional
+   * features of the JSON format.
    */
   private void configureConvertToJsonButton() {
     storiesView.getConvertToJsonButton().setVisible(false);
@@ -237,20 +454,26 @@ public class StoriesViewController {
         .getConvertToJsonButton()
         .setOnAction(
             event -> {
-              Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-              alert.setHeaderText("Do you wish to add additional features to the story?");
+              if (!ensureStoryLoaded()) {
+                return;
+              }
+              if (!isBinaryStorySelected()) {
+                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                alert.setHeaderText("Do you wish to add additional features to the story?");
 
-              ButtonType yesButton = new ButtonType("Yes", ButtonBar.ButtonData.YES);
-              ButtonType noButton = new ButtonType("No", ButtonBar.ButtonData.NO);
-              alert.getButtonTypes().setAll(yesButton, noButton);
+                ButtonType yesButton = new ButtonType("Yes", ButtonBar.ButtonData.YES);
+                ButtonType noButton = new ButtonType("No", ButtonBar.ButtonData.NO);
+                alert.getButtonTypes().setAll(yesButton, noButton);
 
-              Optional<ButtonType> result = alert.showAndWait();
-              if (result.isPresent() && result.get() == yesButton) {
-                createValues();
+                Optional<ButtonType> result = alert.showAndWait();
+                if (result.isPresent() && result.get() == yesButton) {
+                  createValues();
+                }
               }
               try {
                 StoryFileHandler storyFileHandler = new StoryFileHandler();
                 storyFileHandler.saveStoryToFile(loadedStory);
+                updateMetadataInBackground(loadedStory.getTitle() + ".json", loadedStory);
                 Widgets.createAlert(
                         "Success",
                         "Story converted",
@@ -318,10 +541,41 @@ public class StoriesViewController {
     }
   }
 
+  /**
+   * Configures the action for the Convert to Binary button. The button is visible if the loaded
+   * story is in JSON or .paths format, and hidden otherwise. When clicked, the loaded story will be
+   * converted to the binary format, which keeps all features of the story.
+   */
+  private void configureConvertToBinaryButton() {
+    storiesView.getConvertToBinaryButton().setVisible(false);
+    storiesView
+        .getConvertToBinaryButton()
+        .setOnAction(
+            event -> {
+              if (!ensureStoryLoaded()) {
+                return;
+              }
+              try {
+                BinaryStoryWriter.saveStoryToFile(loadedStory);
+                updateMetadataInBackground(
+                    loadedStory.getTitle() + BinaryStoryReader.getFileEnding(), loadedStory);
+                Widgets.createAlert(
+                        "Success",
+                        "Story converted",
+                        "Story converted successfully and can "
+                            + "be now found in the binary directory")
+                    .showAndWait();
+              } catch (IOException e) {
+                Widgets.createAlert("Error", "Error converting story", e.getMessage())
+                    .showAndWait();
+              }
+            });
+  }
+
   /**
    * Configures the action for the Convert to Paths button. The button is visible if the loaded
-   * story is in JSON format, and hidden otherwise. When clicked, the loaded story will be converted
-   * to .paths format.
+   * story is in JSON or binary format, and hidden otherwise. When clicked, the loaded story will be
+   * converted to .paths format.
    */
   private void configureConvertToPathsButton() {
     storiesView.getConvertToPathsButton().setVisible(false);
@@ -329,11 +583,16 @@ public class StoriesViewController {
         .getConvertToPathsButton()
         .setOnAction(
             event -> {
+              if (!ensureStoryLoaded()) {
+                return;
+              }
               Alert alert = convertWarning();
               Optional<ButtonType> result = alert.showAndWait();
               if (result.isPresent() && result.get() == ButtonType.OK) {
                 try {
                   StoryFileWriter.saveStoryToFile(loadedStory);
+                  updateMetadataInBackground(
+                      loadedStory.getTitle() + StoryFileReader.getFileEnding(), loadedStory);
                   Widgets.createAlert(
                           "Success",
                           "Story converted",
@@ -348,11 +607,13 @@ public class StoriesViewController {
             });
   }
 
-  /** Updates the label displaying the number of passages in the loaded story. */
-  private void updateNumberOfPassages() {
-    storiesView
-        .getNumberOfPassagesLabel()
-        .setText(String.valueOf(loadedStory.getPassages().size()));
+  /**
+   * Updates the label displaying the number of passages in the selected story.
+   *
+   * @param metadata The summary of the selected story.
+   */
+  private void updateNumberOfPassages(StoryMetadata metadata) {
+    storiesView.getNumberOfPassagesLabel().setText(String.valueOf(metadata.getPassageCount()));
   }
 
   /**
@@ -388,39 +649,47 @@ public class StoriesViewController {
 
   /**
    * Updates the labels displaying the number of custom images, custom sound files, and broken media
-   * files in the loaded story.
+   * files in the selected story. Broken files are split into files that match no passage and files
+   * that cannot be decoded.
+   *
+   * @param metadata The summary of the selected story.
    */
-  public void updateMediaFilesLabel() {
-    try {
-      int numberOfCustomImages = StoryFileHandler.getCustomImageFiles(loadedStory.getTitle())
-          .size();
-      int numberOfCustomSound = StoryFileHandler.getCustomSoundFiles(loadedStory.getTitle()).size();
-      int numberOfBrokenFiles = StoryFileHandler.getBrokenFiles(loadedStory).size();
-
-      if (numberOfCustomImages > 0) {
-        storiesView.getCustomImagesLabel().setText("Images: " + numberOfCustomImages);
-      } else {
-        storiesView.getCustomImagesLabel().setText("");
-      }
+  private void updateMediaFilesLabel(StoryMetadata metadata) {
+    int numberOfCustomImages = metadata.getCustomImageCount();
+    int numberOfCustomSound = metadata.getCustomSoundCount();
+    int numberOfUnmatchedFiles = metadata.getUnmatchedMediaCount();
+    int numberOfUndecodableFiles = metadata.getUndecodableMediaCount();
+
+    if (numberOfCustomImages > 0) {
+      storiesView.getCustomImagesLabel().setText("Images: " + numberOfCustomImages);
+    } else {
+      storiesView.getCustomImagesLabel().setText("");
+    }
 
-      if (numberOfCustomSound > 0) {
-        storiesView.getCustomSoundsLabel().setText("Sound: " + numberOfCustomSound);
-      } else {
-        storiesView.getCustomSoundsLabel().setText("");
-      }
+    if (numberOfCustomSound > 0) {
+      storiesView.getCustomSoundsLabel().setText("Sound: " + numberOfCustomSound);
+    } else {
+      storiesView.getCustomSoundsLabel().setText("");
+    }
 
-      if (numberOfBrokenFiles > 0) {
-        storiesView.getBrokenFilesLabel().setText("Broken Files: " + numberOfBrokenFiles);
-      } else {
-        storiesView.getBrokenFilesLabel().setText("");
-      }
+    List<String> brokenFileCounts = new ArrayList<>();
+    if (numberOfUnmatchedFiles > 0) {
+      brokenFileCounts.add(numberOfUnmatchedFiles + " unmatched");
+    }
+    if (numberOfUndecodableFiles > 0) {
+      brokenFileCounts.add(numberOfUndecodableFiles + " unreadable");
+    }
+    if (!brokenFileCounts.isEmpty()) {
+      storiesView
+          .getBrokenFilesLabel()
+          .setText("Broken Files: " + String.join(", ", brokenFileCounts));
+    } else {
+      storiesView.getBrokenFilesLabel().setText("");
+    }
 
-      if (numberOfCustomSound == 0 && numberOfCustomImages == 0) {
-        storiesView.getCustomImagesLabel().setText("None");
-        storiesView.getCustomSoundsLabel().setText("");
-      }
-    }catch (IOException e){
-        Widgets.createAlert("Error", "Error", e.getMessage());
-      }
+    if (numberOfCustomSound == 0 && numberOfCustomImages == 0) {
+      storiesView.getCustomImagesLabel().setText("None");
+      storiesView.getCustomSoundsLabel().setText("");
+    }
   }
 }
@@ -0,0 +1,541 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.FileHash;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The AssetPack class reads and writes asset packs: single files holding all the custom images and
+ * sounds of a story. An asset pack replaces the loose files in the "images" and "sounds" folders of
+ * a story, so that the media of the story is found with a lookup in an in-memory table instead of
+ * by listing folders and opening every file.
+ *
+ * <p>The pack file is memory-mapped when it is opened. It starts with a magic number, a format
+ * version and the number of entries, followed by a directory table with the name, offset, length
+ * and SHA-256 hash of every entry, followed by the content of the entries. Entries are named after
+ * their folder and file name, such as {@code images/tavern lady.png}. Opening a pack only reads the
+ * directory table, and the content of an entry is read straight from the mapped file.
+ *
+ * <p>The pack of a story is stored next to the custom media folder of the story, named after the
+ * story with the ".pack" extension. Packs are written with {@link #write(Path, Path)}, which the
+ * {@code pack} command of the story tool runs for every story. Open packs are shared, and a pack is
+ * opened again when its file has changed.
+ *
+ * <p>Entries are also addressed by URL strings of the form
+ * {@code pack:<pack file URI>!/<entry>}, so they can be used wherever the media handlers take the
+ * URL of a file. Media that can only be played from a file, such as music, is extracted to a
+ * temporary file the first time it is needed.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * AssetPack.write(StoryFileHandler.getCustomMediaPath(title), AssetPack.getPackPath(title));
+ * AssetPack pack = AssetPack.forStory(title);
+ * try (InputStream in = pack.openStream("images/tavern lady.png")) {
+ *   Image image = new Image(in);
+ * }
+ * }</pre>
+ */
+public class AssetPack {
+
+  /**
+   * The file extension of asset packs.
+   */
+  public static final String EXTENSION = ".pack";
+
+  private static final String URL_PREFIX = "pack:";
+  private static final String URL_SEPARATOR = "!/";
+  private static final int MAGIC = 0x5050414b;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 12;
+  private static final int HASH_SIZE = 32;
+  private static final List<String> MEDIA_FOLDERS = List.of("images", "sounds");
+  private static final Map<Path, AssetPack> OPEN_PACKS = new ConcurrentHashMap<>();
+
+  private final Path packFile;
+  private final long fileSize;
+  private final long lastModified;
+  private final ByteBuffer content;
+  private final Map<String, Entry> entries;
+  private final Map<String, Path> extractedFiles = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an AssetPack for the given mapped pack file.
+   *
+   * @param packFile     the pack file
+   * @param fileSize     the size of the pack file when it was mapped
+   * @param lastModified the last modified time of the pack file when it was mapped
+   * @param content      the mapped content of the pack file
+   * @param entries      the directory table of the pack, by entry name
+   */
+  private AssetPack(
+      Path packFile,
+      long fileSize,
+      long lastModified,
+      ByteBuffer content,
+      Map<String, Entry> entries) {
+    this.packFile = packFile;
+    this.fileSize = fileSize;
+    this.lastModified = lastModified;
+    this.content = content;
+    this.entries = entries;
+  }
+
+  /**
+   * Returns the path of the asset pack of the given story.
+   *
+   * @param storyTitle the title of the story
+   * @return the path of the pack file, which may not exist
+   */
+  public static Path getPackPath(String storyTitle) {
+    Path mediaPath = StoryFileHandler.getCustomMediaPath(storyTitle);
+    return mediaPath.resolveSibling(mediaPath.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Returns the asset pack of the given story, if it has one.
+   *
+   * @param storyTitle the title of the story
+   * @return the asset pack of the story, or {@code null} if it has none or it cannot be read
+   */
+  public static AssetPack forStory(String storyTitle) {
+    return forMediaFolder(StoryFileHandler.getCustomMediaPath(storyTitle));
+  }
+
+  /**
+   * Returns the asset pack stored next to the given custom media folder, if there is one.
+   *
+   * @param mediaFolder the custom media folder of a story
+   * @return the asset pack of the folder, or {@code null} if it has none or it cannot be read
+   */
+  public static AssetPack forMediaFolder(Path mediaFolder) {
+    Path packFile = mediaFolder.resolveSibling(mediaFolder.getFileName() + EXTENSION);
+    if (!Files.isRegularFile(packFile)) {
+      return null;
+    }
+    try {
+      return open(packFile);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Opens the given pack file. A pack that is already open is shared, unless its file has changed
+   * since it was opened.
+   *
+   * @param packFile the pack file
+   * @return the asset pack
+   * @throws IOException if the pack file cannot be read or is not a valid asset pack
+   */
+  public static AssetPack open(Path packFile) throws IOException {
+    Path key = packFile.toAbsolutePath().normalize();
+    long fileSize = Files.size(key);
+    long lastModified = Files.getLastModifiedTime(key).toMillis();
+    AssetPack openPack = OPEN_PACKS.get(key);
+    if (openPack != null && openPack.fileSize == fileSize
+        && openPack.lastModified == lastModified) {
+      return openPack;
+    }
+
+    ByteBuffer content;
+    try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+      content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    AssetPack assetPack =
+        new AssetPack(key, fileSize, lastModified, content, readDirectoryTable(key, content));
+    OPEN_PACKS.put(key, assetPack);
+    return assetPack;
+  }
+
+  /**
+   * Writes the media in the "images" and "sounds" folders of the given media folder to a pack
+   * file. The pack file is replaced atomically, so an open pack is never seen half written.
+   *
+   * @param mediaFolder the custom media folder of a story
+   * @param packFile    the pack file to write
+   * @return the number of entries written to the pack
+   * @throws IOException if a media file cannot be read, the pack file cannot be written, or the
+   *                     media is too large for a pack
+   */
+  public static int write(Path mediaFolder, Path packFile) throws IOException {
+    List<String> names = new ArrayList<>();
+    List<Path> files = new ArrayList<>();
+    for (String folder : MEDIA_FOLDERS) {
+      Path folderPath = mediaFolder.resolve(folder);
+      if (!Files.isDirectory(folderPath)) {
+        continue;
+      }
+      try (Stream<Path> folderFiles = Files.list(folderPath)) {
+        for (Path file : folderFiles.filter(Files::isRegularFile).sorted().toList()) {
+          names.add(folder + "/" + file.getFileName());
+          files.add(file);
+        }
+      }
+    }
+
+    long offset = HEADER_SIZE;
+    for (String name : names) {
+      offset += Short.BYTES + encodeName(name).length + 2L * Integer.BYTES + HASH_SIZE;
+    }
+    List<Entry> tableEntries = new ArrayList<>();
+    for (Path file : files) {
+      long length = Files.size(file);
+      if (offset + length > Integer.MAX_VALUE) {
+        throw new IOException("The media of " + mediaFolder + " is too large for an asset pack");
+      }
+      byte[] hash = HexFormat.of().parseHex(FileHash.sha256(file));
+      tableEntries.add(new Entry((int) offset, (int) length, hash));
+      offset += length;
+    }
+
+    AtomicFileWriter.write(
+        packFile,
+        out -> {
+          DataOutputStream data = new DataOutputStream(out);
+          data.writeInt(MAGIC);
+          data.writeInt(VERSION);
+          data.writeInt(names.size());
+          for (int i = 0; i < names.size(); i++) {
+            byte[] name = encodeName(names.get(i));
+            Entry entry = tableEntries.get(i);
+            data.writeShort(name.length);
+            data.write(name);
+            data.writeInt(entry.offset());
+            data.writeInt(entry.length());
+            data.write(entry.hash());
+          }
+          for (Path file : files) {
+            Files.copy(file, data);
+          }
+          data.flush();
+        });
+    return names.size();
+  }
+
+  /**
+   * Returns the pack file of the asset pack.
+   *
+   * @return the pack file
+   */
+  public Path getPackFile() {
+    return packFile;
+  }
+
+  /**
+   * Returns the names of all the entries in the pack.
+   *
+   * @return the entry names, in the order they are stored in
+   */
+  public Collection<String> getEntryNames() {
+    return Collections.unmodifiableCollection(entries.keySet());
+  }
+
+  /**
+   * Returns the names of the files in the given folder of the pack.
+   *
+   * @param folder the folder, such as "images" or "sounds"
+   * @return the file names in the folder, without the folder
+   */
+  public List<String> list(String folder) {
+    String prefix = folder + "/";
+    return entries.keySet().stream()
+        .filter(name -> name.startsWith(prefix))
+        .map(name -> name.substring(prefix.length()))
+        .toList();
+  }
+
+  /**
+   * Checks if the pack has an entry with the given name.
+   *
+   * @param entryName the name of the entry, such as {@code images/tavern lady.png}
+   * @return {@code true} if the pack has the entry, {@code false} otherwise
+   */
+  public boolean contains(String entryName) {
+    return entries.containsKey(entryName);
+  }
+
+  /**
+   * Returns the content of the entry with the given name, read straight from the mapped pack file.
+   *
+   * @param entryName the name of the entry
+   * @return a read-only buffer holding the content of the entry
+   * @throws NoSuchFileException if the pack has no entry with the name
+   */
+  public ByteBuffer read(String entryName) throws NoSuchFileException {
+    Entry entry = getEntry(entryName);
+    return content.duplicate().position(entry.offset()).limit(entry.offset() + entry.length())
+        .slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Opens a stream reading the content of the entry with the given name.
+   *
+   * @param entryName the name of the entry
+   * @return a stream reading the content of the entry
+   * @throws NoSuchFileException if the pack has no entry with the name
+   */
+  public InputStream openStream(String entryName) throws NoSuchFileException {
+    return new ByteBufferInputStream(read(entryName));
+  }
+
+  /**
+   * Returns the SHA-256 hash of the content of the entry with the given name, as stored when the
+   * pack was written.
+   *
+   * @param entryName the name of the entry
+   * @return the hash of the entry as a hexadecimal string
+   * @throws NoSuchFileException if the pack has no entry with the name
+   */
+  public String getHash(String entryName) throws NoSuchFileException {
+    return HexFormat.of().formatHex(getEntry(entryName).hash());
+  }
+
+  /**
+   * Returns the URL string of the entry with the given name.
+   *
+   * @param entryName the name of the entry
+   * @return the URL of the entry
+   */
+  public String getUrl(String entryName) {
+    return URL_PREFIX + packFile.toUri() + URL_SEPARATOR + entryName;
+  }
+
+  /**
+   * Extracts the entry with the given name to a temporary file, for media that can only be read
+   * from a file. An entry is only extracted once, and the file is deleted when the application
+   * exits.
+   *
+   * @param entryName the name of the entry
+   * @return the extracted file
+   * @throws IOException if the pack has no entry with the name or the file cannot be written
+   */
+  public Path extract(String entryName) throws IOException {
+    Path extractedFile = extractedFiles.get(entryName);
+    if (extractedFile != null && Files.isRegularFile(extractedFile)) {
+      return extractedFile;
+    }
+    String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+    extractedFile = Files.createTempFile("paths-asset-", "-" + fileName);
+    extractedFile.toFile().deleteOnExit();
+    try (InputStream in = openStream(entryName)) {
+      Files.copy(in, extractedFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    extractedFiles.put(entryName, extractedFile);
+    return extractedFile;
+  }
+
+  /**
+   * Checks if the given URL string points to an entry of an asset pack.
+   *
+   * @param url the URL
+   * @return {@code true} if the URL points to an asset pack entry, {@code false} otherwise
+   */
+  public static boolean isPackUrl(String url) {
+    return url.startsWith(URL_PREFIX);
+  }
+
+  /**
+   * Opens a stream reading the content of the asset pack entry the given URL points to.
+   *
+   * @param url the URL of the entry
+   * @return a stream reading the content of the entry
+   * @throws IOException if the pack cannot be read or has no such entry
+   */
+  public static InputStream openUrl(String url) throws IOException {
+    return openPackOfUrl(url).openStream(getEntryNameOfUrl(url));
+  }
+
+  /**
+   * Returns the stored SHA-256 hash of the asset pack entry the given URL points to.
+   *
+   * @param url the URL of the entry
+   * @return the hash of the entry as a hexadecimal string
+   * @throws IOException if the pack cannot be read or has no such entry
+   */
+  public static String getHashOfUrl(String url) throws IOException {
+    return openPackOfUrl(url).getHash(getEntryNameOfUrl(url));
+  }
+
+  /**
+   * Returns a file URL for the given URL. An asset pack entry is extracted to a temporary file, and
+   * any other URL is returned as is.
+   *
+   * @param url the URL
+   * @return a URL that can be read as a file
+   * @throws IOException if the entry cannot be extracted
+   */
+  public static String toFileUrl(String url) throws IOException {
+    if (!isPackUrl(url)) {
+      return url;
+    }
+    return openPackOfUrl(url).extract(getEntryNameOfUrl(url)).toUri().toString();
+  }
+
+  /**
+   * Opens the asset pack the given entry URL points into.
+   *
+   * @param url the URL of the entry
+   * @return the asset pack
+   * @throws IOException if the URL is not a valid entry URL or the pack cannot be read
+   */
+  private static AssetPack openPackOfUrl(String url) throws IOException {
+    int separatorIndex = url.lastIndexOf(URL_SEPARATOR);
+    if (!isPackUrl(url) || separatorIndex < 0) {
+      throw new IOException("Not an asset pack URL: " + url);
+    }
+    try {
+      return open(Path.of(URI.create(url.substring(URL_PREFIX.length(), separatorIndex))));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Not an asset pack URL: " + url, e);
+    }
+  }
+
+  /**
+   * Returns the name of the entry the given URL points to.
+   *
+   * @param url the URL of the entry
+   * @return the entry name
+   */
+  private static String getEntryNameOfUrl(String url) {
+    return url.substring(url.lastIndexOf(URL_SEPARATOR) + URL_SEPARATOR.length());
+  }
+
+  /**
+   * Returns the entry with the given name.
+   *
+   * @param entryName the name of the entry
+   * @return the entry
+   * @throws NoSuchFileException if the pack has no entry with the name
+   */
+  private Entry getEntry(String entryName) throws NoSuchFileException {
+    Entry entry = entries.get(Objects.requireNonNull(entryName, "Entry name cannot be null"));
+    if (entry == null) {
+      throw new NoSuchFileException(packFile + URL_SEPARATOR + entryName);
+    }
+    return entry;
+  }
+
+  /**
+   * Reads the directory table of a mapped pack file.
+   *
+   * @param packFile the pack file, for error messages
+   * @param content  the mapped content of the pack file
+   * @return the entries of the pack, by name
+   * @throws IOException if the pack file is not a valid asset pack
+   */
+  private static Map<String, Entry> readDirectoryTable(Path packFile, ByteBuffer content)
+      throws IOException {
+    ByteBuffer table = content.duplicate();
+    try {
+      if (table.getInt() != MAGIC || table.getInt() != VERSION) {
+        throw new IOException("Not an asset pack: " + packFile);
+      }
+      int entryCount = table.getInt();
+      Map<String, Entry> entries = new LinkedHashMap<>();
+      for (int i = 0; i < entryCount; i++) {
+        byte[] name = new byte[Short.toUnsignedInt(table.getShort())];
+        table.get(name);
+        int offset = table.getInt();
+        int length = table.getInt();
+        byte[] hash = new byte[HASH_SIZE];
+        table.get(hash);
+        if (offset < 0 || length < 0 || (long) offset + length > content.limit()) {
+          throw new IOException("Corrupt asset pack entry in " + packFile);
+        }
+        entries.put(new String(name, StandardCharsets.UTF_8), new Entry(offset, length, hash));
+      }
+      return entries;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated asset pack: " + packFile, e);
+    }
+  }
+
+  /**
+   * Encodes an entry name as UTF-8.
+   *
+   * @param name the entry name
+   * @return the encoded name
+   * @throws IOException if the name is too long
+   */
+  private static byte[] encodeName(String name) throws IOException {
+    byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+    if (encodedName.length > 0xffff) {
+      throw new IOException("Asset name is too long: " + name);
+    }
+    return encodedName;
+  }
+
+  /**
+   * An entry of the directory table: where the content of a file is stored in the pack, and its
+   * hash.
+   */
+  private record Entry(int offset, int length, byte[] hash) {
+  }
+
+  /**
+   * An input stream reading the content of a byte buffer.
+   */
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      Objects.checkFromIndexSize(offset, length, bytes.length);
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int readLength = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, readLength);
+      return readLength;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
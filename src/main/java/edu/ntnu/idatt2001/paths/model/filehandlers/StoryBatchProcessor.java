@@ -0,0 +1,352 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryReader;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileReader;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseDiagnostic;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseResult;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The StoryBatchProcessor class runs a task on every story file in a directory tree, such as
+ * validating, converting or indexing the stories. The files are processed in parallel on a fixed
+ * number of worker threads, and the result of every file is reported as soon as it is done, with
+ * the time it took and the reason it failed, if it did.
+ *
+ * <p>A file that fails does not stop the batch. Every file is processed, and the results tell which
+ * files failed and why.
+ *
+ * <p>The processor does not use JavaFX, and is used by the {@code StoryTool} command-line tool to
+ * process many story files without launching the game.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * StoryBatchProcessor processor = new StoryBatchProcessor(4);
+ * List<StoryBatchProcessor.Result> results =
+ *     processor.process(storiesPath, StoryBatchProcessor.validate(), System.out::println);
+ * }</pre>
+ */
+public class StoryBatchProcessor {
+
+  private final int threadCount;
+
+  /**
+   * Constructs a new StoryBatchProcessor that processes files on the given number of threads.
+   *
+   * @param threadCount the number of worker threads
+   * @throws IllegalArgumentException if the thread count is not positive
+   */
+  public StoryBatchProcessor(int threadCount) {
+    if (threadCount <= 0) {
+      throw new IllegalArgumentException("Thread count must be positive");
+    }
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Runs the given task on every story file in the given directory tree. The results are handed to
+   * the listener in the order the files are done, on the calling thread, so the listener does not
+   * have to be thread-safe.
+   *
+   * @param directory the root of the directory tree to process
+   * @param task      the task to run on every story file
+   * @param listener  the listener that is told about every result as soon as it is done
+   * @return the results of all files, in the order they were done
+   * @throws IOException          if the directory tree cannot be read
+   * @throws InterruptedException if the thread is interrupted while waiting for the files
+   */
+  public List<Result> process(Path directory, StoryTask task, Consumer<Result> listener)
+      throws IOException, InterruptedException {
+    return process(findStoryFiles(directory), task, listener);
+  }
+
+  /**
+   * Runs the given task on every one of the given story files. The results are handed to the
+   * listener in the order the files are done, on the calling thread, so the listener does not have
+   * to be thread-safe.
+   *
+   * @param storyFiles the story files to process
+   * @param task       the task to run on every story file
+   * @param listener   the listener that is told about every result as soon as it is done
+   * @return the results of all files, in the order they were done
+   * @throws InterruptedException if the thread is interrupted while waiting for the files
+   */
+  public List<Result> process(List<Path> storyFiles, StoryTask task, Consumer<Result> listener)
+      throws InterruptedException {
+    Objects.requireNonNull(storyFiles, "Story files cannot be null");
+    Objects.requireNonNull(task, "Task cannot be null");
+    Objects.requireNonNull(listener, "Listener cannot be null");
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+      for (Path storyFile : storyFiles) {
+        completionService.submit(() -> runTask(task, storyFile));
+      }
+      List<Result> results = new ArrayList<>(storyFiles.size());
+      for (int i = 0; i < storyFiles.size(); i++) {
+        Result result = getResult(completionService);
+        results.add(result);
+        listener.accept(result);
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Finds the story files in the given directory tree, in alphabetical order of their paths.
+   * Passage index files and temporary files are not story files, and are left out.
+   *
+   * @param directory the root of the directory tree
+   * @return the paths of the story files
+   * @throws IOException if the directory tree cannot be read
+   */
+  public static List<Path> findStoryFiles(Path directory) throws IOException {
+    Objects.requireNonNull(directory, "Directory cannot be null");
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files
+          .filter(Files::isRegularFile)
+          .filter(file -> StoryCatalog.isStoryFile(file.getFileName().toString()))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Returns a task that checks that a story file can be read without problems, and that the
+   * story has no broken links. Every problem in a .paths file is reported, not only the first.
+   *
+   * @return the validation task
+   */
+  public static StoryTask validate() {
+    return storyFile -> {
+      Story story;
+      if (storyFile.getFileName().toString().endsWith(StoryFileReader.getFileEnding())) {
+        StoryParseResult result = StoryFileReader.readStoryWithDiagnostics(storyFile);
+        if (!result.getDiagnostics().isEmpty()) {
+          throw new IOException(describeDiagnostics(result.getDiagnostics()));
+        }
+        story = result.getStory();
+      } else {
+        story = StoryCatalog.readStoryFile(storyFile);
+      }
+      int brokenLinks = story.getBrokenLinks().size();
+      if (brokenLinks > 0) {
+        throw new IOException(brokenLinks + " broken link(s)");
+      }
+      return "Valid";
+    };
+  }
+
+  /**
+   * Returns a task that converts a story file to the format with the given file ending. The
+   * converted file is written to the same relative path in the target directory as the story file
+   * has in the source directory, with the file ending replaced. Story files that are already in the
+   * target format are skipped.
+   *
+   * @param fileEnding      the file ending of the target format, such as {@code ".json"}
+   * @param sourceDirectory the root of the directory tree the story files are in
+   * @param targetDirectory the root of the directory tree to write the converted files to
+   * @return the conversion task
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static StoryTask convertTo(String fileEnding, Path sourceDirectory, Path targetDirectory) {
+    Objects.requireNonNull(fileEnding, "File ending cannot be null");
+    Objects.requireNonNull(sourceDirectory, "Source directory cannot be null");
+    Objects.requireNonNull(targetDirectory, "Target directory cannot be null");
+    if (!StoryCatalog.isStoryFile(fileEnding)) {
+      throw new IllegalArgumentException("Unsupported story format: " + fileEnding);
+    }
+    return storyFile -> {
+      if (storyFile.getFileName().toString().endsWith(fileEnding)) {
+        return "Skipped, already " + fileEnding;
+      }
+      String relativePath = sourceDirectory.relativize(storyFile).toString();
+      Path targetFile =
+          targetDirectory.resolve(FilenameUtils.removeExtension(relativePath) + fileEnding);
+      Files.createDirectories(targetFile.toAbsolutePath().getParent());
+      StoryCatalog.writeStoryFile(StoryCatalog.readStoryFile(storyFile), targetFile);
+      return "Converted to " + targetFile;
+    };
+  }
+
+  /**
+   * Returns a task that brings the passage index of a story file up to date, rebuilding its
+   * sidecar index file if it is missing or stale. Binary stories have no passage index, and are
+   * skipped.
+   *
+   * @return the indexing task
+   */
+  public static StoryTask index() {
+    return storyFile -> {
+      if (storyFile.getFileName().toString().endsWith(BinaryStoryReader.getFileEnding())) {
+        return "Skipped, binary stories have no passage index";
+      }
+      StoryCatalog.indexStoryFile(storyFile);
+      return "Indexed";
+    };
+  }
+
+  /**
+   * Runs the task on a story file and times it. An exception thrown by the task fails the file,
+   * with the message of the exception as the reason.
+   *
+   * @param task      the task to run
+   * @param storyFile the story file to run the task on
+   * @return the result of the file
+   */
+  private static Result runTask(StoryTask task, Path storyFile) {
+    long startTime = System.nanoTime();
+    boolean succeeded;
+    String message;
+    try {
+      message = task.process(storyFile);
+      succeeded = true;
+    } catch (Exception e) {
+      message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+      succeeded = false;
+    }
+    long durationMillis = (System.nanoTime() - startTime) / 1_000_000;
+    return new Result(storyFile, succeeded, durationMillis, message);
+  }
+
+  /**
+   * Waits for the next file to be done and returns its result. Errors thrown by a task, which are
+   * not caught by {@link #runTask(StoryTask, Path)}, are thrown again on the calling thread.
+   *
+   * @param completionService the completion service the tasks are submitted to
+   * @return the result of the next file that is done
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  private static Result getResult(CompletionService<Result> completionService)
+      throws InterruptedException {
+    try {
+      return completionService.take().get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Describes the given problems found in a .paths file, one problem per line.
+   *
+   * @param diagnostics the problems found in the file
+   * @return the description of the problems
+   */
+  private static String describeDiagnostics(List<StoryParseDiagnostic> diagnostics) {
+    return diagnostics.size()
+        + " problem(s):"
+        + diagnostics.stream()
+            .map(diagnostic -> System.lineSeparator() + "    " + diagnostic)
+            .collect(Collectors.joining());
+  }
+
+  /**
+   * A task run on every story file in a batch.
+   */
+  @FunctionalInterface
+  public interface StoryTask {
+
+    /**
+     * Processes the given story file.
+     *
+     * @param storyFile the story file to process
+     * @return a short message describing what was done with the file
+     * @throws Exception if the file cannot be processed, with the reason as the message
+     */
+    String process(Path storyFile) throws Exception;
+  }
+
+  /**
+   * The result of processing a single story file: whether it succeeded, the time it took, and a
+   * message describing what was done, or why it failed.
+   */
+  public static class Result {
+
+    private final Path file;
+    private final boolean succeeded;
+    private final long durationMillis;
+    private final String message;
+
+    /**
+     * Constructs a new Result of the given story file.
+     *
+     * @param file           the processed story file
+     * @param succeeded      {@code true} if the file was processed, {@code false} if it failed
+     * @param durationMillis the time it took to process the file, in milliseconds
+     * @param message        what was done with the file, or why it failed
+     */
+    public Result(Path file, boolean succeeded, long durationMillis, String message) {
+      this.file = Objects.requireNonNull(file, "File cannot be null");
+      this.succeeded = succeeded;
+      this.durationMillis = durationMillis;
+      this.message = message;
+    }
+
+    /**
+     * Returns the processed story file.
+     *
+     * @return the path of the file
+     */
+    public Path getFile() {
+      return file;
+    }
+
+    /**
+     * Checks if the file was processed without failing.
+     *
+     * @return {@code true} if the file succeeded, {@code false} if it failed
+     */
+    public boolean isSucceeded() {
+      return succeeded;
+    }
+
+    /**
+     * Returns the time it took to process the file.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+      return durationMillis;
+    }
+
+    /**
+     * Returns what was done with the file, or why it failed.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return (succeeded ? "OK " : "FAILED ")
+          + file
+          + " ("
+          + durationMillis
+          + " ms): "
+          + message;
+    }
+  }
+}
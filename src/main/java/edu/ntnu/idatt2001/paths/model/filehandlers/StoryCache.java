@@ -0,0 +1,187 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The StoryCache class keeps parsed stories in memory, so that a story file is only read and
+ * parsed again when it has changed. Stories are cached by the path of their file, together with
+ * the size and last modified time the file had when it was read. A story whose file has been
+ * changed, replaced or removed since is read again.
+ *
+ * <p>The memory used by the cache is bounded by a budget. The size of a story file is used as the
+ * estimate of the memory its story takes up, and the least recently used stories are evicted when
+ * the cached stories take up more than the budget. A story file larger than the whole budget is
+ * not cached.
+ *
+ * <p>The cached stories are never handed out, since stories are mutable. Every call to
+ * {@link #get(Path, StoryLoader)} returns a deep copy of the cached story, which the caller is free
+ * to change.
+ *
+ * <p>The cache is thread-safe.
+ *
+ * @see StoryCatalog
+ */
+class StoryCache {
+
+  private final long memoryBudget;
+  private final Map<Path, CachedStory> stories;
+  private long usedMemory;
+
+  /**
+   * Constructs a new, empty StoryCache with the given memory budget.
+   *
+   * @param memoryBudget the most memory the cached stories may take up, in bytes of story files
+   * @throws IllegalArgumentException if the memory budget is not positive
+   */
+  StoryCache(long memoryBudget) {
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive");
+    }
+    this.memoryBudget = memoryBudget;
+    this.stories = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns a copy of the story saved in the file with the given path. The story is read with the
+   * given loader if it is not in the cache, or if the file has changed since it was read.
+   *
+   * @param filePath the path of the story file
+   * @param loader   the loader that reads the story from the file
+   * @return a copy of the story
+   * @throws IOException if the story file cannot be read
+   */
+  Story get(Path filePath, StoryLoader loader) throws IOException {
+    Objects.requireNonNull(loader, "Loader cannot be null");
+    Path key = filePath.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+
+    synchronized (this) {
+      CachedStory cachedStory = stories.get(key);
+      if (cachedStory != null && cachedStory.isCurrent(size, lastModified)) {
+        return new Story(cachedStory.story);
+      }
+    }
+
+    Story story = loader.load();
+    synchronized (this) {
+      remove(key);
+      if (size <= memoryBudget) {
+        stories.put(key, new CachedStory(story, size, lastModified));
+        usedMemory += size;
+        evictLeastRecentlyUsed();
+      }
+    }
+    return new Story(story);
+  }
+
+  /**
+   * Removes the story saved in the file with the given path from the cache, if it is cached.
+   *
+   * @param filePath the path of the story file
+   */
+  synchronized void invalidate(Path filePath) {
+    remove(filePath.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Removes all stories from the cache.
+   */
+  synchronized void clear() {
+    stories.clear();
+    usedMemory = 0;
+  }
+
+  /**
+   * Returns the number of stories in the cache.
+   *
+   * @return the number of cached stories
+   */
+  synchronized int size() {
+    return stories.size();
+  }
+
+  /**
+   * Returns the memory taken up by the cached stories, estimated by the size of their files.
+   *
+   * @return the used memory, in bytes of story files
+   */
+  synchronized long getUsedMemory() {
+    return usedMemory;
+  }
+
+  /**
+   * Removes the story with the given key from the cache.
+   *
+   * @param key the normalized absolute path of the story file
+   */
+  private void remove(Path key) {
+    CachedStory removedStory = stories.remove(key);
+    if (removedStory != null) {
+      usedMemory -= removedStory.size;
+    }
+  }
+
+  /**
+   * Evicts the least recently used stories until the cached stories fit in the memory budget.
+   */
+  private void evictLeastRecentlyUsed() {
+    Iterator<CachedStory> iterator = stories.values().iterator();
+    while (usedMemory > memoryBudget && iterator.hasNext()) {
+      usedMemory -= iterator.next().size;
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Reads a story from its file.
+   */
+  @FunctionalInterface
+  interface StoryLoader {
+
+    /**
+     * Reads the story.
+     *
+     * @return the read story
+     * @throws IOException if the story file cannot be read
+     */
+    Story load() throws IOException;
+  }
+
+  /**
+   * A cached story, with the size and last modified time its file had when it was read.
+   */
+  private static class CachedStory {
+
+    private final Story story;
+    private final long size;
+    private final long lastModified;
+
+    private CachedStory(Story story, long size, long lastModified) {
+      this.story = story;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Checks if the story file still has the size and last modified time it had when the story
+     * was read.
+     *
+     * @param size         the current size of the file
+     * @param lastModified the current last modified time of the file
+     * @return {@code true} if the cached story is current, {@code false} otherwise
+     */
+    private boolean isCurrent(long size, long lastModified) {
+      return this.size == size && this.lastModified == lastModified;
+    }
+  }
+}
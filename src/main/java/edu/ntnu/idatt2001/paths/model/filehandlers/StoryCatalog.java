@@ -0,0 +1,327 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryReader;
+import edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileReader;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseResult;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.FileHash;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The StoryCatalog class loads saved stories by their file name, whatever format they are saved
+ * in. The file ending of the file name decides which file handler is used: {@code .paths} stories
+ * are read lazily with the {@link StoryFileReader}, {@code .json} stories are read with the
+ * {@link StoryFileHandler}, and {@code .pathsb} stories are read with the
+ * {@link BinaryStoryReader}.
+ *
+ * <p>Loaded stories are kept in a process-wide {@link StoryCache}, so a story file is only read
+ * and parsed again when it has changed. Every call to {@link #loadStory(String)} returns a copy of
+ * the cached story that the caller is free to change.
+ *
+ * <p>Story files outside the stories folders, such as the files processed by the
+ * {@link StoryBatchProcessor}, are read and written by their path with
+ * {@link #readStoryFile(Path)} and {@link #writeStoryFile(Story, Path)}.
+ *
+ * <p>The catalog also keeps a {@link StoryMetadata} summary next to every story file, with the
+ * counts shown in the stories overview. The summary is written when a story is saved or converted,
+ * and is only rebuilt from the story file when it is stale.
+ *
+ * <p>The catalog also creates {@link StoryReference} objects, which identify a story file and the
+ * content it had when the reference was made. Saved games refer to their story this way. The hash
+ * of the story file is taken from its passage index or summary sidecar file when the sidecar file
+ * is current, so the story file is only hashed again when it has changed.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * StoryReference reference = StoryCatalog.createReference("My Story.paths");
+ * Story story = StoryCatalog.loadStory(reference.getFileName());
+ * }</pre>
+ */
+public class StoryCatalog {
+
+  private static final String JSON_FILE_ENDING = ".json";
+  private static final long STORY_CACHE_MEMORY_BUDGET = 32L * 1024 * 1024;
+  private static final StoryCache STORY_CACHE = new StoryCache(STORY_CACHE_MEMORY_BUDGET);
+
+  private StoryCatalog() {
+  }
+
+  /**
+   * Loads the story saved in the file with the given name. The story is taken from the story
+   * cache if the file has not changed since it was last loaded.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return a copy of the loaded story, which the caller is free to change
+   * @throws IOException              if the story file cannot be read or parsed
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static Story loadStory(String fileName) throws IOException {
+    Path filePath = getStoryFilePath(fileName);
+    return STORY_CACHE.get(filePath, () -> readStory(fileName));
+  }
+
+  /**
+   * Reads the story saved in the file with the given name, with the file handler of its format.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return the read story
+   * @throws IOException if the story file cannot be read or parsed
+   */
+  private static Story readStory(String fileName) throws IOException {
+    String storyName = FilenameUtils.removeExtension(fileName);
+    if (fileName.endsWith(StoryFileReader.getFileEnding())) {
+      try {
+        return StoryFileReader.readStoryLazily(storyName);
+      } catch (ParseException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    } else if (fileName.endsWith(JSON_FILE_ENDING)) {
+      return new StoryFileHandler().loadStoryFromFile(storyName);
+    } else if (fileName.endsWith(BinaryStoryReader.getFileEnding())) {
+      return BinaryStoryReader.readStoryFromFile(storyName);
+    }
+    throw new IllegalArgumentException("Unsupported story file: " + fileName);
+  }
+
+  /**
+   * Reads the story saved in the file with the given path, with the file handler of its format.
+   * The file may be anywhere, and does not have to be in the stories folders. The story is read in
+   * full and is not cached, so reading many files does not fill the story cache.
+   *
+   * @param filePath the path of the story file
+   * @return the read story
+   * @throws IOException              if the story file cannot be read or parsed. A .paths file with
+   *                                  any problems fails with the first problem found
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static Story readStoryFile(Path filePath) throws IOException {
+    String fileName = getFileName(filePath);
+    if (fileName.endsWith(StoryFileReader.getFileEnding())) {
+      StoryParseResult result = StoryFileReader.readStoryWithDiagnostics(filePath);
+      if (!result.isValid()) {
+        throw new IOException(result.getDiagnostics().get(0).toString());
+      }
+      return result.getStory();
+    } else if (fileName.endsWith(JSON_FILE_ENDING)) {
+      return new StoryFileHandler().loadStoryFromFile(filePath);
+    } else if (fileName.endsWith(BinaryStoryReader.getFileEnding())) {
+      return BinaryStoryReader.readStoryFromFile(filePath);
+    }
+    throw new IllegalArgumentException("Unsupported story file: " + fileName);
+  }
+
+  /**
+   * Writes the given story to the file with the given path, in the format given by the file
+   * ending of the path. The file may be anywhere, and does not have to be in the stories folders.
+   * JSON stories are pretty printed.
+   *
+   * @param story    the story to write
+   * @param filePath the path of the story file
+   * @throws IOException              if the story file cannot be written
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static void writeStoryFile(Story story, Path filePath) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    String fileName = getFileName(filePath);
+    if (fileName.endsWith(StoryFileReader.getFileEnding())) {
+      StoryFileWriter.saveStoryToFile(story, filePath);
+    } else if (fileName.endsWith(JSON_FILE_ENDING)) {
+      new StoryFileHandler().saveStoryToFile(story, filePath, false);
+    } else if (fileName.endsWith(BinaryStoryReader.getFileEnding())) {
+      BinaryStoryWriter.saveStoryToFile(story, filePath);
+    } else {
+      throw new IllegalArgumentException("Unsupported story file: " + fileName);
+    }
+    StoryMetadata.writeQuietly(filePath, story);
+  }
+
+  /**
+   * Returns the summary of the story file with the given name if it is current. The summary is
+   * read from its small sidecar file without parsing the story, so this is cheap enough to call on
+   * the JavaFX application thread.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return the current summary, or {@code null} if it is missing or stale
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static StoryMetadata getMetadata(String fileName) {
+    return StoryMetadata.readCurrent(getStoryFilePath(fileName));
+  }
+
+  /**
+   * Returns an up-to-date summary of the story file with the given name, reading the story again
+   * to rebuild the summary if it is missing or stale. A .paths story with problems is summarized
+   * with the best-effort story built from it and the number of problems found.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return the summary of the story file
+   * @throws IOException              if the story file cannot be read
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static StoryMetadata computeMetadata(String fileName) throws IOException {
+    return StoryMetadata.forFile(
+        getStoryFilePath(fileName), storyFile -> analyzeStory(fileName, storyFile));
+  }
+
+  /**
+   * Writes the summary of the given story, which has just been saved to the story file with the
+   * given name. Failing to write the summary is ignored, since it is rebuilt when it is missing.
+   * The custom media of the story is audited, which decodes its images, so this should not be
+   * called on the JavaFX application thread.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @param story    the saved story
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static void updateMetadata(String fileName, Story story) {
+    Objects.requireNonNull(story, "Story cannot be null");
+    StoryMetadata.writeQuietly(getStoryFilePath(fileName), story);
+  }
+
+  /**
+   * Reads the story file with the given name to summarize it. A .paths story with problems is
+   * read again with diagnostics, so that the problems can be counted.
+   *
+   * @param fileName  the name of the story file, including the file ending
+   * @param storyFile the path of the story file
+   * @return the read story and the problems found in it
+   * @throws IOException if the story file cannot be read
+   */
+  private static StoryParseResult analyzeStory(String fileName, Path storyFile)
+      throws IOException {
+    try {
+      return new StoryParseResult(loadStory(fileName), List.of());
+    } catch (IOException e) {
+      if (!(e.getCause() instanceof ParseException)) {
+        throw e;
+      }
+    }
+    return StoryFileReader.readStoryWithDiagnostics(storyFile);
+  }
+
+  /**
+   * Returns the passage index of the story file with the given path, rebuilding its sidecar index
+   * file if it is missing or stale. Only .paths and .json stories have passage indexes, since
+   * binary stories are always read in full.
+   *
+   * @param filePath the path of the story file
+   * @return the passage index of the story file
+   * @throws IOException              if the story file cannot be read or indexed
+   * @throws IllegalArgumentException if the story format has no passage index
+   */
+  public static PassageIndex indexStoryFile(Path filePath) throws IOException {
+    String fileName = getFileName(filePath);
+    if (fileName.endsWith(StoryFileReader.getFileEnding())) {
+      return StoryFileReader.indexStoryFile(filePath);
+    } else if (fileName.endsWith(JSON_FILE_ENDING)) {
+      return StoryFileHandler.indexStoryFile(filePath);
+    }
+    throw new IllegalArgumentException("Story file has no passage index: " + fileName);
+  }
+
+  /**
+   * Checks if the file with the given name is a story file, that is if its file ending is one of
+   * the supported story formats.
+   *
+   * @param fileName the name of the file, including the file ending
+   * @return {@code true} if the file is a story file, {@code false} otherwise
+   */
+  public static boolean isStoryFile(String fileName) {
+    Objects.requireNonNull(fileName, "File name cannot be null");
+    return fileName.endsWith(StoryFileReader.getFileEnding())
+        || fileName.endsWith(JSON_FILE_ENDING)
+        || fileName.endsWith(BinaryStoryReader.getFileEnding());
+  }
+
+  /**
+   * Returns the name of the file with the given path.
+   *
+   * @param filePath the path of the file
+   * @return the file name, including the file ending
+   */
+  private static String getFileName(Path filePath) {
+    Objects.requireNonNull(filePath, "File path cannot be null");
+    return filePath.getFileName().toString();
+  }
+
+  /**
+   * Returns the path of the story file with the given name.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return the path of the story file
+   * @throws IllegalArgumentException if the file ending is not a supported story format
+   */
+  public static Path getStoryFilePath(String fileName) {
+    Objects.requireNonNull(fileName, "File name cannot be null");
+    String storyName = FilenameUtils.removeExtension(fileName);
+    if (fileName.endsWith(StoryFileReader.getFileEnding())) {
+      return StoryFileReader.getFilePath(storyName);
+    } else if (fileName.endsWith(JSON_FILE_ENDING)) {
+      return new StoryFileHandler().getFilePath().resolve(storyName + JSON_FILE_ENDING);
+    } else if (fileName.endsWith(BinaryStoryReader.getFileEnding())) {
+      return BinaryStoryReader.getFilePath(storyName);
+    }
+    throw new IllegalArgumentException("Unsupported story file: " + fileName);
+  }
+
+  /**
+   * Creates a reference to the story file with the given name, holding the current hash of the
+   * file. The hash is read from a current sidecar file of the story file if there is one, which is
+   * the case for a story that has just been loaded or saved, and the file is hashed otherwise.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return the reference to the story file
+   * @throws IOException if the story file cannot be read
+   */
+  public static StoryReference createReference(String fileName) throws IOException {
+    return new StoryReference(fileName, getHash(fileName));
+  }
+
+  /**
+   * Checks if the referenced story file still has the content it had when the reference was
+   * made.
+   *
+   * @param reference the reference to check
+   * @return {@code true} if the story file is unchanged, {@code false} if it has been changed
+   * @throws IOException if the story file cannot be read
+   */
+  public static boolean isUnchanged(StoryReference reference) throws IOException {
+    Objects.requireNonNull(reference, "Reference cannot be null");
+    return reference.getHash().equals(getHash(reference.getFileName()));
+  }
+
+  /**
+   * Returns the current SHA-256 hash of the story file with the given name. The hash is taken from
+   * the passage index of a .paths story or the summary of the story if its sidecar file is still
+   * current, that is if the size and last modified time of the story file have not changed since
+   * the sidecar file was written. The story file is only hashed if neither sidecar file is
+   * current.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @return the hash of the story file
+   * @throws IOException if the story file cannot be read
+   */
+  private static String getHash(String fileName) throws IOException {
+    Path storyFile = getStoryFilePath(fileName);
+    if (fileName.endsWith(StoryFileReader.getFileEnding())) {
+      PassageIndex index = PassageIndex.readCurrent(storyFile);
+      if (index != null) {
+        return index.getHash();
+      }
+    }
+    String hash = StoryMetadata.readCurrentHash(storyFile);
+    return hash != null ? hash : FileHash.sha256(storyFile);
+  }
+}
@@ -0,0 +1,543 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseDiagnostic;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseResult;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.FileHash;
+import edu.ntnu.idatt2001.paths.model.media.MediaAudit;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * The StoryMetadata class is a summary of a story file: the number of passages, broken links and
+ * problems in the story, and the number of custom images and sounds of the story, and of its
+ * media files that match no passage or cannot be decoded, as found by the {@link MediaAudit}. The
+ * summary is kept in a sidecar file next to the story file, named after the story file with a
+ * {@code .meta} ending, such as {@code My Story.paths.meta}, so that the stories overview can show
+ * it without parsing the story. The problems themselves are kept as well, so they can be shown
+ * without parsing the story again.
+ *
+ * <p>The summary is written when a story is saved or converted, and is stamped with the size, last
+ * modified time and SHA-256 hash of the story file, and a stamp of the custom media of the story.
+ * {@link #readCurrent(Path)} only returns a summary that is still current, and
+ * {@link #forFile(Path, StoryAnalyzer)} rebuilds a missing or stale summary. A summary is stale if
+ * the size of the story file has changed, if its last modified time has changed and its hash no
+ * longer matches, or if custom media of the story has been added, removed or changed. The media
+ * stamp is a digest of the name, size and last modified time of every custom media file, and of
+ * the last modified time of the media folders and the asset pack of the story, so overwriting a
+ * media file in place also makes the summary stale.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * StoryMetadata metadata = StoryMetadata.readCurrent(storyPath);
+ * if (metadata == null) {
+ *   metadata = StoryMetadata.forFile(storyPath, analyzer);
+ * }
+ * }</pre>
+ *
+ * @see StoryCatalog#getMetadata(String)
+ */
+public class StoryMetadata {
+
+  private static final String SIDECAR_ENDING = ".meta";
+  private static final int MAGIC = 0x504d4554;
+  private static final int VERSION = 4;
+
+  private final String storyTitle;
+  private final int passageCount;
+  private final int brokenLinkCount;
+  private final int problemCount;
+  private final int customImageCount;
+  private final int customSoundCount;
+  private final int unmatchedMediaCount;
+  private final int undecodableMediaCount;
+  private long fileSize;
+  private long lastModified;
+  private long mediaStamp;
+  private String hash;
+  private List<StoryParseDiagnostic> diagnostics;
+
+  /**
+   * Constructs a new, unstamped StoryMetadata with the given counts.
+   *
+   * @param storyTitle            the title of the story, or {@code null} if no story could be
+   *                              built from the file
+   * @param passageCount          the number of passages in the story, not counting the opening
+   *                              passage
+   * @param brokenLinkCount       the number of broken links in the story
+   * @param problemCount          the number of problems found while parsing the story file
+   * @param customImageCount      the number of custom images of the story
+   * @param customSoundCount      the number of custom sounds of the story
+   * @param unmatchedMediaCount   the number of custom media files that match no passage
+   * @param undecodableMediaCount the number of custom media files that match a passage but
+   *                              cannot be decoded
+   */
+  public StoryMetadata(
+      String storyTitle,
+      int passageCount,
+      int brokenLinkCount,
+      int problemCount,
+      int customImageCount,
+      int customSoundCount,
+      int unmatchedMediaCount,
+      int undecodableMediaCount) {
+    this.storyTitle = storyTitle;
+    this.passageCount = passageCount;
+    this.brokenLinkCount = brokenLinkCount;
+    this.problemCount = problemCount;
+    this.customImageCount = customImageCount;
+    this.customSoundCount = customSoundCount;
+    this.unmatchedMediaCount = unmatchedMediaCount;
+    this.undecodableMediaCount = undecodableMediaCount;
+    this.diagnostics = List.of();
+  }
+
+  /**
+   * Summarizes the story of the given parse result, auditing the custom media of the story.
+   *
+   * @param result the story parsed from the story file, and the problems found while parsing it
+   * @return the unstamped summary of the story
+   * @throws IOException if the custom media of the story cannot be read
+   */
+  static StoryMetadata of(StoryParseResult result) throws IOException {
+    int problemCount = result.getDiagnostics().size();
+    StoryMetadata metadata;
+    if (!result.hasStory()) {
+      metadata = new StoryMetadata(null, 0, 0, problemCount, 0, 0, 0, 0);
+    } else {
+      Story story = result.getStory();
+      MediaAudit mediaAudit = MediaAudit.of(story);
+      metadata =
+          new StoryMetadata(
+              story.getTitle(),
+              story.getPassages().size(),
+              story.getBrokenLinks().size(),
+              problemCount,
+              mediaAudit.getImageCount(),
+              mediaAudit.getSoundCount(),
+              mediaAudit.getUnmatchedFiles().size(),
+              mediaAudit.getUndecodableFiles().size());
+    }
+    metadata.diagnostics = List.copyOf(result.getDiagnostics());
+    return metadata;
+  }
+
+  /**
+   * Returns an up-to-date summary of the given story file. The summary is read from the sidecar
+   * file if it is current, and is otherwise rebuilt from the story read by the given analyzer and
+   * written to the sidecar file. Failing to write the sidecar file does not fail the lookup, the
+   * summary is then simply rebuilt again the next time.
+   *
+   * @param storyFile the story file to get the summary of
+   * @param analyzer  the analyzer used to read the story if the summary is missing or stale
+   * @return the summary of the story file
+   * @throws IOException if the story file cannot be read
+   */
+  public static StoryMetadata forFile(Path storyFile, StoryAnalyzer analyzer) throws IOException {
+    Objects.requireNonNull(storyFile, "Story file cannot be null");
+    Objects.requireNonNull(analyzer, "Story analyzer cannot be null");
+    long fileSize = Files.size(storyFile);
+    long lastModified = Files.getLastModifiedTime(storyFile).toMillis();
+
+    StoryMetadata metadata = readSidecar(getSidecarPath(storyFile));
+    if (metadata != null
+        && metadata.fileSize == fileSize
+        && metadata.mediaStamp == getMediaStamp(metadata.storyTitle)) {
+      if (metadata.lastModified == lastModified) {
+        return metadata;
+      }
+      if (metadata.hash.equals(FileHash.sha256(storyFile))) {
+        metadata.lastModified = lastModified;
+        writeSidecarQuietly(storyFile, metadata);
+        return metadata;
+      }
+    }
+
+    metadata = of(analyzer.analyze(storyFile));
+    metadata.stamp(storyFile);
+    writeSidecarQuietly(storyFile, metadata);
+    return metadata;
+  }
+
+  /**
+   * Returns the summary of the given story file if its sidecar file is current, that is if the
+   * size and last modified time of the story file, and the stamp of its custom media, are the same
+   * as when the summary was stamped. The hash of the file is not checked, so
+   * this is cheap enough to call on the JavaFX application thread.
+   *
+   * @param storyFile the story file to get the summary of
+   * @return the current summary, or {@code null} if it is missing or stale
+   */
+  public static StoryMetadata readCurrent(Path storyFile) {
+    StoryMetadata metadata = readSidecar(getSidecarPath(storyFile));
+    try {
+      if (metadata != null
+          && metadata.fileSize == Files.size(storyFile)
+          && metadata.lastModified == Files.getLastModifiedTime(storyFile).toMillis()
+          && metadata.mediaStamp == getMediaStamp(metadata.storyTitle)) {
+        return metadata;
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the SHA-256 hash the summary of the given story file was stamped with, if the size and
+   * last modified time of the story file are the same as when the summary was stamped. Neither the
+   * story file nor its custom media is read, so this is cheap enough to call on the JavaFX
+   * application thread.
+   *
+   * @param storyFile the story file to get the hash of
+   * @return the hash of the story file, or {@code null} if the sidecar file is missing or stale
+   */
+  public static String readCurrentHash(Path storyFile) {
+    StoryMetadata metadata = readSidecar(getSidecarPath(storyFile));
+    try {
+      if (metadata != null
+          && metadata.fileSize == Files.size(storyFile)
+          && metadata.lastModified == Files.getLastModifiedTime(storyFile).toMillis()) {
+        return metadata.hash;
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return null;
+  }
+
+  /**
+   * Writes the summary of the given story to the sidecar file of the story file it has just been
+   * saved to. The story is known to be valid, since it was saved from memory. An I/O error is
+   * ignored, since the summary can always be rebuilt from the story file.
+   *
+   * @param storyFile the story file the story has been saved to
+   * @param story     the saved story
+   */
+  public static void writeQuietly(Path storyFile, Story story) {
+    try {
+      StoryMetadata metadata = of(new StoryParseResult(story, List.of()));
+      metadata.stamp(storyFile);
+      writeSidecarQuietly(storyFile, metadata);
+    } catch (IOException ignored) {
+    }
+  }
+
+  /**
+   * Returns the path of the sidecar file of the given story file.
+   *
+   * @param storyFile the story file
+   * @return the path of the sidecar file
+   */
+  public static Path getSidecarPath(Path storyFile) {
+    return storyFile.resolveSibling(storyFile.getFileName() + SIDECAR_ENDING);
+  }
+
+  /**
+   * Returns the title of the summarized story.
+   *
+   * @return the story title, or {@code null} if no story could be built from the file
+   */
+  public String getStoryTitle() {
+    return storyTitle;
+  }
+
+  /**
+   * Returns the number of passages in the story, not counting the opening passage.
+   *
+   * @return the number of passages
+   */
+  public int getPassageCount() {
+    return passageCount;
+  }
+
+  /**
+   * Returns the number of links in the story that refer to a passage that does not exist.
+   *
+   * @return the number of broken links
+   */
+  public int getBrokenLinkCount() {
+    return brokenLinkCount;
+  }
+
+  /**
+   * Returns the problems found while parsing the story file, with the line and column of each
+   * problem. The problems are kept in the sidecar file, so the story file is not parsed again.
+   *
+   * @return an unmodifiable list of the problems, which is empty if there were none
+   */
+  public List<StoryParseDiagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * Returns the number of problems found while parsing the story file.
+   *
+   * @return the number of problems
+   */
+  public int getProblemCount() {
+    return problemCount;
+  }
+
+  /**
+   * Returns the number of custom images of the story.
+   *
+   * @return the number of custom images
+   */
+  public int getCustomImageCount() {
+    return customImageCount;
+  }
+
+  /**
+   * Returns the number of custom sounds of the story.
+   *
+   * @return the number of custom sounds
+   */
+  public int getCustomSoundCount() {
+    return customSoundCount;
+  }
+
+  /**
+   * Returns the number of broken custom media files of the story, both those that match no passage
+   * and those that cannot be decoded.
+   *
+   * @return the number of broken media files
+   */
+  public int getBrokenMediaCount() {
+    return unmatchedMediaCount + undecodableMediaCount;
+  }
+
+  /**
+   * Returns the number of custom media files of the story that match no passage.
+   *
+   * @return the number of unmatched media files
+   */
+  public int getUnmatchedMediaCount() {
+    return unmatchedMediaCount;
+  }
+
+  /**
+   * Returns the number of custom media files of the story that match a passage but cannot be
+   * decoded.
+   *
+   * @return the number of undecodable media files
+   */
+  public int getUndecodableMediaCount() {
+    return undecodableMediaCount;
+  }
+
+  /**
+   * Checks if a story could be built from the file and no problems were found while parsing it.
+   *
+   * @return {@code true} if the story is valid, {@code false} otherwise
+   */
+  public boolean isValid() {
+    return storyTitle != null && problemCount == 0;
+  }
+
+  /**
+   * Stamps the summary with the current size, last modified time and hash of the story file, and
+   * the current stamp of the custom media of the story.
+   *
+   * @param storyFile the summarized story file
+   * @throws IOException if the story file cannot be read
+   */
+  private void stamp(Path storyFile) throws IOException {
+    fileSize = Files.size(storyFile);
+    lastModified = Files.getLastModifiedTime(storyFile).toMillis();
+    hash = FileHash.sha256(storyFile);
+    mediaStamp = getMediaStamp(storyTitle);
+  }
+
+  /**
+   * Returns a stamp of the custom media of the given story: a digest of the name, size and last
+   * modified time of every file in the custom images and sounds folders, and of the last modified
+   * time of the folders and of the asset pack of the story. Only the attributes of the files are
+   * read, not their content, so the stamp is cheap to make, but it changes whenever a media file is
+   * added, removed or overwritten, or the story is packed again.
+   *
+   * @param storyTitle the title of the story, or {@code null} if there is no story
+   * @return the stamp of the custom media, or 0 if there is no story
+   */
+  private static long getMediaStamp(String storyTitle) {
+    if (storyTitle == null) {
+      return 0;
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+    Path mediaPath = StoryFileHandler.getCustomMediaPath(storyTitle);
+    for (Path folder : List.of(mediaPath.resolve("images"), mediaPath.resolve("sounds"))) {
+      updateDigest(digest, folder.getFileName().toString(), getLastModifiedOrZero(folder), 0);
+      try (Stream<Path> files = Files.list(folder)) {
+        for (Path file : files.sorted().toList()) {
+          BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+          updateDigest(
+              digest,
+              file.getFileName().toString(),
+              attributes.lastModifiedTime().toMillis(),
+              attributes.size());
+        }
+      } catch (IOException e) {
+        // A folder that does not exist, or a file removed while listing, is stamped as it is.
+      }
+    }
+    updateDigest(
+        digest, AssetPack.EXTENSION, getLastModifiedOrZero(AssetPack.getPackPath(storyTitle)), 0);
+    return ByteBuffer.wrap(digest.digest()).getLong();
+  }
+
+  /**
+   * Adds the name, last modified time and size of a file to the digest of a media stamp.
+   *
+   * @param digest       the digest of the media stamp
+   * @param name         the name of the file
+   * @param lastModified the last modified time of the file, in milliseconds
+   * @param size         the size of the file, in bytes
+   */
+  private static void updateDigest(
+      MessageDigest digest, String name, long lastModified, long size) {
+    digest.update(name.getBytes(StandardCharsets.UTF_8));
+    digest.update(
+        ByteBuffer.allocate(Long.BYTES * 2 + 1)
+            .put((byte) 0)
+            .putLong(lastModified)
+            .putLong(size)
+            .array());
+  }
+
+  /**
+   * Returns the last modified time of the given file.
+   *
+   * @param file the file
+   * @return the last modified time in milliseconds, or 0 if the file does not exist
+   */
+  private static long getLastModifiedOrZero(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Reads the summary from the given sidecar file.
+   *
+   * @param sidecarFile the sidecar file to read
+   * @return the summary, or {@code null} if the sidecar file is missing or not a valid summary
+   */
+  private static StoryMetadata readSidecar(Path sidecarFile) {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecarFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      long fileSize = in.readLong();
+      long lastModified = in.readLong();
+      long mediaStamp = in.readLong();
+      String hash = in.readUTF();
+      String storyTitle = in.readBoolean() ? in.readUTF() : null;
+      StoryMetadata metadata =
+          new StoryMetadata(
+              storyTitle,
+              in.readInt(),
+              in.readInt(),
+              in.readInt(),
+              in.readInt(),
+              in.readInt(),
+              in.readInt(),
+              in.readInt());
+      metadata.fileSize = fileSize;
+      metadata.lastModified = lastModified;
+      metadata.mediaStamp = mediaStamp;
+      metadata.hash = hash;
+      int diagnosticCount = in.readInt();
+      List<StoryParseDiagnostic> diagnostics = new ArrayList<>();
+      for (int i = 0; i < diagnosticCount; i++) {
+        diagnostics.add(new StoryParseDiagnostic(in.readInt(), in.readInt(), in.readUTF()));
+      }
+      metadata.diagnostics = List.copyOf(diagnostics);
+      return metadata;
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the summary to the sidecar file of the given story file. An I/O error is ignored, since
+   * the summary can always be rebuilt from the story file.
+   *
+   * @param storyFile the summarized story file
+   * @param metadata  the summary to write
+   */
+  private static void writeSidecarQuietly(Path storyFile, StoryMetadata metadata) {
+    try {
+      AtomicFileWriter.write(
+          getSidecarPath(storyFile),
+          out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(metadata.fileSize);
+            data.writeLong(metadata.lastModified);
+            data.writeLong(metadata.mediaStamp);
+            data.writeUTF(metadata.hash);
+            data.writeBoolean(metadata.storyTitle != null);
+            if (metadata.storyTitle != null) {
+              data.writeUTF(metadata.storyTitle);
+            }
+            data.writeInt(metadata.passageCount);
+            data.writeInt(metadata.brokenLinkCount);
+            data.writeInt(metadata.problemCount);
+            data.writeInt(metadata.customImageCount);
+            data.writeInt(metadata.customSoundCount);
+            data.writeInt(metadata.unmatchedMediaCount);
+            data.writeInt(metadata.undecodableMediaCount);
+            data.writeInt(metadata.diagnostics.size());
+            for (StoryParseDiagnostic diagnostic : metadata.diagnostics) {
+              data.writeInt(diagnostic.getLine());
+              data.writeInt(diagnostic.getColumn());
+              data.writeUTF(diagnostic.getMessage());
+            }
+            data.flush();
+          });
+    } catch (IOException ignored) {
+    }
+  }
+
+  /**
+   * Reads a story file to summarize it. Implemented by the {@link StoryCatalog} for the different
+   * story formats.
+   */
+  @FunctionalInterface
+  public interface StoryAnalyzer {
+
+    /**
+     * Reads the given story file, collecting the problems found in it.
+     *
+     * @param storyFile the story file to read
+     * @return the story read from the file, and the problems found while reading it
+     * @throws IOException if the story file cannot be read
+     */
+    StoryParseResult analyze(Path storyFile) throws IOException;
+  }
+}
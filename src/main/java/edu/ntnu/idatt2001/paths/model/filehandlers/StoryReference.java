@@ -0,0 +1,54 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import java.util.Objects;
+import lombok.EqualsAndHashCode;
+
+/**
+ * The StoryReference class identifies a saved story file, by its file name and the SHA-256 hash of
+ * its content at the time the reference was made. A saved game refers to the story it was played
+ * in with a StoryReference instead of holding a copy of the story, and the hash tells whether the
+ * story file has been changed since.
+ *
+ * @see StoryCatalog
+ */
+@EqualsAndHashCode
+public class StoryReference {
+
+  private final String fileName;
+  private final String hash;
+
+  /**
+   * Constructs a new StoryReference with the given file name and hash.
+   *
+   * @param fileName the name of the story file, including the file ending
+   * @param hash     the SHA-256 hash of the story file, as a hexadecimal string
+   * @throws NullPointerException if the file name or hash is {@code null}
+   */
+  public StoryReference(String fileName, String hash) {
+    this.fileName = Objects.requireNonNull(fileName, "File name cannot be null");
+    this.hash = Objects.requireNonNull(hash, "Hash cannot be null");
+  }
+
+  /**
+   * Returns the name of the story file, including the file ending.
+   *
+   * @return the file name
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * Returns the SHA-256 hash of the story file at the time the reference was made.
+   *
+   * @return the hash as a hexadecimal string
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return fileName + " (" + hash + ")";
+  }
+}
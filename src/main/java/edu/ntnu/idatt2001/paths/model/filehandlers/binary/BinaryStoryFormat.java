@@ -0,0 +1,51 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.binary;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The BinaryStoryFormat class holds the constants shared by the {@link BinaryStoryReader} and the
+ * {@link BinaryStoryWriter}. A binary story file is laid out as follows, where every count, index
+ * and length is an unsigned varint, and every action value is a zigzag-encoded varint:
+ *
+ * <pre>
+ * header        magic (4 bytes), version (1 byte)
+ * string table  count, then for each string: UTF-8 length, UTF-8 bytes
+ * story         title index, passage count, opening passage, passages
+ * passage       title index, content length, content bytes, mood index, flags (1 byte),
+ *               link count, links
+ * link          text index, ref index, action count, actions
+ * action        opcode (1 byte), value or item index
+ * </pre>
+ *
+ * <p>The string table holds every passage title, link text, link reference, item name and mood
+ * once, and the records refer to the strings by their index in the table. Passage content is
+ * stored inline, since it is rarely repeated.
+ */
+final class BinaryStoryFormat {
+
+  static final int MAGIC = 0x50534254;
+  static final int VERSION = 1;
+  static final String FILE_ENDING = ".pathsb";
+  static final Path FILE_PATH = Paths.get("src/main/resources/stories/binary/");
+
+  static final int SINGLE_VISIT_ONLY_FLAG = 1;
+
+  static final int GOLD_ACTION = 1;
+  static final int HEALTH_ACTION = 2;
+  static final int SCORE_ACTION = 3;
+  static final int INVENTORY_ACTION = 4;
+
+  private BinaryStoryFormat() {
+  }
+
+  /**
+   * Returns the path of the binary story file with the given name.
+   *
+   * @param storyName the name of the story file, without file ending
+   * @return the path of the story file
+   */
+  static Path getFilePath(String storyName) {
+    return FILE_PATH.resolve(storyName + FILE_ENDING);
+  }
+}
@@ -0,0 +1,278 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.binary;
+
+import static edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryFormat.*;
+
+import edu.ntnu.idatt2001.paths.model.actions.Action;
+import edu.ntnu.idatt2001.paths.model.actions.GoldAction;
+import edu.ntnu.idatt2001.paths.model.actions.HealthAction;
+import edu.ntnu.idatt2001.paths.model.actions.InventoryAction;
+import edu.ntnu.idatt2001.paths.model.actions.ScoreAction;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.DirectoryIndex;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Mood;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The BinaryStoryReader class provides methods for reading a {@link Story} from a binary story
+ * file written by the {@link BinaryStoryWriter}. The layout of the file is described in
+ * {@link BinaryStoryFormat}.
+ *
+ * <p>The whole file is read into memory in one go, and the story is decoded straight from the
+ * bytes. The string table is decoded first, so every title, link text and item name is only
+ * decoded once, however many times it is used in the story.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ *
+ * @see BinaryStoryWriter
+ */
+public class BinaryStoryReader {
+
+  private static final Mood[] MOODS = Mood.values();
+
+  private BinaryStoryReader() {
+  }
+
+  /**
+   * Reads the story saved in the binary story file with the given name.
+   *
+   * @param storyName the name of the story file, with or without the file ending
+   * @return the read story
+   * @throws IOException if there is an issue reading the file, or the file is not a valid binary
+   *                     story
+   */
+  public static Story readStoryFromFile(String storyName) throws IOException {
+    return readStoryFromFile(getFilePath(FilenameUtils.removeExtension(storyName)));
+  }
+
+  /**
+   * Reads the story saved in the binary story file with the given path. The file may be anywhere,
+   * and does not have to be in the binary stories folder.
+   *
+   * @param filePath the path of the story file
+   * @return the read story
+   * @throws IOException if there is an issue reading the file, or the file is not a valid binary
+   *                     story
+   */
+  public static Story readStoryFromFile(Path filePath) throws IOException {
+    return readStory(Files.readAllBytes(filePath));
+  }
+
+  /**
+   * Reads a story from the given bytes in the binary story format.
+   *
+   * @param bytes the bytes of a binary story file
+   * @return the read story
+   * @throws IOException if the bytes are not a valid binary story
+   */
+  static Story readStory(byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Invalid binary story file: The file is not a binary story");
+      }
+      int version = buffer.get();
+      if (version != VERSION) {
+        throw new IOException("Invalid binary story file: Unsupported version " + version);
+      }
+      String[] strings = new String[readCount(buffer)];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = readString(buffer);
+      }
+
+      String title = strings[readVarint(buffer)];
+      int passageCount = readCount(buffer);
+      Story story = new Story(title, readPassage(buffer, strings));
+      for (int i = 0; i < passageCount; i++) {
+        story.addPassage(readPassage(buffer, strings));
+      }
+      if (buffer.hasRemaining()) {
+        throw new IOException("Invalid binary story file: Unexpected data after the last passage");
+      }
+      story.markSaved();
+      return story;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Invalid binary story file: The file ends too early", e);
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException("Invalid binary story file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Reads a passage record.
+   *
+   * @param buffer  the buffer positioned at the start of the record
+   * @param strings the string table
+   * @return the read passage
+   */
+  private static Passage readPassage(ByteBuffer buffer, String[] strings) {
+    String title = strings[readVarint(buffer)];
+    String content = readString(buffer);
+    Mood mood = readMood(strings[readVarint(buffer)]);
+    boolean singleVisitOnly = (buffer.get() & SINGLE_VISIT_ONLY_FLAG) != 0;
+    Passage passage = new Passage(title, content, mood, singleVisitOnly);
+
+    int linkCount = readCount(buffer);
+    for (int i = 0; i < linkCount; i++) {
+      Link link = new Link(strings[readVarint(buffer)], strings[readVarint(buffer)]);
+      int actionCount = readCount(buffer);
+      for (int j = 0; j < actionCount; j++) {
+        link.addAction(readAction(buffer, strings));
+      }
+      passage.addLink(link);
+    }
+    return passage;
+  }
+
+  /**
+   * Returns the mood with the given name. The moods are looked up by name rather than by ordinal,
+   * so that stories stay readable if moods are added or reordered.
+   *
+   * @param name the name of the mood
+   * @return the mood
+   * @throws IllegalArgumentException if there is no mood with the given name
+   */
+  private static Mood readMood(String name) {
+    for (Mood mood : MOODS) {
+      if (mood.name().equals(name)) {
+        return mood;
+      }
+    }
+    throw new IllegalArgumentException("Unrecognized mood: " + name);
+  }
+
+  /**
+   * Reads an action record.
+   *
+   * @param buffer  the buffer positioned at the start of the record
+   * @param strings the string table
+   * @return the read action
+   * @throws IllegalArgumentException if the opcode of the action is not recognized
+   */
+  private static Action readAction(ByteBuffer buffer, String[] strings) {
+    int opcode = buffer.get();
+    return switch (opcode) {
+      case GOLD_ACTION -> new GoldAction(readSignedVarint(buffer));
+      case HEALTH_ACTION -> new HealthAction(readSignedVarint(buffer));
+      case SCORE_ACTION -> new ScoreAction(readSignedVarint(buffer));
+      case INVENTORY_ACTION -> new InventoryAction(strings[readVarint(buffer)]);
+      default -> throw new IllegalArgumentException("Unrecognized action opcode: " + opcode);
+    };
+  }
+
+  /**
+   * Reads a string stored as its UTF-8 length followed by its UTF-8 bytes.
+   *
+   * @param buffer the buffer positioned at the start of the string
+   * @return the read string
+   */
+  private static String readString(ByteBuffer buffer) {
+    int length = readVarint(buffer);
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    String string =
+        new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return string;
+  }
+
+  /**
+   * Reads the number of records that follow, stored as a varint. Every record takes at least one
+   * byte, so a count larger than the number of bytes left can not be valid, and is rejected before
+   * anything is allocated for the records.
+   *
+   * @param buffer the buffer positioned at the start of the count
+   * @return the read count
+   * @throws BufferUnderflowException if the count is larger than the number of bytes left
+   */
+  private static int readCount(ByteBuffer buffer) {
+    int count = readVarint(buffer);
+    if (count > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    return count;
+  }
+
+  /**
+   * Reads a non-negative integer stored as a varint.
+   *
+   * @param buffer the buffer positioned at the start of the varint
+   * @return the read value
+   * @throws IllegalArgumentException if the varint is longer than five bytes, or is negative
+   */
+  private static int readVarint(ByteBuffer buffer) {
+    int value = readRawVarint(buffer);
+    if (value < 0) {
+      throw new IllegalArgumentException("Malformed varint");
+    }
+    return value;
+  }
+
+  /**
+   * Reads the 32 bits stored as a varint, without checking the sign of the result.
+   *
+   * @param buffer the buffer positioned at the start of the varint
+   * @return the read bits
+   * @throws IllegalArgumentException if the varint is longer than five bytes
+   */
+  private static int readRawVarint(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /**
+   * Reads an integer stored as a zigzag-encoded varint.
+   *
+   * @param buffer the buffer positioned at the start of the varint
+   * @return the read value
+   */
+  private static int readSignedVarint(ByteBuffer buffer) {
+    int encoded = readRawVarint(buffer);
+    return (encoded >>> 1) ^ -(encoded & 1);
+  }
+
+  /**
+   * Returns a collection of the names of the stories saved in the binary stories folder. The names
+   * are read from the in-memory index of the folder, so the folder is not read every time.
+   *
+   * @return a collection of the names of the saved binary stories
+   */
+  public static Collection<String> getSavedStories() {
+    return DirectoryIndex.of(FILE_PATH).getFileNames(FILE_ENDING);
+  }
+
+  /**
+   * Returns the file ending used for binary story files.
+   *
+   * @return the file ending used for binary story files
+   */
+  public static String getFileEnding() {
+    return FILE_ENDING;
+  }
+
+  /**
+   * Returns the path of the binary story file with the given name.
+   *
+   * @param storyName the name of the story file, without file ending
+   * @return the path of the story file
+   */
+  public static Path getFilePath(String storyName) {
+    return BinaryStoryFormat.getFilePath(storyName);
+  }
+}
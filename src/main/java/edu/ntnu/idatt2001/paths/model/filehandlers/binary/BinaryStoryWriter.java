@@ -0,0 +1,254 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.binary;
+
+import static edu.ntnu.idatt2001.paths.model.filehandlers.binary.BinaryStoryFormat.*;
+
+import edu.ntnu.idatt2001.paths.model.actions.Action;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The BinaryStoryWriter class provides a method for saving a {@link Story} to a compact binary
+ * file with a {@code .pathsb} ending in the "src/main/resources/stories/binary" directory. The
+ * layout of the file is described in {@link BinaryStoryFormat}.
+ *
+ * <p>Every string used as a title, link text, link reference, item name or mood is written once to
+ * a string table at the start of the file, and the passage, link and action records refer to the
+ * strings by index. The file is streamed straight to disk and replaced atomically.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * BinaryStoryWriter.saveStoryToFile(story);
+ * Story loadedStory = BinaryStoryReader.readStoryFromFile(story.getTitle());
+ * }</pre>
+ *
+ * @see BinaryStoryReader
+ */
+public class BinaryStoryWriter {
+
+  private static final String ACTION_SEPARATOR = ":";
+
+  private BinaryStoryWriter() {
+  }
+
+  /**
+   * Saves the given story to a binary file named after the title of the story.
+   *
+   * @param story the story to save
+   * @throws IOException if there is an issue writing the story to the file
+   */
+  public static void saveStoryToFile(Story story) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    saveStoryToFile(story, getFilePath(story.getTitle()));
+  }
+
+  /**
+   * Saves the given story to the binary file with the given path. The file may be anywhere, and
+   * does not have to be in the binary stories folder.
+   *
+   * @param story    the story to save
+   * @param filePath the path of the file to save the story to
+   * @throws IOException if there is an issue writing the story to the file
+   */
+  public static void saveStoryToFile(Story story, Path filePath) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    Objects.requireNonNull(filePath, "File path cannot be null");
+    AtomicFileWriter.write(filePath, out -> writeStory(story, out));
+  }
+
+  /**
+   * Writes the given story to the given stream in the binary story format.
+   *
+   * @param story the story to write
+   * @param out   the stream to write to
+   * @throws IOException if there is an issue writing to the stream
+   */
+  static void writeStory(Story story, OutputStream out) throws IOException {
+    Collection<Passage> passages = story.getPassages();
+    Map<String, Integer> strings = createStringTable(story, passages);
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    writeVarint(data, strings.size());
+    for (String string : strings.keySet()) {
+      writeString(data, string);
+    }
+
+    writeVarint(data, strings.get(story.getTitle()));
+    writeVarint(data, passages.size());
+    writePassage(data, story.getOpeningPassage(), strings);
+    for (Passage passage : passages) {
+      writePassage(data, passage, strings);
+    }
+    data.flush();
+  }
+
+  /**
+   * Creates the string table of the story, mapping every distinct string to its index.
+   *
+   * @param story    the story to create the string table of
+   * @param passages the passages of the story, other than the opening passage
+   * @return the string table, in index order
+   */
+  private static Map<String, Integer> createStringTable(
+      Story story, Collection<Passage> passages) {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    addString(strings, story.getTitle());
+    addPassageStrings(strings, story.getOpeningPassage());
+    passages.forEach(passage -> addPassageStrings(strings, passage));
+    return strings;
+  }
+
+  /**
+   * Adds the title, mood, link texts, link references and item names of a passage to the string
+   * table.
+   *
+   * @param strings the string table
+   * @param passage the passage to add the strings of
+   */
+  private static void addPassageStrings(Map<String, Integer> strings, Passage passage) {
+    addString(strings, passage.getTitle());
+    addString(strings, passage.getMood().name());
+    for (Link link : passage.getLinks()) {
+      addString(strings, link.getText());
+      addString(strings, link.getRef());
+      for (Action action : link.getActions()) {
+        String[] typeAndValue = splitAction(action);
+        if (typeAndValue[0].equals("I")) {
+          addString(strings, typeAndValue[1]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a string to the string table if it is not already in it.
+   *
+   * @param strings the string table
+   * @param string  the string to add
+   */
+  private static void addString(Map<String, Integer> strings, String string) {
+    strings.putIfAbsent(string, strings.size());
+  }
+
+  /**
+   * Writes a passage record.
+   *
+   * @param data    the stream to write to
+   * @param passage the passage to write
+   * @param strings the string table
+   * @throws IOException if there is an issue writing to the stream
+   */
+  private static void writePassage(
+      DataOutputStream data, Passage passage, Map<String, Integer> strings) throws IOException {
+    writeVarint(data, strings.get(passage.getTitle()));
+    writeString(data, passage.getContent());
+    writeVarint(data, strings.get(passage.getMood().name()));
+    data.writeByte(passage.isSingleVisitOnly() ? SINGLE_VISIT_ONLY_FLAG : 0);
+
+    writeVarint(data, passage.getLinks().size());
+    for (Link link : passage.getLinks()) {
+      writeVarint(data, strings.get(link.getText()));
+      writeVarint(data, strings.get(link.getRef()));
+      writeVarint(data, link.getActions().size());
+      for (Action action : link.getActions()) {
+        writeAction(data, action, strings);
+      }
+    }
+  }
+
+  /**
+   * Writes an action record. The type and value of the action are taken from its string form,
+   * the same way as in the .paths format.
+   *
+   * @param data    the stream to write to
+   * @param action  the action to write
+   * @param strings the string table
+   * @throws IOException if there is an issue writing to the stream
+   */
+  private static void writeAction(
+      DataOutputStream data, Action action, Map<String, Integer> strings) throws IOException {
+    String[] typeAndValue = splitAction(action);
+    switch (typeAndValue[0]) {
+      case "G" -> data.writeByte(GOLD_ACTION);
+      case "H" -> data.writeByte(HEALTH_ACTION);
+      case "S" -> data.writeByte(SCORE_ACTION);
+      case "I" -> {
+        data.writeByte(INVENTORY_ACTION);
+        writeVarint(data, strings.get(typeAndValue[1]));
+        return;
+      }
+      default -> throw new IllegalArgumentException("Unrecognized action: " + action);
+    }
+    writeSignedVarint(data, Integer.parseInt(typeAndValue[1]));
+  }
+
+  /**
+   * Splits the string form of an action, such as {@code G:10}, into its type and value.
+   *
+   * @param action the action to split
+   * @return an array holding the type and the value of the action
+   */
+  private static String[] splitAction(Action action) {
+    String[] typeAndValue = action.toString().split(ACTION_SEPARATOR, 2);
+    if (typeAndValue.length != 2) {
+      throw new IllegalArgumentException("Unrecognized action: " + action);
+    }
+    return typeAndValue;
+  }
+
+  /**
+   * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+   *
+   * @param data   the stream to write to
+   * @param string the string to write
+   * @throws IOException if there is an issue writing to the stream
+   */
+  private static void writeString(DataOutputStream data, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    writeVarint(data, bytes.length);
+    data.write(bytes);
+  }
+
+  /**
+   * Writes a non-negative integer as a varint, seven bits per byte with the high bit set on every
+   * byte but the last.
+   *
+   * @param data  the stream to write to
+   * @param value the value to write
+   * @throws IOException if there is an issue writing to the stream
+   */
+  private static void writeVarint(DataOutputStream data, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      data.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    data.writeByte(value);
+  }
+
+  /**
+   * Writes an integer that may be negative as a zigzag-encoded varint, so that values close to
+   * zero take a single byte whatever their sign.
+   *
+   * @param data  the stream to write to
+   * @param value the value to write
+   * @throws IOException if there is an issue writing to the stream
+   */
+  private static void writeSignedVarint(DataOutputStream data, int value) throws IOException {
+    writeVarint(data, (value << 1) ^ (value >> 31));
+  }
+}
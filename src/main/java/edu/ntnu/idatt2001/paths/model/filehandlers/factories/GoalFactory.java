@@ -1,43 +1,56 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.factories;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import edu.ntnu.idatt2001.paths.model.goals.Goal;
 import edu.ntnu.idatt2001.paths.model.goals.GoldGoal;
 import edu.ntnu.idatt2001.paths.model.goals.HealthGoal;
 import edu.ntnu.idatt2001.paths.model.goals.InventoryGoal;
 import edu.ntnu.idatt2001.paths.model.goals.ScoreGoal;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Factory class responsible for creating instances of {@link Goal} subclasses based on their goal
- * type and a JsonNode containing the necessary data. This factory class is useful when
- * deserializing goals from a JSON file.
+ * type and the goal value read from a JSON parser. This factory class is useful when deserializing
+ * goals from a JSON file.
  */
 public class GoalFactory {
 
   /**
-   * Creates an instance of a {@link Goal} subclass based on the provided goal type and a JsonNode
-   * containing the necessary data. This method is particularly useful when deserializing goals from
-   * a JSON file.
+   * Creates an instance of a {@link Goal} subclass based on the provided goal type and the goal
+   * value the JSON parser is positioned at. This method is particularly useful when deserializing
+   * goals from a JSON file. The value is read straight from the parser, and the parser is left at
+   * the last token of the value.
+   *
+   * @param goalType   the type of the goal
+   * @param goalParser the JSON parser, positioned at the value of the goal
+   * @return an instance of the Goal class corresponding to the goal type
+   * @throws IOException              if there is an issue reading from the JSON parser
+   * @throws IllegalArgumentException if the goal type is not recognized
    */
-  public static Goal createGoal(String goalType, JsonNode goalNode) {
+  public static Goal createGoal(String goalType, JsonParser goalParser) throws IOException {
     switch (goalType) {
       case "minimumHealth" -> {
-        int minimumHealth = goalNode.get("minimumHealth").asInt();
+        int minimumHealth = goalParser.getValueAsInt();
         return new HealthGoal(minimumHealth);
       }
       case "minimumGold" -> {
-        int minimumGold = goalNode.get("minimumGold").asInt();
+        int minimumGold = goalParser.getValueAsInt();
         return new GoldGoal(minimumGold);
       }
       case "mandatoryItems" -> {
         List<String> mandatoryItems = new ArrayList<>();
-        goalNode.get("mandatoryItems").forEach(item -> mandatoryItems.add(item.asText()));
+        if (goalParser.currentToken() == JsonToken.START_ARRAY) {
+          while (goalParser.nextToken() != JsonToken.END_ARRAY) {
+            mandatoryItems.add(goalParser.getValueAsString());
+          }
+        }
         return new InventoryGoal(mandatoryItems);
       }
       case "minimumScore" -> {
-        int minimumScore = goalNode.get("minimumScore").asInt();
+        int minimumScore = goalParser.getValueAsInt();
         return new ScoreGoal(minimumScore);
       }
       default -> throw new IllegalArgumentException("Invalid goal type: " + goalType);
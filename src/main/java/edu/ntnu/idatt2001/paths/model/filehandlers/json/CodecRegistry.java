@@ -0,0 +1,142 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.GameDeserializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.GameSerializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.LinkDeserializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.StoryDeserializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.StorySerializer;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.util.List;
+
+/**
+ * The CodecRegistry class holds the JSON readers and writers shared by the file handlers. The
+ * {@link ObjectMapper} and its custom serializers and deserializers are set up once, and the
+ * readers and writers for the saved types are created from it up front, so their serializers and
+ * deserializers are only resolved once per application rather than once per file handler.
+ *
+ * <p>{@link ObjectReader} and {@link ObjectWriter} instances are immutable and thread-safe, so the
+ * same instances can be used by every file handler and from any thread.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * Story story = CodecRegistry.storyReader().readValue(file);
+ * CodecRegistry.storyWriter(false).writeValue(out, story);
+ * }</pre>
+ *
+ * @see StorySerializer
+ * @see StoryDeserializer
+ * @see LinkDeserializer
+ * @see GameSerializer
+ * @see GameDeserializer
+ */
+public class CodecRegistry {
+
+  private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+  private static final ObjectReader STORY_READER = OBJECT_MAPPER.readerFor(Story.class);
+  private static final ObjectWriter STORY_WRITER = OBJECT_MAPPER.writerFor(Story.class);
+  private static final ObjectWriter PRETTY_STORY_WRITER =
+      STORY_WRITER.withDefaultPrettyPrinter();
+  private static final ObjectReader PASSAGE_READER = OBJECT_MAPPER.readerFor(Passage.class);
+  private static final ObjectReader GAME_DATA_READER = OBJECT_MAPPER.readerFor(GameData.class);
+  private static final ObjectWriter GAME_DATA_WRITER = OBJECT_MAPPER.writerFor(GameData.class);
+  private static final ObjectReader SAVE_SLOTS_READER =
+      OBJECT_MAPPER.readerForListOf(SaveSlot.class);
+  private static final ObjectWriter SAVE_SLOTS_WRITER =
+      OBJECT_MAPPER.writerFor(
+          OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, SaveSlot.class));
+
+  private CodecRegistry() {
+  }
+
+  /**
+   * Creates the object mapper that all readers and writers are created from, with the custom
+   * serializers and deserializers registered.
+   *
+   * @return the object mapper
+   */
+  private static ObjectMapper createObjectMapper() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    SimpleModule module = new SimpleModule();
+    module.addSerializer(Story.class, new StorySerializer());
+    module.addDeserializer(Story.class, new StoryDeserializer());
+    module.addDeserializer(Link.class, new LinkDeserializer());
+    module.addSerializer(GameData.class, new GameSerializer());
+    module.addDeserializer(GameData.class, new GameDeserializer());
+    objectMapper.registerModule(module);
+    return objectMapper;
+  }
+
+  /**
+   * Returns the reader for stories.
+   *
+   * @return the story reader
+   */
+  public static ObjectReader storyReader() {
+    return STORY_READER;
+  }
+
+  /**
+   * Returns the writer for stories.
+   *
+   * @param compact {@code true} for a writer without whitespace, {@code false} for a pretty
+   *                printing writer
+   * @return the story writer
+   */
+  public static ObjectWriter storyWriter(boolean compact) {
+    return compact ? STORY_WRITER : PRETTY_STORY_WRITER;
+  }
+
+  /**
+   * Returns the reader for single passages.
+   *
+   * @return the passage reader
+   */
+  public static ObjectReader passageReader() {
+    return PASSAGE_READER;
+  }
+
+  /**
+   * Returns the reader for saved games.
+   *
+   * @return the game data reader
+   */
+  public static ObjectReader gameDataReader() {
+    return GAME_DATA_READER;
+  }
+
+  /**
+   * Returns the compact writer for saved games.
+   *
+   * @return the game data writer
+   */
+  public static ObjectWriter gameDataWriter() {
+    return GAME_DATA_WRITER;
+  }
+
+  /**
+   * Returns the reader for the save slot manifest, which is a list of {@link SaveSlot} objects.
+   *
+   * @return the save slots reader
+   */
+  public static ObjectReader saveSlotsReader() {
+    return SAVE_SLOTS_READER;
+  }
+
+  /**
+   * Returns the compact writer for the save slot manifest.
+   *
+   * @return the save slots writer
+   */
+  public static ObjectWriter saveSlotsWriter() {
+    return SAVE_SLOTS_WRITER;
+  }
+}
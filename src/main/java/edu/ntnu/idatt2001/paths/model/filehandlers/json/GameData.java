@@ -1,6 +1,8 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json;
 
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.GameDeserializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.GameSerializer;
 import edu.ntnu.idatt2001.paths.model.game.Game;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import java.util.ArrayList;
@@ -11,7 +13,11 @@ import java.util.List;
  * of visited passages objects. This class is used to store both the game state and the current
  * passage when saving and loading game data to and from files.
  *
+ * <p>If the game data holds a {@link StoryReference} to the file the story was loaded from, the
+ * game is saved with the reference instead of a copy of the story.
+ *
  * @see GameFileHandler
+ * @see GameSerializer
  * @see GameDeserializer
  */
 public class GameData {
@@ -19,6 +25,7 @@ public class GameData {
   private Game game;
   private Passage passage;
   private List<Passage> visitedPassages;
+  private StoryReference storyReference;
 
   /**
    * Constructs a new {@code GameData} object with the specified game and passage.
@@ -45,10 +52,35 @@ public class GameData {
     this.visitedPassages = visitedPassages;
   }
 
+  /**
+   * Constructs a new {@code GameData} object with the specified game, passage, list of visited
+   * passages, and reference to the file the story of the game was loaded from.
+   *
+   * @param game            the {@link Game} object to be stored in this {@code GameData}
+   * @param passage         the {@link Passage} object to be stored in this {@code GameData}
+   * @param visitedPassages the list of visited passages to be stored in this {@code GameData}
+   * @param storyReference  the reference to the story file, or {@code null} if the story was not
+   *                        loaded from a file
+   */
+  public GameData(
+      Game game, Passage passage, List<Passage> visitedPassages, StoryReference storyReference) {
+    this(game, passage, visitedPassages);
+    this.storyReference = storyReference;
+  }
+
   public List<Passage> getVisitedPassages() {
     return visitedPassages;
   }
 
+  /**
+   * Returns the reference to the file the story of the game was loaded from.
+   *
+   * @return the {@link StoryReference}, or {@code null} if the story was not loaded from a file
+   */
+  public StoryReference getStoryReference() {
+    return storyReference;
+  }
+
   /**
    * Returns the {@link Game} object stored in this {@code GameData}.
    *
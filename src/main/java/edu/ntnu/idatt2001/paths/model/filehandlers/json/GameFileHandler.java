@@ -1,24 +1,32 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.GameDeserializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.GameSerializer;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.LinkDeserializer;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.StoryDeserializer;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.StorySerializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.DirectoryIndex;
 import edu.ntnu.idatt2001.paths.model.game.Game;
 import edu.ntnu.idatt2001.paths.model.story.Link;
-import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.FilenameUtils;
 
 /**
  * Class for handling saving and reading of Game objects to and from files. The files are stored in
@@ -26,21 +34,41 @@ import java.util.stream.Stream;
  *
  * <p>The game is also saved with the passage the player is currently at
  *
+ * <p>Games are machine-written, so they are saved in a compact form without whitespace. The game is
+ * streamed straight from the JSON generator to the file, and the file is replaced atomically.
+ *
+ * <p>When the {@link GameData} holds a {@link StoryReference}, the save only stores the name and
+ * hash of the story file, the player, the goals, and the titles of the current and visited
+ * passages, and the story is loaded from its own file when the game is loaded. Otherwise the whole
+ * story is embedded in the save. Both formats can be loaded.
+ *
+ * <p>A story can have several saved games, each in its own save slot. The save slot is the name
+ * of the save file, and {@link #createSlotName(String)} gives the name of a new slot. Every save
+ * also updates a small manifest file in the same directory, which holds the {@link SaveSlot} of
+ * each save: the player, the current passage and the time of the save. The saves can then be
+ * listed with {@link #getSaveSlots()} without reading any of them. The save slots are kept in
+ * memory after they are first listed, and the {@link DirectoryIndex} of the directory tells which
+ * saves have changed since, so only those are looked at again.
+ *
  * <p>Files are being saved and serialized using default Jackson serialization, and uses custom
  * deserializing for the {@link Game} class, {@link Story} class, and {@link Link} class because
  * Jackson's default deserialization cannot deserialize certain properties within these classes.
+ * The readers and writers are shared with the other file handlers through the
+ * {@link CodecRegistry}.
  *
  * <p>To use this class to write and read games to and from files, create a new instance of this
- * class and use the {@link #saveGameToFile(Game, Passage, List)} and
- * {@link #loadGameFromFile (String)} methods. For example:
+ * class and use the {@link #saveGameToSlot(GameData, String)} and
+ * {@link #loadGameFromFile(String)} methods. For example:
  *
  * <pre>{@code
  * GameFileHandler gameFileHandler = new GameFileHandler();
  * Game myGame = new Game(player, story, goals);
- * gameFileHandler.saveGameToFile(myGame, currentPassage);
- * Game loadedGame = gameFileHandler.loadGameFromStyle("myGame").getGame();
+ * String slotName = GameFileHandler.createSlotName(story.getTitle());
+ * gameFileHandler.saveGameToSlot(new GameData(myGame, currentPassage), slotName);
+ * Game loadedGame = gameFileHandler.loadGameFromFile(slotName).getGame();
  * }</pre>
  *
+ * @see GameSerializer
  * @see GameDeserializer
  * @see StorySerializer
  * @see StoryDeserializer
@@ -49,72 +77,206 @@ import java.util.stream.Stream;
 public class GameFileHandler {
 
   private static final Path filePath = Paths.get("src/main/resources/games");
-  private final ObjectMapper objectMapper;
+  private static final String FILE_ENDING = ".json";
+  private static final String MANIFEST_FILE_NAME = "saves.manifest";
+  private static final Map<String, SaveSlot> saveSlots = new LinkedHashMap<>();
+  private static final Set<String> changedSlotNames = ConcurrentHashMap.newKeySet();
+  private static boolean isSaveSlotsLoaded;
 
   /**
-   * Class constructor that initializes the ObjectMapper for JSON serialization and deserialization.
-   * It also registers custom serializers and deserializers for certain classes.
+   * Class constructor. The handler holds no state of its own, and reads and writes games through
+   * the shared readers and writers of the {@link CodecRegistry}.
    */
   public GameFileHandler() {
-    objectMapper = new ObjectMapper();
-    SimpleModule module = new SimpleModule();
-    module.addSerializer(Story.class, new StorySerializer());
-    module.addDeserializer(Story.class, new StoryDeserializer());
-    module.addDeserializer(Link.class, new LinkDeserializer());
-    module.addDeserializer(GameData.class, new GameDeserializer());
-    objectMapper.registerModule(module);
   }
 
   /**
-   * Retrieves a list of all game files saved in the "src/main/resources/games" directory.
+   * Retrieves a list of all game files saved in the "src/main/resources/games" directory. The file
+   * names are read from the in-memory index of the directory, so the directory is not read every
+   * time.
    *
    * @return a list of all game file names, as strings
    * @throws IOException if there is an issue listing the files in the directory
    */
   public static List<String> getGameFiles() throws IOException {
-    Files.createDirectories(filePath);
-    try (Stream<Path> pathStream = Files.list(Paths.get("src/main/resources/games"))) {
-      return pathStream
-          .filter(Files::isRegularFile)
-          .map(Path::getFileName)
-          .map(Path::toString)
-          .collect(Collectors.toList());
+    return DirectoryIndex.of(filePath).getFileNames(FILE_ENDING);
+  }
+
+  /**
+   * Saves the given game data in the save slot with the given name, replacing the game saved in
+   * the slot before, if any. The {@link SaveSlot} of the game is updated in the manifest.
+   *
+   * @param gameData the game data to be saved
+   * @param slotName the name of the save slot, which is used as the file name of the save
+   * @throws IOException          if there is an issue writing the game or the manifest to file
+   * @throws NullPointerException if the game data, its game or the slot name is null
+   */
+  public void saveGameToSlot(GameData gameData, String slotName) throws IOException {
+    Objects.requireNonNull(gameData, "Game data cannot be null");
+    Objects.requireNonNull(gameData.getGame(), "Game cannot be null");
+    Objects.requireNonNull(slotName, "Slot name cannot be null");
+
+    Path gameFilePath = filePath.resolve(slotName + FILE_ENDING);
+    AtomicFileWriter.write(
+        gameFilePath, out -> CodecRegistry.gameDataWriter().writeValue(out, gameData));
+
+    long savedAt = Files.getLastModifiedTime(gameFilePath).toMillis();
+    putSaveSlot(SaveSlot.of(slotName, gameData, savedAt));
+  }
+
+  /**
+   * Returns the name of a new, unused save slot for a game of the story with the given title. The
+   * first slot of a story is named after the story, and the following slots are numbered, as in
+   * "My Story (2)".
+   *
+   * @param storyTitle the title of the story
+   * @return the name of an unused save slot
+   */
+  public static String createSlotName(String storyTitle) {
+    Objects.requireNonNull(storyTitle, "Story title cannot be null");
+    String slotName = storyTitle;
+    for (int number = 2; Files.exists(filePath.resolve(slotName + FILE_ENDING)); number++) {
+      slotName = storyTitle + " (" + number + ")";
     }
+    return slotName;
   }
 
   /**
-   * Saves the given game to a file with a filename based on the game's story title, and the list of
-   * visited passages as well.
+   * Returns the save slots of all saved games, with the most recently saved game first.
+   *
+   * <p>The slots are read from the manifest the first time, so the saves themselves are not read,
+   * and are kept in memory after that. Only saves that have been created, changed or deleted since
+   * the slots were last listed are looked at again. Slots whose save file has been removed are left
+   * out, and saves that are missing from the manifest or have been changed since the manifest was
+   * updated, such as saves made before the manifest was introduced, are read once and added to the
+   * manifest.
    *
-   * @param game            the game to be saved
-   * @param passage         the passage the player is currently at
-   * @param visitedPassages the passages the player has visited
-   * @throws IOException          if there is an issue writing the game to the file
-   * @throws NullPointerException if the game is null
+   * @return the save slots of all saved games
+   * @throws IOException if there is an issue listing the saves or writing the manifest
    */
-  public void saveGameToFile(Game game, Passage passage, List<Passage> visitedPassages)
-      throws IOException {
-    Objects.requireNonNull(game, "Game cannot be null");
-    String fileName = game.getStory().getTitle();
+  public static synchronized List<SaveSlot> getSaveSlots() throws IOException {
+    loadSaveSlots();
+    Set<String> listedSlotNames = new HashSet<>();
+    boolean isManifestChanged = false;
+    for (String gameFile : getGameFiles()) {
+      String slotName = FilenameUtils.removeExtension(gameFile);
+      SaveSlot saveSlot = saveSlots.get(slotName);
+      if (saveSlot != null && !changedSlotNames.remove(slotName)) {
+        listedSlotNames.add(slotName);
+        continue;
+      }
+      Path gameFilePath = filePath.resolve(gameFile);
+      long savedAt;
+      try {
+        savedAt = Files.getLastModifiedTime(gameFilePath).toMillis();
+      } catch (NoSuchFileException e) {
+        DirectoryIndex.fileDeleted(gameFilePath);
+        continue;
+      }
+      if (saveSlot == null || saveSlot.getSavedAt() != savedAt) {
+        saveSlots.put(slotName, readSaveSlot(slotName, savedAt));
+        isManifestChanged = true;
+      }
+      listedSlotNames.add(slotName);
+    }
+    if (saveSlots.keySet().retainAll(listedSlotNames) || isManifestChanged) {
+      writeManifest(saveSlots.values());
+    }
 
-    GameData gameData = new GameData(game, passage, visitedPassages);
-    String jsonString = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(gameData);
+    List<SaveSlot> result = new ArrayList<>(saveSlots.values());
+    result.sort(Comparator.comparingLong(SaveSlot::getSavedAt).reversed());
+    return result;
+  }
 
-    Path gameFilePath = filePath.resolve(fileName + ".json");
-    Files.write(gameFilePath, jsonString.getBytes());
+  /**
+   * Puts the given save slot in the save slots kept in memory, and writes them to the manifest.
+   *
+   * @param saveSlot the save slot of a game that has been saved
+   * @throws IOException if there is an issue writing the manifest
+   */
+  private static synchronized void putSaveSlot(SaveSlot saveSlot) throws IOException {
+    loadSaveSlots();
+    saveSlots.put(saveSlot.getSlotName(), saveSlot);
+    writeManifest(saveSlots.values());
+  }
+
+  /**
+   * Reads the save slots in the manifest into memory, unless they have been read already. The
+   * index of the directory is listened to first, so that no save changed after the manifest has
+   * been read is missed. The saves in the manifest are then marked as changed, so that each of
+   * them is checked against its save file once.
+   */
+  private static void loadSaveSlots() {
+    if (isSaveSlotsLoaded) {
+      return;
+    }
+    DirectoryIndex.of(filePath)
+        .addListener(
+            fileName -> {
+              if (fileName.endsWith(FILE_ENDING)) {
+                changedSlotNames.add(FilenameUtils.removeExtension(fileName));
+              }
+            });
+    saveSlots.putAll(readManifest());
+    changedSlotNames.addAll(saveSlots.keySet());
+    isSaveSlotsLoaded = true;
+  }
+
+  /**
+   * Reads the save slot of a save that is not in the manifest by loading the save. If the save
+   * cannot be loaded, a slot with only the slot name and time is returned, so that the save is
+   * still listed.
+   *
+   * @param slotName the name of the save slot
+   * @param savedAt  the time the save file was last modified, in milliseconds since the epoch
+   * @return the save slot
+   */
+  private static SaveSlot readSaveSlot(String slotName, long savedAt) {
+    try {
+      GameData gameData = new GameFileHandler().loadGameFromFile(slotName);
+      return SaveSlot.of(slotName, gameData, savedAt);
+    } catch (IOException | RuntimeException e) {
+      return new SaveSlot(slotName, null, null, null, 0, 0, 0, savedAt);
+    }
+  }
+
+  /**
+   * Reads the save slots in the manifest. A missing or unreadable manifest is treated as empty,
+   * since it can be rebuilt from the saves.
+   *
+   * @return the save slots in the manifest, by slot name
+   */
+  private static Map<String, SaveSlot> readManifest() {
+    Map<String, SaveSlot> manifest = new LinkedHashMap<>();
+    Path manifestPath = filePath.resolve(MANIFEST_FILE_NAME);
+    if (!Files.exists(manifestPath)) {
+      return manifest;
+    }
+    try {
+      List<SaveSlot> saveSlots = CodecRegistry.saveSlotsReader().readValue(manifestPath.toFile());
+      saveSlots.forEach(saveSlot -> manifest.put(saveSlot.getSlotName(), saveSlot));
+    } catch (IOException e) {
+      manifest.clear();
+    }
+    return manifest;
   }
 
   /**
-   * Saves the given game to a file with a filename based on the game's story title, without
-   * specifying visited passages.
+   * Writes the given save slots to the manifest, replacing it atomically. The manifest is removed
+   * when there are no save slots left.
    *
-   * @param game    the game to be saved
-   * @param passage the passage the player is currently at
-   * @throws IOException          if there is an issue writing the game to the file
-   * @throws NullPointerException if the game is null
+   * @param saveSlots the save slots to write
+   * @throws IOException if there is an issue writing the manifest
    */
-  public void saveGameToFile(Game game, Passage passage) throws IOException {
-    this.saveGameToFile(game, passage, new ArrayList<>());
+  private static void writeManifest(Collection<SaveSlot> saveSlots) throws IOException {
+    Path manifestPath = filePath.resolve(MANIFEST_FILE_NAME);
+    if (saveSlots.isEmpty()) {
+      Files.deleteIfExists(manifestPath);
+      return;
+    }
+    List<SaveSlot> manifest = new ArrayList<>(saveSlots);
+    AtomicFileWriter.write(
+        manifestPath, out -> CodecRegistry.saveSlotsWriter().writeValue(out, manifest));
   }
 
   /**
@@ -128,9 +290,8 @@ public class GameFileHandler {
   public GameData loadGameFromFile(String filename) throws IOException {
     Objects.requireNonNull(filename, "Filename cannot be null");
 
-    Path gameFilePath = filePath.resolve(filename + ".json");
-    String jsonString = new String(Files.readAllBytes(gameFilePath));
-    return objectMapper.readValue(jsonString, GameData.class);
+    Path gameFilePath = filePath.resolve(filename + FILE_ENDING);
+    return CodecRegistry.gameDataReader().readValue(gameFilePath.toFile());
   }
 
   /**
@@ -0,0 +1,191 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.json;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.ntnu.idatt2001.paths.model.game.Player;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+import lombok.EqualsAndHashCode;
+
+/**
+ * The SaveSlot class holds the metadata of a saved game: the name of the slot it is saved in, the
+ * title of the story, the name, health, gold and score of the player, the title of the passage the
+ * player is at, and the time the game was saved.
+ *
+ * <p>The save slots of all saved games are kept in a small manifest file next to the saves, which
+ * is updated every time a game is saved. The saved games can then be listed with their metadata
+ * without reading the saves themselves.
+ *
+ * @see GameFileHandler#getSaveSlots()
+ */
+@EqualsAndHashCode
+public class SaveSlot {
+
+  private static final DateTimeFormatter SAVED_AT_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+  @JsonProperty
+  private final String slotName;
+  @JsonProperty
+  private final String storyTitle;
+  @JsonProperty
+  private final String playerName;
+  @JsonProperty
+  private final String passageTitle;
+  @JsonProperty
+  private final int health;
+  @JsonProperty
+  private final int gold;
+  @JsonProperty
+  private final int score;
+  @JsonProperty
+  private final long savedAt;
+
+  /**
+   * Constructs a new SaveSlot with the given metadata.
+   *
+   * @param slotName     the name of the slot, which is also the name of the save file
+   * @param storyTitle   the title of the story of the saved game
+   * @param playerName   the name of the player
+   * @param passageTitle the title of the passage the player is at
+   * @param health       the health of the player
+   * @param gold         the gold of the player
+   * @param score        the score of the player
+   * @param savedAt      the time the game was saved, in milliseconds since the epoch
+   * @throws NullPointerException if the slot name is {@code null}
+   */
+  @JsonCreator
+  public SaveSlot(
+      @JsonProperty("slotName") String slotName,
+      @JsonProperty("storyTitle") String storyTitle,
+      @JsonProperty("playerName") String playerName,
+      @JsonProperty("passageTitle") String passageTitle,
+      @JsonProperty("health") int health,
+      @JsonProperty("gold") int gold,
+      @JsonProperty("score") int score,
+      @JsonProperty("savedAt") long savedAt) {
+    this.slotName = Objects.requireNonNull(slotName, "Slot name cannot be null");
+    this.storyTitle = storyTitle;
+    this.playerName = playerName;
+    this.passageTitle = passageTitle;
+    this.health = health;
+    this.gold = gold;
+    this.score = score;
+    this.savedAt = savedAt;
+  }
+
+  /**
+   * Creates the save slot of the given game data, saved in the slot with the given name.
+   *
+   * @param slotName the name of the slot
+   * @param gameData the saved game data
+   * @param savedAt  the time the game was saved, in milliseconds since the epoch
+   * @return the save slot
+   */
+  static SaveSlot of(String slotName, GameData gameData, long savedAt) {
+    Player player = gameData.getGame().getPlayer();
+    String passageTitle = gameData.getPassage() == null ? null : gameData.getPassage().getTitle();
+    return new SaveSlot(
+        slotName,
+        gameData.getGame().getStory().getTitle(),
+        player.getName(),
+        passageTitle,
+        player.getHealth(),
+        player.getGold(),
+        player.getScore(),
+        savedAt);
+  }
+
+  /**
+   * Returns the name of the slot, which is also the name of the save file without the file ending.
+   *
+   * @return the slot name
+   */
+  public String getSlotName() {
+    return slotName;
+  }
+
+  /**
+   * Returns the title of the story of the saved game.
+   *
+   * @return the story title
+   */
+  public String getStoryTitle() {
+    return storyTitle;
+  }
+
+  /**
+   * Returns the name of the player of the saved game.
+   *
+   * @return the player name
+   */
+  public String getPlayerName() {
+    return playerName;
+  }
+
+  /**
+   * Returns the title of the passage the player is at in the saved game.
+   *
+   * @return the passage title
+   */
+  public String getPassageTitle() {
+    return passageTitle;
+  }
+
+  /**
+   * Returns the health of the player in the saved game.
+   *
+   * @return the health
+   */
+  public int getHealth() {
+    return health;
+  }
+
+  /**
+   * Returns the gold of the player in the saved game.
+   *
+   * @return the gold
+   */
+  public int getGold() {
+    return gold;
+  }
+
+  /**
+   * Returns the score of the player in the saved game.
+   *
+   * @return the score
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Returns the time the game was saved.
+   *
+   * @return the time in milliseconds since the epoch
+   */
+  public long getSavedAt() {
+    return savedAt;
+  }
+
+  @Override
+  public String toString() {
+    String savedAtText = SAVED_AT_FORMATTER.format(Instant.ofEpochMilli(savedAt));
+    if (playerName == null) {
+      return slotName + " - " + savedAtText;
+    }
+    return slotName
+        + " - "
+        + playerName
+        + " at "
+        + passageTitle
+        + ", "
+        + health
+        + " HP, "
+        + gold
+        + " gold - "
+        + savedAtText;
+  }
+}
@@ -1,13 +1,19 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.LinkDeserializer;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.StoryDeserializer;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers.StorySerializer;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.DirectoryIndex;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
 import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.NoSuchPassageException;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -15,8 +21,12 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.apache.commons.io.FilenameUtils;
 
 /**
@@ -26,7 +36,8 @@ import org.apache.commons.io.FilenameUtils;
  * <p>Files are being saved and serialized using default jackson serialization, and uses custom
  * serializing deserializing for the {@link Story} class and custom deserializing for the
  * {@link Link} class because Jacksons default deserialization cannot deserialize the map in the
- * {@link Story} class, or the {@code actions} List in the {@link Link} class.
+ * {@link Story} class, or the {@code actions} List in the {@link Link} class. The readers and
+ * writers are shared with the other file handlers through the {@link CodecRegistry}.
  *
  * <p>To use this class to write and read stories to and from files, create a new instance of this
  * class and use the {@link #saveStoryToFile(Story)} and {@link #loadStoryFromFile(String)} methods.
@@ -39,6 +50,14 @@ import org.apache.commons.io.FilenameUtils;
  * Story loadedStory = storyFileHandler.loadStoryFromFile("My Story");
  * }</pre>
  *
+ * <p>Stories are streamed straight from the JSON generator to the file, and the file is replaced
+ * atomically. Stories are pretty printed by default, and can be saved in a compact form with
+ * {@link #saveStoryToFile(Story, boolean)}.
+ *
+ * <p>A single passage can be read with {@link #loadPassageFromFile(String, String)} without
+ * parsing the rest of the story file, using a {@link PassageIndex} sidecar file that is rebuilt
+ * when it is missing or stale.
+ *
  * @see StoryDeserializer
  * @see StorySerializer
  * @see LinkDeserializer
@@ -47,49 +66,51 @@ public class StoryFileHandler {
 
   private static final Path FILEPATH = Paths.get("src/main/resources/stories/json");
   private static final Path customMediaPath = Paths.get("src/main/resources/stories/");
-  private final ObjectMapper objectMapper;
 
   /**
-   * Constructs a new StoryFileHandler with default settings. Initializes an ObjectMapper and sets
-   * the file path for the stories. Registers the custom deserializer for the Story class.
+   * Constructs a new StoryFileHandler. The handler holds no state of its own, and reads and writes
+   * stories through the shared readers and writers of the {@link CodecRegistry}.
    */
   public StoryFileHandler() {
-    objectMapper = new ObjectMapper();
-    SimpleModule module = new SimpleModule();
-    module.addSerializer(Story.class, new StorySerializer());
-    module.addDeserializer(Story.class, new StoryDeserializer());
-    module.addDeserializer(Link.class, new LinkDeserializer());
-    objectMapper.registerModule(module);
   }
 
   /**
-   * Returns an array of all the saved stories.
+   * Returns the names of all the saved stories. The names are read from the in-memory index of the
+   * stories folder, so the folder is not read every time.
    *
-   * @return an array of all the saved stories
+   * @return the names of all the saved stories
    */
   public static Collection<String> getSavedStories() {
-    File folder = new File(FILEPATH.toString());
-    String[] savedStories = folder.list();
-    return savedStories == null ? Collections.emptyList() : Arrays.asList(savedStories);
+    return DirectoryIndex.of(FILEPATH).getFileNames(".json");
+  }
+
+  /**
+   * Returns the path of the folder holding the custom images and sounds of a given story, in its
+   * "images" and "sounds" subfolders.
+   *
+   * @param storyTitle The title of the story.
+   * @return The path of the custom media folder of the story.
+   */
+  public static Path getCustomMediaPath(String storyTitle) {
+    return customMediaPath.resolve(FilenameUtils.removeExtension(storyTitle));
   }
 
   /**
-   * Retrieves a collection of custom sound files for a given story.
+   * Retrieves a collection of custom sound files for a given story, both the sounds in the asset
+   * pack of the story and the loose files in its "sounds" folder.
    *
    * @param storyName The name of the story for which custom sound files should be retrieved.
    * @return A collection of file names from the "sounds" folder in the custom media path.
    * @throws IOException if cannot resolve file.
    */
   public static Collection<String> getCustomSoundFiles(String storyName) throws IOException {
-    File soundsFolder = new File(customMediaPath + "/" + storyName + "/sounds");
-
     Files.createDirectories(customMediaPath.resolve(storyName).resolve("sounds"));
-    String[] soundFiles = soundsFolder.list();
-    return soundFiles == null ? Collections.emptyList() : Arrays.asList(soundFiles);
+    return listCustomMedia(customMediaPath.resolve(storyName), "sounds");
   }
 
   /**
-   * Retrieves a collection of custom image files for a given story.
+   * Retrieves a collection of custom image files for a given story, both the images in the asset
+   * pack of the story and the loose files in its "images" folder.
    *
    * @param storyTitle The name of the story for which custom image files should be retrieved.
    * @return A collection of file names from the "images" folder in the custom media path.
@@ -100,15 +121,36 @@ public class StoryFileHandler {
       Files.createDirectories(customMediaPath.resolve(storyTitle).resolve("images"));
     } catch (IOException ignored) {
     }
-    File imagesFolder = new File(customMediaPath + "/" + storyTitle + "/images");
-    String[] imageFiles = imagesFolder.list();
-    return imageFiles == null ? Collections.emptyList() : Arrays.asList(imageFiles);
+    return listCustomMedia(customMediaPath.resolve(storyTitle), "images");
+  }
+
+  /**
+   * Lists the custom media files in a folder of the given custom media folder of a story, merging
+   * the names of the loose files in the folder with the names of the files in the same folder of
+   * the story's asset pack, if it has one. The folder is not created if it does not exist.
+   *
+   * @param mediaFolder The custom media folder of the story.
+   * @param folder      The media folder, "images" or "sounds".
+   * @return The file names in the asset pack followed by the loose files not in the pack.
+   */
+  public static Collection<String> listCustomMedia(Path mediaFolder, String folder) {
+    String[] looseFiles = mediaFolder.resolve(folder).toFile().list();
+    Collection<String> mediaFiles = new LinkedHashSet<>();
+    AssetPack assetPack = AssetPack.forMediaFolder(mediaFolder);
+    if (assetPack != null) {
+      mediaFiles.addAll(assetPack.list(folder));
+    }
+    if (looseFiles != null) {
+      mediaFiles.addAll(Arrays.asList(looseFiles));
+    }
+    return mediaFiles;
   }
 
   /**
    * Retrieves a collection of custom media files (sounds and images) for a given story that do not
-   * match any passage titles. The method compares file names without their file extensions to the
-   * passage titles.
+   * match any passage titles. The file names without their file extensions are looked up in the
+   * set of passage media names in a single pass, ignoring case like the game does when it finds the
+   * media of a passage.
    *
    * @param story The story object containing the passages to check against the custom media files.
    * @return A collection of file names from the "sounds" and "images" folders that do not match any
@@ -116,36 +158,83 @@ public class StoryFileHandler {
    * @throws IOException if cant resolve file for sound and images.
    */
   public static Collection<String> getBrokenFiles(Story story) throws IOException {
-    Collection<String> sounds = getCustomSoundFiles(story.getTitle());
-    Collection<String> images = getCustomImageFiles(story.getTitle());
+    Set<String> mediaNames = getPassageMediaNames(story);
     Collection<String> brokenFiles = new ArrayList<>();
-    brokenFiles.addAll(sounds);
-    brokenFiles.addAll(images);
+    brokenFiles.addAll(getCustomSoundFiles(story.getTitle()));
+    brokenFiles.addAll(getCustomImageFiles(story.getTitle()));
+    brokenFiles.removeIf(fileName -> matchesPassage(fileName, mediaNames));
+    return brokenFiles;
+  }
 
-    brokenFiles.removeIf(
-        fileName -> {
-          String fileNameWithoutExtension = FilenameUtils.removeExtension(fileName);
-          return story.getPassages().stream()
-              .anyMatch(passage -> passage.getTitle().equals(fileNameWithoutExtension));
-        });
+  /**
+   * Returns the names the custom media files of the passages of a given story must have, without
+   * their file extensions. These are the passage titles in lower case, including the title of the
+   * opening passage.
+   *
+   * @param story The story to get the media names of.
+   * @return The set of lower case passage titles of the story.
+   */
+  public static Set<String> getPassageMediaNames(Story story) {
+    Set<String> mediaNames = new HashSet<>();
+    mediaNames.add(story.getOpeningPassage().getTitle().toLowerCase());
+    story.getPassages().forEach(passage -> mediaNames.add(passage.getTitle().toLowerCase()));
+    return mediaNames;
+  }
 
-    return brokenFiles;
+  /**
+   * Checks if the given custom media file is named after a passage.
+   *
+   * @param fileName   The name of the media file, with its file extension.
+   * @param mediaNames The media names of the passages, from {@link #getPassageMediaNames(Story)}.
+   * @return True if the file name without extension is a passage media name, false otherwise.
+   */
+  public static boolean matchesPassage(String fileName, Set<String> mediaNames) {
+    return mediaNames.contains(FilenameUtils.removeExtension(fileName).toLowerCase());
   }
 
   /**
-   * Saves the given story to a file with the given filename.
+   * Saves the given story to a pretty printed file with the story's title as the filename.
    *
    * @param story the story to be saved
    * @throws IOException if there is an issue writing the story to the file
    */
   public void saveStoryToFile(Story story) throws IOException {
+    saveStoryToFile(story, false);
+  }
+
+  /**
+   * Saves the given story to a file with the story's title as the filename. The story is streamed
+   * straight to a temporary file, which then atomically replaces the old story file.
+   *
+   * @param story   the story to be saved
+   * @param compact {@code true} to save the story without whitespace, {@code false} to pretty
+   *                print it
+   * @throws IOException if there is an issue writing the story to the file
+   */
+  public void saveStoryToFile(Story story, boolean compact) throws IOException {
     Objects.requireNonNull(story, "Story cannot be null");
     String filename = story.getTitle();
 
-    String jsonString = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(story);
-    Files.createDirectories(FILEPATH);
-    Path storyFilePath = FILEPATH.resolve(filename + ".json");
-    Files.write(storyFilePath, jsonString.getBytes());
+    saveStoryToFile(story, FILEPATH.resolve(filename + ".json"), compact);
+  }
+
+  /**
+   * Saves the given story to the file with the given path. The file may be anywhere, and does not
+   * have to be in the stories folder. The story is streamed straight to a temporary file, which
+   * then atomically replaces the old story file.
+   *
+   * @param story         the story to be saved
+   * @param storyFilePath the path of the file to save the story to
+   * @param compact       {@code true} to save the story without whitespace, {@code false} to
+   *                      pretty print it
+   * @throws IOException if there is an issue writing the story to the file
+   */
+  public void saveStoryToFile(Story story, Path storyFilePath, boolean compact)
+      throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    Objects.requireNonNull(storyFilePath, "File path cannot be null");
+    AtomicFileWriter.write(
+        storyFilePath, out -> CodecRegistry.storyWriter(compact).writeValue(out, story));
   }
 
   /**
@@ -159,9 +248,116 @@ public class StoryFileHandler {
     filename = FilenameUtils.removeExtension(filename);
     Objects.requireNonNull(filename, "Filename cannot be null");
 
+    return loadStoryFromFile(FILEPATH.resolve(filename + ".json"));
+  }
+
+  /**
+   * Loads a story from the file with the given path. The file may be anywhere, and does not have
+   * to be in the stories folder.
+   *
+   * @param storyFilePath the path of the file to load the story from
+   * @return the loaded story
+   * @throws IOException if there is an issue reading the story from the file
+   */
+  public Story loadStoryFromFile(Path storyFilePath) throws IOException {
+    Objects.requireNonNull(storyFilePath, "File path cannot be null");
+    return CodecRegistry.storyReader().readValue(storyFilePath.toFile());
+  }
+
+  /**
+   * Loads a single passage from a story file without parsing the rest of the file. The passage is
+   * found through the sidecar index of the story file, which is rebuilt if it is missing or stale.
+   * If the opening passage shares its title with another passage, the other passage is returned.
+   *
+   * @param filename     the name of the file to load the passage from
+   * @param passageTitle the title of the passage to load
+   * @return the loaded passage
+   * @throws IOException            if there is an issue reading the passage from the file
+   * @throws NoSuchPassageException if the story has no passage with the given title
+   */
+  public Passage loadPassageFromFile(String filename, String passageTitle) throws IOException {
+    filename = FilenameUtils.removeExtension(filename);
+    Objects.requireNonNull(filename, "Filename cannot be null");
+
     Path storyFilePath = FILEPATH.resolve(filename + ".json");
-    String jsonString = new String(Files.readAllBytes(storyFilePath));
-    return objectMapper.readValue(jsonString, Story.class);
+    PassageIndex index = indexStoryFile(storyFilePath);
+    byte[] passageBytes = index.readPassage(storyFilePath, passageTitle);
+    if (passageBytes == null) {
+      throw new NoSuchPassageException("The story has no passage titled " + passageTitle);
+    }
+    Passage passage = CodecRegistry.passageReader().readValue(passageBytes);
+    passage.markSaved();
+    return passage;
+  }
+
+  /**
+   * Returns the passage index of the story file with the given path. The sidecar index file is
+   * read if it is current, and is otherwise rebuilt and written again.
+   *
+   * @param storyFilePath the path of the story file
+   * @return the passage index of the story file
+   * @throws IOException if there is an issue reading the file, or the file is not a valid story
+   */
+  public static PassageIndex indexStoryFile(Path storyFilePath) throws IOException {
+    return PassageIndex.forFile(storyFilePath, StoryFileHandler::buildPassageIndex);
+  }
+
+  /**
+   * Builds the passage index of a story file by streaming through the file. Only the opening
+   * passage is deserialized, to find its title. The other passages are skipped, and are indexed by
+   * their key in the passages object.
+   *
+   * @param storyFilePath the path of the story file
+   * @return the passage index of the story file
+   * @throws IOException if there is an issue reading the file, or the file is not a valid story
+   */
+  private static PassageIndex buildPassageIndex(Path storyFilePath) throws IOException {
+    PassageIndex.Entry openingEntry = null;
+    Map<String, PassageIndex.Entry> passageEntries = new LinkedHashMap<>();
+
+    try (JsonParser parser =
+        CodecRegistry.passageReader().createParser(Files.newInputStream(storyFilePath))) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a story object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        parser.nextToken();
+        if (fieldName.equals("openingPassage")) {
+          long offset = parser.getTokenLocation().getByteOffset();
+          Passage openingPassage = CodecRegistry.passageReader().readValue(parser);
+          openingEntry = createEntry(parser, openingPassage.getTitle(), offset);
+        } else if (fieldName.equals("passages")) {
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String title = parser.getCurrentName();
+            parser.nextToken();
+            long offset = parser.getTokenLocation().getByteOffset();
+            parser.skipChildren();
+            passageEntries.put(title, createEntry(parser, title, offset));
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    if (openingEntry == null) {
+      throw new IOException("Invalid story format: The story has no opening passage");
+    }
+    return new PassageIndex(openingEntry, passageEntries);
+  }
+
+  /**
+   * Creates an index entry for a passage that started at the given offset, and ends at the current
+   * location of the parser.
+   *
+   * @param parser the parser positioned at the end of the passage
+   * @param title  the title of the passage
+   * @param offset the byte offset of the start of the passage
+   * @return the index entry of the passage
+   */
+  private static PassageIndex.Entry createEntry(JsonParser parser, String title, long offset) {
+    long end = parser.getCurrentLocation().getByteOffset();
+    return new PassageIndex.Entry(title, offset, (int) (end - offset));
   }
 
   /**
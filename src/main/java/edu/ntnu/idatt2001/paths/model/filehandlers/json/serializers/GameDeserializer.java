@@ -1,14 +1,18 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryCatalog;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
 import edu.ntnu.idatt2001.paths.model.filehandlers.factories.GoalFactory;
 import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameData;
 import edu.ntnu.idatt2001.paths.model.game.Game;
 import edu.ntnu.idatt2001.paths.model.game.Player;
 import edu.ntnu.idatt2001.paths.model.goals.Goal;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.NoSuchPassageException;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
 import java.io.IOException;
@@ -23,6 +27,15 @@ import java.util.List;
  * objects that should be deserialized according to their respective types. The {@link Goal} objects
  * are deserialized using the {@link GoalFactory}.
  *
+ * <p>The game data is read token by token straight from the parser, without building a tree of the
+ * JSON first.
+ *
+ * <p>Both save formats written by the {@link GameSerializer} are read. Saves in the original format
+ * embed the story and the passages. Saves in the version 2 format hold a {@link StoryReference},
+ * and the story is loaded from the {@link StoryCatalog}, with the current and visited passages
+ * looked up by their titles. If the story file has been changed since the game was saved, visited
+ * passages that no longer exist are left out, but the current passage must still exist.
+ *
  * <p>To use this deserializer with an {@link com.fasterxml.jackson.databind.ObjectMapper},
  * register
  * it with a {@link com.fasterxml.jackson.databind.module.SimpleModule} and add the module to the
@@ -36,6 +49,7 @@ import java.util.List;
  * }</pre>
  *
  * @see GameData
+ * @see GameSerializer
  * @see Game
  * @see Player
  * @see Story
@@ -48,29 +62,226 @@ public class GameDeserializer extends JsonDeserializer<GameData> {
   @Override
   public GameData deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
       throws IOException {
-    JsonNode gameDataNode = jsonParser.getCodec().readTree(jsonParser);
-    JsonNode gameNode = gameDataNode.get("game");
-    Player player = jsonParser.getCodec().treeToValue(gameNode.get("player"), Player.class);
-    Story story = jsonParser.getCodec().treeToValue(gameNode.get("story"), Story.class);
+    int version = 1;
+    Game game = null;
+    StoryReference storyReference = null;
+    Player player = null;
     List<Goal> goals = new ArrayList<>();
+    Passage passage = null;
+    String passageTitle = null;
+    List<Passage> visitedPassages = new ArrayList<>();
+    List<String> visitedPassageTitles = new ArrayList<>();
 
-    JsonNode goalsNode = gameNode.get("goals");
-    for (JsonNode goalNode : goalsNode) {
-      String goalType = goalNode.fieldNames().next();
-      Goal goal = GoalFactory.createGoal(goalType, goalNode);
-      goals.add(goal);
+    JsonToken token = ParserUtils.firstField(jsonParser, deserializationContext, GameData.class);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      String fieldName = jsonParser.currentName();
+      JsonToken valueToken = jsonParser.nextToken();
+      switch (fieldName) {
+        case "version" -> version = jsonParser.getValueAsInt();
+        case "game" -> game = readGame(jsonParser, deserializationContext);
+        case "story" -> storyReference = readStoryReference(jsonParser, deserializationContext);
+        case "player" -> player = deserializationContext.readValue(jsonParser, Player.class);
+        case "goals" -> readGoals(jsonParser, deserializationContext, goals);
+        case "passage" -> {
+          if (valueToken == JsonToken.VALUE_STRING) {
+            passageTitle = jsonParser.getText();
+          } else if (valueToken == JsonToken.START_OBJECT) {
+            passage = deserializationContext.readValue(jsonParser, Passage.class);
+          }
+        }
+        case "visitedPassages" -> {
+          ParserUtils.expectArray(jsonParser, deserializationContext, GameData.class);
+          for (JsonToken element = jsonParser.nextToken();
+              element != JsonToken.END_ARRAY;
+              element = jsonParser.nextToken()) {
+            if (element == JsonToken.VALUE_STRING) {
+              visitedPassageTitles.add(jsonParser.getText());
+            } else {
+              visitedPassages.add(deserializationContext.readValue(jsonParser, Passage.class));
+            }
+          }
+        }
+        default -> jsonParser.skipChildren();
+      }
+    }
+    if (version > GameSerializer.STORY_REFERENCE_VERSION) {
+      return deserializationContext.reportInputMismatch(
+          GameData.class, "Unsupported save version %d", version);
     }
+    if (storyReference != null) {
+      if (player == null) {
+        return deserializationContext.reportInputMismatch(
+            GameData.class, "Game data must contain a player");
+      }
+      return resolveStory(
+          deserializationContext,
+          storyReference,
+          player,
+          goals,
+          passageTitle,
+          visitedPassageTitles);
+    }
+    if (game == null) {
+      return deserializationContext.reportInputMismatch(
+          GameData.class, "Game data must contain a game");
+    }
+    return new GameData(game, passage, visitedPassages);
+  }
+
+  /**
+   * Reads the story reference object the parser is positioned at.
+   *
+   * @param jsonParser             the JSON parser, positioned at the start of the story reference
+   * @param deserializationContext the deserialization context
+   * @return the read story reference
+   * @throws IOException if there is an issue reading from the JSON parser
+   */
+  private StoryReference readStoryReference(
+      JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
+    String fileName = null;
+    String hash = null;
+
+    JsonToken token =
+        ParserUtils.firstField(jsonParser, deserializationContext, StoryReference.class);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      String fieldName = jsonParser.currentName();
+      jsonParser.nextToken();
+      switch (fieldName) {
+        case "file" -> fileName = jsonParser.getText();
+        case "hash" -> hash = jsonParser.getText();
+        default -> jsonParser.skipChildren();
+      }
+    }
+    if (fileName == null || hash == null) {
+      return deserializationContext.reportInputMismatch(
+          StoryReference.class, "A story reference must contain a file and a hash");
+    }
+    return new StoryReference(fileName, hash);
+  }
+
+  /**
+   * Creates the game data of a version 2 save, by loading the referenced story from the
+   * {@link StoryCatalog} and looking up the current and visited passages by their titles. The
+   * returned game data refers to the story file as it is now, so that saving the game again records
+   * the current hash of the story file.
+   *
+   * @param deserializationContext the deserialization context
+   * @param storyReference         the reference to the story file read from the save
+   * @param player                 the player read from the save
+   * @param goals                  the goals read from the save
+   * @param passageTitle           the title of the current passage, or {@code null} to start at
+   *                               the opening passage
+   * @param visitedPassageTitles   the titles of the visited passages
+   * @return the game data
+   * @throws IOException if the story cannot be loaded, or the current passage is not in the story
+   */
+  private GameData resolveStory(
+      DeserializationContext deserializationContext,
+      StoryReference storyReference,
+      Player player,
+      List<Goal> goals,
+      String passageTitle,
+      List<String> visitedPassageTitles)
+      throws IOException {
+    String fileName = storyReference.getFileName();
+    StoryReference currentReference = StoryCatalog.createReference(fileName);
+    boolean storyChanged = !currentReference.equals(storyReference);
+    Story story = StoryCatalog.loadStory(fileName);
 
-    Game game = new Game(player, story, goals);
-    Passage passage = jsonParser.getCodec().treeToValue(gameDataNode.get("passage"), Passage.class);
+    Passage passage =
+        passageTitle == null ? story.getOpeningPassage() : findPassage(story, passageTitle);
+    if (passage == null) {
+      return deserializationContext.reportInputMismatch(
+          GameData.class,
+          storyChanged
+              ? "The story %s has been changed since the game was saved, and has no passage "
+                  + "titled %s"
+              : "The story %s has no passage titled %s",
+          fileName,
+          passageTitle);
+    }
 
-    JsonNode visitedPassagesNode = gameDataNode.get("visitedPassages");
     List<Passage> visitedPassages = new ArrayList<>();
-    for (JsonNode passageNode : visitedPassagesNode) {
-      Passage visitedPassage = jsonParser.getCodec().treeToValue(passageNode, Passage.class);
-      visitedPassages.add(visitedPassage);
+    for (String visitedPassageTitle : visitedPassageTitles) {
+      Passage visitedPassage = findPassage(story, visitedPassageTitle);
+      if (visitedPassage != null) {
+        visitedPassages.add(visitedPassage);
+      } else if (!storyChanged) {
+        return deserializationContext.reportInputMismatch(
+            GameData.class, "The story %s has no passage titled %s", fileName, visitedPassageTitle);
+      }
     }
+    return new GameData(new Game(player, story, goals), passage, visitedPassages, currentReference);
+  }
 
-    return new GameData(game, passage, visitedPassages);
+  /**
+   * Finds the passage with the given title in the story. The opening passage is checked first,
+   * since it is not necessarily among the other passages of the story.
+   *
+   * @param story        the story to search
+   * @param passageTitle the title of the passage
+   * @return the passage, or {@code null} if the story has no passage with the title
+   */
+  private Passage findPassage(Story story, String passageTitle) {
+    if (story.getOpeningPassage().getTitle().equals(passageTitle)) {
+      return story.getOpeningPassage();
+    }
+    try {
+      return story.getPassage(new Link(passageTitle, passageTitle));
+    } catch (NoSuchPassageException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads the game object the parser is positioned at.
+   *
+   * @param jsonParser             the JSON parser, positioned at the start of the game object
+   * @param deserializationContext the deserialization context
+   * @return the read game
+   * @throws IOException if there is an issue reading from the JSON parser
+   */
+  private Game readGame(JsonParser jsonParser, DeserializationContext deserializationContext)
+      throws IOException {
+    Player player = null;
+    Story story = null;
+    List<Goal> goals = new ArrayList<>();
+
+    JsonToken token = ParserUtils.firstField(jsonParser, deserializationContext, Game.class);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      String fieldName = jsonParser.currentName();
+      jsonParser.nextToken();
+      switch (fieldName) {
+        case "player" -> player = deserializationContext.readValue(jsonParser, Player.class);
+        case "story" -> story = deserializationContext.readValue(jsonParser, Story.class);
+        case "goals" -> readGoals(jsonParser, deserializationContext, goals);
+        default -> jsonParser.skipChildren();
+      }
+    }
+    return new Game(player, story, goals);
+  }
+
+  /**
+   * Reads the array of goals the parser is positioned at. Each goal is an object with a single
+   * field, where the field name is the goal type and the field value is the goal value.
+   *
+   * @param jsonParser             the JSON parser, positioned at the start of the array
+   * @param deserializationContext the deserialization context
+   * @param goals                  the list to add the read goals to
+   * @throws IOException if there is an issue reading from the JSON parser
+   */
+  private void readGoals(
+      JsonParser jsonParser, DeserializationContext deserializationContext, List<Goal> goals)
+      throws IOException {
+    ParserUtils.expectArray(jsonParser, deserializationContext, Game.class);
+    while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+      if (jsonParser.nextToken() != JsonToken.FIELD_NAME) {
+        deserializationContext.reportInputMismatch(Game.class, "A goal cannot be empty");
+      }
+      String goalType = jsonParser.currentName();
+      jsonParser.nextToken();
+      goals.add(GoalFactory.createGoal(goalType, jsonParser));
+      ParserUtils.skipRestOfObject(jsonParser);
+    }
   }
 }
@@ -0,0 +1,96 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.GameData;
+import edu.ntnu.idatt2001.paths.model.game.Game;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import java.io.IOException;
+
+/**
+ * A custom serializer for the {@link GameData} class, using the Jackson library. This class is
+ * responsible for serializing a {@link GameData} object into one of two JSON formats.
+ *
+ * <p>If the game data holds a {@link StoryReference}, the game is written in the compact version 2
+ * format. The story is stored as the file name and hash of the story file, and the current and
+ * visited passages are stored as their titles:
+ *
+ * <pre>{@code
+ * {"version":2,"story":{"file":"My Story.paths","hash":"..."},"player":{...},"goals":[...],
+ *  "passage":"Forest","visitedPassages":["Home","Forest"]}
+ * }</pre>
+ *
+ * <p>Otherwise, the game is written in the original format, where the whole story and every
+ * visited passage are embedded in the save.
+ *
+ * <p>When de-serializing use the {@link GameDeserializer} class, which reads both formats.
+ *
+ * @see GameData
+ * @see GameDeserializer
+ * @see StoryReference
+ */
+public class GameSerializer extends JsonSerializer<GameData> {
+
+  /** The version of the format that refers to the story instead of embedding it. */
+  public static final int STORY_REFERENCE_VERSION = 2;
+
+  @Override
+  public void serialize(
+      GameData gameData, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+      throws IOException {
+    if (gameData.getStoryReference() == null) {
+      writeEmbeddedStory(gameData, jsonGenerator);
+    } else {
+      writeStoryReference(gameData, jsonGenerator);
+    }
+  }
+
+  /**
+   * Writes the game data in the original format, with the story embedded.
+   *
+   * @param gameData      the game data to write
+   * @param jsonGenerator the JSON generator
+   * @throws IOException if there is an issue writing to the JSON generator
+   */
+  private void writeEmbeddedStory(GameData gameData, JsonGenerator jsonGenerator)
+      throws IOException {
+    jsonGenerator.writeStartObject();
+    jsonGenerator.writeObjectField("game", gameData.getGame());
+    jsonGenerator.writeObjectField("passage", gameData.getPassage());
+    jsonGenerator.writeObjectField("visitedPassages", gameData.getVisitedPassages());
+    jsonGenerator.writeEndObject();
+  }
+
+  /**
+   * Writes the game data in the version 2 format, with a reference to the story file.
+   *
+   * @param gameData      the game data to write
+   * @param jsonGenerator the JSON generator
+   * @throws IOException if there is an issue writing to the JSON generator
+   */
+  private void writeStoryReference(GameData gameData, JsonGenerator jsonGenerator)
+      throws IOException {
+    Game game = gameData.getGame();
+    StoryReference storyReference = gameData.getStoryReference();
+
+    jsonGenerator.writeStartObject();
+    jsonGenerator.writeNumberField("version", STORY_REFERENCE_VERSION);
+    jsonGenerator.writeObjectFieldStart("story");
+    jsonGenerator.writeStringField("file", storyReference.getFileName());
+    jsonGenerator.writeStringField("hash", storyReference.getHash());
+    jsonGenerator.writeEndObject();
+    jsonGenerator.writeObjectField("player", game.getPlayer());
+    jsonGenerator.writeObjectField("goals", game.getGoals());
+    if (gameData.getPassage() != null) {
+      jsonGenerator.writeStringField("passage", gameData.getPassage().getTitle());
+    }
+    jsonGenerator.writeArrayFieldStart("visitedPassages");
+    for (Passage passage : gameData.getVisitedPassages()) {
+      jsonGenerator.writeString(passage.getTitle());
+    }
+    jsonGenerator.writeEndArray();
+    jsonGenerator.writeEndObject();
+  }
+}
@@ -1,9 +1,9 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 import edu.ntnu.idatt2001.paths.model.actions.Action;
 import edu.ntnu.idatt2001.paths.model.filehandlers.factories.ActionFactory;
 import edu.ntnu.idatt2001.paths.model.story.Link;
@@ -19,6 +19,9 @@ import java.util.List;
  * be deserialized according to their respective types. The {@link Link} objects are also a key in
  * in the {@code Map<Link, Passage>} in the {@link Story} class.
  *
+ * <p>The link is read token by token straight from the parser, without building a tree of the JSON
+ * first.
+ *
  * <p>To use this deserializer with an {@link com.fasterxml.jackson.databind.ObjectMapper},
  * register
  * it with a {@link com.fasterxml.jackson.databind.module.SimpleModule} and add the module to the
@@ -42,34 +45,53 @@ public class LinkDeserializer extends JsonDeserializer<Link> {
   @Override
   public Link deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
       throws IOException {
-    JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-
-    String text = node.get("text").asText();
-    String ref = node.get("ref").asText();
-
-    // Deserialize actions
-    JsonNode actionsNode = node.get("actions");
+    String text = null;
+    String ref = null;
     List<Action> actions = new ArrayList<>();
 
-    for (JsonNode actionNode : actionsNode) {
-      Action action = createActionFromJsonNode(actionNode);
-      actions.add(action);
+    JsonToken token = ParserUtils.firstField(jsonParser, deserializationContext, Link.class);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      String fieldName = jsonParser.currentName();
+      jsonParser.nextToken();
+      switch (fieldName) {
+        case "text" -> text = jsonParser.getValueAsString();
+        case "ref" -> ref = jsonParser.getValueAsString();
+        case "actions" -> readActions(jsonParser, deserializationContext, actions);
+        default -> jsonParser.skipChildren();
+      }
+    }
+    if (text == null || ref == null) {
+      return deserializationContext.reportInputMismatch(
+          Link.class, "A link must have both a text and a ref");
     }
-    Link link = new Link(text, ref);
-    link.getActions().addAll(actions);
 
+    Link link = new Link(text, ref);
+    actions.forEach(link::addAction);
+    link.markSaved();
     return link;
   }
 
   /**
-   * Creates an Action object from the given JSON node.
+   * Reads the array of actions the parser is positioned at. Each action is an object with a single
+   * field, where the field name is the action name and the field value is the action value.
    *
-   * @param actionNode the JSON node containing the action data
-   * @return the created Action object
+   * @param jsonParser             the JSON parser, positioned at the start of the array
+   * @param deserializationContext the deserialization context
+   * @param actions                the list to add the read actions to
+   * @throws IOException if there is an issue reading from the JSON parser
    */
-  private Action createActionFromJsonNode(JsonNode actionNode) {
-    String actionName = actionNode.fieldNames().next();
-    String actionValue = actionNode.get(actionName).asText();
-    return ActionFactory.createAction(actionName, actionValue);
+  private void readActions(
+      JsonParser jsonParser, DeserializationContext deserializationContext, List<Action> actions)
+      throws IOException {
+    ParserUtils.expectArray(jsonParser, deserializationContext, Link.class);
+    while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+      if (jsonParser.nextToken() != JsonToken.FIELD_NAME) {
+        deserializationContext.reportInputMismatch(Link.class, "An action cannot be empty");
+      }
+      String actionName = jsonParser.currentName();
+      jsonParser.nextToken();
+      actions.add(ActionFactory.createAction(actionName, jsonParser.getValueAsString()));
+      ParserUtils.skipRestOfObject(jsonParser);
+    }
   }
 }
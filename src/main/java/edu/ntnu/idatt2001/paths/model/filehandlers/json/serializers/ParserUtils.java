@@ -0,0 +1,74 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import java.io.IOException;
+
+/**
+ * Utility methods shared by the token-streaming deserializers in this package. The deserializers
+ * read their objects field by field straight from the {@link JsonParser}, without building a tree
+ * of the JSON first.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ */
+class ParserUtils {
+
+  private ParserUtils() {
+  }
+
+  /**
+   * Moves the parser to the first field of the object it is positioned at. The parser may be
+   * positioned at the start of the object, or already at its first field.
+   *
+   * @param jsonParser             the JSON parser
+   * @param deserializationContext the deserialization context
+   * @param type                   the type being deserialized, used in error messages
+   * @return the current token, which is a field name, or the end of an empty object
+   * @throws IOException if the parser is not positioned at an object
+   */
+  static JsonToken firstField(
+      JsonParser jsonParser, DeserializationContext deserializationContext, Class<?> type)
+      throws IOException {
+    JsonToken token = jsonParser.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = jsonParser.nextToken();
+    }
+    if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+      deserializationContext.reportWrongTokenException(
+          type, JsonToken.START_OBJECT, "Expected a JSON object");
+    }
+    return token;
+  }
+
+  /**
+   * Moves the parser to the start of the array it is expected to be positioned at.
+   *
+   * @param jsonParser             the JSON parser
+   * @param deserializationContext the deserialization context
+   * @param type                   the type being deserialized, used in error messages
+   * @throws IOException if the parser is not positioned at an array
+   */
+  static void expectArray(
+      JsonParser jsonParser, DeserializationContext deserializationContext, Class<?> type)
+      throws IOException {
+    if (jsonParser.currentToken() != JsonToken.START_ARRAY) {
+      deserializationContext.reportWrongTokenException(
+          type, JsonToken.START_ARRAY, "Expected a JSON array");
+    }
+  }
+
+  /**
+   * Skips the remaining fields of the object the parser is in, leaving the parser at the end of
+   * the object.
+   *
+   * @param jsonParser the JSON parser, positioned at the last value read from the object
+   * @throws IOException if there is an issue reading from the JSON parser
+   */
+  static void skipRestOfObject(JsonParser jsonParser) throws IOException {
+    while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+      jsonParser.nextToken();
+      jsonParser.skipChildren();
+    }
+  }
+}
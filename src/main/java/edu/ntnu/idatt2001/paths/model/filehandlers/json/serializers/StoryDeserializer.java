@@ -1,21 +1,24 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json.serializers;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A custom deserializer for the {@link Story} class, using the Jackson library. This class is
  * responsible for deserializing JSON node to a {@link Story} object. The custom deserialization is
  * necessary due to the passage map in the {@link Story} being of type {@code Map<Link, Passage>}.
  *
+ * <p>The story is read token by token straight from the parser, without building a tree of the
+ * JSON first. Each passage is handed to the deserializer of the {@link Passage} class as soon as it
+ * is reached, so a story is only materialized once.
+ *
  * <p>When serializing use the {@link StorySerializer} class.
  *
  * <p>To use the deserializer with an {@link com.fasterxml.jackson.databind.ObjectMapper}. Register
@@ -36,45 +39,61 @@ import java.util.Map;
 public class StoryDeserializer extends JsonDeserializer<Story> {
 
   /**
-   * Deserializes JSON data into a Story object.
+   * Deserializes JSON data into a Story object. The story is marked as saved, since it has no
+   * changes compared to the file it was read from.
    *
    * @param jsonParser             the JSON parser
    * @param deserializationContext the deserialization context
    * @return the deserialized Story object
-   * @throws IOException             if there is an issue reading from the JSON parser
-   * @throws JsonProcessingException if there is an issue processing the JSON data
+   * @throws IOException if there is an issue reading from the JSON parser, or the JSON data is not
+   *                     a valid story
    */
   @Override
   public Story deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
-      throws IOException, JsonProcessingException {
-    JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-
-    String title = node.get("title").asText();
-    Passage openingPassage =
-        jsonParser.getCodec().treeToValue(node.get("openingPassage"), Passage.class);
-    Story story = new Story(title, openingPassage);
+      throws IOException {
+    String title = null;
+    Passage openingPassage = null;
+    List<Passage> passages = new ArrayList<>();
 
-    JsonNode passagesNode = node.get("passages");
-    Iterator<Map.Entry<String, JsonNode>> fields = passagesNode.fields();
-
-    while (fields.hasNext()) {
-      Map.Entry<String, JsonNode> entry = fields.next();
-      Passage passage = createPassageFromJsonNode(jsonParser, entry.getValue());
-      story.addPassage(passage);
+    JsonToken token = ParserUtils.firstField(jsonParser, deserializationContext, Story.class);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      String fieldName = jsonParser.currentName();
+      jsonParser.nextToken();
+      switch (fieldName) {
+        case "title" -> title = jsonParser.getValueAsString();
+        case "openingPassage" ->
+            openingPassage = deserializationContext.readValue(jsonParser, Passage.class);
+        case "passages" -> readPassages(jsonParser, deserializationContext, passages);
+        default -> jsonParser.skipChildren();
+      }
+    }
+    if (title == null || openingPassage == null) {
+      return deserializationContext.reportInputMismatch(
+          Story.class, "A story must have both a title and an opening passage");
     }
+
+    Story story = new Story(title, openingPassage);
+    passages.forEach(story::addPassage);
+    story.markSaved();
     return story;
   }
 
   /**
-   * Creates a Passage object from the given JSON node.
+   * Reads the object of passages the parser is positioned at. The passages are keyed by their
+   * title, and the keys are not used since each passage contains its own title.
    *
-   * @param jsonParser  the JSON parser
-   * @param passageNode the JSON node containing the passage data
-   * @return the created Passage object
-   * @throws JsonProcessingException if there is an issue processing the JSON data
+   * @param jsonParser             the JSON parser, positioned at the start of the object
+   * @param deserializationContext the deserialization context
+   * @param passages               the list to add the read passages to
+   * @throws IOException if there is an issue reading from the JSON parser
    */
-  private Passage createPassageFromJsonNode(JsonParser jsonParser, JsonNode passageNode)
-      throws JsonProcessingException {
-    return jsonParser.getCodec().treeToValue(passageNode, Passage.class);
+  private void readPassages(
+      JsonParser jsonParser, DeserializationContext deserializationContext, List<Passage> passages)
+      throws IOException {
+    JsonToken token = ParserUtils.firstField(jsonParser, deserializationContext, Story.class);
+    for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+      jsonParser.nextToken();
+      passages.add(deserializationContext.readValue(jsonParser, Passage.class));
+    }
   }
 }
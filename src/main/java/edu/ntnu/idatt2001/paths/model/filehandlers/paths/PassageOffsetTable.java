@@ -0,0 +1,215 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The PassageOffsetTable class maps each passage in a .paths story file to the byte range it
+ * occupies in the file. It is the editable form of the {@link PassageIndex} of the file, which is
+ * kept in a sidecar file next to the story file: the table is created from the index with
+ * {@link #fromIndex(PassageIndex, long)}, changed while the changed passages are patched, and
+ * stored again with {@link #toIndex(String)}.
+ *
+ * <p>The range of a passage starts at its {@code ::} title line and covers its content, links,
+ * actions and the empty line ending the passage. The opening passage is kept apart from the other
+ * passages, since a passage may share its title.
+ *
+ * <p>The table is used by {@link StoryFileWriter#saveChangedPassages} to patch only the changed
+ * passages of a story file. The bytes of the file that are not in the range of any passage, apart
+ * from the title of the story, are counted as padding.
+ *
+ * @see StoryFileWriter
+ * @see StoryFileReader
+ */
+public class PassageOffsetTable {
+
+  private final Map<String, Range> passageRanges;
+  private Range openingPassageRange;
+  private long fileSize;
+  private long paddingBytes;
+
+  /**
+   * Constructs a new, empty PassageOffsetTable.
+   */
+  public PassageOffsetTable() {
+    passageRanges = new LinkedHashMap<>();
+  }
+
+  /**
+   * Creates an offset table with the passage ranges of the given passage index.
+   *
+   * @param index    the passage index of the story file
+   * @param fileSize the size of the story file
+   * @return the offset table of the story file
+   */
+  public static PassageOffsetTable fromIndex(PassageIndex index, long fileSize) {
+    PassageOffsetTable offsetTable = new PassageOffsetTable();
+    PassageIndex.Entry openingEntry = index.getOpeningPassageEntry();
+    offsetTable.setOpeningPassageRange(
+        new Range(openingEntry.getOffset(), openingEntry.getLength()));
+    long usedBytes = openingEntry.getOffset() + openingEntry.getLength();
+    for (String title : index.getPassageTitles()) {
+      PassageIndex.Entry entry = index.getEntry(title);
+      offsetTable.putPassageRange(title, new Range(entry.getOffset(), entry.getLength()));
+      usedBytes += entry.getLength();
+    }
+    offsetTable.fileSize = fileSize;
+    offsetTable.paddingBytes = Math.max(0, fileSize - usedBytes);
+    return offsetTable;
+  }
+
+  /**
+   * Returns the passage index with the ranges of the table.
+   *
+   * @param openingPassageTitle the title of the opening passage
+   * @return the passage index of the story file
+   * @throws NullPointerException if the table has no range for the opening passage
+   */
+  public PassageIndex toIndex(String openingPassageTitle) {
+    Objects.requireNonNull(openingPassageRange, "Opening passage range cannot be null");
+    Map<String, PassageIndex.Entry> passageEntries = new LinkedHashMap<>();
+    passageRanges.forEach(
+        (title, range) ->
+            passageEntries.put(
+                title, new PassageIndex.Entry(title, range.getOffset(), range.getLength())));
+    return new PassageIndex(
+        new PassageIndex.Entry(
+            openingPassageTitle,
+            openingPassageRange.getOffset(),
+            openingPassageRange.getLength()),
+        passageEntries);
+  }
+
+  /**
+   * Returns the byte range of the opening passage.
+   *
+   * @return the range of the opening passage, or {@code null} if it is not known
+   */
+  public Range getOpeningPassageRange() {
+    return openingPassageRange;
+  }
+
+  /**
+   * Sets the byte range of the opening passage.
+   *
+   * @param openingPassageRange the range of the opening passage
+   */
+  public void setOpeningPassageRange(Range openingPassageRange) {
+    this.openingPassageRange = openingPassageRange;
+  }
+
+  /**
+   * Returns the byte range of the passage with the given title.
+   *
+   * @param passageTitle the title of the passage
+   * @return the range of the passage, or {@code null} if the passage is not in the table
+   */
+  public Range getPassageRange(String passageTitle) {
+    return passageRanges.get(passageTitle);
+  }
+
+  /**
+   * Sets the byte range of the passage with the given title.
+   *
+   * @param passageTitle the title of the passage
+   * @param range        the range of the passage
+   */
+  public void putPassageRange(String passageTitle, Range range) {
+    passageRanges.put(
+        Objects.requireNonNull(passageTitle, "Passage title cannot be null"),
+        Objects.requireNonNull(range, "Range cannot be null"));
+  }
+
+  /**
+   * Removes the passage with the given title from the table.
+   *
+   * @param passageTitle the title of the passage
+   * @return the removed range, or {@code null} if the passage was not in the table
+   */
+  public Range removePassageRange(String passageTitle) {
+    return passageRanges.remove(passageTitle);
+  }
+
+  /**
+   * Returns the titles of all passages in the table, in file order of when they were added.
+   *
+   * @return the titles of the passages in the table
+   */
+  public Collection<String> getPassageTitles() {
+    return passageRanges.keySet();
+  }
+
+  /**
+   * Returns the number of bytes in the file that are padding left behind by passages that have
+   * been removed, moved or have shrunk.
+   *
+   * @return the number of padding bytes
+   */
+  public long getPaddingBytes() {
+    return paddingBytes;
+  }
+
+  /**
+   * Adds to the number of padding bytes in the file.
+   *
+   * @param bytes the number of new padding bytes
+   */
+  public void addPaddingBytes(long bytes) {
+    paddingBytes += bytes;
+  }
+
+  /**
+   * Returns the size of the file the table was created for.
+   *
+   * @return the file size in bytes
+   */
+  public long getFileSize() {
+    return fileSize;
+  }
+
+  /**
+   * The Range class represents a byte range in a story file, given by its offset from the start of
+   * the file and its length. Ranges are immutable.
+   */
+  public static class Range {
+
+    private final long offset;
+    private final int length;
+
+    /**
+     * Constructs a new Range with the given offset and length.
+     *
+     * @param offset the offset of the first byte of the range
+     * @param length the number of bytes in the range
+     * @throws IllegalArgumentException if the offset or length is negative
+     */
+    public Range(long offset, int length) {
+      if (offset < 0 || length < 0) {
+        throw new IllegalArgumentException("Offset and length cannot be negative");
+      }
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * Returns the offset of the first byte of the range.
+     *
+     * @return the offset
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Returns the number of bytes in the range.
+     *
+     * @return the length
+     */
+    public int getLength() {
+      return length;
+    }
+  }
+}
@@ -2,19 +2,26 @@ package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
 
 import edu.ntnu.idatt2001.paths.model.actions.Action;
 import edu.ntnu.idatt2001.paths.model.filehandlers.factories.ActionFactory;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.DirectoryIndex;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageContentCache;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
 import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.NoSuchPassageException;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.PassageContentLoader;
 import edu.ntnu.idatt2001.paths.model.story.Story;
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.ListIterator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.io.FilenameUtils;
@@ -29,6 +36,23 @@ import org.apache.commons.io.FilenameUtils;
  * the content of the file, then parses the content to create a Story object. If any I/O error
  * occurs while reading the story, an IOException is thrown.
  *
+ * <p>The method {@link #readStoryWithDiagnostics(String)} parses the same format, but collects
+ * every problem in the file with its line and column instead of failing on the first one.
+ *
+ * <p>When a story file in the stories folder is read without problems, the byte range of every
+ * passage in the file is stored in its {@link PassageIndex} sidecar file, from which the
+ * {@link StoryFileWriter} loads it, so that changed passages can later be saved without writing
+ * the whole file again.
+ *
+ * <p>The method {@link #readPassage(String, String)} reads a single passage from a story file
+ * without parsing the rest of the file, using a {@link PassageIndex} sidecar file that is rebuilt
+ * when it is missing or stale.
+ *
+ * <p>The method {@link #readStoryLazily(String)} reads a story one passage at a time without
+ * keeping the content of its passages in memory. The content is read from the story file when it
+ * is needed, and only the content of the most recently used passages is cached until the file
+ * changes.
+ *
  * <p>The StoryFileReader class utilizes the {@link Story}, {@link Passage}, {@link Link}, and
  * {@link Action} classes as components to build the content of the story from the text file.
  *
@@ -46,6 +70,8 @@ public class StoryFileReader {
   private static final String LINK_PATTERN = "^\\[(.+)]\\((.+)\\)$";
   private static final String ACTIONS_PATTERN = "^\\{(.+)}$";
   private static final String ACTION_TYPE_PATTERN = "^([HISG]):";
+  private static final String EMPTY_ACTIONS = "{}";
+  private static final int CONTENT_CACHE_CAPACITY = 256;
 
   private StoryFileReader() {
   }
@@ -56,50 +82,423 @@ public class StoryFileReader {
    * @param storyTitle The name of the file containing the story.
    * @return A Story object representing the story read from the file.
    * @throws IOException    If there is a problem reading the file.
-   * @throws ParseException If there is a problem parsing the story content.
+   * @throws ParseException If there is a problem parsing the story content. The exception
+   *                        describes the first problem found, and its error offset is the line
+   *                        index of that problem.
    */
   public static Story readStoryFromFile(String storyTitle) throws IOException, ParseException {
-    storyTitle = FilenameUtils.removeExtension(storyTitle);
-    String storyContent = readFile(storyTitle);
-    return parseStoryContent(storyContent);
+    StoryParseResult result = readStoryWithDiagnostics(storyTitle);
+    if (!result.getDiagnostics().isEmpty()) {
+      StoryParseDiagnostic firstProblem = result.getDiagnostics().get(0);
+      throw new ParseException(firstProblem.toString(), firstProblem.getLine() - 1);
+    }
+    return result.getStory();
+  }
+
+  /**
+   * Reads the story from the specified file without failing on the first problem. The parser
+   * recovers at passage boundaries and returns the best-effort story together with every problem
+   * found in the file, so that all errors can be fixed in one pass.
+   *
+   * <p>Invalid links and actions are left out of the story, and invalid passages are skipped. No
+   * story is built if the story title or the opening passage is invalid.
+   *
+   * @param storyTitle The name of the file containing the story.
+   * @return The parsed story and the list of problems found while parsing it.
+   * @throws IOException If there is a problem reading the file.
+   */
+  public static StoryParseResult readStoryWithDiagnostics(String storyTitle) throws IOException {
+    Path filePath = getFilePath(FilenameUtils.removeExtension(storyTitle));
+    String storyContent = Files.readString(filePath);
+    StoryParseResult result = parseStoryContent(storyContent);
+    if (result.isValid() && storyContent.endsWith(DELIMITER)
+        && PassageIndex.readCurrent(filePath) == null) {
+      PassageOffsetTable offsetTable = createOffsetTable(storyContent.split(DELIMITER, -1));
+      PassageIndex.write(
+          filePath, offsetTable.toIndex(result.getStory().getOpeningPassage().getTitle()));
+    }
+    return result;
   }
 
   /**
-   * Parses the story content and creates a corresponding Story object.
+   * Reads the story from the file with the given path without failing on the first problem, in
+   * the same way as {@link #readStoryWithDiagnostics(String)}. The file may be anywhere, and does
+   * not have to be in the stories folder.
+   *
+   * @param filePath The path of the story file.
+   * @return The parsed story and the list of problems found while parsing it.
+   * @throws IOException If there is a problem reading the file.
+   */
+  public static StoryParseResult readStoryWithDiagnostics(Path filePath) throws IOException {
+    return parseStoryContent(Files.readString(filePath));
+  }
+
+  /**
+   * Reads a single passage from the specified story file without parsing the rest of the file. The
+   * passage is found through the sidecar index of the story file, which is rebuilt if it is missing
+   * or stale. If the opening passage shares its title with another passage, the other passage is
+   * returned.
+   *
+   * @param storyTitle   The name of the file containing the story.
+   * @param passageTitle The title of the passage to read.
+   * @return The passage with the given title.
+   * @throws IOException            If there is a problem reading the file.
+   * @throws ParseException         If there is a problem parsing the passage.
+   * @throws NoSuchPassageException If the story has no passage with the given title.
+   */
+  public static Passage readPassage(String storyTitle, String passageTitle)
+      throws IOException, ParseException {
+    Path filePath = getFilePath(FilenameUtils.removeExtension(storyTitle));
+    PassageIndex index = indexStoryFile(filePath);
+    byte[] passageBytes = index.readPassage(filePath, passageTitle);
+    if (passageBytes == null) {
+      throw new NoSuchPassageException("The story has no passage titled " + passageTitle);
+    }
+
+    return parsePassage(passageBytes);
+  }
+
+  /**
+   * Returns the passage index of the story file with the given path. The sidecar index file is
+   * read if it is current, and is otherwise rebuilt and written again.
+   *
+   * @param filePath The path of the story file.
+   * @return The passage index of the story file.
+   * @throws IOException If there is a problem reading the file, or the file has no passages.
+   */
+  public static PassageIndex indexStoryFile(Path filePath) throws IOException {
+    return PassageIndex.forFile(filePath, StoryFileReader::buildPassageIndex);
+  }
+
+  /**
+   * Reads the story from the specified file without keeping the content of its passages in
+   * memory. The file is read one passage at a time, and the content of every passage except the
+   * opening passage is dropped as soon as the passage has been parsed, so that only the titles,
+   * links and actions of the passages are kept. The content is read from the story file when it is
+   * needed, and the content of the most recently used passages is cached.
+   *
+   * <p>The byte ranges of the passages found while reading the file are stored in its sidecar
+   * index, which the content is read through, so the file does not have to be scanned again.
+   *
+   * <p>The content of a passage that is changed is kept in memory until the story is saved.
+   *
+   * @param storyTitle The name of the file containing the story.
+   * @return A Story object representing the story read from the file.
+   * @throws IOException    If there is a problem reading the file.
+   * @throws ParseException If there is a problem parsing the story content. The exception
+   *                        describes the first problem found, and its error offset is the line
+   *                        index of that problem.
+   */
+  public static Story readStoryLazily(String storyTitle) throws IOException, ParseException {
+    Path filePath = getFilePath(FilenameUtils.removeExtension(storyTitle));
+    long fileSize = Files.size(filePath);
+    long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+    PassageContentLoader contentLoader = new IndexedContentLoader(filePath);
+    PassageOffsetTable offsetTable = new PassageOffsetTable();
+    List<StoryParseDiagnostic> diagnostics = new ArrayList<>();
+    Story story;
+    try (Utf8LineReader reader =
+        new Utf8LineReader(
+            Files.newBufferedReader(filePath, StandardCharsets.UTF_8), DELIMITER)) {
+      story = scanStory(reader, contentLoader, offsetTable, diagnostics);
+    }
+    if (!diagnostics.isEmpty()) {
+      StoryParseDiagnostic firstProblem = diagnostics.get(0);
+      throw new ParseException(firstProblem.toString(), firstProblem.getLine() - 1);
+    }
+
+    boolean isFileUnchanged =
+        Files.size(filePath) == fileSize
+            && Files.getLastModifiedTime(filePath).toMillis() == lastModified;
+    if (isFileUnchanged && PassageIndex.readCurrent(filePath) == null) {
+      PassageIndex.write(filePath, offsetTable.toIndex(story.getOpeningPassage().getTitle()));
+    }
+    return story;
+  }
+
+  /**
+   * Reads a story one passage at a time, in the same way as {@link #parseStoryContent}, and
+   * drops the content of every passage except the opening passage as soon as it has been parsed.
+   * The byte range of every passage is recorded in the given offset table.
+   *
+   * @param reader        The reader of the story file.
+   * @param contentLoader The loader to load the dropped content with.
+   * @param offsetTable   The table to record the passage ranges in.
+   * @param diagnostics   The list to add problems found while parsing to.
+   * @return A Story object representing the story, or null if no story could be built.
+   * @throws IOException If there is a problem reading the file.
+   */
+  private static Story scanStory(
+      Utf8LineReader reader,
+      PassageContentLoader contentLoader,
+      PassageOffsetTable offsetTable,
+      List<StoryParseDiagnostic> diagnostics)
+      throws IOException {
+    String storyTitle = reader.readLine();
+    int lineCount = storyTitle == null || storyTitle.isEmpty() ? 0 : 1;
+    Passage openingPassage = null;
+    boolean openingPassageFound = false;
+    List<Passage> passages = new ArrayList<>();
+    Set<String> passageTitles = new HashSet<>();
+
+    String line = reader.readLine();
+    while (line != null) {
+      int index = reader.getLineIndex();
+      if (!line.isEmpty()) {
+        lineCount = index + 1;
+      }
+      if (!isPassage(line)) {
+        if (!line.isBlank()) {
+          addDiagnostic(diagnostics, index, 1, "Unexpected line outside of a passage");
+        }
+        line = reader.readLine();
+        continue;
+      }
+
+      long passageOffset = reader.getLineOffset();
+      List<String> passageLines = new ArrayList<>();
+      passageLines.add(line);
+      line = reader.readLine();
+      while (line != null && (passageLines.size() < 2 || !line.isEmpty() && !isPassage(line))) {
+        if (!line.isEmpty()) {
+          lineCount = reader.getLineIndex() + 1;
+        }
+        passageLines.add(line);
+        line = reader.readLine();
+      }
+      long passageEnd = line == null ? reader.getByteCount() : reader.getLineOffset();
+      if (line != null && line.isEmpty()) {
+        passageEnd = reader.getByteCount();
+      }
+      PassageOffsetTable.Range range =
+          new PassageOffsetTable.Range(passageOffset, (int) (passageEnd - passageOffset));
+
+      List<StoryParseDiagnostic> passageDiagnostics = new ArrayList<>();
+      String[] lines = passageLines.toArray(new String[0]);
+      Passage passage = createPassage(lines, 0, lines.length, passageDiagnostics);
+      passageDiagnostics.forEach(
+          diagnostic ->
+              diagnostics.add(
+                  new StoryParseDiagnostic(
+                      diagnostic.getLine() + index,
+                      diagnostic.getColumn(),
+                      diagnostic.getMessage())));
+
+      if (!openingPassageFound) {
+        openingPassageFound = true;
+        openingPassage = passage;
+        offsetTable.setOpeningPassageRange(range);
+      } else {
+        offsetTable.putPassageRange(lines[0].substring(2), range);
+        if (passage != null) {
+          if (passageTitles.add(passage.getTitle())) {
+            passage.markSaved();
+            passage.unloadContent(contentLoader);
+            passages.add(passage);
+          } else {
+            addDiagnostic(
+                diagnostics, index, 3, "Duplicate passage title: " + passage.getTitle());
+          }
+        }
+      }
+    }
+
+    if (lineCount < 4) {
+      diagnostics.clear();
+      diagnostics.add(
+          new StoryParseDiagnostic(
+              1, 1, "Invalid story format: Not enough lines in the input file"));
+      return null;
+    }
+    if (!openingPassageFound) {
+      addDiagnostic(diagnostics, 2, 1, "Invalid story format: The story has no opening passage");
+    }
+    return createStory(storyTitle, openingPassage, passages, diagnostics);
+  }
+
+  /**
+   * Parses a single passage block read from a story file.
+   *
+   * @param passageBytes The bytes of the passage block.
+   * @return The parsed passage.
+   * @throws ParseException If there is a problem parsing the passage.
+   */
+  private static Passage parsePassage(byte[] passageBytes) throws ParseException {
+    String[] lines = new String(passageBytes, StandardCharsets.UTF_8).split(DELIMITER);
+    List<StoryParseDiagnostic> diagnostics = new ArrayList<>();
+    Passage passage = createPassage(lines, 0, findPassageEnd(lines, 0), diagnostics);
+    if (!diagnostics.isEmpty()) {
+      throw new ParseException(diagnostics.get(0).getMessage(), 0);
+    }
+    passage.markSaved();
+    return passage;
+  }
+
+  /**
+   * Builds the passage index of a story file by scanning the file for passages.
+   *
+   * @param filePath The path of the story file.
+   * @return The passage index of the story file.
+   * @throws IOException If there is a problem reading the file, or the file has no passages.
+   */
+  private static PassageIndex buildPassageIndex(Path filePath) throws IOException {
+    String[] lines = Files.readString(filePath).split(DELIMITER, -1);
+    PassageOffsetTable offsetTable = createOffsetTable(lines);
+    if (offsetTable.getOpeningPassageRange() == null) {
+      throw new IOException("Invalid story format: The story has no opening passage");
+    }
+
+    int openingIndex = 1;
+    while (!isPassage(lines[openingIndex])) {
+      openingIndex++;
+    }
+    return offsetTable.toIndex(lines[openingIndex].substring(2));
+  }
+
+  /**
+   * Creates an offset table with the byte range of every passage in a valid story file. The range
+   * of a passage covers its lines and the empty line ending the passage.
+   *
+   * @param lines An array of strings representing the story content.
+   * @return The offset table of the story content.
+   */
+  private static PassageOffsetTable createOffsetTable(String[] lines) {
+    PassageOffsetTable offsetTable = new PassageOffsetTable();
+    int delimiterLength = DELIMITER.length();
+    long[] lineOffsets = new long[lines.length + 1];
+    for (int i = 0; i < lines.length; i++) {
+      lineOffsets[i + 1] =
+          lineOffsets[i] + Utf8CountingWriter.utf8Length(lines[i]) + delimiterLength;
+    }
+
+    boolean isOpeningPassage = true;
+    int index = 1;
+    while (index < lines.length) {
+      if (!isPassage(lines[index])) {
+        index++;
+        continue;
+      }
+      int passageEnd = findPassageEnd(lines, index);
+      int rangeEnd =
+          passageEnd < lines.length && lines[passageEnd].isEmpty() ? passageEnd + 1 : passageEnd;
+      PassageOffsetTable.Range range =
+          new PassageOffsetTable.Range(
+              lineOffsets[index], (int) (lineOffsets[rangeEnd] - lineOffsets[index]));
+      if (isOpeningPassage) {
+        offsetTable.setOpeningPassageRange(range);
+        isOpeningPassage = false;
+      } else {
+        offsetTable.putPassageRange(lines[index].substring(2), range);
+      }
+      index = passageEnd;
+    }
+    return offsetTable;
+  }
+
+  /**
+   * Parses the story content and collects every problem found in it.
    *
    * @param storyContent The content of the story as a string.
-   * @return A Story object representing the story.
+   * @return The parsed story and the list of problems found while parsing it.
    */
-  private static Story parseStoryContent(String storyContent) throws ParseException {
+  private static StoryParseResult parseStoryContent(String storyContent) {
+    List<StoryParseDiagnostic> diagnostics = new ArrayList<>();
+    Story story = parseStoryContent(storyContent, diagnostics);
+    return new StoryParseResult(story, diagnostics);
+  }
+
+  /**
+   * Parses the story content and creates a corresponding Story object. Every problem found is
+   * added to the given list of diagnostics.
+   *
+   * @param storyContent The content of the story as a string.
+   * @param diagnostics  The list to add problems found while parsing to.
+   * @return A Story object representing the story, or null if no story could be built.
+   */
+  private static Story parseStoryContent(
+      String storyContent, List<StoryParseDiagnostic> diagnostics) {
     String[] lines = storyContent.split(DELIMITER);
 
     if (lines.length < 4) {
-      throw new ParseException("Invalid story format: Not enough lines in the input file", 0);
+      diagnostics.add(
+          new StoryParseDiagnostic(
+              1, 1, "Invalid story format: Not enough lines in the input file"));
+      return null;
     }
 
-    String storyTitle = lines[0];
-    Passage openingPassage = createPassage(lines, 2);
-    Story story = new Story(storyTitle, openingPassage);
+    Passage openingPassage = null;
+    boolean openingPassageFound = false;
+    List<Passage> passages = new ArrayList<>();
+    Set<String> passageTitles = new HashSet<>();
 
-    for (int i = 4; i < lines.length; i++) {
-      if (isPassage(lines[i])) {
-        Passage passage = createPassage(lines, i);
-        story.addPassage(passage);
+    int index = 1;
+    while (index < lines.length) {
+      if (!isPassage(lines[index])) {
+        if (!lines[index].isBlank()) {
+          addDiagnostic(diagnostics, index, 1, "Unexpected line outside of a passage");
+        }
+        index++;
+        continue;
+      }
+      int passageEnd = findPassageEnd(lines, index);
+      Passage passage = createPassage(lines, index, passageEnd, diagnostics);
+
+      if (!openingPassageFound) {
+        openingPassageFound = true;
+        openingPassage = passage;
+      } else if (passage != null) {
+        if (passageTitles.add(passage.getTitle())) {
+          passages.add(passage);
+        } else {
+          addDiagnostic(
+              diagnostics, index, 3, "Duplicate passage title: " + passage.getTitle());
+        }
       }
+      index = passageEnd;
     }
-    return story;
+
+    if (!openingPassageFound) {
+      addDiagnostic(diagnostics, 2, 1, "Invalid story format: The story has no opening passage");
+    }
+    return createStory(lines[0], openingPassage, passages, diagnostics);
   }
 
   /**
-   * Reads the content of the specified file as a string.
+   * Creates a story from the parsed title, opening passage and passages.
    *
-   * @param fileName The name of the file to read.
-   * @return The content of the file as a string.
-   * @throws IOException If there is a problem reading the file.
+   * @param storyTitle     The title of the story.
+   * @param openingPassage The opening passage, or null if it could not be parsed.
+   * @param passages       The other passages in the story.
+   * @param diagnostics    The list to add problems found while creating the story to.
+   * @return The created story, or null if the title or opening passage is invalid.
+   */
+  private static Story createStory(
+      String storyTitle,
+      Passage openingPassage,
+      List<Passage> passages,
+      List<StoryParseDiagnostic> diagnostics) {
+    if (openingPassage == null) {
+      return null;
+    }
+    try {
+      Story story = new Story(storyTitle, openingPassage);
+      passages.forEach(story::addPassage);
+      story.markSaved();
+      return story;
+    } catch (IllegalArgumentException e) {
+      diagnostics.add(0, new StoryParseDiagnostic(1, 1, e.getMessage()));
+      return null;
+    }
+  }
+
+  /**
+   * Returns the path of the story file with the specified name.
+   *
+   * @param fileName The name of the story file, without file ending.
+   * @return The path of the story file.
    */
-  private static String readFile(String fileName) throws IOException {
-    Path filePath = FILE_PATH.resolve(fileName + FILE_ENDING);
-    return Files.readString(filePath);
+  public static Path getFilePath(String fileName) {
+    return FILE_PATH.resolve(fileName + FILE_ENDING);
   }
 
   /**
@@ -133,97 +532,183 @@ public class StoryFileReader {
   }
 
   /**
-   * Creates a Passage object from the provided lines starting at the specified index.
+   * Checks if the provided line represents an empty set of actions.
+   *
+   * @param line The line to check.
+   * @return true if the line represents an empty set of actions, false otherwise.
+   */
+  private static boolean isEmptyActions(String line) {
+    return line.equals(EMPTY_ACTIONS);
+  }
+
+  /**
+   * Finds the index of the line after the passage starting at the specified index. A passage ends
+   * at the first empty line or at the start of the next passage.
    *
    * @param lines An array of strings representing the story content.
-   * @param index The index in the array where the passage information starts.
-   * @return A Passage object representing the passage.
+   * @param index The index in the array where the passage starts.
+   * @return The index of the first line after the passage.
+   */
+  private static int findPassageEnd(String[] lines, int index) {
+    int end = Math.min(index + 2, lines.length);
+    while (end < lines.length && !lines[end].isEmpty() && !isPassage(lines[end])) {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * Creates a Passage object from the lines between the specified indexes.
+   *
+   * @param lines       An array of strings representing the story content.
+   * @param index       The index in the array where the passage information starts.
+   * @param end         The index of the first line after the passage.
+   * @param diagnostics The list to add problems found while parsing the passage to.
+   * @return A Passage object representing the passage, or null if the passage is invalid.
    */
-  private static Passage createPassage(String[] lines, int index) throws ParseException {
+  private static Passage createPassage(
+      String[] lines, int index, int end, List<StoryParseDiagnostic> diagnostics) {
     Matcher passageMatcher = Pattern.compile(PASSAGE_PATTERN).matcher(lines[index]);
-    if (passageMatcher.find()) {
-      String passageTitle = passageMatcher.group(1);
-      String passageContent = lines[index + 1];
-      Passage passage = new Passage(passageTitle, passageContent);
-      addLinks(passage, index + 2, lines);
-      return passage;
-    }
-    throw new ParseException("Invalid passage format: " + lines[index], index);
-  }
-
-  /**
-   * Adds links to the specified passage based on the provided lines starting at the specified
-   * index.
-   *
-   * @param passage The passage to add links to.
-   * @param index   The index in the array where the link information starts.
-   * @param lines   An array of strings representing the story content.
-   */
-  private static void addLinks(Passage passage, int index, String[] lines) {
-    ListIterator<String> lineIterator = Arrays.asList(lines).listIterator(index);
-
-    while (lineIterator.hasNext()) {
-      String line = lineIterator.next();
-      if (isPassage(line) || line.isEmpty() || isActions(line)) {
-        break;
-      } else if (isLink(line)) {
-        Matcher linkMatcher = Pattern.compile(LINK_PATTERN).matcher(line);
-        if (linkMatcher.find()) {
-          String linkText = linkMatcher.group(1);
-          String linkRef = linkMatcher.group(2);
-          Link link = new Link(linkText, linkRef);
-          if (lineIterator.hasNext()) {
-            String nextLine = lineIterator.next();
-            if (isActions(nextLine)) {
-              buildActionsContent(link, nextLine);
-            } else {
-              // If the line is not an action, go back one step in the iterator
-              lineIterator.previous();
-            }
+    if (!passageMatcher.find()) {
+      addDiagnostic(diagnostics, index, 1, "Invalid passage format: " + lines[index]);
+      return null;
+    }
+    if (index + 1 >= end || isPassage(lines[index + 1])) {
+      addDiagnostic(diagnostics, index, 1, "Passage has no content: " + passageMatcher.group(1));
+      return null;
+    }
+    Passage passage;
+    try {
+      passage = new Passage(passageMatcher.group(1), lines[index + 1]);
+    } catch (IllegalArgumentException e) {
+      addDiagnostic(diagnostics, index, 1, e.getMessage());
+      return null;
+    }
+    addLinks(passage, index + 2, end, lines, diagnostics);
+    return passage;
+  }
+
+  /**
+   * Adds links to the specified passage based on the lines between the specified indexes. Invalid
+   * links are left out of the passage.
+   *
+   * @param passage     The passage to add links to.
+   * @param index       The index in the array where the link information starts.
+   * @param end         The index of the first line after the passage.
+   * @param lines       An array of strings representing the story content.
+   * @param diagnostics The list to add problems found while parsing the links to.
+   */
+  private static void addLinks(
+      Passage passage, int index, int end, String[] lines, List<StoryParseDiagnostic> diagnostics) {
+    Link link = null;
+    boolean isActionsAllowed = false;
+
+    for (int i = index; i < end; i++) {
+      String line = lines[i];
+      if (isLink(line)) {
+        link = createLink(line, i, diagnostics);
+        isActionsAllowed = true;
+        if (link != null) {
+          try {
+            passage.addLink(link);
+          } catch (IllegalArgumentException e) {
+            addDiagnostic(diagnostics, i, 1, e.getMessage() + ": " + link.getRef());
+            link = null;
           }
-          passage.addLink(link);
-        } else {
-          throw new IllegalArgumentException("Invalid link format: " + line);
         }
+      } else if (isActions(line) || isEmptyActions(line)) {
+        if (!isActionsAllowed) {
+          addDiagnostic(diagnostics, i, 1, "Actions must follow a link");
+        } else if (link != null) {
+          buildActionsContent(link, line, i, diagnostics);
+        }
+        isActionsAllowed = false;
+      } else {
+        addDiagnostic(diagnostics, i, 1, "Invalid link format: " + line);
+        isActionsAllowed = false;
       }
     }
   }
 
+  /**
+   * Creates a Link object from the provided line.
+   *
+   * @param line        The line containing the link information.
+   * @param lineIndex   The index of the line in the story content.
+   * @param diagnostics The list to add problems found while parsing the link to.
+   * @return The created link, or null if the link is invalid.
+   */
+  private static Link createLink(
+      String line, int lineIndex, List<StoryParseDiagnostic> diagnostics) {
+    Matcher linkMatcher = Pattern.compile(LINK_PATTERN).matcher(line);
+    if (!linkMatcher.find()) {
+      addDiagnostic(diagnostics, lineIndex, 1, "Invalid link format: " + line);
+      return null;
+    }
+    try {
+      return new Link(linkMatcher.group(1), linkMatcher.group(2));
+    } catch (IllegalArgumentException e) {
+      addDiagnostic(diagnostics, lineIndex, 1, e.getMessage());
+      return null;
+    }
+  }
+
   /**
    * Builds actions for the provided link based on the specified line containing action
-   * information.
+   * information. Invalid actions are left out of the link.
    *
-   * @param link The link to add actions to.
-   * @param line The line containing action information.
+   * @param link        The link to add actions to.
+   * @param line        The line containing action information.
+   * @param lineIndex   The index of the line in the story content.
+   * @param diagnostics The list to add problems found while parsing the actions to.
    */
-  private static void buildActionsContent(Link link, String line) {
+  private static void buildActionsContent(
+      Link link, String line, int lineIndex, List<StoryParseDiagnostic> diagnostics) {
     Matcher actionsMatcher = Pattern.compile(ACTIONS_PATTERN).matcher(line);
-    if (actionsMatcher.find()) {
-      String actions = actionsMatcher.group(1);
-      String[] actionStrings = actions.split(",");
-
-      for (String action : actionStrings) {
-        Matcher actionTypeMatcher = Pattern.compile(ACTION_TYPE_PATTERN).matcher(action);
-        if (actionTypeMatcher.find()) {
-          String actionType = actionTypeMatcher.group(1);
-          String actionValue = action.substring(2);
-
-          Action actionObject = ActionFactory.createActionFromPathFormat(actionType, actionValue);
-          link.addAction(actionObject);
+    if (!actionsMatcher.find()) {
+      return;
+    }
+    String actions = actionsMatcher.group(1);
+    int column = actionsMatcher.start(1) + 1;
+
+    for (String action : actions.split(",", -1)) {
+      Matcher actionTypeMatcher = Pattern.compile(ACTION_TYPE_PATTERN).matcher(action);
+      if (actionTypeMatcher.find()) {
+        String actionType = actionTypeMatcher.group(1);
+        String actionValue = action.substring(2);
+        try {
+          link.addAction(ActionFactory.createActionFromPathFormat(actionType, actionValue));
+        } catch (IllegalArgumentException e) {
+          addDiagnostic(diagnostics, lineIndex, column, "Invalid action value: " + action);
         }
+      } else {
+        addDiagnostic(diagnostics, lineIndex, column, "Invalid action format: " + action);
       }
+      column += action.length() + 1;
     }
   }
 
   /**
-   * Returns a collection of the names of the stories saved in the stories folder.
+   * Adds a diagnostic for the line with the specified index to the list of diagnostics.
+   *
+   * @param diagnostics The list to add the diagnostic to.
+   * @param lineIndex   The 0-based index of the line with the problem.
+   * @param column      The 1-based column of the problem.
+   * @param message     A description of the problem.
+   */
+  private static void addDiagnostic(
+      List<StoryParseDiagnostic> diagnostics, int lineIndex, int column, String message) {
+    diagnostics.add(new StoryParseDiagnostic(lineIndex + 1, column, message));
+  }
+
+  /**
+   * Returns a collection of the names of the stories saved in the stories folder. The names are
+   * read from the in-memory index of the folder, so the folder is not read every time.
    *
    * @return A collection of the names of the stories saved in the stories folder.
    */
   public static Collection<String> getSavedStories() {
-    File folder = new File(FILE_PATH.toString());
-    String[] savedStories = folder.list();
-    return savedStories == null ? Collections.emptyList() : Arrays.asList(savedStories);
+    return DirectoryIndex.of(FILE_PATH).getFileNames(FILE_ENDING);
   }
 
   /**
@@ -234,4 +719,71 @@ public class StoryFileReader {
   public static String getFileEnding() {
     return FILE_ENDING;
   }
+
+  /**
+   * Loads the content of passages from a story file through its passage index, and caches the
+   * content of the most recently used passages. The index is kept in memory, and is only read
+   * again if the story file has changed, in which case the cached content is dropped as well, so
+   * that content rewritten in the file is never served from the cache.
+   */
+  private static class IndexedContentLoader implements PassageContentLoader {
+
+    private final Path filePath;
+    private final PassageContentCache contentCache;
+    private PassageIndex index;
+
+    /**
+     * Constructs a new IndexedContentLoader for the given story file.
+     *
+     * @param filePath The path of the story file.
+     */
+    IndexedContentLoader(Path filePath) {
+      this.filePath = filePath;
+      this.contentCache = new PassageContentCache(CONTENT_CACHE_CAPACITY, this::readContent);
+    }
+
+    /**
+     * Loads the content of the passage with the given title, from the cache if the story file
+     * has not changed since the content was read.
+     *
+     * @param passageTitle The title of the passage.
+     * @return The content of the passage.
+     * @throws UncheckedIOException   If there is a problem reading the file.
+     * @throws IllegalStateException  If the passage in the file can no longer be parsed.
+     * @throws NoSuchPassageException If the story file no longer contains the passage.
+     */
+    @Override
+    public synchronized String loadContent(String passageTitle) {
+      if (index == null || !index.isCurrent(filePath)) {
+        try {
+          index = PassageIndex.forFile(filePath, StoryFileReader::buildPassageIndex);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        contentCache.clear();
+      }
+      return contentCache.loadContent(passageTitle);
+    }
+
+    /**
+     * Reads the content of the passage with the given title from the story file, through the
+     * current index.
+     *
+     * @param passageTitle The title of the passage.
+     * @return The content of the passage.
+     */
+    private String readContent(String passageTitle) {
+      try {
+        byte[] passageBytes = index.readPassage(filePath, passageTitle);
+        if (passageBytes == null) {
+          throw new NoSuchPassageException("The story has no passage titled " + passageTitle);
+        }
+        return parsePassage(passageBytes).getContent();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (ParseException e) {
+        throw new IllegalStateException("Could not parse passage " + passageTitle, e);
+      }
+    }
+  }
 }
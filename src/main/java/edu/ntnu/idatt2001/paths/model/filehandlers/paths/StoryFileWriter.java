@@ -1,28 +1,49 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
 
 import edu.ntnu.idatt2001.paths.model.actions.Action;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
 import edu.ntnu.idatt2001.paths.model.story.Link;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * The StoryFileWriter class provides utility methods for saving stories to text files. This class
  * is designed to be used in a static context, and should not be instantiated.
  *
- * <p>The class offers methods to save a story object to a text file, and to build strings
- * representing the content of story components, such as passages, links, and actions.
+ * <p>The class offers methods to save a story object to a text file, and to write the content of
+ * story components, such as passages, links, and actions.
  *
  * <p>The static method {@link #saveStoryToFile(Story)} takes a story object and saves it to a
  * text file. The file is created in the specified file path, with the story's title as the
- * filename. The content of the story is formatted using helper methods provided in this class. If
- * any I/O error occurs while saving the story, an IOException is thrown.
+ * filename. The content of the story is streamed straight to the file through a buffered writer,
+ * without building the file content in memory first, and the file is replaced atomically. If any
+ * I/O error occurs while saving the story, an IOException is thrown.
+ *
+ * <p>The static method {@link #saveChangedPassages(Story)} saves only the passages of a story that
+ * have changed since it was last loaded or saved. The byte range of every passage in a story file
+ * is stored in the {@link PassageIndex} sidecar file of the story file when the file is read or
+ * written, and changed passages are patched in place when they fit in their old range. Passages
+ * that have grown are moved to the end of the file, and the space they leave behind is filled with
+ * empty lines. The whole file is only written again when there is no up-to-date index for it, or
+ * when too much of the file has become padding.
  *
  * <p>The StoryFileWriter class utilizes the {@link Story}, {@link Passage}, {@link Link}, and
  * {@link Action} classes as components to build the content of the story into an editable txt
@@ -46,111 +67,373 @@ public class StoryFileWriter {
   private static final String SEPARATOR = ",";
 
   private static final Path FILE_PATH = Paths.get(FILEPATH);
+  private static final double MAX_PADDING_RATIO = 0.25;
 
   private StoryFileWriter() {
   }
 
   /**
-   * Saves the given story to a text file with the story's title as the filename.
+   * Saves the given story to a text file with the story's title as the filename. The story is
+   * streamed straight to a temporary file, which then atomically replaces the old story file. The
+   * byte ranges of the passages are stored in the sidecar index of the file, so that later saves
+   * of the story can patch only the changed passages.
    *
    * @param story the story to be saved
    * @throws IOException if an I/O error occurs while saving the story
    */
   public static void saveStoryToFile(Story story) throws IOException {
     Objects.requireNonNull(story, "Story cannot be null");
-    String storyContent = buildStoryContent(story);
-    writeFile(story.getTitle(), storyContent);
+    Objects.requireNonNull(story.getTitle(), "Filename cannot be null");
+    Path filePath = FILE_PATH.resolve(story.getTitle() + FILE_ENDING);
+    PassageOffsetTable offsetTable = writeStoryFile(story, filePath);
+    PassageIndex.write(filePath, offsetTable.toIndex(story.getOpeningPassage().getTitle()));
+  }
+
+  /**
+   * Saves the given story to the text file with the given path. The file may be anywhere, and does
+   * not have to be in the stories folder. The story is streamed straight to a temporary file,
+   * which then atomically replaces the old story file.
+   *
+   * @param story    the story to be saved
+   * @param filePath the path of the file to save the story to
+   * @throws IOException if an I/O error occurs while saving the story
+   */
+  public static void saveStoryToFile(Story story, Path filePath) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    Objects.requireNonNull(filePath, "File path cannot be null");
+    writeStoryFile(story, filePath);
+  }
+
+  /**
+   * Writes the given story to the text file with the given path, replacing the file atomically.
+   *
+   * @param story    the story to be saved
+   * @param filePath the path of the file to save the story to
+   * @return the offset table of the written file
+   * @throws IOException if an I/O error occurs while saving the story
+   */
+  private static PassageOffsetTable writeStoryFile(Story story, Path filePath)
+      throws IOException {
+    PassageOffsetTable offsetTable = new PassageOffsetTable();
+    AtomicFileWriter.write(
+        filePath,
+        out -> {
+          try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writeStory(story, new Utf8CountingWriter(writer), offsetTable);
+          }
+        });
+    return offsetTable;
+  }
+
+  /**
+   * Saves only the passages of the given story that have changed since the story was last loaded
+   * from or saved to its .paths file. Changed passages that still fit in their old place in the
+   * file are written over their old content, while grown and new passages are appended to the end
+   * of the file. Removed passages are blanked out with empty lines.
+   *
+   * <p>The byte ranges of the passages are loaded from the sidecar index of the file. If the file
+   * has no current index, because it has not been read or written by this program or has been
+   * changed by someone else since, or if too much of it has become padding, the whole story is
+   * saved instead. The story is marked as saved when this method returns normally.
+   *
+   * @param story the story to be saved
+   * @throws IOException if an I/O error occurs while saving the story
+   */
+  public static void saveChangedPassages(Story story) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    Objects.requireNonNull(story.getTitle(), "Filename cannot be null");
+    Path filePath = FILE_PATH.resolve(story.getTitle() + FILE_ENDING);
+    PassageIndex index = Files.exists(filePath) ? PassageIndex.readCurrent(filePath) : null;
+
+    if (index == null) {
+      saveStoryToFile(story);
+      story.markSaved();
+      return;
+    }
+    if (!story.isModified()) {
+      return;
+    }
+
+    PassageOffsetTable offsetTable = PassageOffsetTable.fromIndex(index, Files.size(filePath));
+    List<FilePatch> patches = planPatches(story, offsetTable);
+    if (patches == null || exceedsPaddingLimit(offsetTable)) {
+      saveStoryToFile(story);
+      story.markSaved();
+      return;
+    }
+    try (FileChannel channel =
+        FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      for (FilePatch patch : patches) {
+        ByteBuffer buffer = ByteBuffer.wrap(patch.bytes());
+        long position = patch.offset();
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+      }
+      channel.force(true);
+    } catch (IOException e) {
+      Files.deleteIfExists(PassageIndex.getSidecarPath(filePath));
+      throw e;
+    }
+    PassageIndex.write(filePath, offsetTable.toIndex(story.getOpeningPassage().getTitle()));
+    story.markSaved();
   }
 
   /**
-   * Builds the content of a story as a string.
+   * Plans the writes needed to bring a story file up to date with the changed passages of the
+   * story, and updates the offset table to describe the file after the writes.
    *
-   * @param story the story to build content for
-   * @return the story content as a string
+   * @param story       the story to be saved
+   * @param offsetTable the offset table of the story file
+   * @return the writes to make, or {@code null} if the whole story has to be saved instead
+   * @throws IOException if a passage cannot be written
    */
-  private static String buildStoryContent(Story story) {
+  private static List<FilePatch> planPatches(Story story, PassageOffsetTable offsetTable)
+      throws IOException {
+    List<FilePatch> patches = new ArrayList<>();
+    long endOfFile = offsetTable.getFileSize();
 
-    String openingPassageContent =
-        buildPassageContent(story.getOpeningPassage())
-            + buildLinksContent(story.getOpeningPassage().getLinks());
+    Passage openingPassage = story.getOpeningPassage();
+    if (openingPassage.isModified()) {
+      PassageOffsetTable.Range range = offsetTable.getOpeningPassageRange();
+      byte[] block = passageBytes(openingPassage);
+      // The opening passage must stay first in the file, so it can never be moved.
+      if (range == null || !canPad(range.getLength() - block.length)) {
+        return null;
+      }
+      patches.add(new FilePatch(range.getOffset(), padded(block, range.getLength())));
+      offsetTable.addPaddingBytes(range.getLength() - block.length);
+      offsetTable.setOpeningPassageRange(
+          new PassageOffsetTable.Range(range.getOffset(), block.length));
+    }
 
-    String passagesContent =
-        story.getPassages().stream()
-            .map(passage -> buildPassageContent(passage) + buildLinksContent(passage.getLinks()))
-            .collect(Collectors.joining());
+    Set<String> passageTitles = new HashSet<>();
+    for (Passage passage : story.getPassages()) {
+      passageTitles.add(passage.getTitle());
+      PassageOffsetTable.Range range = offsetTable.getPassageRange(passage.getTitle());
+      if (range != null && !passage.isModified()) {
+        continue;
+      }
+      byte[] block = passageBytes(passage);
+      if (range != null && canPad(range.getLength() - block.length)) {
+        patches.add(new FilePatch(range.getOffset(), padded(block, range.getLength())));
+        offsetTable.addPaddingBytes(range.getLength() - block.length);
+        offsetTable.putPassageRange(
+            passage.getTitle(), new PassageOffsetTable.Range(range.getOffset(), block.length));
+        continue;
+      }
+      if (range != null) {
+        patches.add(new FilePatch(range.getOffset(), padding(range.getLength())));
+        offsetTable.addPaddingBytes(range.getLength());
+      }
+      patches.add(new FilePatch(endOfFile, block));
+      offsetTable.putPassageRange(
+          passage.getTitle(), new PassageOffsetTable.Range(endOfFile, block.length));
+      endOfFile += block.length;
+    }
 
-    return String.join(NEWLINE, story.getTitle(), "", openingPassageContent, passagesContent);
+    for (String title : new ArrayList<>(offsetTable.getPassageTitles())) {
+      if (!passageTitles.contains(title)) {
+        PassageOffsetTable.Range range = offsetTable.removePassageRange(title);
+        patches.add(new FilePatch(range.getOffset(), padding(range.getLength())));
+        offsetTable.addPaddingBytes(range.getLength());
+      }
+    }
+    return patches;
   }
 
   /**
-   * Builds the content of a passage as a string.
+   * Checks if too much of a story file has become padding, so that the file should be written
+   * again from scratch.
    *
-   * @param passage the passage to build content for
-   * @return the passage content as a string
+   * @param offsetTable the offset table of the story file
+   * @return {@code true} if the file should be compacted, {@code false} otherwise
    */
-  private static String buildPassageContent(Passage passage) {
-    Objects.requireNonNull(passage, "Passage cannot be null");
-    return PASSAGE_PREFIX + passage.getTitle() + NEWLINE + passage.getContent() + NEWLINE;
+  private static boolean exceedsPaddingLimit(PassageOffsetTable offsetTable) {
+    long usedBytes = offsetTable.getOpeningPassageRange().getLength();
+    for (String title : offsetTable.getPassageTitles()) {
+      usedBytes += offsetTable.getPassageRange(title).getLength();
+    }
+    long paddingBytes = offsetTable.getPaddingBytes();
+    return paddingBytes > (paddingBytes + usedBytes) * MAX_PADDING_RATIO;
   }
 
   /**
-   * Builds the content of a link as a string.
+   * Checks if the given number of bytes can be filled with empty lines.
    *
-   * @param link the link to build content for
-   * @return the link content as a string
+   * @param length the number of bytes to fill
+   * @return {@code true} if the bytes can be filled, {@code false} otherwise
    */
-  private static String buildLinkContent(Link link) {
-    Objects.requireNonNull(link, "Link cannot be null");
-    String linkContent =
-        LINK_TEXT_PREFIX
-            + link.getText()
-            + LINK_TEXT_SUFFIX
-            + LINK_REF_PREFIX
-            + link.getRef()
-            + LINK_REF_SUFFIX
-            + NEWLINE;
+  private static boolean canPad(int length) {
+    int newlineLength = NEWLINE.length();
+    return length >= 0 && (length % newlineLength == 0 || length >= newlineLength + 1);
+  }
 
-    return linkContent + buildActionContent(link.getActions());
+  /**
+   * Returns the given passage block followed by empty lines up to the given length.
+   *
+   * @param block  the bytes of the passage block
+   * @param length the length of the returned bytes
+   * @return the padded passage block
+   */
+  private static byte[] padded(byte[] block, int length) {
+    byte[] bytes = new byte[length];
+    System.arraycopy(block, 0, bytes, 0, block.length);
+    byte[] padding = padding(length - block.length);
+    System.arraycopy(padding, 0, bytes, block.length, padding.length);
+    return bytes;
   }
 
   /**
-   * Builds the content of a collection of links as a string.
+   * Returns the given number of bytes of empty lines. If the line separator is two bytes long and
+   * the length is odd, the first line holds a single space, which the reader skips as a blank
+   * line.
    *
-   * @param links the collection of links to build content for
-   * @return the links content as a string
+   * @param length the number of bytes of padding
+   * @return the padding bytes
    */
-  private static String buildLinksContent(Collection<Link> links) {
+  private static byte[] padding(int length) {
+    StringBuilder padding = new StringBuilder(length);
+    if (length % NEWLINE.length() != 0) {
+      padding.append(' ').append(NEWLINE);
+    }
+    while (padding.length() < length) {
+      padding.append(NEWLINE);
+    }
+    return padding.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Returns the content of a passage and its links as written to a story file, encoded as UTF-8.
+   *
+   * @param passage the passage to write
+   * @return the bytes of the passage block
+   * @throws IOException if an I/O error occurs while writing
+   */
+  private static byte[] passageBytes(Passage passage) throws IOException {
+    StringWriter writer = new StringWriter();
+    writePassage(passage, writer);
+    return writer.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the content of a story to the given writer.
+   *
+   * @param story  the story to write
+   * @param writer the writer to write the story to
+   * @throws IOException if an I/O error occurs while writing
+   */
+  static void writeStory(Story story, Writer writer) throws IOException {
+    writeStory(story, new Utf8CountingWriter(writer), new PassageOffsetTable());
+  }
+
+  /**
+   * Writes the content of a story to the given writer, recording the byte range of every passage
+   * in the given offset table.
+   *
+   * @param story       the story to write
+   * @param writer      the writer to write the story to
+   * @param offsetTable the table to record the passage ranges in
+   * @throws IOException if an I/O error occurs while writing
+   */
+  private static void writeStory(
+      Story story, Utf8CountingWriter writer, PassageOffsetTable offsetTable) throws IOException {
+    writer.write(story.getTitle());
+    writer.write(NEWLINE);
+    writer.write(NEWLINE);
+    long offset = writer.getByteCount();
+    writePassage(story.getOpeningPassage(), writer);
+    offsetTable.setOpeningPassageRange(
+        new PassageOffsetTable.Range(offset, (int) (writer.getByteCount() - offset)));
+    writer.write(NEWLINE);
+    for (Passage passage : story.getPassages()) {
+      offset = writer.getByteCount();
+      writePassage(passage, writer);
+      offsetTable.putPassageRange(
+          passage.getTitle(),
+          new PassageOffsetTable.Range(offset, (int) (writer.getByteCount() - offset)));
+    }
+  }
+
+  /**
+   * Writes the content of a passage and its links to the given writer.
+   *
+   * @param passage the passage to write
+   * @param writer  the writer to write the passage to
+   * @throws IOException if an I/O error occurs while writing
+   */
+  private static void writePassage(Passage passage, Writer writer) throws IOException {
+    Objects.requireNonNull(passage, "Passage cannot be null");
+    writer.write(PASSAGE_PREFIX);
+    writer.write(passage.getTitle());
+    writer.write(NEWLINE);
+    writer.write(passage.getContent());
+    writer.write(NEWLINE);
+    writeLinks(passage.getLinks(), writer);
+  }
+
+  /**
+   * Writes the content of a collection of links to the given writer.
+   *
+   * @param links  the collection of links to write
+   * @param writer the writer to write the links to
+   * @throws IOException if an I/O error occurs while writing
+   */
+  private static void writeLinks(Collection<Link> links, Writer writer) throws IOException {
     Objects.requireNonNull(links, "Links collection cannot be null");
-    StringBuilder sb = new StringBuilder();
-    links.forEach(link -> sb.append(buildLinkContent(link)));
-    sb.append(NEWLINE);
-    return sb.toString();
+    for (Link link : links) {
+      writeLink(link, writer);
+    }
+    writer.write(NEWLINE);
+  }
+
+  /**
+   * Writes the content of a link and its actions to the given writer.
+   *
+   * @param link   the link to write
+   * @param writer the writer to write the link to
+   * @throws IOException if an I/O error occurs while writing
+   */
+  private static void writeLink(Link link, Writer writer) throws IOException {
+    Objects.requireNonNull(link, "Link cannot be null");
+    writer.write(LINK_TEXT_PREFIX);
+    writer.write(link.getText());
+    writer.write(LINK_TEXT_SUFFIX);
+    writer.write(LINK_REF_PREFIX);
+    writer.write(link.getRef());
+    writer.write(LINK_REF_SUFFIX);
+    writer.write(NEWLINE);
+    writeActions(link.getActions(), writer);
   }
 
   /**
-   * Builds the content of a collection of actions as a string.
+   * Writes the content of a collection of actions to the given writer.
    *
-   * @param actions the collection of actions to build content for
-   * @return the actions content as a string
+   * @param actions the collection of actions to write
+   * @param writer  the writer to write the actions to
+   * @throws IOException if an I/O error occurs while writing
    */
-  private static String buildActionContent(Collection<Action> actions) {
+  private static void writeActions(Collection<Action> actions, Writer writer) throws IOException {
     Objects.requireNonNull(actions, "Actions collection cannot be null");
-    return actions.stream()
-        .map(Action::toString)
-        .collect(Collectors.joining(SEPARATOR, ACTION_PREFIX, ACTION_SUFFIX + NEWLINE));
+    writer.write(ACTION_PREFIX);
+    boolean isFirstAction = true;
+    for (Action action : actions) {
+      if (!isFirstAction) {
+        writer.write(SEPARATOR);
+      }
+      writer.write(action.toString());
+      isFirstAction = false;
+    }
+    writer.write(ACTION_SUFFIX);
+    writer.write(NEWLINE);
   }
 
   /**
-   * Writes the given content to a text file with the specified filename.
+   * A write to make to a story file: the given bytes written at the given offset.
    *
-   * @param filename the filename to use when saving the content
-   * @param content  the content to be written to the file
-   * @throws IOException if an I/O error occurs while writing the content to the file
+   * @param offset the offset in the file to write at
+   * @param bytes  the bytes to write
    */
-  private static void writeFile(String filename, String content) throws IOException {
-    Objects.requireNonNull(filename, "Filename cannot be null");
-    Files.createDirectories(FILE_PATH);
-    Path filePath = FILE_PATH.resolve(filename + FILE_ENDING);
-    Files.writeString(filePath, content);
+  private record FilePatch(long offset, byte[] bytes) {
   }
 }
@@ -0,0 +1,75 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
+
+import java.util.Objects;
+
+/**
+ * The StoryParseDiagnostic class describes a single problem found while parsing a .paths story
+ * file. Each diagnostic holds the 1-based line and column where the problem was found, together
+ * with a message describing it.
+ *
+ * <p>Diagnostics are immutable and are collected in a {@link StoryParseResult} by
+ * {@link StoryFileReader#readStoryWithDiagnostics(String)}.
+ *
+ * @see StoryParseResult
+ * @see StoryFileReader
+ */
+public class StoryParseDiagnostic {
+
+  private final int line;
+  private final int column;
+  private final String message;
+
+  /**
+   * Constructs a new diagnostic for the given position in the story file.
+   *
+   * @param line    the 1-based line number of the problem
+   * @param column  the 1-based column number of the problem
+   * @param message a description of the problem
+   * @throws IllegalArgumentException if the line or column is less than 1
+   */
+  public StoryParseDiagnostic(int line, int column, String message) {
+    if (line < 1 || column < 1) {
+      throw new IllegalArgumentException("Line and column must be 1 or greater");
+    }
+    this.line = line;
+    this.column = column;
+    this.message = Objects.requireNonNull(message, "Message cannot be null");
+  }
+
+  /**
+   * Returns the 1-based line number of the problem.
+   *
+   * @return the line number
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Returns the 1-based column number of the problem.
+   *
+   * @return the column number
+   */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * Returns the description of the problem.
+   *
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Returns a string representation of the diagnostic, including its position and message.
+   *
+   * @return a string representation of the diagnostic
+   */
+  @Override
+  public String toString() {
+    return "Line " + line + ", column " + column + ": " + message;
+  }
+}
@@ -0,0 +1,69 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
+
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The StoryParseResult class holds the outcome of a lenient parse of a .paths story file. It
+ * contains the best-effort {@link Story} that could be built from the file, and every
+ * {@link StoryParseDiagnostic} found while parsing it.
+ *
+ * <p>The story is {@code null} if the file was too broken to build a story from, for example if
+ * the title or the opening passage is invalid.
+ *
+ * @see StoryFileReader#readStoryWithDiagnostics(String)
+ * @see StoryParseDiagnostic
+ */
+public class StoryParseResult {
+
+  private final Story story;
+  private final List<StoryParseDiagnostic> diagnostics;
+
+  /**
+   * Constructs a new StoryParseResult with the given story and diagnostics.
+   *
+   * @param story       the parsed story, or {@code null} if no story could be built
+   * @param diagnostics the problems found while parsing
+   */
+  public StoryParseResult(Story story, List<StoryParseDiagnostic> diagnostics) {
+    this.story = story;
+    this.diagnostics = Collections.unmodifiableList(diagnostics);
+  }
+
+  /**
+   * Returns the best-effort story built from the file.
+   *
+   * @return the parsed story, or {@code null} if no story could be built
+   */
+  public Story getStory() {
+    return story;
+  }
+
+  /**
+   * Returns an unmodifiable list of the problems found while parsing, in file order.
+   *
+   * @return the list of diagnostics
+   */
+  public List<StoryParseDiagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * Checks if a story could be built from the file.
+   *
+   * @return {@code true} if a story was built, {@code false} otherwise
+   */
+  public boolean hasStory() {
+    return story != null;
+  }
+
+  /**
+   * Checks if the file was parsed without any problems.
+   *
+   * @return {@code true} if a story was built and no problems were found, {@code false} otherwise
+   */
+  public boolean isValid() {
+    return hasStory() && diagnostics.isEmpty();
+  }
+}
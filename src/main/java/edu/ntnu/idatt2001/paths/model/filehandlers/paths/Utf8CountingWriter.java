@@ -0,0 +1,83 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer that counts the number of bytes the characters written through it take up when encoded
+ * as UTF-8. It is used to record the byte offsets of passages while a story is streamed to a file,
+ * without having to flush the underlying writer.
+ */
+class Utf8CountingWriter extends FilterWriter {
+
+  private long byteCount;
+
+  /**
+   * Constructs a new Utf8CountingWriter writing to the given writer.
+   *
+   * @param out the writer to write to
+   */
+  Utf8CountingWriter(Writer out) {
+    super(out);
+  }
+
+  /**
+   * Returns the number of UTF-8 bytes in the given string.
+   *
+   * @param text the string to measure
+   * @return the number of bytes in the UTF-8 encoding of the string
+   */
+  static int utf8Length(CharSequence text) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      length += utf8Length(text.charAt(i));
+    }
+    return length;
+  }
+
+  /**
+   * Returns the number of UTF-8 bytes used for the given character. Each half of a surrogate pair
+   * counts as two bytes, so that a full pair counts as the four bytes it is encoded as.
+   *
+   * @param c the character to measure
+   * @return the number of bytes used for the character
+   */
+  private static int utf8Length(char c) {
+    if (c < 0x80) {
+      return 1;
+    } else if (c < 0x800 || Character.isSurrogate(c)) {
+      return 2;
+    }
+    return 3;
+  }
+
+  /**
+   * Returns the number of UTF-8 bytes written through this writer so far.
+   *
+   * @return the number of bytes written
+   */
+  long getByteCount() {
+    return byteCount;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    byteCount += utf8Length((char) c);
+    super.write(c);
+  }
+
+  @Override
+  public void write(char[] buffer, int offset, int length) throws IOException {
+    for (int i = offset; i < offset + length; i++) {
+      byteCount += utf8Length(buffer[i]);
+    }
+    super.write(buffer, offset, length);
+  }
+
+  @Override
+  public void write(String text, int offset, int length) throws IOException {
+    byteCount += utf8Length(text.subSequence(offset, offset + length));
+    super.write(text, offset, length);
+  }
+}
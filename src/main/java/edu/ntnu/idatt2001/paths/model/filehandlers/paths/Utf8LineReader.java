@@ -0,0 +1,104 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.paths;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader that reads a text one line at a time, and counts the number of bytes the lines take up
+ * when encoded as UTF-8. The lines are split on the given line separator only, in the same way as
+ * {@link String#split(String)}. It is used to record the byte offsets of passages while a story
+ * file is read line by line, without reading the whole file into memory.
+ */
+class Utf8LineReader implements Closeable {
+
+  private final Reader in;
+  private final String separator;
+  private final StringBuilder line;
+  private int lineIndex;
+  private long lineOffset;
+  private long byteCount;
+
+  /**
+   * Constructs a new Utf8LineReader reading from the given reader.
+   *
+   * @param in        the reader to read from, which should be buffered
+   * @param separator the line separator to split the lines on
+   */
+  Utf8LineReader(Reader in, String separator) {
+    this.in = in;
+    this.separator = separator;
+    this.line = new StringBuilder();
+    this.lineIndex = -1;
+  }
+
+  /**
+   * Reads the next line, without its line separator.
+   *
+   * @return the line, or {@code null} if the end of the text has been reached
+   * @throws IOException if an I/O error occurs while reading
+   */
+  String readLine() throws IOException {
+    line.setLength(0);
+    lineOffset = byteCount;
+    int character = in.read();
+    if (character < 0) {
+      return null;
+    }
+    while (character >= 0) {
+      line.append((char) character);
+      if (endsWithSeparator()) {
+        line.setLength(line.length() - separator.length());
+        byteCount += Utf8CountingWriter.utf8Length(line) + separator.length();
+        lineIndex++;
+        return line.toString();
+      }
+      character = in.read();
+    }
+    byteCount += Utf8CountingWriter.utf8Length(line);
+    lineIndex++;
+    return line.toString();
+  }
+
+  /**
+   * Returns the 0-based index of the line read last.
+   *
+   * @return the index of the last line, or -1 if no line has been read
+   */
+  int getLineIndex() {
+    return lineIndex;
+  }
+
+  /**
+   * Returns the byte offset of the start of the line read last.
+   *
+   * @return the offset of the last line
+   */
+  long getLineOffset() {
+    return lineOffset;
+  }
+
+  /**
+   * Returns the number of bytes read, up to and including the line separator of the last line.
+   *
+   * @return the number of bytes read
+   */
+  long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Checks if the line read so far ends with the line separator.
+   *
+   * @return {@code true} if the line ends with the separator, {@code false} otherwise
+   */
+  private boolean endsWithSeparator() {
+    int start = line.length() - separator.length();
+    return start >= 0 && line.indexOf(separator, start) == start;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,147 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+/**
+ * The AtomicFileWriter class provides a utility method for writing files atomically. The content is
+ * streamed through a buffer into a temporary file in the same directory as the target file, and the
+ * temporary file is then renamed to the target file. Readers will therefore either see the old file
+ * or the complete new file, never a partially written one. A written file is added to the
+ * {@link DirectoryIndex} of its directory straight away.
+ *
+ * <p>A new file gets the default permissions of the file system, just like a file written
+ * directly, and a replaced file keeps the permissions it had.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * AtomicFileWriter.write(path, out -> out.write(bytes));
+ * }</pre>
+ */
+public class AtomicFileWriter {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private AtomicFileWriter() {
+  }
+
+  /**
+   * Writes content to the given file atomically. The content writer is given a buffered stream to
+   * the temporary file, and the stream is flushed and synced to disk before the temporary file
+   * replaces the target file. If writing fails, the temporary file is deleted and the target file
+   * is left unchanged.
+   *
+   * @param target  the file to write
+   * @param content the writer producing the content of the file
+   * @throws IOException if an I/O error occurs while writing or renaming the file
+   */
+  public static void write(Path target, ContentWriter content) throws IOException {
+    Objects.requireNonNull(target, "Target cannot be null");
+    Objects.requireNonNull(content, "Content writer cannot be null");
+    Path directory = target.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path tempFile = createTempFile(directory, target);
+
+    try {
+      copyPermissions(target, tempFile);
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        content.writeTo(CloseShieldOutputStream.wrap(out));
+        out.flush();
+        channel.force(true);
+      }
+      moveIntoPlace(tempFile, target);
+      DirectoryIndex.fileWritten(target);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+  }
+
+  /**
+   * Creates an empty temporary file next to the target file. The file is created with the default
+   * permissions of the file system, unlike {@link Files#createTempFile}, which makes the file
+   * readable by its owner only.
+   *
+   * @param directory the directory of the target file
+   * @param target    the file to replace
+   * @return the temporary file
+   * @throws IOException if an I/O error occurs while creating the file
+   */
+  private static Path createTempFile(Path directory, Path target) throws IOException {
+    while (true) {
+      String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong());
+      Path tempFile = directory.resolve("." + target.getFileName() + suffix + TEMP_FILE_SUFFIX);
+      try {
+        return Files.createFile(tempFile);
+      } catch (FileAlreadyExistsException e) {
+        // Try again with another name.
+      }
+    }
+  }
+
+  /**
+   * Gives the temporary file the POSIX permissions of the file it replaces, if the target file
+   * exists and the file system has POSIX permissions.
+   *
+   * @param target   the file to replace
+   * @param tempFile the temporary file holding the new content
+   * @throws IOException if an I/O error occurs while reading or setting the permissions
+   */
+  private static void copyPermissions(Path target, Path tempFile) throws IOException {
+    if (Files.exists(target)
+        && target.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.setPosixFilePermissions(tempFile, Files.getPosixFilePermissions(target));
+    }
+  }
+
+  /**
+   * Renames the temporary file to the target file, replacing the target file if it exists. An
+   * atomic move is used if the file system supports it.
+   *
+   * @param tempFile the temporary file holding the new content
+   * @param target   the file to replace
+   * @throws IOException if an I/O error occurs while renaming the file
+   */
+  private static void moveIntoPlace(Path tempFile, Path target) throws IOException {
+    try {
+      Files.move(
+          tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Functional interface for writing the content of a file to an output stream. Implementations
+   * may close the stream they are given; the underlying file is closed by the
+   * {@link AtomicFileWriter}.
+   */
+  @FunctionalInterface
+  public interface ContentWriter {
+
+    /**
+     * Writes the content of the file to the given stream.
+     *
+     * @param out the buffered stream to write to
+     * @throws IOException if an I/O error occurs while writing
+     */
+    void writeTo(OutputStream out) throws IOException;
+  }
+}
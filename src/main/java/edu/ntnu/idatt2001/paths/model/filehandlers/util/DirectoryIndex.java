@@ -0,0 +1,305 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The DirectoryIndex class keeps the names of the files in a directory in memory, so that the
+ * stories and saved games can be listed without reading the directory every time a view is shown.
+ *
+ * <p>The directory is read once when its index is created. After that, the index is kept current
+ * by a single background thread shared by all indexes, which watches the directories with a
+ * {@link WatchService} and adds and removes file names as files are created and deleted, also by
+ * other programs. Files written with the {@link AtomicFileWriter} are added to the index of their
+ * directory straight away, since the watch service may report changes with a delay on some
+ * platforms. If the directory cannot be watched, for instance because it does not exist yet, the
+ * index falls back to reading the directory every time the file names are asked for. The index
+ * never creates the directory; it is created when the first file is written to it.
+ *
+ * <p>Listeners can be added to an index to be told the name of every file that is created, changed
+ * or deleted in the directory, so that data read from the files can be kept in memory and only
+ * read again when a file changes.
+ *
+ * <p>The index is thread-safe, and there is one index per directory.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * List<String> stories = DirectoryIndex.of(storiesPath).getFileNames(".json");
+ * }</pre>
+ */
+public class DirectoryIndex {
+
+  private static final Map<Path, DirectoryIndex> INDEXES = new ConcurrentHashMap<>();
+  private static final Map<WatchKey, DirectoryIndex> WATCHED_INDEXES = new ConcurrentHashMap<>();
+  private static WatchService watchService;
+
+  private final Path directory;
+  private final NavigableSet<String> fileNames;
+  private final List<Consumer<String>> listeners;
+  private volatile boolean isWatched;
+
+  /**
+   * Constructs a new, empty DirectoryIndex for the given directory. The directory is watched and
+   * read by {@link #create(Path)}, once the index has been constructed.
+   *
+   * @param directory the normalized absolute path of the directory
+   */
+  private DirectoryIndex(Path directory) {
+    this.directory = directory;
+    this.fileNames = new ConcurrentSkipListSet<>();
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Creates the index of the given directory. The directory is registered with the watch service
+   * before it is read, so that no change made while the directory is being read is missed. The
+   * directory is not created if it does not exist; the index is then empty and is read again every
+   * time the file names are asked for, until the directory can be watched.
+   *
+   * @param directory the normalized absolute path of the directory
+   * @return the index of the directory
+   */
+  private static DirectoryIndex create(Path directory) {
+    DirectoryIndex index = new DirectoryIndex(directory);
+    index.watch();
+    index.rescan();
+    return index;
+  }
+
+  /**
+   * Returns the index of the given directory, creating it the first time the directory is asked
+   * for.
+   *
+   * @param directory the directory to index
+   * @return the index of the directory
+   * @throws NullPointerException if the directory is {@code null}
+   */
+  public static DirectoryIndex of(Path directory) {
+    Objects.requireNonNull(directory, "Directory cannot be null");
+    return INDEXES.computeIfAbsent(directory.toAbsolutePath().normalize(), DirectoryIndex::create);
+  }
+
+  /**
+   * Adds the given file to the index of its directory, if the directory is indexed. This is called
+   * when a file has been written, so that it is listed at once.
+   *
+   * @param file the file that has been written
+   */
+  public static void fileWritten(Path file) {
+    DirectoryIndex index = findIndex(file);
+    if (index != null) {
+      String fileName = file.getFileName().toString();
+      index.fileNames.add(fileName);
+      index.notifyListeners(fileName);
+    }
+  }
+
+  /**
+   * Removes the given file from the index of its directory, if the directory is indexed. This is
+   * called when a listed file turns out to be missing, before the watch service has reported it.
+   *
+   * @param file the file that has been deleted
+   */
+  public static void fileDeleted(Path file) {
+    DirectoryIndex index = findIndex(file);
+    if (index != null) {
+      String fileName = file.getFileName().toString();
+      index.fileNames.remove(fileName);
+      index.notifyListeners(fileName);
+    }
+  }
+
+  /**
+   * Returns the names of the files in the directory with the given file ending, in alphabetical
+   * order.
+   *
+   * @param fileEnding the file ending of the files to list, such as {@code ".json"}
+   * @return the names of the files with the given ending
+   */
+  public List<String> getFileNames(String fileEnding) {
+    Objects.requireNonNull(fileEnding, "File ending cannot be null");
+    if (!isWatched) {
+      if (Files.isDirectory(directory)) {
+        watch();
+      }
+      rescan();
+    }
+    return fileNames.stream()
+        .filter(fileName -> fileName.endsWith(fileEnding))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Adds a listener that is told the name of every file that is created, changed or deleted in the
+   * directory. The listener may be called from the background thread watching the directory, and
+   * must not block. While the directory cannot be watched, the listener is only told about files
+   * that are added to or removed from the index.
+   *
+   * @param listener the listener to add
+   * @throws NullPointerException if the listener is {@code null}
+   */
+  public void addListener(Consumer<String> listener) {
+    listeners.add(Objects.requireNonNull(listener, "Listener cannot be null"));
+  }
+
+  /**
+   * Tells the listeners of the index that the file with the given name has been created, changed
+   * or deleted.
+   *
+   * @param fileName the name of the file
+   */
+  private void notifyListeners(String fileName) {
+    listeners.forEach(listener -> listener.accept(fileName));
+  }
+
+  /**
+   * Returns the index of the directory of the given file, if the directory is indexed.
+   *
+   * @param file the file
+   * @return the index of the directory of the file, or {@code null} if it is not indexed
+   */
+  private static DirectoryIndex findIndex(Path file) {
+    Path directory = file.toAbsolutePath().normalize().getParent();
+    return directory == null ? null : INDEXES.get(directory);
+  }
+
+  /**
+   * Registers the directory with the watch service, so that the index is kept current by the
+   * events of the directory. The index is read every time the file names are asked for if the
+   * directory cannot be watched, for instance because it does not exist yet.
+   */
+  private void watch() {
+    try {
+      WatchKey watchKey =
+          directory.register(getWatchService(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      WATCHED_INDEXES.put(watchKey, this);
+      isWatched = true;
+    } catch (IOException | UnsupportedOperationException e) {
+      isWatched = false;
+    }
+  }
+
+  /**
+   * Reads the directory and replaces the file names in the index with the names of the regular
+   * files in it. The index is emptied if the directory cannot be read. The listeners are told about
+   * the files that have been added to or removed from the index.
+   */
+  private void rescan() {
+    Set<String> scannedFileNames;
+    try (Stream<Path> files = Files.list(directory)) {
+      scannedFileNames =
+          files
+              .filter(Files::isRegularFile)
+              .map(file -> file.getFileName().toString())
+              .collect(Collectors.toSet());
+    } catch (IOException e) {
+      scannedFileNames = Set.of();
+    }
+    Set<String> changedFileNames = new HashSet<>();
+    for (String fileName : fileNames) {
+      if (!scannedFileNames.contains(fileName) && fileNames.remove(fileName)) {
+        changedFileNames.add(fileName);
+      }
+    }
+    for (String fileName : scannedFileNames) {
+      if (fileNames.add(fileName)) {
+        changedFileNames.add(fileName);
+      }
+    }
+    changedFileNames.forEach(this::notifyListeners);
+  }
+
+  /**
+   * Applies the events of a watch key to the index. The directory is read again if events have
+   * been lost, in which case the listeners are told about every file since any of them may have
+   * changed, and the index stops relying on the watch service if the directory is no longer
+   * watched, for instance because it has been deleted.
+   *
+   * @param watchKey the signalled watch key of the directory
+   */
+  private void processEvents(WatchKey watchKey) {
+    for (WatchEvent<?> event : watchKey.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        rescan();
+        fileNames.forEach(this::notifyListeners);
+        continue;
+      }
+      Path file = directory.resolve((Path) event.context());
+      String fileName = file.getFileName().toString();
+      if (event.kind() == ENTRY_DELETE) {
+        fileNames.remove(fileName);
+      } else if (Files.isRegularFile(file)) {
+        fileNames.add(fileName);
+      }
+      notifyListeners(fileName);
+    }
+    if (!watchKey.reset()) {
+      WATCHED_INDEXES.remove(watchKey);
+      isWatched = false;
+    }
+  }
+
+  /**
+   * Returns the watch service shared by all indexes, creating it and starting the background
+   * thread that processes its events the first time it is needed.
+   *
+   * @return the watch service
+   * @throws IOException if the watch service cannot be created
+   */
+  private static synchronized WatchService getWatchService() throws IOException {
+    if (watchService == null) {
+      watchService = FileSystems.getDefault().newWatchService();
+      Thread watchThread = new Thread(DirectoryIndex::watchDirectories, "directory-index-watcher");
+      watchThread.setDaemon(true);
+      watchThread.start();
+    }
+    return watchService;
+  }
+
+  /**
+   * Processes the events of the watch service until the thread is interrupted or the watch
+   * service is closed.
+   */
+  private static void watchDirectories() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey watchKey = watchService.take();
+        DirectoryIndex index = WATCHED_INDEXES.get(watchKey);
+        if (index != null) {
+          index.processEvents(watchKey);
+        } else {
+          watchKey.pollEvents();
+          watchKey.reset();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      WATCHED_INDEXES.values().forEach(index -> index.isWatched = false);
+    }
+  }
+}
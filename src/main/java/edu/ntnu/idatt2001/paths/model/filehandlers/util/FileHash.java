@@ -0,0 +1,47 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The FileHash class provides a utility method for hashing the content of files. The file is
+ * streamed through the digest, so files of any size can be hashed without reading them into memory.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ */
+public class FileHash {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private FileHash() {
+  }
+
+  /**
+   * Returns the SHA-256 hash of the given file as a hexadecimal string.
+   *
+   * @param file the file to hash
+   * @return the hash of the file
+   * @throws IOException if the file cannot be read
+   */
+  public static String sha256(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (in.read(buffer) != -1) {
+        // The digest is updated as the file is read.
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
@@ -0,0 +1,77 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import edu.ntnu.idatt2001.paths.model.story.PassageContentLoader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The PassageContentCache class is a {@link PassageContentLoader} that keeps the content of the
+ * most recently used passages in memory. Content that is not in the cache is loaded with the
+ * underlying loader, and the least recently used content is evicted when the cache is full. The
+ * memory used for passage content is therefore bounded by the capacity of the cache, no matter how
+ * large the story is.
+ *
+ * <p>The cache is thread-safe.
+ */
+public class PassageContentCache implements PassageContentLoader {
+
+  private final PassageContentLoader loader;
+  private final Map<String, String> contents;
+
+  /**
+   * Constructs a new PassageContentCache with the given capacity and underlying loader.
+   *
+   * @param capacity the maximum number of passages to keep the content of
+   * @param loader   the loader used to load content that is not in the cache
+   * @throws IllegalArgumentException if the capacity is not positive
+   * @throws NullPointerException     if the loader is {@code null}
+   */
+  public PassageContentCache(int capacity, PassageContentLoader loader) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.loader = Objects.requireNonNull(loader, "Loader cannot be null");
+    this.contents =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+          }
+        };
+  }
+
+  /**
+   * Returns the content of the passage with the given title, loading it if it is not in the
+   * cache.
+   *
+   * @param passageTitle the title of the passage
+   * @return the content of the passage
+   */
+  @Override
+  public synchronized String loadContent(String passageTitle) {
+    String content = contents.get(passageTitle);
+    if (content == null) {
+      content = loader.loadContent(passageTitle);
+      contents.put(passageTitle, content);
+    }
+    return content;
+  }
+
+  /**
+   * Removes the content of all passages from the cache, so that it is loaded again. This is used
+   * when the content the underlying loader reads from has changed.
+   */
+  public synchronized void clear() {
+    contents.clear();
+  }
+
+  /**
+   * Returns the number of passages with their content in the cache.
+   *
+   * @return the number of cached passages
+   */
+  public synchronized int size() {
+    return contents.size();
+  }
+}
@@ -0,0 +1,433 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The PassageIndex class maps the title of every passage in a story file to the byte offset and
+ * length of the passage in the file. The index is kept in a sidecar file next to the story file,
+ * named after the story file with an {@code .idx} ending, such as {@code My Story.paths.idx} or
+ * {@code My Story.json.idx}. It lets a single passage be read from a story file without parsing the
+ * rest of the file.
+ *
+ * <p>The index is stamped with the size, last modified time and SHA-256 hash of the story file it
+ * describes. When the index is loaded with {@link #forFile(Path, IndexBuilder)}, a missing or stale
+ * index is rebuilt with the given {@link IndexBuilder} and the sidecar file is written again. An
+ * index is stale if the size of the story file has changed, or if its last modified time has
+ * changed and its hash no longer matches. File handlers that already know the passage offsets of
+ * a file they have read or written store them with {@link #write(Path, PassageIndex)}, and
+ * {@link #readCurrent(Path)} returns the stored index only while the file is unchanged.
+ *
+ * <p>The opening passage is kept apart from the other passages, since a passage may share its
+ * title.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * PassageIndex index = PassageIndex.forFile(storyPath, builder);
+ * byte[] passageBytes = index.readPassage(storyPath, "Village");
+ * }</pre>
+ */
+public class PassageIndex {
+
+  private static final String SIDECAR_ENDING = ".idx";
+  private static final int MAGIC = 0x50494458;
+  private static final int VERSION = 1;
+
+  private final Entry openingPassageEntry;
+  private final Map<String, Entry> passageEntries;
+  private long fileSize;
+  private long lastModified;
+  private String hash;
+
+  /**
+   * Constructs a new, unstamped PassageIndex with the given entries.
+   *
+   * @param openingPassageEntry the entry of the opening passage
+   * @param passageEntries      the entries of the other passages, by passage title
+   * @throws NullPointerException if any of the arguments are {@code null}
+   */
+  public PassageIndex(Entry openingPassageEntry, Map<String, Entry> passageEntries) {
+    this.openingPassageEntry =
+        Objects.requireNonNull(openingPassageEntry, "Opening passage entry cannot be null");
+    this.passageEntries =
+        new LinkedHashMap<>(
+            Objects.requireNonNull(passageEntries, "Passage entries cannot be null"));
+  }
+
+  /**
+   * Returns an up-to-date index for the given story file. The index is read from the sidecar file
+   * if it is current, and is otherwise rebuilt with the given builder and written to the sidecar
+   * file. Failing to write the sidecar file does not fail the lookup, the index is then simply
+   * rebuilt again the next time.
+   *
+   * @param storyFile the story file to get the index of
+   * @param builder   the builder used to build the index if the sidecar file is missing or stale
+   * @return the index of the story file
+   * @throws IOException if the story file cannot be read
+   */
+  public static PassageIndex forFile(Path storyFile, IndexBuilder builder) throws IOException {
+    Objects.requireNonNull(storyFile, "Story file cannot be null");
+    Objects.requireNonNull(builder, "Index builder cannot be null");
+    long fileSize = Files.size(storyFile);
+    long lastModified = Files.getLastModifiedTime(storyFile).toMillis();
+    PassageIndex index = readCurrent(storyFile);
+    if (index == null) {
+      index = builder.build(storyFile);
+      write(storyFile, index, fileSize, lastModified);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index in the sidecar file of the given story file, if the sidecar file is current.
+   * The index is not rebuilt, so this tells whether the story file has been changed since its
+   * index was last written.
+   *
+   * @param storyFile the story file to get the index of
+   * @return the index of the story file, or {@code null} if the sidecar file is missing or stale
+   * @throws IOException if the story file cannot be read
+   */
+  public static PassageIndex readCurrent(Path storyFile) throws IOException {
+    Objects.requireNonNull(storyFile, "Story file cannot be null");
+    long fileSize = Files.size(storyFile);
+    long lastModified = Files.getLastModifiedTime(storyFile).toMillis();
+
+    PassageIndex index = readSidecar(getSidecarPath(storyFile));
+    if (index == null || index.fileSize != fileSize) {
+      return null;
+    }
+    if (index.lastModified != lastModified) {
+      if (!index.hash.equals(FileHash.sha256(storyFile))) {
+        return null;
+      }
+      index.lastModified = lastModified;
+      writeSidecarQuietly(storyFile, index);
+    }
+    return index;
+  }
+
+  /**
+   * Stamps the given index with the current size, last modified time and hash of the given story
+   * file, and writes it to the sidecar file of the story file. This is used by the file handlers
+   * that already know the passage offsets of a story file they have just read or written, so that
+   * the file does not have to be scanned again. Failing to write the sidecar file is ignored.
+   *
+   * @param storyFile the story file described by the index
+   * @param index     the index of the story file
+   * @throws IOException if the story file cannot be read
+   */
+  public static void write(Path storyFile, PassageIndex index) throws IOException {
+    Objects.requireNonNull(storyFile, "Story file cannot be null");
+    Objects.requireNonNull(index, "Index cannot be null");
+    write(
+        storyFile,
+        index,
+        Files.size(storyFile),
+        Files.getLastModifiedTime(storyFile).toMillis());
+  }
+
+  /**
+   * Stamps the given index with the given size and last modified time and the current hash of the
+   * given story file, and writes it to the sidecar file of the story file.
+   *
+   * @param storyFile    the story file described by the index
+   * @param index        the index of the story file
+   * @param fileSize     the size of the story file the index was built from
+   * @param lastModified the last modified time of the story file the index was built from
+   * @throws IOException if the story file cannot be read
+   */
+  private static void write(Path storyFile, PassageIndex index, long fileSize, long lastModified)
+      throws IOException {
+    index.fileSize = fileSize;
+    index.lastModified = lastModified;
+    index.hash = FileHash.sha256(storyFile);
+    writeSidecarQuietly(storyFile, index);
+  }
+
+  /**
+   * Checks if the index still describes the given story file, that is if the size and last
+   * modified time of the file are the same as when the index was stamped. The hash of the file is
+   * not checked.
+   *
+   * @param storyFile the story file described by the index
+   * @return {@code true} if the index is up-to-date, {@code false} otherwise
+   */
+  public boolean isCurrent(Path storyFile) {
+    try {
+      return Files.size(storyFile) == fileSize
+          && Files.getLastModifiedTime(storyFile).toMillis() == lastModified;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the SHA-256 hash of the story file the index was stamped with.
+   *
+   * @return the hash of the story file, or {@code null} if the index has not been stamped
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * Returns the path of the sidecar index file of the given story file.
+   *
+   * @param storyFile the story file
+   * @return the path of the sidecar file
+   */
+  public static Path getSidecarPath(Path storyFile) {
+    return storyFile.resolveSibling(storyFile.getFileName() + SIDECAR_ENDING);
+  }
+
+  /**
+   * Checks if the given file name is the name of a sidecar index file.
+   *
+   * @param fileName the file name to check
+   * @return {@code true} if the file is a sidecar index file, {@code false} otherwise
+   */
+  public static boolean isSidecarFile(String fileName) {
+    return fileName.endsWith(SIDECAR_ENDING);
+  }
+
+  /**
+   * Returns the entry of the opening passage.
+   *
+   * @return the entry of the opening passage
+   */
+  public Entry getOpeningPassageEntry() {
+    return openingPassageEntry;
+  }
+
+  /**
+   * Returns the entry of the passage with the given title. The opening passage is only returned if
+   * no other passage has the given title.
+   *
+   * @param passageTitle the title of the passage
+   * @return the entry of the passage, or {@code null} if there is no passage with the given title
+   */
+  public Entry getEntry(String passageTitle) {
+    Entry entry = passageEntries.get(passageTitle);
+    if (entry == null && passageTitle.equals(openingPassageEntry.getTitle())) {
+      return openingPassageEntry;
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the titles of all passages in the index, except the opening passage.
+   *
+   * @return an unmodifiable collection of the passage titles
+   */
+  public Collection<String> getPassageTitles() {
+    return Collections.unmodifiableCollection(passageEntries.keySet());
+  }
+
+  /**
+   * Reads the bytes of the passage with the given title from the story file.
+   *
+   * @param storyFile    the story file described by the index
+   * @param passageTitle the title of the passage to read
+   * @return the bytes of the passage, or {@code null} if there is no passage with the given title
+   * @throws IOException if the story file cannot be read
+   */
+  public byte[] readPassage(Path storyFile, String passageTitle) throws IOException {
+    Entry entry = getEntry(passageTitle);
+    return entry == null ? null : readEntry(storyFile, entry);
+  }
+
+  /**
+   * Reads the bytes of the given entry from the story file.
+   *
+   * @param storyFile the story file described by the index
+   * @param entry     the entry to read
+   * @return the bytes of the entry
+   * @throws IOException if the story file cannot be read
+   */
+  public static byte[] readEntry(Path storyFile, Entry entry) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(entry.getLength());
+    try (FileChannel channel = FileChannel.open(storyFile, StandardOpenOption.READ)) {
+      long position = entry.getOffset();
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of story file: " + storyFile);
+        }
+        position += read;
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Reads the index from the given sidecar file.
+   *
+   * @param sidecarFile the sidecar file to read
+   * @return the index, or {@code null} if the sidecar file is missing or not a valid index
+   */
+  private static PassageIndex readSidecar(Path sidecarFile) {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecarFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      long fileSize = in.readLong();
+      long lastModified = in.readLong();
+      String hash = in.readUTF();
+      Entry openingPassageEntry = readEntry(in);
+      int passageCount = in.readInt();
+      Map<String, Entry> passageEntries = new LinkedHashMap<>();
+      for (int i = 0; i < passageCount; i++) {
+        Entry entry = readEntry(in);
+        passageEntries.put(entry.getTitle(), entry);
+      }
+      PassageIndex index = new PassageIndex(openingPassageEntry, passageEntries);
+      index.fileSize = fileSize;
+      index.lastModified = lastModified;
+      index.hash = hash;
+      return index;
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads a single entry from a sidecar file.
+   *
+   * @param in the stream to read from
+   * @return the entry read
+   * @throws IOException if the entry cannot be read
+   */
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    String title = in.readUTF();
+    long offset = in.readLong();
+    int length = in.readInt();
+    return new Entry(title, offset, length);
+  }
+
+  /**
+   * Writes the index to the sidecar file of the given story file. An I/O error is ignored, since
+   * the index can always be rebuilt from the story file.
+   *
+   * @param storyFile the story file described by the index
+   * @param index     the index to write
+   */
+  private static void writeSidecarQuietly(Path storyFile, PassageIndex index) {
+    try {
+      AtomicFileWriter.write(
+          getSidecarPath(storyFile),
+          out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(index.fileSize);
+            data.writeLong(index.lastModified);
+            data.writeUTF(index.hash);
+            writeEntry(data, index.openingPassageEntry);
+            data.writeInt(index.passageEntries.size());
+            for (Entry entry : index.passageEntries.values()) {
+              writeEntry(data, entry);
+            }
+            data.flush();
+          });
+    } catch (IOException ignored) {
+    }
+  }
+
+  /**
+   * Writes a single entry to a sidecar file.
+   *
+   * @param out   the stream to write to
+   * @param entry the entry to write
+   * @throws IOException if the entry cannot be written
+   */
+  private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+    out.writeUTF(entry.getTitle());
+    out.writeLong(entry.getOffset());
+    out.writeInt(entry.getLength());
+  }
+
+  /**
+   * Builds the index of a story file by scanning the file. Implemented by the file handlers of the
+   * different story formats.
+   */
+  @FunctionalInterface
+  public interface IndexBuilder {
+
+    /**
+     * Builds the index of the given story file.
+     *
+     * @param storyFile the story file to build the index of
+     * @return the index of the story file
+     * @throws IOException if the story file cannot be read or is not a valid story
+     */
+    PassageIndex build(Path storyFile) throws IOException;
+  }
+
+  /**
+   * The Entry class is the byte range of a single passage in a story file. Entries are immutable.
+   */
+  public static class Entry {
+
+    private final String title;
+    private final long offset;
+    private final int length;
+
+    /**
+     * Constructs a new Entry for the passage with the given title.
+     *
+     * @param title  the title of the passage
+     * @param offset the offset of the first byte of the passage in the story file
+     * @param length the number of bytes of the passage
+     * @throws IllegalArgumentException if the offset or length is negative
+     */
+    public Entry(String title, long offset, int length) {
+      if (offset < 0 || length < 0) {
+        throw new IllegalArgumentException("Offset and length cannot be negative");
+      }
+      this.title = Objects.requireNonNull(title, "Title cannot be null");
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * Returns the title of the passage.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+      return title;
+    }
+
+    /**
+     * Returns the offset of the first byte of the passage in the story file.
+     *
+     * @return the offset
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+    /**
+     * Returns the number of bytes of the passage.
+     *
+     * @return the length
+     */
+    public int getLength() {
+      return length;
+    }
+  }
+}
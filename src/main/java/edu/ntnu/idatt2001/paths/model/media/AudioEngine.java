@@ -0,0 +1,323 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaException;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+
+/**
+ * The AudioEngine class plays the music and sound effects of the game. It keeps a small pool of
+ * prepared media players, keyed by the URL of their track, so switching to a track that has been
+ * played or preloaded recently does not set up a new decoder. Switching between tracks crossfades
+ * from the playing track to the next one instead of cutting the music off.
+ *
+ * <p>Tracks can be preloaded before they are played, for example the music of the passages the
+ * player may go to next. The pool holds at most a fixed number of idle players, and the least
+ * recently used player is disposed when a new one is added to a full pool. The track that is
+ * playing is not part of the pool, and is never disposed.
+ *
+ * <p>Short sound effects are played as {@link AudioClip}s, which are loaded into memory once and
+ * play over the music without interrupting it.
+ *
+ * <p>Tracks and effects stored in an {@link AssetPack} are extracted to a temporary file before
+ * they are loaded, since JavaFX media can only be played from a URL it can read itself.
+ *
+ * <p>Tracks and effects may be preloaded from any thread. Everything else must be called on the
+ * JavaFX application thread.
+ *
+ * @see SoundHandler
+ */
+public class AudioEngine {
+
+  private static final int DEFAULT_POOL_SIZE = 4;
+  private static final Duration DEFAULT_CROSSFADE_DURATION = Duration.millis(800);
+
+  private final int poolSize;
+  private final Duration crossfadeDuration;
+  private final Map<String, MediaPlayer> idlePlayers;
+  private final Map<String, AudioClip> effects = new ConcurrentHashMap<>();
+  private volatile String currentTrack;
+  private MediaPlayer currentPlayer;
+  private String fadingTrack;
+  private MediaPlayer fadingPlayer;
+  private Timeline crossfade;
+
+  /**
+   * Constructs an AudioEngine with the default pool size and crossfade duration.
+   */
+  public AudioEngine() {
+    this(DEFAULT_POOL_SIZE, DEFAULT_CROSSFADE_DURATION);
+  }
+
+  /**
+   * Constructs an AudioEngine with the given pool size and crossfade duration.
+   *
+   * @param poolSize          the most idle players to keep prepared.
+   * @param crossfadeDuration the duration of the crossfade between two tracks.
+   * @throws IllegalArgumentException if the pool size is negative.
+   */
+  public AudioEngine(int poolSize, Duration crossfadeDuration) {
+    if (poolSize < 0) {
+      throw new IllegalArgumentException("Pool size cannot be negative");
+    }
+    this.poolSize = poolSize;
+    this.crossfadeDuration =
+        Objects.requireNonNull(crossfadeDuration, "Crossfade duration cannot be null");
+    this.idlePlayers = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the URL of the track that is playing.
+   *
+   * @return the URL of the playing track, or {@code null} if no track is playing.
+   */
+  public String getCurrentTrack() {
+    return currentTrack;
+  }
+
+  /**
+   * Prepares a player for the track with the given URL, so that it starts without delay when it is
+   * played. Nothing is prepared if the track is playing or already prepared, or if it cannot be
+   * loaded. This may be called from any thread.
+   *
+   * @param trackUrl the URL of the track.
+   */
+  public void preload(String trackUrl) {
+    synchronized (this) {
+      if (trackUrl == null || trackUrl.equals(currentTrack) || trackUrl.equals(fadingTrack)
+          || idlePlayers.containsKey(trackUrl)) {
+        return;
+      }
+    }
+    MediaPlayer player;
+    try {
+      player = createPlayer(trackUrl);
+    } catch (MediaException e) {
+      // The track is loaded when it is played instead.
+      return;
+    }
+    synchronized (this) {
+      if (trackUrl.equals(currentTrack) || idlePlayers.containsKey(trackUrl)) {
+        player.dispose();
+      } else {
+        addIdlePlayer(trackUrl, player);
+      }
+    }
+  }
+
+  /**
+   * Plays the track with the given URL, crossfading from the track that is playing. Nothing happens
+   * if the track is already playing. A prepared player is used if there is one.
+   *
+   * @param trackUrl the URL of the track.
+   * @throws NullPointerException if the URL is {@code null}.
+   */
+  public void play(String trackUrl) {
+    Objects.requireNonNull(trackUrl, "Track not found");
+    if (trackUrl.equals(currentTrack)) {
+      return;
+    }
+    finishCrossfade();
+
+    MediaPlayer nextPlayer;
+    synchronized (this) {
+      nextPlayer = idlePlayers.remove(trackUrl);
+    }
+    if (nextPlayer == null) {
+      nextPlayer = createPlayer(trackUrl);
+    }
+    MediaPlayer previousPlayer = currentPlayer;
+    String previousTrack = currentTrack;
+    synchronized (this) {
+      currentPlayer = nextPlayer;
+      currentTrack = trackUrl;
+    }
+
+    if (previousPlayer == null || crossfadeDuration.lessThanOrEqualTo(Duration.ZERO)) {
+      nextPlayer.setVolume(1.0);
+      nextPlayer.play();
+      if (previousPlayer != null) {
+        release(previousTrack, previousPlayer);
+      }
+      return;
+    }
+    startCrossfade(previousTrack, previousPlayer, nextPlayer);
+  }
+
+  /**
+   * Stops the track that is playing. The player is kept prepared.
+   */
+  public void stop() {
+    finishCrossfade();
+    if (currentPlayer != null) {
+      MediaPlayer player = currentPlayer;
+      String track = currentTrack;
+      synchronized (this) {
+        currentPlayer = null;
+        currentTrack = null;
+      }
+      release(track, player);
+    }
+  }
+
+  /**
+   * Loads the sound effect with the given URL into memory, unless it is loaded already. This may
+   * be called from any thread.
+   *
+   * @param effectUrl the URL of the sound effect.
+   */
+  public void preloadEffect(String effectUrl) {
+    if (effectUrl != null) {
+      try {
+        effects.computeIfAbsent(effectUrl, url -> new AudioClip(toPlayableUrl(url)));
+      } catch (MediaException e) {
+        // The effect is loaded when it is played instead.
+      }
+    }
+  }
+
+  /**
+   * Plays the sound effect with the given URL over the music.
+   *
+   * @param effectUrl the URL of the sound effect.
+   * @throws NullPointerException if the URL is {@code null}.
+   */
+  public void playEffect(String effectUrl) {
+    Objects.requireNonNull(effectUrl, "Sound effect not found");
+    effects.computeIfAbsent(effectUrl, url -> new AudioClip(toPlayableUrl(url))).play();
+  }
+
+  /**
+   * Disposes all prepared players. The track that is playing keeps playing.
+   */
+  public synchronized void clearPreloaded() {
+    idlePlayers.values().forEach(MediaPlayer::dispose);
+    idlePlayers.clear();
+  }
+
+  /**
+   * Fades the previous track out and the next track in, and releases the previous player when the
+   * crossfade has finished.
+   *
+   * @param previousTrack  the URL of the previous track.
+   * @param previousPlayer the player of the previous track.
+   * @param nextPlayer     the player of the next track.
+   */
+  private void startCrossfade(
+      String previousTrack, MediaPlayer previousPlayer, MediaPlayer nextPlayer) {
+    synchronized (this) {
+      fadingTrack = previousTrack;
+      fadingPlayer = previousPlayer;
+    }
+    nextPlayer.setVolume(0.0);
+    nextPlayer.play();
+    crossfade =
+        new Timeline(
+            new KeyFrame(
+                Duration.ZERO,
+                new KeyValue(previousPlayer.volumeProperty(), previousPlayer.getVolume()),
+                new KeyValue(nextPlayer.volumeProperty(), 0.0)),
+            new KeyFrame(
+                crossfadeDuration,
+                new KeyValue(previousPlayer.volumeProperty(), 0.0),
+                new KeyValue(nextPlayer.volumeProperty(), 1.0)));
+    crossfade.setOnFinished(event -> finishCrossfade());
+    crossfade.play();
+  }
+
+  /**
+   * Ends the running crossfade, if there is one, by releasing the fading player and turning the
+   * playing track up to full volume.
+   */
+  private void finishCrossfade() {
+    if (crossfade == null) {
+      return;
+    }
+    crossfade.stop();
+    crossfade = null;
+    MediaPlayer player = fadingPlayer;
+    String track = fadingTrack;
+    synchronized (this) {
+      fadingPlayer = null;
+      fadingTrack = null;
+    }
+    release(track, player);
+    if (currentPlayer != null) {
+      currentPlayer.setVolume(1.0);
+    }
+  }
+
+  /**
+   * Stops the player of a track that is no longer playing, and keeps it prepared in the pool.
+   *
+   * @param track  the URL of the track.
+   * @param player the player of the track.
+   */
+  private void release(String track, MediaPlayer player) {
+    player.stop();
+    player.setVolume(1.0);
+    synchronized (this) {
+      MediaPlayer replacedPlayer = idlePlayers.remove(track);
+      if (replacedPlayer != null) {
+        replacedPlayer.dispose();
+      }
+      addIdlePlayer(track, player);
+    }
+  }
+
+  /**
+   * Adds an idle player to the pool, and disposes the least recently used players if the pool is
+   * full.
+   *
+   * @param track  the URL of the track.
+   * @param player the player of the track.
+   */
+  private void addIdlePlayer(String track, MediaPlayer player) {
+    idlePlayers.put(track, player);
+    Iterator<MediaPlayer> iterator = idlePlayers.values().iterator();
+    while (idlePlayers.size() > poolSize && iterator.hasNext()) {
+      iterator.next().dispose();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Creates a looping player for the track with the given URL.
+   *
+   * @param trackUrl the URL of the track.
+   * @return the player of the track.
+   * @throws MediaException if the track cannot be loaded.
+   */
+  private static MediaPlayer createPlayer(String trackUrl) {
+    MediaPlayer player = new MediaPlayer(new Media(toPlayableUrl(trackUrl)));
+    player.setCycleCount(MediaPlayer.INDEFINITE);
+    return player;
+  }
+
+  /**
+   * Returns a URL JavaFX media can be loaded from, extracting the media from its asset pack if it
+   * is stored in one. If the media cannot be extracted, the URL is returned as is, and loading it
+   * fails like loading any other missing media.
+   *
+   * @param mediaUrl the URL of the media.
+   * @return a URL JavaFX media can be loaded from.
+   */
+  private static String toPlayableUrl(String mediaUrl) {
+    try {
+      return AssetPack.toFileUrl(mediaUrl);
+    } catch (IOException e) {
+      return mediaUrl;
+    }
+  }
+}
@@ -1,26 +1,77 @@
 package edu.ntnu.idatt2001.paths.model.media;
 
+import edu.ntnu.idatt2001.paths.model.story.Mood;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import javafx.application.Platform;
+import javafx.geometry.Side;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundImage;
+import javafx.scene.layout.BackgroundPosition;
+import javafx.scene.layout.BackgroundRepeat;
+import javafx.scene.layout.BackgroundSize;
 import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
 
 /**
  * A singleton class responsible for handling and updating background images based on the given
- * passage and story title. This class is responsible for determining if a passage has a custom
- * background image and updating the background image of a given region accordingly. If a custom
- * background is not available, a default background based on the passage's mood will be used.
+ * passage and the {@link MediaManifest} of its story. This class is responsible for determining if
+ * a passage has a custom background image and updating the background image of a given region
+ * accordingly. If a custom background is not available, a default background based on the
+ * passage's mood will be used.
+ *
+ * <p>Background images are decoded on the {@link MediaWorkers} pool and kept in the shared
+ * {@link ImageCache}, so a large custom image does not stall the passage transition. They are
+ * decoded at the size of the region they are shown in, rounded up, through the
+ * {@link ThumbnailCache}, so a full-resolution image is neither decoded nor kept in memory. Until
+ * the image is decoded, the region shows a placeholder based on the passage's mood: the mood's
+ * default background if it is already decoded, and otherwise a plain colour matching the mood. The
+ * decoded image is applied to the region as a {@link Background} on the JavaFX application thread,
+ * unless the region has moved on to another background in the meantime.
  */
 public class BackgroundHandler {
 
-  private static final String IMAGE_PATH = "/images/passage-moods/";
-  private static final String STORIES_PATH = "/stories/";
-  private static final String IMAGE_EXTENSION = ".png";
+  private static final String PENDING_IMAGE_KEY =
+      BackgroundHandler.class.getName() + ".pendingImage";
+  private static final Map<Mood, Color> PLACEHOLDER_COLORS = createPlaceholderColors();
+  private static final BackgroundPosition IMAGE_POSITION =
+      new BackgroundPosition(Side.LEFT, 0.5, true, Side.TOP, 1.0, true);
+  private static final BackgroundSize IMAGE_SIZE =
+      new BackgroundSize(1.0, 1.0, true, true, false, false);
+  private static final int MIN_TARGET_SIZE = 800;
+  private static final int TARGET_SIZE_STEP = 400;
   private static BackgroundHandler instance;
+  private final ImageCache imageCache;
+  private final ThumbnailCache thumbnailCache;
+  private final Executor workerExecutor;
+  private final Executor fxExecutor;
+  private volatile int targetWidth = MIN_TARGET_SIZE;
+  private volatile int targetHeight = MIN_TARGET_SIZE;
 
   /**
-   * Private constructor to prevent multiple instances.
+   * Constructs a BackgroundHandler that decodes images with the given executor and applies them
+   * with the other. The shared instance decodes on the media workers and applies the images on the
+   * JavaFX application thread.
+   *
+   * @param imageCache     the cache to keep the decoded images in.
+   * @param thumbnailCache the cache that decodes the images at the size they are shown at.
+   * @param workerExecutor the executor the images are decoded on.
+   * @param fxExecutor     the executor the decoded images are applied to the region on.
    */
-  private BackgroundHandler() {
+  BackgroundHandler(
+      ImageCache imageCache,
+      ThumbnailCache thumbnailCache,
+      Executor workerExecutor,
+      Executor fxExecutor) {
+    this.imageCache = Objects.requireNonNull(imageCache, "Image cache cannot be null");
+    this.thumbnailCache = Objects.requireNonNull(thumbnailCache, "Thumbnail cache cannot be null");
+    this.workerExecutor = Objects.requireNonNull(workerExecutor, "Worker executor cannot be null");
+    this.fxExecutor = Objects.requireNonNull(fxExecutor, "FX executor cannot be null");
   }
 
   /**
@@ -30,7 +81,10 @@ public class BackgroundHandler {
    */
   public static BackgroundHandler getInstance() {
     if (instance == null) {
-      instance = new BackgroundHandler();
+      instance =
+          new BackgroundHandler(
+              ImageCache.getInstance(), ThumbnailCache.getInstance(), MediaWorkers.getExecutor(),
+              Platform::runLater);
     }
     return instance;
   }
@@ -38,46 +92,181 @@ public class BackgroundHandler {
   /**
    * Checks if the passage has a custom background image.
    *
-   * @param passage    the passage to check for a background image.
-   * @param storyTitle the title of the story containing the passage.
+   * @param passage       the passage to check for a background image.
+   * @param mediaManifest the media manifest of the story containing the passage.
    * @return {@code true} if the passage has a custom background, {@code false} otherwise.
    */
-  public boolean hasBackground(Passage passage, String storyTitle) {
-    String path = STORIES_PATH + storyTitle + "/images/";
-    String fileName = passage.getTitle().toLowerCase() + IMAGE_EXTENSION;
-    return getClass().getResource(path + fileName) != null;
+  public boolean hasBackground(Passage passage, MediaManifest mediaManifest) {
+    return mediaManifest.hasBackground(passage);
   }
 
   /**
    * Updates the background image of the given region based on the passage and story title. If the
    * passage has a custom background, it will be used. Otherwise, a default background based on the
-   * passage's mood will be applied.
+   * passage's mood will be applied. An image that is already decoded is applied at once, and an
+   * image that is not is decoded in the background while a mood placeholder is shown.
+   *
+   * @param region        the region to update the background image for.
+   * @param passage       the passage used to determine the background image.
+   * @param mediaManifest the media manifest of the story containing the passage.
+   */
+  public void updateBackground(Region region, Passage passage, MediaManifest mediaManifest) {
+    updateTargetSize(region);
+    int width = targetWidth;
+    int height = targetHeight;
+    String backgroundImageUrl = mediaManifest.getBackgroundUrl(passage);
+    String cacheKey = getCacheKey(backgroundImageUrl, width, height);
+    region.getProperties().put(PENDING_IMAGE_KEY, cacheKey);
+
+    Image cachedImage = imageCache.getIfPresent(cacheKey);
+    if (cachedImage != null) {
+      setBackgroundImage(region, cachedImage);
+      return;
+    }
+    region.setBackground(createPlaceholder(passage.getMood(), width, height));
+    workerExecutor.execute(
+        () -> {
+          try {
+            Image image = loadImage(backgroundImageUrl, width, height);
+            fxExecutor.execute(
+                () -> {
+                  if (cacheKey.equals(region.getProperties().get(PENDING_IMAGE_KEY))) {
+                    setBackgroundImage(region, image);
+                  }
+                });
+          } catch (IOException e) {
+            // The placeholder is kept if the image cannot be decoded.
+          }
+        });
+  }
+
+  /**
+   * Decodes the background image of the passage into the image cache, unless it is cached already,
+   * so that the background is shown at once when the player goes to the passage. The image is
+   * decoded at the size of the latest background. This is called on a media worker thread.
+   *
+   * @param passage       the passage to decode the background image of.
+   * @param mediaManifest the media manifest of the story containing the passage.
+   * @throws IOException if the image cannot be decoded.
+   */
+  void prefetchBackground(Passage passage, MediaManifest mediaManifest) throws IOException {
+    loadImage(mediaManifest.getBackgroundUrl(passage), targetWidth, targetHeight);
+  }
+
+  /**
+   * Creates the placeholder shown while the background image of a passage with the given mood is
+   * decoded. The mood's default background is used if it is already decoded at the given size, and
+   * a plain colour matching the mood otherwise.
+   *
+   * @param mood   the mood of the passage.
+   * @param width  the width the background is decoded at.
+   * @param height the height the background is decoded at.
+   * @return the placeholder background.
+   */
+  private Background createPlaceholder(Mood mood, int width, int height) {
+    String moodBackgroundUrl = MediaManifest.getMoodBackgroundUrl(mood);
+    Image moodImage =
+        moodBackgroundUrl == null
+            ? null
+            : imageCache.getIfPresent(getCacheKey(moodBackgroundUrl, width, height));
+    if (moodImage != null) {
+      return createBackground(moodImage);
+    }
+    return Background.fill(PLACEHOLDER_COLORS.getOrDefault(mood, Color.BLACK));
+  }
+
+  /**
+   * Returns the image with the given URL decoded at the given size, from the image cache if it is
+   * there and through the thumbnail cache otherwise.
+   *
+   * @param url    the URL of the image.
+   * @param width  the largest width to decode the image at.
+   * @param height the largest height to decode the image at.
+   * @return the decoded image.
+   * @throws IOException if the image cannot be decoded.
+   */
+  private Image loadImage(String url, int width, int height) throws IOException {
+    return imageCache.get(
+        getCacheKey(url, width, height), () -> thumbnailCache.load(url, width, height));
+  }
+
+  /**
+   * Updates the size background images are decoded at to the size of the given region. The size
+   * is rounded up to a whole number of steps, so that resizing the window slightly does not decode
+   * every image again, and is never smaller than the smallest size of the game window.
    *
-   * @param region     the region to update the background image for.
-   * @param passage    the passage used to determine the background image.
-   * @param storyTitle the title of the story containing the passage.
+   * @param region the region the background is shown in.
    */
-  public void updateBackground(Region region, Passage passage, String storyTitle) {
-    String backgroundImageUrl;
-    if (hasBackground(passage, storyTitle)) {
-      String path = "/stories/" + storyTitle + "/images/";
-      String fileName = passage.getTitle().toLowerCase() + IMAGE_EXTENSION;
-      backgroundImageUrl = Objects.requireNonNull(getClass().getResource(path + fileName)).toExternalForm();
-    } else {
-      String defaultBackground = passage.getMood().toString().toLowerCase() + IMAGE_EXTENSION;
-      backgroundImageUrl = Objects.requireNonNull(
-          getClass().getResource(IMAGE_PATH + defaultBackground)).toExternalForm();
+  private void updateTargetSize(Region region) {
+    if (region.getWidth() > 0 && region.getHeight() > 0) {
+      targetWidth = roundUpTargetSize(region.getWidth());
+      targetHeight = roundUpTargetSize(region.getHeight());
     }
-    setBackgroundImageUrl(region, backgroundImageUrl);
   }
 
   /**
-   * Sets the background image of the given region using the specified URL.
+   * Rounds the given length up to a whole number of target size steps.
+   *
+   * @param length the length, in pixels.
+   * @return the rounded length, in pixels.
+   */
+  private static int roundUpTargetSize(double length) {
+    int steps = (int) Math.ceil(length / TARGET_SIZE_STEP);
+    return Math.max(MIN_TARGET_SIZE, steps * TARGET_SIZE_STEP);
+  }
+
+  /**
+   * Returns the image cache key of the image with the given URL decoded at the given size.
+   *
+   * @param url    the URL of the image.
+   * @param width  the largest width the image is decoded at.
+   * @param height the largest height the image is decoded at.
+   * @return the cache key.
+   */
+  private static String getCacheKey(String url, int width, int height) {
+    return url + "@" + width + "x" + height;
+  }
+
+  /**
+   * Sets the background image of the given region.
+   *
+   * @param region the region to set the background image for.
+   * @param image  the decoded background image.
+   */
+  private static void setBackgroundImage(Region region, Image image) {
+    region.setBackground(createBackground(image));
+  }
+
+  /**
+   * Creates a background that stretches the given image over the whole region, anchored at the
+   * bottom, like the backgrounds of the menus.
+   *
+   * @param image the background image.
+   * @return the background.
+   */
+  private static Background createBackground(Image image) {
+    return new Background(
+        new BackgroundImage(
+            image, BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT, IMAGE_POSITION,
+            IMAGE_SIZE));
+  }
+
+  /**
+   * Creates the plain placeholder colour of every mood, roughly matching the tone of the mood's
+   * default background.
    *
-   * @param region             the region to set the background image for.
-   * @param backgroundImageUrl the URL of the background image.
+   * @return the placeholder colours by mood.
    */
-  private void setBackgroundImageUrl(Region region, String backgroundImageUrl) {
-    region.setStyle("-fx-background-image: url('" + backgroundImageUrl + "');");
+  private static Map<Mood, Color> createPlaceholderColors() {
+    Map<Mood, Color> colors = new EnumMap<>(Mood.class);
+    colors.put(Mood.HAPPY, Color.web("#3a5a2a"));
+    colors.put(Mood.SAD, Color.web("#2a3442"));
+    colors.put(Mood.BOSS_BATTLE, Color.web("#4a1a14"));
+    colors.put(Mood.VICTORY, Color.web("#5a4a1e"));
+    colors.put(Mood.DEFEAT, Color.web("#2a1a1a"));
+    colors.put(Mood.SPOOKY, Color.web("#1e1a2a"));
+    colors.put(Mood.SNEAKY, Color.web("#1a2420"));
+    colors.put(Mood.NONE, Color.web("#202020"));
+    return colors;
   }
 }
@@ -0,0 +1,224 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The IconAtlas class packs all the icons of a folder into a single image, with a table of where
+ * every icon is in it. Every icon is decoded once, scaled down to fit a square cell, and copied
+ * into its cell of a grid. The icons are shown as slices of the shared atlas image, so showing an
+ * icon needs no decoding, and every icon view shares a single texture.
+ *
+ * <p>Icons are PNG or JPEG images, and are looked up by their file name without extension,
+ * ignoring case. An icon that is smaller than a cell is centered in it. An icon file that cannot
+ * be decoded is left out of the atlas, so the rest of the icons can still be shown.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * IconAtlas iconAtlas = IconAtlas.build(iconFolder, 64);
+ * ImageView swordView = iconAtlas.createView("Sword", 40);
+ * }</pre>
+ *
+ * @see IconHandler
+ */
+public class IconAtlas {
+
+  private static final List<String> ICON_EXTENSIONS = List.of("png", "jpeg");
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private final Image image;
+  private final Map<String, Rectangle2D> viewports;
+
+  /**
+   * Constructs an IconAtlas with the given image and coordinate table.
+   *
+   * @param image     the atlas image, or {@code null} if the atlas has no icons
+   * @param viewports the area of every icon in the atlas image, by lower case icon name
+   */
+  private IconAtlas(Image image, Map<String, Rectangle2D> viewports) {
+    this.image = image;
+    this.viewports = viewports;
+  }
+
+  /**
+   * Builds the atlas of the icons in the given folder. A folder that does not exist gives an empty
+   * atlas, and icon files that cannot be decoded are left out.
+   *
+   * @param folder   the folder holding the icons
+   * @param cellSize the width and height of the cell of every icon, in pixels
+   * @return the atlas of the icons
+   * @throws IOException              if the folder cannot be listed
+   * @throws IllegalArgumentException if the cell size is not positive
+   */
+  public static IconAtlas build(Path folder, int cellSize) throws IOException {
+    Objects.requireNonNull(folder, "Folder cannot be null");
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive");
+    }
+    Map<String, Path> iconFiles = new LinkedHashMap<>();
+    if (Files.isDirectory(folder)) {
+      try (Stream<Path> files = Files.list(folder)) {
+        files
+            .filter(IconAtlas::isIconFile)
+            .sorted(Comparator.comparing(IconAtlas::getIconName))
+            .forEach(file -> iconFiles.putIfAbsent(getIconName(file), file));
+      }
+    }
+    Map<String, Image> icons = new LinkedHashMap<>();
+    for (Map.Entry<String, Path> iconFile : iconFiles.entrySet()) {
+      try {
+        icons.put(iconFile.getKey(), decodeIcon(iconFile.getValue(), cellSize));
+      } catch (IOException e) {
+        // The icon is left out, and its item is shown without it.
+      }
+    }
+    if (icons.isEmpty()) {
+      return new IconAtlas(null, Collections.emptyMap());
+    }
+
+    int columns = (int) Math.ceil(Math.sqrt(icons.size()));
+    int rows = (icons.size() + columns - 1) / columns;
+    WritableImage atlasImage = new WritableImage(columns * cellSize, rows * cellSize);
+    Map<String, Rectangle2D> viewports = new LinkedHashMap<>();
+    int index = 0;
+    for (Map.Entry<String, Image> entry : icons.entrySet()) {
+      Image icon = entry.getValue();
+      int width = (int) icon.getWidth();
+      int height = (int) icon.getHeight();
+      int x = index % columns * cellSize + (cellSize - width) / 2;
+      int y = index / columns * cellSize + (cellSize - height) / 2;
+      copyPixels(icon, atlasImage, x, y);
+      viewports.put(entry.getKey(), new Rectangle2D(x, y, width, height));
+      index++;
+    }
+    return new IconAtlas(atlasImage, viewports);
+  }
+
+  /**
+   * Returns the atlas image holding all the icons.
+   *
+   * @return the atlas image, or {@code null} if the atlas has no icons
+   */
+  public Image getImage() {
+    return image;
+  }
+
+  /**
+   * Checks if the atlas has an icon with the given name.
+   *
+   * @param icon the name of the icon, without the file extension
+   * @return {@code true} if the atlas has the icon, {@code false} otherwise
+   */
+  public boolean contains(String icon) {
+    return viewports.containsKey(icon.toLowerCase());
+  }
+
+  /**
+   * Returns the area of the icon with the given name in the atlas image.
+   *
+   * @param icon the name of the icon, without the file extension
+   * @return the area of the icon, or {@code null} if the atlas has no such icon
+   */
+  public Rectangle2D getViewport(String icon) {
+    return viewports.get(icon.toLowerCase());
+  }
+
+  /**
+   * Creates a view showing the icon with the given name, as a slice of the atlas image.
+   *
+   * @param icon the name of the icon, without the file extension
+   * @param size the width and height to show the icon at, in pixels
+   * @return a view of the icon, or {@code null} if the atlas has no such icon
+   */
+  public ImageView createView(String icon, double size) {
+    Rectangle2D viewport = getViewport(icon);
+    if (viewport == null) {
+      return null;
+    }
+    ImageView imageView = new ImageView(image);
+    imageView.setViewport(viewport);
+    imageView.setFitWidth(size);
+    imageView.setFitHeight(size);
+    imageView.setPreserveRatio(true);
+    return imageView;
+  }
+
+  /**
+   * Checks if the given file is an icon, by its extension.
+   *
+   * @param file the file
+   * @return {@code true} if the file is a PNG or JPEG image, {@code false} otherwise
+   */
+  private static boolean isIconFile(Path file) {
+    String extension = FilenameUtils.getExtension(file.getFileName().toString());
+    return ICON_EXTENSIONS.contains(extension.toLowerCase());
+  }
+
+  /**
+   * Returns the name of the icon in the given file.
+   *
+   * @param iconFile the icon file
+   * @return the file name without extension, in lower case
+   */
+  private static String getIconName(Path iconFile) {
+    return FilenameUtils.removeExtension(iconFile.getFileName().toString()).toLowerCase();
+  }
+
+  /**
+   * Decodes the icon file, scaled down to fit within a cell.
+   *
+   * @param iconFile the icon file
+   * @param cellSize the width and height of a cell, in pixels
+   * @return the decoded icon
+   * @throws IOException if the icon file cannot be read or decoded
+   */
+  private static Image decodeIcon(Path iconFile, int cellSize) throws IOException {
+    Image icon;
+    try (InputStream in = Files.newInputStream(iconFile)) {
+      icon = new Image(in, cellSize, cellSize, true, true);
+    }
+    if (icon.isError()) {
+      throw new IOException("Could not decode icon: " + iconFile, icon.getException());
+    }
+    return icon;
+  }
+
+  /**
+   * Copies the pixels of an icon into the atlas image at the given position.
+   *
+   * @param icon       the icon
+   * @param atlasImage the atlas image
+   * @param x          the x position of the icon in the atlas image
+   * @param y          the y position of the icon in the atlas image
+   */
+  private static void copyPixels(Image icon, WritableImage atlasImage, int x, int y) {
+    int width = (int) icon.getWidth();
+    int height = (int) icon.getHeight();
+    byte[] pixels = new byte[width * height * BYTES_PER_PIXEL];
+    icon.getPixelReader()
+        .getPixels(
+            0, 0, width, height, PixelFormat.getByteBgraPreInstance(), pixels, 0,
+            width * BYTES_PER_PIXEL);
+    atlasImage
+        .getPixelWriter()
+        .setPixels(
+            x, y, width, height, PixelFormat.getByteBgraPreInstance(), pixels, 0,
+            width * BYTES_PER_PIXEL);
+  }
+}
@@ -1,16 +1,25 @@
 package edu.ntnu.idatt2001.paths.model.media;
 
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.DirectoryIndex;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import javafx.scene.image.Image;
 
 /**
- * The {@code InventoryIconHandler} class is responsible for loading inventory icons based on the
- * icon name. It supports both PNG and JPEG image formats.
+ * The {@code IconHandler} class is responsible for loading the inventory icons and the
+ * general-purpose icons of the game. It supports both PNG and JPEG image formats.
  *
- * <p>Usage: To obtain an inventory icon, call the static {@code getIcon} method with the desired
- * icon name as a parameter.
+ * <p>The inventory icons are packed into a single {@link IconAtlas} the first time it is asked for
+ * with {@link #getInventoryIconAtlas()}, so the inventory shows every item as a slice of one shared
+ * image. The {@link DirectoryIndex} of the inventory icons folder tells when an icon is added,
+ * removed or changed, and the atlas is then built again the next time it is asked for, so
+ * redrawing the inventory does not read the disk.
+ *
+ * <p>General-purpose icons are loaded one at a time with {@link #getIcon(String)}. They are decoded
+ * once and kept in the shared {@link ImageCache}, together with the names of the icons that were
+ * not found.
  *
  * <p>Note: This class is not meant to be instantiated.
  */
@@ -19,6 +28,10 @@ public class IconHandler {
   private static final Path INVENTORY_ICON_PATH =
       Path.of("src/main/resources/images/inventory-icons/");
   private static final Path ICON_PATH = Path.of("src/main/resources/images/icons/");
+  private static final int INVENTORY_ICON_CELL_SIZE = 64;
+  private static IconAtlas inventoryIconAtlas;
+  private static volatile boolean isInventoryIconAtlasStale;
+  private static boolean isInventoryIconFolderWatched;
 
   /**
    * Private constructor to prevent instantiation.
@@ -27,26 +40,28 @@ public class IconHandler {
   }
 
   /**
-   * Retrieves the icon image for the specified icon name. The icon name should not include the file
-   * extension. This method supports both PNG and JPEG image formats.
+   * Retrieves the atlas of all the inventory icons. The atlas is built the first time it is asked
+   * for, and built again if an icon has been added, removed or changed since.
    *
-   * @param icon the name of the icon to retrieve, without the file extension
-   * @return the {@code Image} object representing the icon, or {@code null} if the icon is not
-   *         found
-   * @throws IOException if an I/O error occurs
+   * @return the atlas of the inventory icons
+   * @throws IOException if the icons cannot be listed
    */
-  public static Image getInventoryIcon(final String icon) throws IOException {
-    String iconNameLowerCase = icon.toLowerCase();
-    Path pngPath = INVENTORY_ICON_PATH.resolve(iconNameLowerCase + ".png");
-    Path jpegPath = INVENTORY_ICON_PATH.resolve(iconNameLowerCase + ".jpeg");
-
-    if (Files.exists(pngPath)) {
-      return new Image(Files.newInputStream(pngPath));
-    } else if (Files.exists(jpegPath)) {
-      return new Image(Files.newInputStream(jpegPath));
-    } else {
-      return null;
+  public static synchronized IconAtlas getInventoryIconAtlas() throws IOException {
+    if (!isInventoryIconFolderWatched) {
+      DirectoryIndex.of(INVENTORY_ICON_PATH)
+          .addListener(fileName -> isInventoryIconAtlasStale = true);
+      isInventoryIconFolderWatched = true;
+    }
+    if (inventoryIconAtlas == null || isInventoryIconAtlasStale) {
+      isInventoryIconAtlasStale = false;
+      try {
+        inventoryIconAtlas = IconAtlas.build(INVENTORY_ICON_PATH, INVENTORY_ICON_CELL_SIZE);
+      } catch (IOException e) {
+        isInventoryIconAtlasStale = true;
+        throw e;
+      }
     }
+    return inventoryIconAtlas;
   }
 
   /**
@@ -59,16 +74,47 @@ public class IconHandler {
    * @throws IOException if an I/O error occurs
    */
   public static Image getIcon(final String icon) throws IOException {
+    return getCachedIcon(ICON_PATH, icon);
+  }
+
+  /**
+   * Retrieves the icon with the given name from the given folder through the shared
+   * {@link ImageCache}. An icon that is not found is remembered as missing, so the folder is not
+   * searched again.
+   *
+   * @param folder the folder holding the icons
+   * @param icon   the name of the icon to retrieve, without the file extension
+   * @return the icon, or {@code null} if the icon is not found
+   * @throws IOException if an I/O error occurs
+   */
+  private static Image getCachedIcon(Path folder, String icon) throws IOException {
     String iconNameLowerCase = icon.toLowerCase();
-    Path pngPath = ICON_PATH.resolve(iconNameLowerCase + ".png");
-    Path jpegPath = ICON_PATH.resolve(iconNameLowerCase + ".jpeg");
+    String key = folder.resolve(iconNameLowerCase).toString();
+    return ImageCache.getInstance().get(key, () -> loadIcon(folder, iconNameLowerCase));
+  }
 
+  /**
+   * Loads the icon with the given name from the given folder, as a PNG or a JPEG image.
+   *
+   * @param folder            the folder holding the icons
+   * @param iconNameLowerCase the lower case name of the icon, without the file extension
+   * @return the icon, or {@code null} if the icon is not found
+   * @throws IOException if an I/O error occurs
+   */
+  private static Image loadIcon(Path folder, String iconNameLowerCase) throws IOException {
+    Path pngPath = folder.resolve(iconNameLowerCase + ".png");
+    Path jpegPath = folder.resolve(iconNameLowerCase + ".jpeg");
+
+    Path iconPath;
     if (Files.exists(pngPath)) {
-      return new Image(Files.newInputStream(pngPath));
+      iconPath = pngPath;
     } else if (Files.exists(jpegPath)) {
-      return new Image(Files.newInputStream(jpegPath));
+      iconPath = jpegPath;
     } else {
       return null;
     }
+    try (InputStream in = Files.newInputStream(iconPath)) {
+      return new Image(in);
+    }
   }
 }
@@ -0,0 +1,301 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javafx.scene.image.Image;
+
+/**
+ * The ImageCache class keeps decoded images in memory, so that an image file is only read and
+ * decoded once, however often it is shown. Images are cached by a key, usually the path of the
+ * image file, and are loaded with the given {@link ImageLoader} the first time the key is asked
+ * for.
+ *
+ * <p>The memory used by the cache is bounded by a budget in bytes. The size of an image is
+ * estimated as four bytes per pixel, and the least recently used images are evicted when the cached
+ * images take up more than the budget. An image larger than the whole budget is not cached.
+ *
+ * <p>Negative lookups are cached as well: when the loader finds no image for a key, the key is
+ * remembered, and the loader is not asked again until the key is invalidated. This keeps repeated
+ * lookups of missing images, such as inventory items without an icon, from touching the disk.
+ *
+ * <p>The cache can hold its images through soft references, so that the garbage collector may
+ * reclaim them when memory runs low. A reclaimed image is simply loaded again the next time it is
+ * asked for.
+ *
+ * <p>The cache counts hits, misses and evictions, so its effectiveness can be checked. The cache
+ * is thread-safe, and a single instance is shared by the media handlers.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * Image icon = ImageCache.getInstance().get(iconPath.toString(), () -> loadIcon(iconPath));
+ * }</pre>
+ *
+ * @see IconHandler
+ */
+public class ImageCache {
+
+  private static final long DEFAULT_BYTE_BUDGET = 64L * 1024 * 1024;
+  private static final long BYTES_PER_PIXEL = 4;
+  private static final long NEGATIVE_ENTRY_SIZE = 64;
+  private static ImageCache instance;
+
+  private final long byteBudget;
+  private final boolean softReferences;
+  private final Map<String, CachedImage> images;
+  private long usedBytes;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * Constructs a new, empty ImageCache with the given byte budget.
+   *
+   * @param byteBudget     the most memory the cached images may take up, in bytes
+   * @param softReferences {@code true} to hold the images through soft references, which the
+   *                       garbage collector may clear, {@code false} to hold them strongly
+   * @throws IllegalArgumentException if the byte budget is not positive
+   */
+  public ImageCache(long byteBudget, boolean softReferences) {
+    if (byteBudget <= 0) {
+      throw new IllegalArgumentException("Byte budget must be positive");
+    }
+    this.byteBudget = byteBudget;
+    this.softReferences = softReferences;
+    this.images = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Retrieves the shared instance of ImageCache, which holds its images through soft references.
+   *
+   * @return the shared instance of ImageCache
+   */
+  public static synchronized ImageCache getInstance() {
+    if (instance == null) {
+      instance = new ImageCache(DEFAULT_BYTE_BUDGET, true);
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the image with the given key. The image is loaded with the given loader if it is not
+   * in the cache, or if it has been reclaimed by the garbage collector.
+   *
+   * @param key    the key of the image, usually the path of the image file
+   * @param loader the loader that loads the image if it is not cached
+   * @return the image, or {@code null} if there is no image for the key
+   * @throws IOException if the image cannot be loaded
+   */
+  public Image get(String key, ImageLoader loader) throws IOException {
+    Objects.requireNonNull(key, "Key cannot be null");
+    Objects.requireNonNull(loader, "Loader cannot be null");
+    synchronized (this) {
+      CachedImage cachedImage = images.get(key);
+      if (cachedImage != null) {
+        if (cachedImage.isNegative()) {
+          hitCount++;
+          return null;
+        }
+        Image image = cachedImage.getImage();
+        if (image != null) {
+          hitCount++;
+          return image;
+        }
+        remove(key);
+      }
+      missCount++;
+    }
+
+    Image image = loader.load();
+    synchronized (this) {
+      remove(key);
+      long size = image == null ? NEGATIVE_ENTRY_SIZE : estimateSize(image);
+      if (size <= byteBudget) {
+        images.put(key, new CachedImage(image, size, softReferences));
+        usedBytes += size;
+        evictLeastRecentlyUsed();
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Returns the image with the given key if it is in the cache, without loading it. This is cheap
+   * enough to call on the JavaFX application thread, and does not change the statistics.
+   *
+   * @param key the key of the image
+   * @return the cached image, or {@code null} if it is not cached or there is no image for the key
+   */
+  public synchronized Image getIfPresent(String key) {
+    CachedImage cachedImage = images.get(key);
+    return cachedImage == null ? null : cachedImage.getImage();
+  }
+
+  /**
+   * Removes the image with the given key from the cache, if it is cached. This also forgets a
+   * cached negative lookup, so the image is looked for again the next time.
+   *
+   * @param key the key of the image
+   */
+  public synchronized void invalidate(String key) {
+    remove(key);
+  }
+
+  /**
+   * Removes all images from the cache. The statistics are kept.
+   */
+  public synchronized void clear() {
+    images.clear();
+    usedBytes = 0;
+  }
+
+  /**
+   * Returns the number of entries in the cache, including cached negative lookups.
+   *
+   * @return the number of cached entries
+   */
+  public synchronized int size() {
+    return images.size();
+  }
+
+  /**
+   * Returns the estimated memory taken up by the cached images.
+   *
+   * @return the used memory, in bytes
+   */
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * Returns the number of lookups answered from the cache, including cached negative lookups.
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of lookups that had to load the image.
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the share of lookups answered from the cache.
+   *
+   * @return the hit rate, between 0 and 1, or 0 if there have been no lookups
+   */
+  public synchronized double getHitRate() {
+    long lookupCount = hitCount + missCount;
+    return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+  }
+
+  /**
+   * Returns the number of images evicted to keep the cache within its byte budget.
+   *
+   * @return the number of evictions
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        "ImageCache[entries=%d, bytes=%d/%d, hitRate=%.2f, evictions=%d]",
+        images.size(), usedBytes, byteBudget, getHitRate(), evictionCount);
+  }
+
+  /**
+   * Estimates the memory taken up by the given image, as four bytes per pixel.
+   *
+   * @param image the image
+   * @return the estimated size of the image, in bytes
+   */
+  private static long estimateSize(Image image) {
+    return (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+  }
+
+  /**
+   * Removes the image with the given key from the cache.
+   *
+   * @param key the key of the image
+   */
+  private void remove(String key) {
+    CachedImage removedImage = images.remove(key);
+    if (removedImage != null) {
+      usedBytes -= removedImage.size;
+    }
+  }
+
+  /**
+   * Evicts the least recently used images until the cached images fit in the byte budget.
+   */
+  private void evictLeastRecentlyUsed() {
+    Iterator<CachedImage> iterator = images.values().iterator();
+    while (usedBytes > byteBudget && iterator.hasNext()) {
+      usedBytes -= iterator.next().size;
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Loads an image that is not in the cache.
+   */
+  @FunctionalInterface
+  public interface ImageLoader {
+
+    /**
+     * Loads the image.
+     *
+     * @return the loaded image, or {@code null} if there is no image
+     * @throws IOException if the image cannot be loaded
+     */
+    Image load() throws IOException;
+  }
+
+  /**
+   * A cached image with its estimated size, held strongly or through a soft reference. A cached
+   * negative lookup holds no image.
+   */
+  private static class CachedImage {
+
+    private final Image strongImage;
+    private final SoftReference<Image> softImage;
+    private final long size;
+
+    private CachedImage(Image image, long size, boolean softReference) {
+      this.strongImage = softReference ? null : image;
+      this.softImage = softReference && image != null ? new SoftReference<>(image) : null;
+      this.size = size;
+    }
+
+    /**
+     * Checks if the entry is a cached negative lookup.
+     *
+     * @return {@code true} if there is no image for the key, {@code false} otherwise
+     */
+    private boolean isNegative() {
+      return strongImage == null && softImage == null;
+    }
+
+    /**
+     * Returns the cached image.
+     *
+     * @return the image, or {@code null} if it has been reclaimed by the garbage collector
+     */
+    private Image getImage() {
+      return softImage == null ? strongImage : softImage.get();
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import javafx.scene.image.Image;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The MediaAudit class checks the custom images and sounds of a story. A media file is broken if
+ * it is not named after any passage of the story, since the game never shows it, or if it is named
+ * after a passage but cannot be decoded, since the game fails to show it.
+ *
+ * <p>The file names are matched against a hash set of the passage titles in a single pass, and the
+ * files that match a passage are then verified in parallel on the given executor. Images are
+ * decoded in full. Sounds are verified by their container header, since JavaFX only decodes audio
+ * in a media player. A file is read from the asset pack of the story if it has one, and from the
+ * custom media folders of the story otherwise, in the same order as the game finds it.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * MediaAudit mediaAudit = MediaAudit.of(story);
+ * mediaAudit.getUnmatchedFiles().forEach(System.out::println);
+ * }</pre>
+ *
+ * @see StoryFileHandler#getBrokenFiles(Story)
+ */
+public class MediaAudit {
+
+  private static final String IMAGES_FOLDER = "images";
+  private static final String SOUNDS_FOLDER = "sounds";
+  private static final int SOUND_HEADER_SIZE = 12;
+
+  private final int imageCount;
+  private final int soundCount;
+  private final List<String> unmatchedFiles;
+  private final List<String> undecodableFiles;
+
+  /**
+   * Constructs a MediaAudit with the given results.
+   *
+   * @param imageCount       the number of custom images
+   * @param soundCount       the number of custom sounds
+   * @param unmatchedFiles   the media files that match no passage
+   * @param undecodableFiles the media files that match a passage but cannot be decoded
+   */
+  private MediaAudit(
+      int imageCount, int soundCount, List<String> unmatchedFiles, List<String> undecodableFiles) {
+    this.imageCount = imageCount;
+    this.soundCount = soundCount;
+    this.unmatchedFiles = Collections.unmodifiableList(unmatchedFiles);
+    this.undecodableFiles = Collections.unmodifiableList(undecodableFiles);
+  }
+
+  /**
+   * Audits the custom media of the given story, verifying the files on the media worker threads.
+   *
+   * @param story the story to audit
+   * @return the results of the audit
+   * @throws IOException if the custom media of the story cannot be listed
+   */
+  public static MediaAudit of(Story story) throws IOException {
+    return of(story, MediaWorkers.getExecutor());
+  }
+
+  /**
+   * Audits the custom media of the given story, verifying the files on the given executor. The
+   * calling thread waits for the verification to finish.
+   *
+   * @param story    the story to audit
+   * @param executor the executor to verify the media files on
+   * @return the results of the audit
+   * @throws IOException if the custom media of the story cannot be listed
+   */
+  public static MediaAudit of(Story story, Executor executor) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    return of(story, StoryFileHandler.getCustomMediaPath(story.getTitle()), executor);
+  }
+
+  /**
+   * Audits the custom media of the given story in the given custom media folder, verifying the
+   * files on the given executor. The calling thread waits for the verification to finish.
+   *
+   * @param story       the story to audit
+   * @param mediaFolder the custom media folder of the story
+   * @param executor    the executor to verify the media files on
+   * @return the results of the audit
+   * @throws IOException if the custom media of the story cannot be listed
+   */
+  static MediaAudit of(Story story, Path mediaFolder, Executor executor) throws IOException {
+    Objects.requireNonNull(story, "Story cannot be null");
+    Objects.requireNonNull(mediaFolder, "Media folder cannot be null");
+    Objects.requireNonNull(executor, "Executor cannot be null");
+    Collection<String> imageFiles = StoryFileHandler.listCustomMedia(mediaFolder, IMAGES_FOLDER);
+    Collection<String> soundFiles = StoryFileHandler.listCustomMedia(mediaFolder, SOUNDS_FOLDER);
+    Set<String> mediaNames = StoryFileHandler.getPassageMediaNames(story);
+    AssetPack assetPack = AssetPack.forMediaFolder(mediaFolder);
+
+    List<String> unmatchedFiles = new ArrayList<>();
+    List<String> verifiedFiles = new ArrayList<>();
+    List<CompletableFuture<Boolean>> verifications = new ArrayList<>();
+    for (String folder : List.of(SOUNDS_FOLDER, IMAGES_FOLDER)) {
+      for (String fileName : folder.equals(IMAGES_FOLDER) ? imageFiles : soundFiles) {
+        if (!StoryFileHandler.matchesPassage(fileName, mediaNames)) {
+          unmatchedFiles.add(fileName);
+          continue;
+        }
+        verifiedFiles.add(fileName);
+        verifications.add(
+            CompletableFuture.supplyAsync(
+                () -> isDecodable(mediaFolder, assetPack, folder, fileName), executor));
+      }
+    }
+
+    List<String> undecodableFiles = new ArrayList<>();
+    for (int i = 0; i < verifications.size(); i++) {
+      try {
+        if (!verifications.get(i).join()) {
+          undecodableFiles.add(verifiedFiles.get(i));
+        }
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof UncheckedIOException uncheckedIoException) {
+          throw uncheckedIoException.getCause();
+        }
+        throw e;
+      }
+    }
+    return new MediaAudit(imageFiles.size(), soundFiles.size(), unmatchedFiles, undecodableFiles);
+  }
+
+  /**
+   * Returns the number of custom images of the story.
+   *
+   * @return the number of custom images
+   */
+  public int getImageCount() {
+    return imageCount;
+  }
+
+  /**
+   * Returns the number of custom sounds of the story.
+   *
+   * @return the number of custom sounds
+   */
+  public int getSoundCount() {
+    return soundCount;
+  }
+
+  /**
+   * Returns the custom media files that are not named after any passage of the story.
+   *
+   * @return the file names of the unmatched media files
+   */
+  public List<String> getUnmatchedFiles() {
+    return unmatchedFiles;
+  }
+
+  /**
+   * Returns the custom media files that are named after a passage, but cannot be decoded.
+   *
+   * @return the file names of the undecodable media files
+   */
+  public List<String> getUndecodableFiles() {
+    return undecodableFiles;
+  }
+
+  /**
+   * Returns all the broken custom media files of the story, both the unmatched and the undecodable
+   * files.
+   *
+   * @return the file names of the broken media files
+   */
+  public List<String> getBrokenFiles() {
+    List<String> brokenFiles = new ArrayList<>(unmatchedFiles);
+    brokenFiles.addAll(undecodableFiles);
+    return brokenFiles;
+  }
+
+  /**
+   * Checks if a custom media file of the story can be decoded.
+   *
+   * @param mediaFolder the custom media folder of the story
+   * @param assetPack   the asset pack of the story, or {@code null} if it has none
+   * @param folder      the media folder of the file, "images" or "sounds"
+   * @param fileName    the name of the file
+   * @return {@code true} if the file can be decoded, {@code false} otherwise
+   * @throws UncheckedIOException if the file cannot be read
+   */
+  private static boolean isDecodable(
+      Path mediaFolder, AssetPack assetPack, String folder, String fileName) {
+    String entryName = folder + "/" + fileName;
+    try (InputStream in =
+        assetPack != null && assetPack.contains(entryName)
+            ? assetPack.openStream(entryName)
+            : Files.newInputStream(mediaFolder.resolve(entryName))) {
+      return folder.equals(IMAGES_FOLDER) ? isDecodableImage(in) : isDecodableSound(fileName, in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Checks if the given stream holds an image that can be decoded.
+   *
+   * @param in the stream of the image
+   * @return {@code true} if the image decodes without errors, {@code false} otherwise
+   */
+  private static boolean isDecodableImage(InputStream in) {
+    Image image = new Image(in);
+    return !image.isError() && image.getWidth() > 0 && image.getHeight() > 0;
+  }
+
+  /**
+   * Checks if the given stream holds a sound in a supported container, by its header. MP3 files
+   * must start with an ID3 tag or an MPEG frame sync, and WAV files with a RIFF WAVE header.
+   *
+   * @param fileName the name of the sound file
+   * @param in       the stream of the sound
+   * @return {@code true} if the header matches the format of the file, {@code false} otherwise
+   * @throws IOException if the stream cannot be read
+   */
+  private static boolean isDecodableSound(String fileName, InputStream in) throws IOException {
+    byte[] header = in.readNBytes(SOUND_HEADER_SIZE);
+    switch (FilenameUtils.getExtension(fileName).toLowerCase()) {
+      case "mp3" -> {
+        return startsWith(header, "ID3")
+            || header.length >= 2
+            && (header[0] & 0xff) == 0xff
+            && (header[1] & 0xe0) == 0xe0;
+      }
+      case "wav" -> {
+        return header.length == SOUND_HEADER_SIZE
+            && startsWith(header, "RIFF")
+            && new String(header, 8, 4, StandardCharsets.US_ASCII).equals("WAVE");
+      }
+      default -> {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Checks if the given header starts with the given ASCII text.
+   *
+   * @param header the header bytes
+   * @param text   the text
+   * @return {@code true} if the header starts with the text, {@code false} otherwise
+   */
+  private static boolean startsWith(byte[] header, String text) {
+    byte[] textBytes = text.getBytes(StandardCharsets.US_ASCII);
+    return header.length >= textBytes.length
+        && Arrays.equals(header, 0, textBytes.length, textBytes, 0, textBytes.length);
+  }
+}
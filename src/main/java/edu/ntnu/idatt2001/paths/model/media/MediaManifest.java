@@ -0,0 +1,222 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
+import edu.ntnu.idatt2001.paths.model.story.Mood;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.net.URL;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The MediaManifest class holds the background image and music URLs of every passage of a story.
+ * The URLs are resolved once, when the story is loaded, so the media handlers do a single map
+ * lookup per passage change instead of searching the class path.
+ *
+ * <p>A passage has a custom background if the story has an image named after the passage, and
+ * custom music if the story has a sound named after the passage. The file names are the passage
+ * title in lower case, in the "images" and "sounds" folders of the story. A passage without custom
+ * media, or a passage that was not in the story when the manifest was built, falls back to the
+ * default media of its mood.
+ *
+ * <p>If the story has an {@link AssetPack}, its custom media is looked up in the pack first, and
+ * only media missing from the pack is looked up as loose files on the class path.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * MediaManifest mediaManifest = MediaManifest.forStory(story);
+ * backgroundHandler.updateBackground(root, passage, mediaManifest);
+ * soundHandler.updateMusic(passage, mediaManifest);
+ * }</pre>
+ *
+ * @see BackgroundHandler
+ * @see SoundHandler
+ */
+public class MediaManifest {
+
+  private static final String STORIES_PATH = "/stories/";
+  private static final String MOOD_IMAGE_PATH = "/images/passage-moods/";
+  private static final String MOOD_SOUND_PATH = "/sound/";
+  private static final String IMAGE_EXTENSION = ".png";
+  private static final String SOUND_EXTENSION = ".mp3";
+  private static final Map<Mood, String> MOOD_BACKGROUND_URLS =
+      findMoodMedia(MOOD_IMAGE_PATH, IMAGE_EXTENSION);
+  private static final Map<Mood, String> MOOD_MUSIC_URLS =
+      findMoodMedia(MOOD_SOUND_PATH, SOUND_EXTENSION);
+
+  private final String storyTitle;
+  private final Map<String, String> customBackgroundUrls;
+  private final Map<String, String> customMusicUrls;
+
+  /**
+   * Constructs a MediaManifest with the given custom media.
+   *
+   * @param storyTitle           the title of the story.
+   * @param customBackgroundUrls the custom background URLs by lower case passage title.
+   * @param customMusicUrls      the custom music URLs by lower case passage title.
+   */
+  private MediaManifest(
+      String storyTitle,
+      Map<String, String> customBackgroundUrls,
+      Map<String, String> customMusicUrls) {
+    this.storyTitle = storyTitle;
+    this.customBackgroundUrls = customBackgroundUrls;
+    this.customMusicUrls = customMusicUrls;
+  }
+
+  /**
+   * Builds the manifest of the given story, by looking up the custom media of every passage.
+   *
+   * @param story the story to build the manifest of.
+   * @return the manifest of the story.
+   */
+  public static MediaManifest forStory(Story story) {
+    Objects.requireNonNull(story, "Story cannot be null");
+    String storyPath = STORIES_PATH + story.getTitle();
+    AssetPack assetPack = AssetPack.forStory(story.getTitle());
+    Collection<Passage> passages = new LinkedHashSet<>(story.getPassages());
+    passages.add(story.getOpeningPassage());
+
+    Map<String, String> customBackgroundUrls = new HashMap<>();
+    Map<String, String> customMusicUrls = new HashMap<>();
+    for (Passage passage : passages) {
+      String fileName = getFileName(passage);
+      String backgroundUrl =
+          findCustomMedia(assetPack, storyPath, "images/" + fileName + IMAGE_EXTENSION);
+      if (backgroundUrl != null) {
+        customBackgroundUrls.put(fileName, backgroundUrl);
+      }
+      String musicUrl =
+          findCustomMedia(assetPack, storyPath, "sounds/" + fileName + SOUND_EXTENSION);
+      if (musicUrl != null) {
+        customMusicUrls.put(fileName, musicUrl);
+      }
+    }
+    return new MediaManifest(story.getTitle(), customBackgroundUrls, customMusicUrls);
+  }
+
+  /**
+   * Returns the title of the story the manifest was built for.
+   *
+   * @return the title of the story.
+   */
+  public String getStoryTitle() {
+    return storyTitle;
+  }
+
+  /**
+   * Checks if the passage has a custom background image.
+   *
+   * @param passage the passage to check.
+   * @return {@code true} if the passage has a custom background, {@code false} otherwise.
+   */
+  public boolean hasBackground(Passage passage) {
+    return customBackgroundUrls.containsKey(getFileName(passage));
+  }
+
+  /**
+   * Returns the URL of the background image of the passage, which is its custom background if it
+   * has one, and the default background of its mood otherwise.
+   *
+   * @param passage the passage to find the background image of.
+   * @return the URL of the background image, or {@code null} if there is none.
+   */
+  public String getBackgroundUrl(Passage passage) {
+    String customBackgroundUrl = customBackgroundUrls.get(getFileName(passage));
+    return customBackgroundUrl != null
+        ? customBackgroundUrl
+        : getMoodBackgroundUrl(passage.getMood());
+  }
+
+  /**
+   * Checks if the passage has custom background music.
+   *
+   * @param passage the passage to check.
+   * @return {@code true} if the passage has custom music, {@code false} otherwise.
+   */
+  public boolean hasMusic(Passage passage) {
+    return customMusicUrls.containsKey(getFileName(passage));
+  }
+
+  /**
+   * Returns the URL of the background music of the passage, which is its custom music if it has
+   * any, and the default music of its mood otherwise.
+   *
+   * @param passage the passage to find the background music of.
+   * @return the URL of the background music, or {@code null} if there is none.
+   */
+  public String getMusicUrl(Passage passage) {
+    String customMusicUrl = customMusicUrls.get(getFileName(passage));
+    return customMusicUrl != null ? customMusicUrl : MOOD_MUSIC_URLS.get(passage.getMood());
+  }
+
+  /**
+   * Returns the URL of the default background image of the given mood.
+   *
+   * @param mood the mood.
+   * @return the URL of the mood's default background, or {@code null} if there is none.
+   */
+  public static String getMoodBackgroundUrl(Mood mood) {
+    return MOOD_BACKGROUND_URLS.get(mood);
+  }
+
+  /**
+   * Returns the name of the media files of the passage, without extension.
+   *
+   * @param passage the passage.
+   * @return the passage title in lower case.
+   */
+  private static String getFileName(Passage passage) {
+    return passage.getTitle().toLowerCase();
+  }
+
+  /**
+   * Finds the URL of the default media file of every mood.
+   *
+   * @param path      the path of the folder holding the mood media.
+   * @param extension the extension of the media files.
+   * @return the URLs of the mood media that exist, by mood.
+   */
+  private static Map<Mood, String> findMoodMedia(String path, String extension) {
+    Map<Mood, String> moodMedia = new EnumMap<>(Mood.class);
+    for (Mood mood : Mood.values()) {
+      String url = findResource(path + mood.toString().toLowerCase() + extension);
+      if (url != null) {
+        moodMedia.put(mood, url);
+      }
+    }
+    return moodMedia;
+  }
+
+  /**
+   * Finds the URL of a custom media file of a story, in the asset pack of the story if it has one,
+   * and on the class path otherwise.
+   *
+   * @param assetPack the asset pack of the story, or {@code null} if it has none.
+   * @param storyPath the class path of the story's media folder.
+   * @param mediaName the name of the media file, relative to the story's media folder.
+   * @return the URL of the media file, or {@code null} if it does not exist.
+   */
+  private static String findCustomMedia(AssetPack assetPack, String storyPath, String mediaName) {
+    if (assetPack != null && assetPack.contains(mediaName)) {
+      return assetPack.getUrl(mediaName);
+    }
+    return findResource(storyPath + "/" + mediaName);
+  }
+
+  /**
+   * Finds the URL of the resource with the given path.
+   *
+   * @param resourcePath the path of the resource.
+   * @return the URL of the resource, or {@code null} if it does not exist.
+   */
+  private static String findResource(String resourcePath) {
+    URL resource = MediaManifest.class.getResource(resourcePath);
+    return resource == null ? null : resource.toExternalForm();
+  }
+}
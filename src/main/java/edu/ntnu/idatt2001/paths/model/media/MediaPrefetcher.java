@@ -0,0 +1,167 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.NoSuchPassageException;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A singleton class responsible for loading the media of the passages the player may go to next,
+ * before the player chooses a link. After every transition, the background image of every target
+ * of the available links is decoded into the {@link ImageCache}, and a media player is prepared for
+ * its background music, on the {@link MediaWorkers} pool. The transition to the chosen passage then
+ * does not have to wait for its media to be loaded.
+ *
+ * <p>When the player moves on, the prefetches for the previous passage are stale. Prefetches that
+ * have not started yet are cancelled, and prefetches that are running stop before their next step.
+ * Prepared music that is no longer needed is disposed by the {@link AudioEngine} once its pool of
+ * prepared players is full.
+ *
+ * <p>The prefetcher is meant to be used from the JavaFX application thread.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * soundHandler.updateMusic(currentPassage, mediaManifest);
+ * backgroundHandler.updateBackground(root, currentPassage, mediaManifest);
+ * MediaPrefetcher.getInstance().prefetch(availableLinks, story, mediaManifest);
+ * }</pre>
+ *
+ * @see BackgroundHandler
+ * @see SoundHandler
+ */
+public class MediaPrefetcher {
+
+  private static MediaPrefetcher instance;
+  private final BackgroundHandler backgroundHandler;
+  private final SoundHandler soundHandler;
+  private final Executor executor;
+  private final AtomicInteger generation = new AtomicInteger();
+  private final List<Future<?>> pendingPrefetches = new ArrayList<>();
+
+  /**
+   * Constructs a MediaPrefetcher that prefetches media with the given handlers on the given
+   * executor.
+   *
+   * @param backgroundHandler the handler that decodes the background images.
+   * @param soundHandler      the handler that prepares the background music.
+   * @param executor          the executor the media is loaded on.
+   */
+  MediaPrefetcher(
+      BackgroundHandler backgroundHandler, SoundHandler soundHandler, Executor executor) {
+    this.backgroundHandler =
+        Objects.requireNonNull(backgroundHandler, "Background handler cannot be null");
+    this.soundHandler = Objects.requireNonNull(soundHandler, "Sound handler cannot be null");
+    this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+  }
+
+  /**
+   * Retrieves the singleton instance of MediaPrefetcher.
+   *
+   * @return the instance of MediaPrefetcher.
+   */
+  public static MediaPrefetcher getInstance() {
+    if (instance == null) {
+      instance =
+          new MediaPrefetcher(
+              BackgroundHandler.getInstance(), SoundHandler.getInstance(),
+              MediaWorkers.getExecutor());
+    }
+    return instance;
+  }
+
+  /**
+   * Prefetches the media of the targets of the given links, and cancels the prefetches for the
+   * previous passage. Every target passage is only prefetched once, however many links lead to it,
+   * and links to passages that do not exist are ignored.
+   *
+   * @param links         the links the player may choose next.
+   * @param story         the story containing the links.
+   * @param mediaManifest the media manifest of the story.
+   */
+  public void prefetch(Collection<Link> links, Story story, MediaManifest mediaManifest) {
+    cancelPendingPrefetches();
+    int prefetchGeneration = generation.get();
+    for (Passage target : findTargets(links, story)) {
+      FutureTask<Void> task =
+          new FutureTask<>(() -> prefetchPassage(target, mediaManifest, prefetchGeneration), null);
+      pendingPrefetches.add(task);
+      executor.execute(task);
+    }
+  }
+
+  /**
+   * Cancels all prefetches and disposes the prepared music, for when the player leaves the game.
+   */
+  public void cancel() {
+    cancelPendingPrefetches();
+    soundHandler.clearPreparedMusic();
+  }
+
+  /**
+   * Cancels the prefetches for the previous passage. Prefetches that have not started are not run,
+   * and running prefetches stop before their next step.
+   */
+  private void cancelPendingPrefetches() {
+    generation.incrementAndGet();
+    pendingPrefetches.forEach(prefetch -> prefetch.cancel(false));
+    pendingPrefetches.clear();
+  }
+
+  /**
+   * Decodes the background image and prepares the background music of the target passage, unless
+   * the prefetch has become stale. This is called on a media worker thread.
+   *
+   * @param target             the passage to prefetch the media of.
+   * @param mediaManifest      the media manifest of the story containing the passage.
+   * @param prefetchGeneration the generation of the prefetch, which is stale once it differs from
+   *                           the current generation.
+   */
+  private void prefetchPassage(
+      Passage target, MediaManifest mediaManifest, int prefetchGeneration) {
+    try {
+      backgroundHandler.prefetchBackground(target, mediaManifest);
+    } catch (IOException e) {
+      // The image is decoded again when the player goes to the passage.
+    }
+    if (generation.get() == prefetchGeneration) {
+      soundHandler.prepareMusic(mediaManifest.getMusicUrl(target));
+    }
+  }
+
+  /**
+   * Finds the distinct passages the given links lead to. A link to the opening passage leads to
+   * the opening passage, as when the player follows it.
+   *
+   * @param links the links to find the targets of.
+   * @param story the story containing the links.
+   * @return the target passages, in the order of the links.
+   */
+  private static Collection<Passage> findTargets(Collection<Link> links, Story story) {
+    Passage openingPassage = story.getOpeningPassage();
+    Map<String, Passage> targets = new LinkedHashMap<>();
+    for (Link link : links) {
+      if (link.getRef().equals(openingPassage.getTitle())) {
+        targets.putIfAbsent(link.getRef(), openingPassage);
+      } else {
+        try {
+          targets.putIfAbsent(link.getRef(), story.getPassage(link));
+        } catch (NoSuchPassageException e) {
+          // A broken link has no media to prefetch.
+        }
+      }
+    }
+    return targets.values();
+  }
+}
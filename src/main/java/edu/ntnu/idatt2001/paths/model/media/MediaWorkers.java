@@ -0,0 +1,54 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The MediaWorkers class holds the pool of worker threads that media is loaded and decoded on, so
+ * that large images and sounds do not stall the JavaFX application thread. The pool has a fixed
+ * number of daemon threads, so it never keeps the application from exiting, and loading many files
+ * at once cannot start an unbounded number of threads.
+ *
+ * <p>Work submitted to the pool must not touch the scene graph. Results are handed back to the
+ * JavaFX application thread with {@code Platform.runLater}.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * MediaWorkers.getExecutor().execute(() -> {
+ *   Image image = new Image(url);
+ *   Platform.runLater(() -> imageView.setImage(image));
+ * });
+ * }</pre>
+ */
+public class MediaWorkers {
+
+  private static final int THREAD_COUNT =
+      Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+  private static final ExecutorService EXECUTOR =
+      Executors.newFixedThreadPool(
+          THREAD_COUNT,
+          runnable -> {
+            Thread thread =
+                new Thread(runnable, "media-worker-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private MediaWorkers() {
+  }
+
+  /**
+   * Returns the executor that runs work on the media worker threads.
+   *
+   * @return the media worker executor
+   */
+  public static Executor getExecutor() {
+    return EXECUTOR;
+  }
+}
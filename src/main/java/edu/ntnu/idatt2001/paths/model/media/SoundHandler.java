@@ -1,24 +1,26 @@
 package edu.ntnu.idatt2001.paths.model.media;
 
 import edu.ntnu.idatt2001.paths.model.story.Passage;
-import java.util.Objects;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
+import java.net.URL;
 
 /**
  * A singleton class responsible for handling and updating the background music based on the given
- * passage and story title. This class is responsible for determining if a passage has custom music
- * and updating the background music accordingly. If custom music is not available, a default music
- * based on the passage's mood will be used. Additionally, this class manages the playback of menu
- * music.
+ * passage and the {@link MediaManifest} of its story. This class is responsible for determining if
+ * a passage has custom music and updating the background music accordingly. If custom music is not
+ * available, a default music based on the passage's mood will be used. Additionally, this class
+ * manages the playback of menu music.
+ *
+ * <p>The music and sound effects are played by an {@link AudioEngine}, which crossfades between
+ * tracks and plays sound effects over the music. The music of the passages the player may go to
+ * next can be prepared in advance, see {@link MediaPrefetcher}, so it starts without first loading
+ * the file.
  */
 public class SoundHandler {
 
   private static final String SOUND_PATH = "/sound/";
   private static final String SOUND_EXTENSION = ".mp3";
   private static SoundHandler instance;
-  private MediaPlayer mediaPlayer;
-  private String currentMusicFile;
+  private final AudioEngine audioEngine = new AudioEngine();
 
   /**
    * Private constructor to prevent multiple instances.
@@ -41,56 +43,53 @@ public class SoundHandler {
   /**
    * Checks if the passage has custom background music.
    *
-   * @param passage    the passage to check for custom background music.
-   * @param storyTitle the title of the story containing the passage.
+   * @param passage       the passage to check for custom background music.
+   * @param mediaManifest the media manifest of the story containing the passage.
    * @return true if the passage has custom background music, false otherwise.
    */
-  public boolean hasMusic(Passage passage, String storyTitle) {
-    String path = SOUND_PATH + storyTitle + SOUND_PATH;
-    String fileName = passage.getTitle() + SOUND_EXTENSION;
-    return getClass().getResource(path + fileName) != null;
+  public boolean hasMusic(Passage passage, MediaManifest mediaManifest) {
+    return mediaManifest.hasMusic(passage);
   }
 
   /**
-   * Updates the background music based on the passage and story title. If the passage has custom
-   * music, it will be used. Otherwise, a default music based on the passage's mood will be
-   * applied.
+   * Updates the background music based on the passage and the media manifest of its story. If the
+   * passage has custom music, it will be used. Otherwise, a default music based on the passage's
+   * mood will be applied.
    *
-   * @param passage    the passage used to determine the background music.
-   * @param storyTitle the title of the story containing the passage.
+   * @param passage       the passage used to determine the background music.
+   * @param mediaManifest the media manifest of the story containing the passage.
    */
-  public void updateMusic(Passage passage, String storyTitle) {
-    String musicUrl;
-    if (hasMusic(passage, storyTitle)) {
-      String path = SOUND_PATH + storyTitle + "/sound/";
-      String fileName = passage.getTitle().toLowerCase() + SOUND_EXTENSION;
-      musicUrl = Objects.requireNonNull(getClass().getResource(path + fileName)).toExternalForm();
-    } else {
-      musicUrl = SOUND_PATH + passage.getMood().toString().toLowerCase() + SOUND_EXTENSION;
-    }
-    if (!musicUrl.equals(currentMusicFile)) {
-      playMusicUrl(musicUrl);
-      currentMusicFile = musicUrl;
-    }
+  public void updateMusic(Passage passage, MediaManifest mediaManifest) {
+    audioEngine.play(mediaManifest.getMusicUrl(passage));
   }
 
   /**
-   * Plays the background music using the specified URL.
+   * Prepares a media player for the background music with the given URL, so that the music starts
+   * without delay if it is played next. Nothing is prepared if the music is already playing or
+   * prepared, or if it cannot be loaded. This may be called from any thread.
    *
    * @param musicFileUrl the URL of the background music.
    */
-  private void playMusicUrl(String musicFileUrl) {
-    if (mediaPlayer != null) {
-      mediaPlayer.stop();
-      mediaPlayer.dispose();
-    }
+  void prepareMusic(String musicFileUrl) {
+    audioEngine.preload(musicFileUrl);
+  }
 
-    String musicUrl = Objects.requireNonNull(getClass().getResource(musicFileUrl)).toExternalForm();
-    Media media = new Media(musicUrl);
-    mediaPlayer = new MediaPlayer(media);
-    mediaPlayer.setCycleCount(MediaPlayer.INDEFINITE);
-    mediaPlayer.play();
-    currentMusicFile = musicFileUrl;
+  /**
+   * Disposes the prepared media players of all background music. The music that is playing keeps
+   * playing.
+   */
+  void clearPreparedMusic() {
+    audioEngine.clearPreloaded();
+  }
+
+  /**
+   * Loads the sound effect with the given name into memory, so it plays without delay. This may be
+   * called from any thread.
+   *
+   * @param soundName the name of the sound effect, without extension.
+   */
+  public void preloadSound(String soundName) {
+    audioEngine.preloadEffect(findSoundUrl(soundName));
   }
 
   /**
@@ -98,12 +97,26 @@ public class SoundHandler {
    * doing anything.
    */
   public void playMenuMusic() {
-    String menuMusicUrl = SOUND_PATH + "main_menu" + SOUND_EXTENSION;
-    playMusicUrl(menuMusicUrl);
+    audioEngine.play(findSoundUrl("main_menu"));
   }
 
+  /**
+   * Plays the sound effect with the given name over the music, without interrupting it.
+   *
+   * @param string the name of the sound effect, without extension.
+   */
   public void playSound(String string) {
-    String musicUrl = SOUND_PATH + string + SOUND_EXTENSION;
-    playMusicUrl(musicUrl);
+    audioEngine.playEffect(findSoundUrl(string));
+  }
+
+  /**
+   * Finds the URL of the sound with the given name.
+   *
+   * @param soundName the name of the sound, without extension.
+   * @return the URL of the sound, or {@code null} if it does not exist.
+   */
+  private String findSoundUrl(String soundName) {
+    URL soundUrl = getClass().getResource(SOUND_PATH + soundName + SOUND_EXTENSION);
+    return soundUrl == null ? null : soundUrl.toExternalForm();
   }
 }
@@ -0,0 +1,391 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.AtomicFileWriter;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * The ThumbnailCache class decodes images at the size they are shown at, and keeps the scaled
+ * images on disk, so that a large image file is only decoded at full resolution once. Authors may
+ * add images of any resolution to their stories, but a background is never shown larger than the
+ * game window, so decoding the full image wastes both time and memory.
+ *
+ * <p>An image larger than the requested size is decoded scaled down to fit within it, keeping its
+ * aspect ratio, and the pixels of the scaled image are written to a thumbnail file. The thumbnail
+ * file is named after a stamp of the image file, made from its path, size and last modified time,
+ * and the requested size, so a changed image file never matches an old thumbnail, and the
+ * thumbnail is loaded directly the next time the same image is asked for at the same size. The
+ * image file itself is not read to find its thumbnail. An image that already fits within the
+ * requested size, or that is not a PNG image, is decoded as is, without a thumbnail.
+ *
+ * <p>Thumbnails are only kept for images that are files on disk or entries of an {@link AssetPack},
+ * whose stored hash is used instead of a stamp. Images in other locations, such as
+ * inside a JAR file, are still decoded at the requested size, but every time they are loaded.
+ *
+ * <p>The thumbnails are kept in a cache directory of the user, {@code .paths/cache/thumbnails} in
+ * the home directory, unless another directory is given with the {@code paths.thumbnail.dir}
+ * system property. The thumbnails take up at most {@value #DEFAULT_MAX_SIZE_BYTES} bytes by
+ * default: whenever a thumbnail is written and the thumbnails take up more, the least recently
+ * used thumbnails are deleted. This also removes the thumbnails of image files that have been
+ * changed or deleted, since they are never used again.
+ *
+ * <p>Thumbnail files start with a magic number and a format version, followed by the width and
+ * height of the image and its pixels as deflate-compressed premultiplied BGRA bytes. A thumbnail
+ * that cannot be read, or that is larger than the size in its name, is ignored and written again.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * Image background = ThumbnailCache.getInstance().load(imageUrl, 1200, 800);
+ * }</pre>
+ *
+ * @see BackgroundHandler
+ */
+public class ThumbnailCache {
+
+  private static final String DIRECTORY_PROPERTY = "paths.thumbnail.dir";
+  private static final long DEFAULT_MAX_SIZE_BYTES = 64L * 1024 * 1024;
+  private static final String THUMBNAIL_EXTENSION = ".thumb";
+  private static final int MAGIC = 0x5054484d;
+  private static final int VERSION = 1;
+  private static final int BYTES_PER_PIXEL = 4;
+  private static final int PNG_HEADER_SIZE = 24;
+  private static final long PNG_SIGNATURE = 0x89504e470d0a1a0aL;
+  private static final int PNG_WIDTH_OFFSET = 16;
+  private static final int PNG_HEIGHT_OFFSET = 20;
+  private static ThumbnailCache instance;
+
+  private final Path directory;
+  private final long maxSizeBytes;
+
+  /**
+   * Constructs a ThumbnailCache that keeps its thumbnails in the given directory, taking up at most
+   * the default number of bytes. The directory is created when the first thumbnail is written.
+   *
+   * @param directory the directory to keep the thumbnails in
+   */
+  public ThumbnailCache(Path directory) {
+    this(directory, DEFAULT_MAX_SIZE_BYTES);
+  }
+
+  /**
+   * Constructs a ThumbnailCache that keeps its thumbnails in the given directory, taking up at most
+   * the given number of bytes. The directory is created when the first thumbnail is written.
+   *
+   * @param directory    the directory to keep the thumbnails in
+   * @param maxSizeBytes the largest number of bytes the thumbnails may take up
+   * @throws IllegalArgumentException if the size is not positive
+   */
+  public ThumbnailCache(Path directory, long maxSizeBytes) {
+    if (maxSizeBytes <= 0) {
+      throw new IllegalArgumentException("Size must be positive");
+    }
+    this.directory = Objects.requireNonNull(directory, "Directory cannot be null");
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Retrieves the shared instance of ThumbnailCache.
+   *
+   * @return the shared instance of ThumbnailCache
+   */
+  public static synchronized ThumbnailCache getInstance() {
+    if (instance == null) {
+      instance = new ThumbnailCache(getDefaultDirectory());
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the directory the shared instance keeps its thumbnails in: the directory given by the
+   * {@code paths.thumbnail.dir} system property, or a cache directory in the home directory of
+   * the user.
+   *
+   * @return the default thumbnail directory
+   */
+  private static Path getDefaultDirectory() {
+    String directory = System.getProperty(DIRECTORY_PROPERTY);
+    if (directory != null && !directory.isBlank()) {
+      return Path.of(directory);
+    }
+    return Path.of(System.getProperty("user.home"), ".paths", "cache", "thumbnails");
+  }
+
+  /**
+   * Loads the image with the given URL, scaled down to fit within the given size. The thumbnail of
+   * the image is loaded if there is one, and written if the image had to be scaled down.
+   *
+   * @param imageUrl  the URL of the image
+   * @param maxWidth  the largest width to decode the image at, in pixels
+   * @param maxHeight the largest height to decode the image at, in pixels
+   * @return the image
+   * @throws IOException              if the image cannot be read or decoded
+   * @throws IllegalArgumentException if the size is not positive
+   */
+  public Image load(String imageUrl, int maxWidth, int maxHeight) throws IOException {
+    Objects.requireNonNull(imageUrl, "Image URL cannot be null");
+    if (maxWidth <= 0 || maxHeight <= 0) {
+      throw new IllegalArgumentException("Size must be positive");
+    }
+    boolean packed = AssetPack.isPackUrl(imageUrl);
+    String key = packed ? AssetPack.getHashOfUrl(imageUrl) : stampFile(imageUrl);
+    Path thumbnailFile = null;
+    if (key != null) {
+      thumbnailFile = getThumbnailPath(key, maxWidth, maxHeight);
+      Image thumbnail = readThumbnail(thumbnailFile, maxWidth, maxHeight);
+      if (thumbnail != null) {
+        return thumbnail;
+      }
+    }
+
+    Image image;
+    boolean scaled;
+    InputStream source = packed ? AssetPack.openUrl(imageUrl) : new URL(imageUrl).openStream();
+    try (InputStream in = new BufferedInputStream(source)) {
+      in.mark(PNG_HEADER_SIZE);
+      int[] size = readPngSize(in);
+      in.reset();
+      scaled = size != null && (size[0] > maxWidth || size[1] > maxHeight);
+      image = scaled ? new Image(in, maxWidth, maxHeight, true, true) : new Image(in);
+    }
+    if (image.isError()) {
+      throw new IOException("Could not decode image: " + imageUrl, image.getException());
+    }
+    if (scaled && thumbnailFile != null) {
+      writeThumbnailQuietly(thumbnailFile, image);
+      evictQuietly(thumbnailFile);
+    }
+    return image;
+  }
+
+  /**
+   * Deletes the least recently used thumbnails until the thumbnails take up no more than the
+   * largest size of the cache. The given thumbnail, which has just been written, is kept. An I/O
+   * error is ignored, since the thumbnails are evicted again after the next write.
+   *
+   * @param keptThumbnailFile the thumbnail file to keep
+   */
+  private void evictQuietly(Path keptThumbnailFile) {
+    List<Path> thumbnailFiles = new ArrayList<>();
+    long totalSize = 0;
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (file.getFileName().toString().endsWith(THUMBNAIL_EXTENSION)) {
+          thumbnailFiles.add(file);
+          totalSize += Files.size(file);
+        }
+      }
+      if (totalSize <= maxSizeBytes) {
+        return;
+      }
+      thumbnailFiles.remove(keptThumbnailFile);
+      thumbnailFiles.sort(Comparator.comparing(ThumbnailCache::getLastUsed));
+      for (Path file : thumbnailFiles) {
+        if (totalSize <= maxSizeBytes) {
+          break;
+        }
+        long size = Files.size(file);
+        if (Files.deleteIfExists(file)) {
+          totalSize -= size;
+        }
+      }
+    } catch (IOException ignored) {
+    }
+  }
+
+  /**
+   * Sets the last modified time of the given thumbnail file to now, marking it as recently used.
+   * An I/O error is ignored, since the thumbnail can still be used.
+   *
+   * @param thumbnailFile the thumbnail file
+   */
+  private static void touchQuietly(Path thumbnailFile) {
+    try {
+      Files.setLastModifiedTime(thumbnailFile, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException ignored) {
+    }
+  }
+
+  /**
+   * Returns the time the given thumbnail file was last used, which is the last modified time of
+   * the file, since it is updated whenever the thumbnail is read.
+   *
+   * @param thumbnailFile the thumbnail file
+   * @return the time the thumbnail was last used, or the epoch if it cannot be read
+   */
+  private static FileTime getLastUsed(Path thumbnailFile) {
+    try {
+      return Files.getLastModifiedTime(thumbnailFile);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  /**
+   * Returns the path of the thumbnail of the image with the given key at the given size.
+   *
+   * @param key       the stamp of the image file, or the stored hash of an asset pack entry
+   * @param maxWidth  the largest width of the thumbnail
+   * @param maxHeight the largest height of the thumbnail
+   * @return the path of the thumbnail file
+   */
+  Path getThumbnailPath(String key, int maxWidth, int maxHeight) {
+    return directory.resolve(key + "-" + maxWidth + "x" + maxHeight + THUMBNAIL_EXTENSION);
+  }
+
+  /**
+   * Returns a stamp of the file the given URL points to, made from the path, size and last
+   * modified time of the file. The stamp changes whenever the file is changed, without the file
+   * having to be read.
+   *
+   * @param imageUrl the URL of the image
+   * @return the stamp of the image file, or {@code null} if the URL does not point to a file on
+   *         disk
+   * @throws IOException if the attributes of the image file cannot be read
+   */
+  private static String stampFile(String imageUrl) throws IOException {
+    if (!imageUrl.startsWith("file:")) {
+      return null;
+    }
+    Path imageFile;
+    try {
+      imageFile = Path.of(new URI(imageUrl));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+    if (!Files.isRegularFile(imageFile)) {
+      return null;
+    }
+    String stamp =
+        imageFile.toAbsolutePath().normalize()
+            + "|" + Files.size(imageFile)
+            + "|" + Files.getLastModifiedTime(imageFile).toMillis();
+    return UUID.nameUUIDFromBytes(stamp.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  /**
+   * Reads the width and height of a PNG image from its header, without decoding the image.
+   *
+   * @param in the stream of the image, positioned at its start
+   * @return the width and height of the image, or {@code null} if the image is not a PNG image
+   * @throws IOException if the stream cannot be read
+   */
+  private static int[] readPngSize(InputStream in) throws IOException {
+    byte[] header = in.readNBytes(PNG_HEADER_SIZE);
+    if (header.length < PNG_HEADER_SIZE) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(header);
+    if (buffer.getLong(0) != PNG_SIGNATURE) {
+      return null;
+    }
+    return new int[] {buffer.getInt(PNG_WIDTH_OFFSET), buffer.getInt(PNG_HEIGHT_OFFSET)};
+  }
+
+  /**
+   * Reads the thumbnail file at the given path. A thumbnail that is larger than the size it was
+   * made for is rejected before its pixels are allocated, since the file must then be corrupt.
+   * The last modified time of the file is updated, so that the least recently used thumbnails are
+   * the ones evicted.
+   *
+   * @param thumbnailFile the thumbnail file
+   * @param maxWidth      the largest width of the thumbnail
+   * @param maxHeight     the largest height of the thumbnail
+   * @return the thumbnail, or {@code null} if it does not exist or cannot be read
+   */
+  private static Image readThumbnail(Path thumbnailFile, int maxWidth, int maxHeight) {
+    if (!Files.isRegularFile(thumbnailFile)) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(thumbnailFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      int width = in.readInt();
+      int height = in.readInt();
+      if (width <= 0 || height <= 0 || width > maxWidth || height > maxHeight
+          || (long) width * height * BYTES_PER_PIXEL > Integer.MAX_VALUE) {
+        return null;
+      }
+      byte[] pixels = new byte[width * height * BYTES_PER_PIXEL];
+      try (DataInputStream pixelsIn = new DataInputStream(new InflaterInputStream(in))) {
+        pixelsIn.readFully(pixels);
+      }
+
+      WritableImage thumbnail = new WritableImage(width, height);
+      thumbnail
+          .getPixelWriter()
+          .setPixels(
+              0, 0, width, height, PixelFormat.getByteBgraPreInstance(), pixels, 0,
+              width * BYTES_PER_PIXEL);
+      touchQuietly(thumbnailFile);
+      return thumbnail;
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the given image to the thumbnail file at the given path. An I/O error is ignored, since
+   * the thumbnail can always be made again from the image file.
+   *
+   * @param thumbnailFile the thumbnail file
+   * @param image         the scaled image
+   */
+  private static void writeThumbnailQuietly(Path thumbnailFile, Image image) {
+    int width = (int) image.getWidth();
+    int height = (int) image.getHeight();
+    byte[] pixels = new byte[width * height * BYTES_PER_PIXEL];
+    image
+        .getPixelReader()
+        .getPixels(
+            0, 0, width, height, PixelFormat.getByteBgraPreInstance(), pixels, 0,
+            width * BYTES_PER_PIXEL);
+    try {
+      AtomicFileWriter.write(
+          thumbnailFile,
+          out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(width);
+            data.writeInt(height);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+              DeflaterOutputStream deflaterOut = new DeflaterOutputStream(data, deflater);
+              deflaterOut.write(pixels);
+              deflaterOut.finish();
+              data.flush();
+            } finally {
+              deflater.end();
+            }
+          });
+    } catch (IOException ignored) {
+    }
+  }
+}
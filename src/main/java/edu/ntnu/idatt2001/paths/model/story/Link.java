@@ -6,9 +6,11 @@ import static edu.ntnu.idatt2001.paths.model.story.Link.LinkConstants.TEXT_MAX_L
 import static edu.ntnu.idatt2001.paths.model.story.Link.LinkConstants.TEXT_MIN_LENGTH;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import edu.ntnu.idatt2001.paths.model.actions.Action;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import lombok.EqualsAndHashCode;
 
@@ -21,7 +23,9 @@ import lombok.EqualsAndHashCode;
  * optional Actions that are performed when the link is followed. Actions are represented as
  * instances of actions implementing the {@link Action} interface.
  *
- * <p>Links are immutable: their contents and actions cant be modified.
+ * <p>Links are immutable: their text and reference cant be modified. Actions can be added and
+ * removed, and such changes are tracked so that only changed parts of a story need to be saved
+ * again, see {@link #isModified()}.
  *
  * <p>To create a new Link, provide a text label and reference as arguments. Actions can be added
  * to
@@ -42,6 +46,7 @@ public class Link {
   private final String ref;
   @JsonProperty
   private final List<Action> actions;
+  private boolean modified;
 
   /**
    * Constructs a new Link object with the given text label and reference.
@@ -69,6 +74,20 @@ public class Link {
     this.actions = new ArrayList<>();
   }
 
+  /**
+   * Constructs a copy of the given link. The list of actions is copied, so actions can be added to
+   * and removed from the copy without changing the original. The actions themselves are immutable
+   * and are shared.
+   *
+   * @param link the link to copy
+   */
+  public Link(Link link) {
+    this.text = link.text;
+    this.ref = link.ref;
+    this.actions = new ArrayList<>(link.actions);
+    this.modified = link.modified;
+  }
+
   /**
    * Returns the text label for the link.
    *
@@ -88,12 +107,14 @@ public class Link {
   }
 
   /**
-   * Returns the list of Actions associated with the link.
+   * Returns the list of Actions associated with the link. The list cannot be changed, actions are
+   * added and removed with {@link #addAction(Action)} and {@link #removeAction(Action)} so that the
+   * changes are tracked.
    *
-   * @return the list of Actions associated with the link
+   * @return an unmodifiable view of the Actions associated with the link
    */
   public List<Action> getActions() {
-    return actions;
+    return Collections.unmodifiableList(actions);
   }
 
   /**
@@ -103,9 +124,39 @@ public class Link {
    * @return {@code true} if the Action was added to the list, {@code false} otherwise
    */
   public boolean addAction(final Action action) {
+    modified = true;
     return actions.add(action);
   }
 
+  /**
+   * Removes an Action from the list of Actions associated with the link.
+   *
+   * @param action the Action to be removed
+   * @return {@code true} if the Action was removed from the list, {@code false} otherwise
+   */
+  public boolean removeAction(final Action action) {
+    boolean isRemoved = actions.remove(action);
+    modified |= isRemoved;
+    return isRemoved;
+  }
+
+  /**
+   * Checks if the actions of the link have changed since the link was created or last saved.
+   *
+   * @return {@code true} if the link has unsaved changes, {@code false} otherwise
+   */
+  @JsonIgnore
+  public boolean isModified() {
+    return modified;
+  }
+
+  /**
+   * Marks the link as saved, clearing its unsaved changes.
+   */
+  public void markSaved() {
+    modified = false;
+  }
+
   /**
    * Returns a string representation of the link, including its text label, reference, and actions.
    *
@@ -6,8 +6,10 @@ import static edu.ntnu.idatt2001.paths.model.story.Passage.PassageConstants.MIN_
 import static edu.ntnu.idatt2001.paths.model.story.Passage.PassageConstants.MIN_TITLE_LENGTH;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import lombok.EqualsAndHashCode;
@@ -28,6 +30,13 @@ import lombok.EqualsAndHashCode;
  * new Passages can be added to the map in {@link Story} by creating new instances and adding links
  * to existing Passages.
  *
+ * <p>The editable properties of a passage (content, mood, single visit only and links) are tracked
+ * for changes, so that only changed passages need to be saved again. See {@link #isModified()}.
+ *
+ * <p>The content of a passage can be dropped from memory with
+ * {@link #unloadContent(PassageContentLoader)}, after which it is loaded on demand whenever it is
+ * needed. This keeps the memory use of very large stories low.
+ *
  * <p>The Passage class also provides several methods for working with the passage and its links,
  * including getters for the title, content, and links, a method for checking if the Passage has any
  * links, and a method for adding links to the Passage. The {@link #toString()} method returns a
@@ -49,6 +58,8 @@ public class Passage {
   private Mood mood;
   @JsonProperty
   private boolean singleVisitOnly;
+  private boolean modified;
+  private PassageContentLoader contentLoader;
 
   /**
    * Constructs a new Passage object with the given title and content.
@@ -90,6 +101,23 @@ public class Passage {
     this(title, content, Mood.NONE, false);
   }
 
+  /**
+   * Constructs a copy of the given passage, with copies of its links. If the content of the passage
+   * has been unloaded, the copy loads its content with the same content loader.
+   *
+   * @param passage the passage to copy
+   */
+  public Passage(Passage passage) {
+    this.title = passage.title;
+    this.content = passage.content;
+    this.contentLoader = passage.contentLoader;
+    this.mood = passage.mood;
+    this.singleVisitOnly = passage.singleVisitOnly;
+    this.modified = passage.modified;
+    this.links = new ArrayList<>(passage.links.size());
+    passage.links.forEach(link -> links.add(new Link(link)));
+  }
+
   /**
    * Checks if the passage is meant for single visit only.
    *
@@ -106,6 +134,7 @@ public class Passage {
    *                        only
    */
   public void setSingleVisitOnly(boolean singleVisitOnly) {
+    modified |= this.singleVisitOnly != singleVisitOnly;
     this.singleVisitOnly = singleVisitOnly;
   }
 
@@ -114,6 +143,7 @@ public class Passage {
   }
 
   public void setMood(Mood value) {
+    modified |= this.mood != value;
     this.mood = value;
   }
 
@@ -127,12 +157,13 @@ public class Passage {
   }
 
   /**
-   * Returns the content of the passage.
+   * Returns the content of the passage. If the content has been unloaded, it is loaded with the
+   * content loader of the passage.
    *
    * @return the content of the passage
    */
   public String getContent() {
-    return content;
+    return content == null ? contentLoader.loadContent(title) : content;
   }
 
   /**
@@ -141,16 +172,36 @@ public class Passage {
    * @param content the content of the passage
    */
   public void setContent(String content) {
+    modified |= !Objects.equals(getContent(), content);
     this.content = content;
+    this.contentLoader = null;
+  }
+
+  /**
+   * Drops the content of the passage from memory. The content is loaded with the given loader
+   * every time it is needed, so the loader should cache recently used content. The content of a
+   * passage with unsaved changes is kept in memory.
+   *
+   * @param contentLoader the loader to load the content with
+   * @throws NullPointerException if the content loader is {@code null}
+   */
+  public void unloadContent(PassageContentLoader contentLoader) {
+    Objects.requireNonNull(contentLoader, "Content loader cannot be null");
+    if (!modified) {
+      this.contentLoader = contentLoader;
+      this.content = null;
+    }
   }
 
   /**
-   * Returns the list of links in the passage.
+   * Returns the list of links in the passage. The list cannot be changed, links are added and
+   * removed with {@link #addLink(Link)} and {@link #removeLink(Link)} so that the changes are
+   * tracked.
    *
-   * @return the list of links in the passage
+   * @return an unmodifiable view of the links in the passage
    */
   public List<Link> getLinks() {
-    return links;
+    return Collections.unmodifiableList(links);
   }
 
   /**
@@ -165,9 +216,53 @@ public class Passage {
     if (links.contains(link)) {
       throw new IllegalArgumentException("Link already exists in the list");
     }
+    modified = true;
     return links.add(link);
   }
 
+  /**
+   * Removes a link from the list of links.
+   *
+   * @param link the link to be removed
+   * @return {@code true} if the link was removed from the list, {@code false} otherwise
+   */
+  public boolean removeLink(Link link) {
+    boolean isRemoved = links.remove(link);
+    modified |= isRemoved;
+    return isRemoved;
+  }
+
+  /**
+   * Removes all links referencing the passage with the given title.
+   *
+   * @param passageTitle the title of the passage to remove all links to
+   * @return {@code true} if any links were removed, {@code false} otherwise
+   */
+  public boolean removeLinksTo(String passageTitle) {
+    boolean isRemoved = links.removeIf(link -> link.getRef().equals(passageTitle));
+    modified |= isRemoved;
+    return isRemoved;
+  }
+
+  /**
+   * Checks if the passage or any of its links have changed since the passage was created or last
+   * saved.
+   *
+   * @return {@code true} if the passage has unsaved changes, {@code false} otherwise
+   */
+  @JsonIgnore
+  public boolean isModified() {
+    return modified || links.stream().anyMatch(Link::isModified);
+  }
+
+  /**
+   * Marks the passage and its links as saved, clearing their unsaved changes.
+   */
+  public void markSaved() {
+    modified = false;
+    links.forEach(Link::markSaved);
+  }
+
   /**
    * Checks if the passage has any links.
    *
@@ -186,7 +281,7 @@ public class Passage {
   public String toString() {
     StringBuilder sb = new StringBuilder();
     sb.append("Title: ").append(title).append("\n");
-    sb.append("Content: ").append(content).append("\n");
+    sb.append("Content: ").append(getContent()).append("\n");
     sb.append("Links:\n");
     for (Link link : links) {
       sb.append("- ").append(link.getText()).append(": ").append(link.getRef()).append("\n");
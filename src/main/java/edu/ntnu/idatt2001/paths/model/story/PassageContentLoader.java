@@ -0,0 +1,22 @@
+package edu.ntnu.idatt2001.paths.model.story;
+
+/**
+ * The PassageContentLoader interface loads the content of a passage on demand. It is used by
+ * passages whose content is not kept in memory, see {@link Passage#unloadContent}.
+ *
+ * <p>Implementations may fail with an unchecked exception, such as
+ * {@link java.io.UncheckedIOException}, if the content cannot be loaded.
+ *
+ * @see Passage
+ */
+@FunctionalInterface
+public interface PassageContentLoader {
+
+  /**
+   * Loads the content of the passage with the given title.
+   *
+   * @param passageTitle the title of the passage
+   * @return the content of the passage
+   */
+  String loadContent(String passageTitle);
+}
@@ -4,6 +4,7 @@ import static edu.ntnu.idatt2001.paths.model.story.Story.StoryConstants.MAX_TITL
 import static edu.ntnu.idatt2001.paths.model.story.Story.StoryConstants.MIN_TITLE_LENGTH;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -30,6 +31,10 @@ import lombok.EqualsAndHashCode;
  * constructed. The properties of the story include its title, represented by a String object, and
  * its passages, represented by a Map of Link objects and Passage objects.
  *
+ * <p>Passages added to or removed from the story, as well as changes to the passages themselves,
+ * are tracked until the story is marked as saved. This lets file handlers save only the changed
+ * parts of a story, see {@link #isModified()} and {@link #getModifiedPassages()}.
+ *
  * <p>The Story field variables constraints are defined in the {@link StoryConstants} inner class
  *
  * @see Passage
@@ -45,6 +50,7 @@ public class Story {
   private final Passage openingPassage;
   @JsonProperty
   private final Map<Link, Passage> passages;
+  private boolean passagesChanged;
 
   /**
    * Constructs a new Story object with the given title and opening passage.
@@ -65,6 +71,21 @@ public class Story {
     this.passages = new LinkedHashMap<>();
   }
 
+  /**
+   * Constructs a deep copy of the given story, with copies of all its passages and their links.
+   * Changes made to the copy do not affect the original, which makes it safe to hand out copies of
+   * a shared story.
+   *
+   * @param story the story to copy
+   */
+  public Story(Story story) {
+    this.title = story.title;
+    this.openingPassage = new Passage(story.openingPassage);
+    this.passages = new LinkedHashMap<>();
+    story.passages.forEach((link, passage) -> passages.put(new Link(link), new Passage(passage)));
+    this.passagesChanged = story.passagesChanged;
+  }
+
   /**
    * Returns the title of the story.
    *
@@ -97,6 +118,7 @@ public class Story {
       return false;
     }
     passages.put(link, passage);
+    passagesChanged = true;
     return true;
   }
 
@@ -136,11 +158,51 @@ public class Story {
     }
 
     if (passages.values().stream().noneMatch(passage -> passage.getLinks().contains(link))) {
-      return passages.remove(link) != null;
+      boolean isRemoved = passages.remove(link) != null;
+      passagesChanged |= isRemoved;
+      return isRemoved;
     }
     return false;
   }
 
+  /**
+   * Checks if the story has changed since it was created or last saved. A story has changed if a
+   * passage has been added or removed, or if any of its passages have changed.
+   *
+   * @return {@code true} if the story has unsaved changes, {@code false} otherwise
+   */
+  @JsonIgnore
+  public boolean isModified() {
+    return passagesChanged
+        || openingPassage.isModified()
+        || passages.values().stream().anyMatch(Passage::isModified);
+  }
+
+  /**
+   * Returns a collection of the passages with unsaved changes, including the opening passage if it
+   * has changed.
+   *
+   * @return a collection of the changed passages
+   */
+  @JsonIgnore
+  public Collection<Passage> getModifiedPassages() {
+    Collection<Passage> modifiedPassages = new LinkedHashSet<>();
+    if (openingPassage.isModified()) {
+      modifiedPassages.add(openingPassage);
+    }
+    passages.values().stream().filter(Passage::isModified).forEach(modifiedPassages::add);
+    return modifiedPassages;
+  }
+
+  /**
+   * Marks the story and all its passages as saved, clearing their unsaved changes.
+   */
+  public void markSaved() {
+    passagesChanged = false;
+    openingPassage.markSaved();
+    passages.values().forEach(Passage::markSaved);
+  }
+
   /**
    * Returns a string representation of the story, including its title, opening passage, and all
    * passages in the story.
@@ -191,11 +253,8 @@ public class Story {
    */
   public void removeAllLinksToPassage(String passageTitle) {
     Objects.requireNonNull(passageTitle, "Passage title cannot be null");
-    openingPassage.getLinks().removeIf(link -> link.getRef().equals(passageTitle));
-    passages
-        .values()
-        .forEach(
-            passage -> passage.getLinks().removeIf(link -> link.getRef().equals(passageTitle)));
+    openingPassage.removeLinksTo(passageTitle);
+    passages.values().forEach(passage -> passage.removeLinksTo(passageTitle));
   }
 
   /**
@@ -102,7 +102,7 @@ public class GameView {
    */
   private BorderPane createRoot() {
     BorderPane root = new BorderPane();
-    root.getStyleClass().add("main-menu");
+    root.getStyleClass().add("game-view");
     root.setCenter(createCenter());
     root.setBottom(createBottom());
     root.setRight(createRight());
@@ -1,5 +1,6 @@
 package edu.ntnu.idatt2001.paths.view;
 
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.SaveSlot;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
@@ -10,13 +11,14 @@ import lombok.Getter;
 
 /**
  * This class represents the view for the Load Game screen of the Paths application. This screen
- * allows users to select a saved game from a dropdown menu and load it for playing. It also
- * provides a button for returning back to the previous screen.
+ * allows users to select a saved game from a dropdown menu and load it for playing. Each saved game
+ * is listed with its player, current passage and the time it was saved. It also provides a button
+ * for returning back to the previous screen.
  */
 public class LoadGameView {
 
   @Getter
-  private final ComboBox<String> saveSelect;
+  private final ComboBox<SaveSlot> saveSelect;
   @Getter
   private final Button loadButton;
   @Getter
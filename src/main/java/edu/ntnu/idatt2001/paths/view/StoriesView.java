@@ -29,6 +29,8 @@ public class StoriesView {
   @Getter
   private final Button convertToPathsButton;
   @Getter
+  private final Button convertToBinaryButton;
+  @Getter
   private final Label validStoryLabel;
   @Getter
   private final Label storyFileInfoLabel;
@@ -46,6 +48,8 @@ public class StoriesView {
   private final Label convertInfoLabel;
   @Getter
   private final Button editStoryButton;
+  @Getter
+  private final Button getParseErrorsButton;
 
   /**
    * Constructs a StoriesView. It initializes all the UI components, sets up their style classes,
@@ -64,12 +68,18 @@ public class StoriesView {
     convertToPathsButton = new Button("Convert to Paths");
     convertToPathsButton.getStyleClass().add("default-button");
 
+    convertToBinaryButton = new Button("Convert to Binary");
+    convertToBinaryButton.getStyleClass().add("default-button");
+
     getBrokenLinksButton = new Button("See broken links");
     getBrokenLinksButton.getStyleClass().add("default-button");
 
     editStoryButton = new Button("Edit Story");
     editStoryButton.getStyleClass().add("default-button");
 
+    getParseErrorsButton = new Button("See errors");
+    getParseErrorsButton.getStyleClass().add("default-button");
+
     brokenLinksLabel = new Label();
     storyFileInfoLabel = new Label();
     numberOfPassagesLabel = new Label();
@@ -214,8 +224,8 @@ public class StoriesView {
   }
 
   /**
-   * Creates an HBox layout for the stories view, which contains a label for valid story and the
-   * validity of the story.
+   * Creates an HBox layout for the stories view, which contains a label for valid story, the
+   * validity of the story, and the "See errors" button.
    *
    * @return A Node representing the HBox layout for the stories view.
    */
@@ -224,12 +234,13 @@ public class StoriesView {
     results.getStyleClass().add("story-info-label");
     results.getChildren().add(new Label("Valid Story: "));
     results.getChildren().add(validStoryLabel);
+    results.getChildren().add(getParseErrorsButton);
     return results;
   }
 
   /**
    * Creates a VBox layout for the stories view, which contains the convert story information,
-   * "Convert to Json" button, and the "Convert to Paths" button.
+   * "Convert to Json" button, the "Convert to Paths" button, and the "Convert to Binary" button.
    *
    * @return A Node representing the VBox layout for the stories view.
    */
@@ -237,7 +248,7 @@ public class StoriesView {
     VBox convertStoryVBox = new VBox();
     convertStoryVBox
         .getChildren()
-        .addAll(convertInfoLabel, convertToJsonButton, convertToPathsButton);
+        .addAll(convertInfoLabel, convertToJsonButton, convertToPathsButton, convertToBinaryButton);
     convertStoryVBox.getStyleClass().add("story-info-label");
     return convertStoryVBox;
   }
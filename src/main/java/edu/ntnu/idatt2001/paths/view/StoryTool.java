@@ -0,0 +1,242 @@
+package edu.ntnu.idatt2001.paths.view;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryBatchProcessor;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryBatchProcessor.Result;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryBatchProcessor.StoryTask;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The StoryTool class is the command-line entry point for processing whole directory trees of
+ * story files without launching the game. It validates, converts or indexes every story file in a
+ * directory tree in parallel with the {@link StoryBatchProcessor}, and prints the result and timing
+ * of every file as it is done, followed by a summary. It also packs the custom media of every
+ * story in a stories directory into an {@link AssetPack} per story.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * StoryTool validate &lt;directory&gt; [--threads N]
+ * StoryTool convert &lt;directory&gt; --to json|paths|pathsb [--out &lt;directory&gt;] [--threads N]
+ * StoryTool index &lt;directory&gt; [--threads N]
+ * StoryTool pack &lt;directory&gt;
+ * </pre>
+ *
+ * <p>The tool exits with status 0 if every file succeeded, 1 if any file failed, and 2 if the
+ * arguments are invalid or the directory cannot be read.
+ *
+ * <p>This class is designed to be used in a static context and should not be instantiated.
+ */
+public class StoryTool {
+
+  private static final int EXIT_SUCCESS = 0;
+  private static final int EXIT_FAILURES = 1;
+  private static final int EXIT_USAGE = 2;
+  private static final String USAGE =
+      String.join(
+          System.lineSeparator(),
+          "Usage:",
+          "  StoryTool validate <directory> [--threads N]",
+          "  StoryTool convert <directory> --to json|paths|pathsb [--out <directory>]"
+              + " [--threads N]",
+          "  StoryTool index <directory> [--threads N]",
+          "  StoryTool pack <directory>");
+
+  private StoryTool() {
+  }
+
+  /**
+   * The entry point of the command-line tool.
+   *
+   * @param args the command, the directory and the options
+   */
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Runs the command given by the arguments, printing the progress to the given output stream and
+   * usage errors to the given error stream.
+   *
+   * @param args the command, the directory and the options
+   * @param out  the stream to print the progress and summary to
+   * @param err  the stream to print usage errors to
+   * @return the exit status of the tool
+   */
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    if (args.length < 2) {
+      err.println(USAGE);
+      return EXIT_USAGE;
+    }
+    String command = args[0];
+    Path directory = Paths.get(args[1]);
+    String targetFormat = null;
+    Path targetDirectory = directory;
+    int threadCount = Runtime.getRuntime().availableProcessors();
+
+    for (int i = 2; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        err.println("Missing value for " + args[i] + System.lineSeparator() + USAGE);
+        return EXIT_USAGE;
+      }
+      switch (args[i]) {
+        case "--to" -> targetFormat = "." + args[i + 1];
+        case "--out" -> targetDirectory = Paths.get(args[i + 1]);
+        case "--threads" -> {
+          try {
+            threadCount = Integer.parseInt(args[i + 1]);
+          } catch (NumberFormatException e) {
+            err.println("Invalid thread count: " + args[i + 1]);
+            return EXIT_USAGE;
+          }
+        }
+        default -> {
+          err.println("Unknown option: " + args[i] + System.lineSeparator() + USAGE);
+          return EXIT_USAGE;
+        }
+      }
+    }
+
+    if (!Files.isDirectory(directory)) {
+      err.println("Not a directory: " + directory);
+      return EXIT_USAGE;
+    }
+
+    if (command.equals("pack")) {
+      try {
+        return runPack(directory, out);
+      } catch (IOException e) {
+        err.println("Could not read " + directory + ": " + e.getMessage());
+        return EXIT_USAGE;
+      }
+    }
+
+    StoryTask task;
+    try {
+      task =
+          switch (command) {
+            case "validate" -> StoryBatchProcessor.validate();
+            case "index" -> StoryBatchProcessor.index();
+            case "convert" -> {
+              if (targetFormat == null) {
+                throw new IllegalArgumentException("The convert command needs --to");
+              }
+              yield StoryBatchProcessor.convertTo(targetFormat, directory, targetDirectory);
+            }
+            default -> throw new IllegalArgumentException("Unknown command: " + command);
+          };
+      return runBatch(new StoryBatchProcessor(threadCount), directory, task, out);
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage() + System.lineSeparator() + USAGE);
+      return EXIT_USAGE;
+    } catch (IOException e) {
+      err.println("Could not read " + directory + ": " + e.getMessage());
+      return EXIT_USAGE;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      err.println("Interrupted");
+      return EXIT_FAILURES;
+    }
+  }
+
+  /**
+   * Runs the task on every story file in the directory tree, printing a progress line for every
+   * file as it is done and a summary at the end.
+   *
+   * @param processor the processor to run the task with
+   * @param directory the root of the directory tree
+   * @param task      the task to run on every story file
+   * @param out       the stream to print the progress and summary to
+   * @return the exit status of the tool
+   * @throws IOException          if the directory tree cannot be read
+   * @throws InterruptedException if the thread is interrupted while waiting for the files
+   */
+  private static int runBatch(
+      StoryBatchProcessor processor, Path directory, StoryTask task, PrintStream out)
+      throws IOException, InterruptedException {
+    long startTime = System.nanoTime();
+    List<Path> storyFiles = StoryBatchProcessor.findStoryFiles(directory);
+    int[] doneCount = {0};
+    List<Result> results =
+        processor.process(
+            storyFiles,
+            task,
+            result ->
+                out.println("[" + ++doneCount[0] + "/" + storyFiles.size() + "] " + result));
+    long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    long failedCount = results.stream().filter(result -> !result.isSucceeded()).count();
+    out.println(
+        results.size()
+            + " file(s) processed, "
+            + (results.size() - failedCount)
+            + " succeeded, "
+            + failedCount
+            + " failed, in "
+            + elapsedMillis
+            + " ms");
+    return failedCount == 0 ? EXIT_SUCCESS : EXIT_FAILURES;
+  }
+
+  /**
+   * Packs the custom media of every story in the stories directory into an asset pack. Every
+   * subfolder with an "images" or "sounds" folder is the media folder of a story, and is packed
+   * into a pack file next to it, named after the folder. A progress line is printed for every story
+   * as it is packed, and a summary at the end.
+   *
+   * @param directory the stories directory
+   * @param out       the stream to print the progress and summary to
+   * @return the exit status of the tool
+   * @throws IOException if the stories directory cannot be read
+   */
+  private static int runPack(Path directory, PrintStream out) throws IOException {
+    long startTime = System.nanoTime();
+    List<Path> mediaFolders;
+    try (Stream<Path> folders = Files.list(directory)) {
+      mediaFolders =
+          folders
+              .filter(
+                  folder ->
+                      Files.isDirectory(folder.resolve("images"))
+                          || Files.isDirectory(folder.resolve("sounds")))
+              .sorted()
+              .toList();
+    }
+
+    int failedCount = 0;
+    for (int i = 0; i < mediaFolders.size(); i++) {
+      Path mediaFolder = mediaFolders.get(i);
+      Path packFile = directory.resolve(mediaFolder.getFileName() + AssetPack.EXTENSION);
+      long packStartTime = System.nanoTime();
+      String result;
+      try {
+        int entryCount = AssetPack.write(mediaFolder, packFile);
+        result = "OK " + packFile + " (" + (System.nanoTime() - packStartTime) / 1_000_000
+            + " ms): " + entryCount + " file(s) packed";
+      } catch (IOException e) {
+        failedCount++;
+        result = "FAILED " + packFile + " (" + (System.nanoTime() - packStartTime) / 1_000_000
+            + " ms): " + e.getMessage();
+      }
+      out.println("[" + (i + 1) + "/" + mediaFolders.size() + "] " + result);
+    }
+    long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+    out.println(
+        mediaFolders.size()
+            + " story media folder(s) packed, "
+            + (mediaFolders.size() - failedCount)
+            + " succeeded, "
+            + failedCount
+            + " failed, in "
+            + elapsedMillis
+            + " ms");
+    return failedCount == 0 ? EXIT_SUCCESS : EXIT_FAILURES;
+  }
+}
@@ -0,0 +1,227 @@
+package edu.ntnu.idatt2001.paths.view.util;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.StringProperty;
+
+/**
+ * The TypewriterRenderer class reveals a text one character at a time, like a typewriter, by
+ * writing a growing prefix of the text to a string property.
+ *
+ * <p>The renderer is driven by a single {@link AnimationTimer}, and the number of characters shown
+ * is worked out from the time since the text started, so the text is revealed at the same speed no
+ * matter the frame rate. The property is only updated on frames where more of the text is shown,
+ * and is set to a prefix of the full text instead of having a character appended, so the work per
+ * frame does not grow with the length of the text.
+ *
+ * <p>The renderer must be used on the JavaFX application thread.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * TypewriterRenderer typewriter = new TypewriterRenderer(contentProperty, 33);
+ * typewriter.play(passage.getContent(), () -> links.setVisible(true));
+ * contentPane.setOnMouseClicked(event -> typewriter.skip());
+ * }</pre>
+ */
+public class TypewriterRenderer {
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final StringProperty target;
+  private final AnimationTimer timer;
+  private double charactersPerSecond;
+  private String text = "";
+  private double playingCharactersPerSecond;
+  private int shownLength;
+  private boolean started;
+  private long startTime;
+  private Runnable onFinished;
+  private boolean running;
+
+  /**
+   * Constructs a TypewriterRenderer that reveals text in the given property at the given speed.
+   *
+   * @param target              the property to reveal the text in
+   * @param charactersPerSecond the number of characters to reveal per second
+   * @throws IllegalArgumentException if the speed is not positive
+   */
+  public TypewriterRenderer(StringProperty target, double charactersPerSecond) {
+    this(target, charactersPerSecond, FrameTimer::new);
+  }
+
+  /**
+   * Constructs a TypewriterRenderer that is driven by the timer made by the given factory. The
+   * factory is given the action to run on every frame, with the time of the frame in nanoseconds.
+   *
+   * @param target              the property to reveal the text in
+   * @param charactersPerSecond the number of characters to reveal per second
+   * @param timerFactory        the factory making the timer that drives the renderer
+   * @throws IllegalArgumentException if the speed is not positive
+   */
+  TypewriterRenderer(
+      StringProperty target,
+      double charactersPerSecond,
+      Function<LongConsumer, AnimationTimer> timerFactory) {
+    this.target = Objects.requireNonNull(target, "Target cannot be null");
+    setCharactersPerSecond(charactersPerSecond);
+    this.timer = timerFactory.apply(this::update);
+  }
+
+  /**
+   * Returns the number of characters of the given text to show after the given time. A surrogate
+   * pair is never split, so a character outside the Basic Multilingual Plane is revealed whole.
+   *
+   * @param text                the text being revealed
+   * @param elapsedNanos        the time since the text started, in nanoseconds
+   * @param charactersPerSecond the number of characters to reveal per second
+   * @return the number of characters to show, at most the length of the text
+   */
+  static int revealedLength(String text, long elapsedNanos, double charactersPerSecond) {
+    double elapsedSeconds = elapsedNanos / NANOS_PER_SECOND;
+    int length = (int) Math.min(text.length(), elapsedSeconds * charactersPerSecond);
+    if (length > 0 && length < text.length()
+        && Character.isHighSurrogate(text.charAt(length - 1))) {
+      length--;
+    }
+    return length;
+  }
+
+  /**
+   * Sets the number of characters to reveal per second. The new speed is used from the next text
+   * that is played.
+   *
+   * @param charactersPerSecond the number of characters to reveal per second
+   * @throws IllegalArgumentException if the speed is not positive
+   */
+  public void setCharactersPerSecond(double charactersPerSecond) {
+    if (!(charactersPerSecond > 0)) {
+      throw new IllegalArgumentException("Characters per second must be positive");
+    }
+    this.charactersPerSecond = charactersPerSecond;
+  }
+
+  /**
+   * Returns the number of characters revealed per second.
+   *
+   * @return the number of characters revealed per second
+   */
+  public double getCharactersPerSecond() {
+    return charactersPerSecond;
+  }
+
+  /**
+   * Starts revealing the given text, replacing the text that is being revealed, if any. The
+   * replaced text does not run its finished action.
+   *
+   * @param text       the text to reveal
+   * @param onFinished the action to run when the whole text is shown, or {@code null} for none
+   */
+  public void play(String text, Runnable onFinished) {
+    stop();
+    this.text = Objects.requireNonNull(text, "Text cannot be null");
+    this.onFinished = onFinished;
+    playingCharactersPerSecond = charactersPerSecond;
+    shownLength = 0;
+    started = false;
+    target.set("");
+    running = true;
+    if (text.isEmpty()) {
+      finish();
+    } else {
+      timer.start();
+    }
+  }
+
+  /**
+   * Shows the whole text at once, if it is still being revealed, and runs its finished action.
+   */
+  public void skip() {
+    if (running) {
+      show(text.length());
+      finish();
+    }
+  }
+
+  /**
+   * Stops revealing the text where it is, without running its finished action.
+   */
+  public void stop() {
+    timer.stop();
+    running = false;
+    onFinished = null;
+  }
+
+  /**
+   * Checks if a text is being revealed.
+   *
+   * @return {@code true} if a text is being revealed, {@code false} otherwise
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Reveals the part of the text that should be shown at the given time.
+   *
+   * @param now the time of the current frame, in nanoseconds
+   */
+  private void update(long now) {
+    if (!started) {
+      startTime = now;
+      started = true;
+    }
+    int length = revealedLength(text, now - startTime, playingCharactersPerSecond);
+    show(length);
+    if (length == text.length()) {
+      finish();
+    }
+  }
+
+  /**
+   * Shows the first characters of the text, unless they are shown already.
+   *
+   * @param length the number of characters to show
+   */
+  private void show(int length) {
+    if (length != shownLength) {
+      shownLength = length;
+      target.set(text.substring(0, length));
+    }
+  }
+
+  /**
+   * Stops the timer and runs the finished action of the text.
+   */
+  private void finish() {
+    Runnable action = onFinished;
+    stop();
+    if (action != null) {
+      action.run();
+    }
+  }
+
+  /**
+   * The timer that drives a renderer on every frame.
+   */
+  private static class FrameTimer extends AnimationTimer {
+
+    private final LongConsumer onFrame;
+
+    /**
+     * Constructs a FrameTimer that runs the given action on every frame.
+     *
+     * @param onFrame the action to run, with the time of the frame in nanoseconds
+     */
+    FrameTimer(LongConsumer onFrame) {
+      this.onFrame = onFrame;
+    }
+
+    @Override
+    public void handle(long now) {
+      onFrame.accept(now);
+    }
+  }
+}
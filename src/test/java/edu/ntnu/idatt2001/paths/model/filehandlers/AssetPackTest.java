@@ -0,0 +1,111 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.FileHash;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AssetPackTest {
+
+  @TempDir
+  Path directory;
+  private Path mediaFolder;
+  private Path packFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    mediaFolder = directory.resolve("Test Story");
+    Files.createDirectories(mediaFolder.resolve("images"));
+    Files.createDirectories(mediaFolder.resolve("sounds"));
+    Files.writeString(mediaFolder.resolve("images/tavern.png"), "tavern image");
+    Files.writeString(mediaFolder.resolve("images/cellar.png"), "cellar image");
+    Files.writeString(mediaFolder.resolve("sounds/tavern.mp3"), "tavern music");
+    packFile = directory.resolve("Test Story.pack");
+  }
+
+  @Test
+  void whenMediaIsPacked_itShouldListTheFilesOfEveryFolder() throws IOException {
+    int entryCount = AssetPack.write(mediaFolder, packFile);
+    AssetPack assetPack = AssetPack.open(packFile);
+
+    assertThat(entryCount, is(3));
+    assertThat(assetPack.list("images"), contains("cellar.png", "tavern.png"));
+    assertThat(assetPack.list("sounds"), contains("tavern.mp3"));
+    assertThat(assetPack.contains("images/tavern.png"), is(true));
+    assertThat(assetPack.contains("images/tavern.mp3"), is(false));
+  }
+
+  @Test
+  void whenEntryIsRead_itShouldHaveTheContentAndHashOfTheFile() throws IOException {
+    AssetPack.write(mediaFolder, packFile);
+    AssetPack assetPack = AssetPack.open(packFile);
+
+    try (InputStream in = assetPack.openStream("images/cellar.png")) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8), is("cellar image"));
+    }
+    assertThat(
+        assetPack.getHash("images/cellar.png"),
+        is(FileHash.sha256(mediaFolder.resolve("images/cellar.png"))));
+  }
+
+  @Test
+  void whenEntryIsReadByUrl_itShouldReadTheSameContent() throws IOException {
+    AssetPack.write(mediaFolder, packFile);
+    String url = AssetPack.open(packFile).getUrl("sounds/tavern.mp3");
+
+    assertThat(AssetPack.isPackUrl(url), is(true));
+    try (InputStream in = AssetPack.openUrl(url)) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8), is("tavern music"));
+    }
+    String fileUrl = AssetPack.toFileUrl(url);
+    assertThat(fileUrl, not(equalTo(url)));
+    assertThat(AssetPack.toFileUrl(fileUrl), is(fileUrl));
+  }
+
+  @Test
+  void whenPackIsOpenedTwice_itShouldShareItUntilTheFileChanges() throws IOException {
+    AssetPack.write(mediaFolder, packFile);
+    AssetPack assetPack = AssetPack.open(packFile);
+
+    assertThat(AssetPack.open(packFile), sameInstance(assetPack));
+
+    Files.writeString(mediaFolder.resolve("images/attic.png"), "attic image");
+    AssetPack.write(mediaFolder, packFile);
+    Files.setLastModifiedTime(
+        packFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    AssetPack repackedAssetPack = AssetPack.open(packFile);
+
+    assertThat(repackedAssetPack, not(sameInstance(assetPack)));
+    assertThat(repackedAssetPack.contains("images/attic.png"), is(true));
+  }
+
+  @Test
+  void whenEntryIsMissing_itShouldThrowNoSuchFileException() throws IOException {
+    AssetPack.write(mediaFolder, packFile);
+    AssetPack assetPack = AssetPack.open(packFile);
+
+    assertThrows(NoSuchFileException.class, () -> assetPack.openStream("images/attic.png"));
+  }
+
+  @Test
+  void whenFileIsNotAnAssetPack_itShouldThrowIoException() throws IOException {
+    Files.writeString(packFile, "not a pack");
+
+    assertThrows(IOException.class, () -> AssetPack.open(packFile));
+  }
+}
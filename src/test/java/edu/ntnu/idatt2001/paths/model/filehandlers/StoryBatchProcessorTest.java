@@ -0,0 +1,141 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StoryBatchProcessorTest {
+
+  private static final String NEWLINE = System.lineSeparator();
+  private static final String VALID_STORY =
+      String.join(
+          NEWLINE,
+          "Test Story",
+          "",
+          "::Home",
+          "You are at home.",
+          "[Go outside](Garden)",
+          "{}",
+          "",
+          "::Garden",
+          "You are in the garden.",
+          "[Go inside](Home)",
+          "{}",
+          "");
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void whenDirectoryTreeIsSearched_itShouldOnlyFindStoryFiles() throws IOException {
+    Path storyFile = writeFile("nested/Test Story.paths", VALID_STORY);
+    writeFile("nested/Test Story.paths.idx", "");
+    writeFile("notes.txt", "");
+
+    List<Path> storyFiles = StoryBatchProcessor.findStoryFiles(directory);
+
+    assertThat(storyFiles, contains(storyFile));
+  }
+
+  @Test
+  void whenStoriesAreValidated_itShouldReportEveryFileAndKeepGoingAfterFailures()
+      throws Exception {
+    writeFile("Valid Story.paths", VALID_STORY);
+    writeFile("Broken Story.paths", VALID_STORY.replace("(Home)", "(Cellar)"));
+    writeFile("Corrupt Story.json", "{");
+    List<StoryBatchProcessor.Result> reportedResults = new ArrayList<>();
+
+    List<StoryBatchProcessor.Result> results =
+        new StoryBatchProcessor(2)
+            .process(directory, StoryBatchProcessor.validate(), reportedResults::add);
+
+    assertThat(reportedResults, equalTo(results));
+    Map<String, StoryBatchProcessor.Result> resultsByFile = groupByFileName(results);
+    assertThat(resultsByFile.size(), is(3));
+    assertThat(resultsByFile.get("Valid Story.paths").isSucceeded(), is(true));
+    assertThat(resultsByFile.get("Broken Story.paths").isSucceeded(), is(false));
+    assertThat(
+        resultsByFile.get("Broken Story.paths").getMessage(), containsString("broken link"));
+    assertThat(resultsByFile.get("Corrupt Story.json").isSucceeded(), is(false));
+  }
+
+  @Test
+  void whenStoriesAreConverted_itShouldMirrorTheDirectoryTreeInTheTargetFormat()
+      throws Exception {
+    Path sourceDirectory = directory.resolve("source");
+    Path targetDirectory = directory.resolve("target");
+    writeFile("source/nested/Test Story.paths", VALID_STORY);
+    StoryBatchProcessor.StoryTask task =
+        StoryBatchProcessor.convertTo(".json", sourceDirectory, targetDirectory);
+
+    List<StoryBatchProcessor.Result> results =
+        new StoryBatchProcessor(2).process(sourceDirectory, task, result -> {
+        });
+
+    assertThat(results, hasSize(1));
+    assertThat(results.get(0).isSucceeded(), is(true));
+    Path convertedFile = targetDirectory.resolve("nested").resolve("Test Story.json");
+    Story story = StoryCatalog.readStoryFile(convertedFile);
+    assertThat(story.getTitle(), equalTo("Test Story"));
+    assertThat(story.getOpeningPassage().getContent(), equalTo("You are at home."));
+  }
+
+  @Test
+  void whenStoryIsAlreadyInTheTargetFormat_itShouldBeSkipped() throws Exception {
+    Path storyFile = writeFile("Test Story.paths", VALID_STORY);
+
+    String message =
+        StoryBatchProcessor.convertTo(".paths", directory, directory).process(storyFile);
+
+    assertThat(message, containsString("Skipped"));
+    assertThat(StoryBatchProcessor.findStoryFiles(directory), contains(storyFile));
+  }
+
+  @Test
+  void whenThreadCountIsNotPositive_itShouldThrowIllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> new StoryBatchProcessor(0));
+  }
+
+  /**
+   * Groups the given results by the name of their file.
+   *
+   * @param results the results to group
+   * @return the results by file name
+   */
+  private Map<String, StoryBatchProcessor.Result> groupByFileName(
+      List<StoryBatchProcessor.Result> results) {
+    return results.stream()
+        .collect(
+            Collectors.toMap(
+                result -> result.getFile().getFileName().toString(), result -> result));
+  }
+
+  /**
+   * Writes a file with the given content to the test directory, creating its parent directories.
+   *
+   * @param relativePath the path of the file in the test directory
+   * @param content      the content of the file
+   * @return the path of the file
+   * @throws IOException if the file cannot be written
+   */
+  private Path writeFile(String relativePath, String content) throws IOException {
+    Path file = directory.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, content);
+  }
+}
@@ -0,0 +1,126 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StoryCacheTest {
+
+  @TempDir
+  Path directory;
+  private Path storyFile;
+  private AtomicInteger loadCount;
+  private StoryCache.StoryLoader loader;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    storyFile = writeStoryFile("Test Story.json", 100);
+    loadCount = new AtomicInteger();
+    loader =
+        () -> {
+          loadCount.incrementAndGet();
+          return new Story("Test Story", new Passage("Home", "You are at home."));
+        };
+  }
+
+  @Test
+  void whenFileIsUnchanged_itShouldOnlyLoadTheStoryOnce() throws IOException {
+    StoryCache storyCache = new StoryCache(1000);
+
+    storyCache.get(storyFile, loader);
+    storyCache.get(storyFile, loader);
+
+    assertThat(loadCount.get(), is(1));
+    assertThat(storyCache.getUsedMemory(), is(100L));
+  }
+
+  @Test
+  void whenFileIsChanged_itShouldLoadTheStoryAgain() throws IOException {
+    StoryCache storyCache = new StoryCache(1000);
+    storyCache.get(storyFile, loader);
+
+    FileTime lastModified = Files.getLastModifiedTime(storyFile);
+    Files.setLastModifiedTime(storyFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+    storyCache.get(storyFile, loader);
+
+    assertThat(loadCount.get(), is(2));
+    assertThat(storyCache.size(), is(1));
+  }
+
+  @Test
+  void whenStoryIsReturned_itShouldBeACopyOfTheCachedStory() throws IOException {
+    StoryCache storyCache = new StoryCache(1000);
+
+    Story firstStory = storyCache.get(storyFile, loader);
+    firstStory.getOpeningPassage().setContent("You have left home.");
+    Story secondStory = storyCache.get(storyFile, loader);
+
+    assertThat(secondStory, not(sameInstance(firstStory)));
+    assertThat(secondStory.getOpeningPassage().getContent(), equalTo("You are at home."));
+  }
+
+  @Test
+  void whenBudgetIsExceeded_itShouldEvictTheLeastRecentlyUsedStory() throws IOException {
+    StoryCache storyCache = new StoryCache(250);
+    Path secondFile = writeStoryFile("Second Story.json", 100);
+    Path thirdFile = writeStoryFile("Third Story.json", 100);
+
+    storyCache.get(storyFile, loader);
+    storyCache.get(secondFile, loader);
+    storyCache.get(storyFile, loader);
+    storyCache.get(thirdFile, loader);
+    storyCache.get(storyFile, loader);
+    storyCache.get(secondFile, loader);
+
+    assertThat(loadCount.get(), is(4));
+    assertThat(storyCache.size(), is(2));
+    assertThat(storyCache.getUsedMemory(), is(200L));
+  }
+
+  @Test
+  void whenFileIsLargerThanTheBudget_itShouldNotCacheTheStory() throws IOException {
+    StoryCache storyCache = new StoryCache(50);
+
+    storyCache.get(storyFile, loader);
+    storyCache.get(storyFile, loader);
+
+    assertThat(loadCount.get(), is(2));
+    assertThat(storyCache.size(), is(0));
+  }
+
+  @Test
+  void whenFileIsMissing_itShouldThrowIoException() {
+    StoryCache storyCache = new StoryCache(1000);
+
+    assertThrows(
+        IOException.class, () -> storyCache.get(directory.resolve("Missing.json"), loader));
+    assertThat(loadCount.get(), is(0));
+  }
+
+  /**
+   * Writes a story file of the given size to the test directory. The content of the file does not
+   * matter, since the stories are created by the test loader.
+   *
+   * @param fileName the name of the file
+   * @param size     the size of the file, in bytes
+   * @return the path of the file
+   * @throws IOException if the file cannot be written
+   */
+  private Path writeStoryFile(String fileName, int size) throws IOException {
+    return Files.write(directory.resolve(fileName), new byte[size]);
+  }
+}
@@ -0,0 +1,171 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseDiagnostic;
+import edu.ntnu.idatt2001.paths.model.filehandlers.paths.StoryParseResult;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.FileHash;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StoryMetadataTest {
+
+  @TempDir
+  Path directory;
+  private Path storyFile;
+  private Story story;
+  private AtomicInteger analyzeCount;
+  private StoryMetadata.StoryAnalyzer analyzer;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    storyFile = Files.writeString(directory.resolve("Test Story.json"), "{}");
+    Passage openingPassage = new Passage("Home", "You are at home.");
+    openingPassage.addLink(new Link("Go outside", "Garden"));
+    Passage garden = new Passage("Garden", "You are in the garden.");
+    garden.addLink(new Link("Go to the shed", "Shed"));
+    story = new Story("Test Story", openingPassage);
+    story.addPassage(garden);
+    analyzeCount = new AtomicInteger();
+    analyzer =
+        file -> {
+          analyzeCount.incrementAndGet();
+          return new StoryParseResult(story, List.of());
+        };
+  }
+
+  @Test
+  void whenMetadataIsWrittenAtSaveTime_itShouldBeReadBackAsCurrent() {
+    StoryMetadata.writeQuietly(storyFile, story);
+
+    StoryMetadata metadata = StoryMetadata.readCurrent(storyFile);
+
+    assertThat(metadata, notNullValue());
+    assertThat(metadata.getStoryTitle(), is("Test Story"));
+    assertThat(metadata.getPassageCount(), is(1));
+    assertThat(metadata.getBrokenLinkCount(), is(1));
+    assertThat(metadata.isValid(), is(true));
+  }
+
+  @Test
+  void whenStoryFileIsChanged_itShouldRebuildTheMetadata() throws IOException {
+    StoryMetadata.writeQuietly(storyFile, story);
+
+    Files.writeString(storyFile, "{ }");
+
+    assertThat(StoryMetadata.readCurrent(storyFile), nullValue());
+    StoryMetadata.forFile(storyFile, analyzer);
+    assertThat(analyzeCount.get(), is(1));
+    assertThat(StoryMetadata.readCurrent(storyFile), notNullValue());
+  }
+
+  @Test
+  void whenOnlyTheLastModifiedTimeIsChanged_itShouldNotAnalyzeTheStoryAgain()
+      throws IOException {
+    StoryMetadata.writeQuietly(storyFile, story);
+
+    FileTime lastModified = Files.getLastModifiedTime(storyFile);
+    Files.setLastModifiedTime(storyFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+    StoryMetadata metadata = StoryMetadata.forFile(storyFile, analyzer);
+
+    assertThat(analyzeCount.get(), is(0));
+    assertThat(metadata.getPassageCount(), is(1));
+    assertThat(StoryMetadata.readCurrent(storyFile), notNullValue());
+  }
+
+  @Test
+  void whenCustomMediaIsChanged_itShouldBeStale() throws IOException {
+    StoryMetadata.writeQuietly(storyFile, story);
+    Path imagesFolder = StoryFileHandler.getCustomMediaPath("Test Story").resolve("images");
+    FileTime lastModified = Files.getLastModifiedTime(imagesFolder);
+
+    try {
+      Files.setLastModifiedTime(imagesFolder, FileTime.fromMillis(lastModified.toMillis() + 1000));
+      assertThat(StoryMetadata.readCurrent(storyFile), nullValue());
+    } finally {
+      Files.setLastModifiedTime(imagesFolder, lastModified);
+    }
+  }
+
+  @Test
+  void whenCustomMediaFileIsOverwrittenInPlace_itShouldBeStale() throws IOException {
+    Path imagesFolder = StoryFileHandler.getCustomMediaPath("Test Story").resolve("images");
+    Files.createDirectories(imagesFolder);
+    Path imageFile = imagesFolder.resolve("garden.png");
+
+    try {
+      Files.writeString(imageFile, "first image");
+      StoryMetadata.writeQuietly(storyFile, story);
+      FileTime folderLastModified = Files.getLastModifiedTime(imagesFolder);
+      FileTime lastModified = Files.getLastModifiedTime(imageFile);
+
+      Files.writeString(imageFile, "other image");
+      Files.setLastModifiedTime(imageFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+      Files.setLastModifiedTime(imagesFolder, folderLastModified);
+
+      assertThat(StoryMetadata.readCurrent(storyFile), nullValue());
+    } finally {
+      Files.deleteIfExists(imageFile);
+    }
+  }
+
+  @Test
+  void whenStoryHasProblems_itShouldNotBeValid() throws IOException {
+    StoryParseResult result =
+        new StoryParseResult(null, List.of(new StoryParseDiagnostic(1, 1, "Invalid title")));
+
+    StoryMetadata metadata = StoryMetadata.forFile(storyFile, file -> result);
+
+    assertThat(metadata.getProblemCount(), is(1));
+    assertThat(metadata.getStoryTitle(), nullValue());
+    assertThat(metadata.isValid(), is(false));
+  }
+
+  @Test
+  void whenStoryHasProblems_itShouldReadTheProblemsBackFromTheSidecarFile() throws IOException {
+    StoryParseResult result =
+        new StoryParseResult(
+            null,
+            List.of(
+                new StoryParseDiagnostic(1, 1, "Invalid title"),
+                new StoryParseDiagnostic(4, 2, "Invalid link")));
+    StoryMetadata.forFile(storyFile, file -> result);
+
+    StoryMetadata metadata = StoryMetadata.readCurrent(storyFile);
+
+    assertThat(metadata, notNullValue());
+    assertThat(metadata.getDiagnostics(), hasSize(2));
+    assertThat(
+        metadata.getDiagnostics().get(1).toString(), is("Line 4, column 2: Invalid link"));
+  }
+
+  @Test
+  void whenSidecarFileIsCurrent_itShouldReturnTheStampedHash() throws IOException {
+    StoryMetadata.writeQuietly(storyFile, story);
+
+    assertThat(StoryMetadata.readCurrentHash(storyFile), is(FileHash.sha256(storyFile)));
+
+    Files.writeString(storyFile, "{ }");
+    assertThat(StoryMetadata.readCurrentHash(storyFile), nullValue());
+  }
+
+  @Test
+  void whenSidecarFileIsMissing_itShouldNotReturnMetadata() {
+    assertThat(StoryMetadata.readCurrent(storyFile), nullValue());
+  }
+}
@@ -0,0 +1,110 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.binary;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.idatt2001.paths.model.actions.GoldAction;
+import edu.ntnu.idatt2001.paths.model.actions.HealthAction;
+import edu.ntnu.idatt2001.paths.model.actions.InventoryAction;
+import edu.ntnu.idatt2001.paths.model.actions.ScoreAction;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Mood;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BinaryStoryFileHandlerTest {
+
+  private Story story;
+
+  @AfterAll
+  static void tearDown() throws IOException {
+    Files.deleteIfExists(BinaryStoryReader.getFilePath("Binary Test Story"));
+  }
+
+  @BeforeEach
+  void setUp() {
+    Passage openingPassage = new Passage("Home", "You are at home. \u00c6re v\u00e6re \u00f8det.");
+    Link toForest = new Link("Go to the forest", "Forest");
+    toForest.addAction(new GoldAction(-300));
+    toForest.addAction(new HealthAction(7));
+    toForest.addAction(new ScoreAction(Integer.MAX_VALUE));
+    toForest.addAction(new InventoryAction("Sword"));
+    openingPassage.addLink(toForest);
+
+    Passage forest = new Passage("Forest", "You are in a forest.", Mood.SPOOKY, true);
+    Link toHome = new Link("Go home", "Home");
+    toHome.addAction(new InventoryAction("Sword"));
+    forest.addLink(toHome);
+    forest.addLink(new Link("Go deeper", "Forest"));
+
+    story = new Story("Binary Test Story", openingPassage);
+    story.addPassage(forest);
+    story.addPassage(new Passage("Home", "A passage sharing the opening title."));
+  }
+
+  @Test
+  void whenStoryIsSavedAndRead_itShouldHaveTheSamePassagesLinksAndActions() throws IOException {
+    BinaryStoryWriter.saveStoryToFile(story);
+    Story loadedStory = BinaryStoryReader.readStoryFromFile("Binary Test Story.pathsb");
+
+    assertThat(loadedStory.getTitle(), equalTo(story.getTitle()));
+    assertThat(
+        loadedStory.getOpeningPassage().getContent(),
+        equalTo(story.getOpeningPassage().getContent()));
+    assertThat(
+        loadedStory.getOpeningPassage().getLinks().get(0).getActions(),
+        equalTo(story.getOpeningPassage().getLinks().get(0).getActions()));
+    assertThat(loadedStory.getPassages(), contains(story.getPassages().toArray()));
+
+    Passage loadedForest = loadedStory.getPassage(new Link("Forest", "Forest"));
+    assertThat(loadedForest.getMood(), equalTo(Mood.SPOOKY));
+    assertThat(loadedForest.isSingleVisitOnly(), is(true));
+    assertThat(loadedForest.getLinks(), hasSize(2));
+    assertThat(loadedStory.isModified(), is(false));
+  }
+
+  @Test
+  void whenStoryIsWritten_itShouldStoreRepeatedStringsOnce() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryStoryWriter.writeStory(story, out);
+    String written = out.toString(StandardCharsets.ISO_8859_1);
+
+    assertThat(written.indexOf("Sword"), equalTo(written.lastIndexOf("Sword")));
+    assertThat(written.indexOf("Forest"), equalTo(written.lastIndexOf("Forest")));
+    assertThat(written.indexOf("Home"), equalTo(written.lastIndexOf("Home")));
+  }
+
+  @Test
+  void whenFileIsTruncatedOrNotABinaryStory_itShouldThrowAnIoException() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryStoryWriter.writeStory(story, out);
+    byte[] bytes = out.toByteArray();
+
+    assertThrows(
+        IOException.class,
+        () -> BinaryStoryReader.readStory(Arrays.copyOf(bytes, bytes.length - 3)));
+    assertThrows(
+        IOException.class,
+        () -> BinaryStoryReader.readStory("::Not a binary story".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void whenCountIsNegativeOrLargerThanTheFile_itShouldThrowAnIoException() {
+    byte[] negativeCount = {0x50, 0x53, 0x42, 0x54, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, 0x0F};
+    byte[] hugeCount = {0x50, 0x53, 0x42, 0x54, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, 0x07};
+
+    assertThrows(IOException.class, () -> BinaryStoryReader.readStory(negativeCount));
+    assertThrows(IOException.class, () -> BinaryStoryReader.readStory(hugeCount));
+  }
+}
@@ -0,0 +1,43 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import edu.ntnu.idatt2001.paths.model.actions.GoldAction;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class CodecRegistryTest {
+
+  @Test
+  void whenReadersAndWritersAreRequested_itShouldReturnTheSameInstances() {
+    assertThat(CodecRegistry.storyReader(), sameInstance(CodecRegistry.storyReader()));
+    assertThat(CodecRegistry.storyWriter(true), sameInstance(CodecRegistry.storyWriter(true)));
+    assertThat(CodecRegistry.gameDataReader(), sameInstance(CodecRegistry.gameDataReader()));
+    assertThat(
+        CodecRegistry.storyWriter(true), not(sameInstance(CodecRegistry.storyWriter(false))));
+  }
+
+  @Test
+  void whenStoryIsWrittenAndRead_itShouldHaveTheSamePassagesAndActions() throws IOException {
+    Passage openingPassage = new Passage("Home", "You are at home.");
+    Link link = new Link("Go outside", "Garden");
+    link.addAction(new GoldAction(5));
+    openingPassage.addLink(link);
+    Story story = new Story("Codec Story", openingPassage);
+    story.addPassage(new Passage("Garden", "You are in the garden."));
+
+    String json = CodecRegistry.storyWriter(true).writeValueAsString(story);
+    Story loadedStory = CodecRegistry.storyReader().readValue(json);
+
+    assertThat(json, not(containsString("\n")));
+    assertThat(loadedStory.getTitle(), equalTo("Codec Story"));
+    assertThat(loadedStory.getPassages(), containsInAnyOrder(story.getPassages().toArray()));
+    assertThat(
+        loadedStory.getOpeningPassage().getLinks().get(0).getActions().get(0),
+        instanceOf(GoldAction.class));
+  }
+}
@@ -1,26 +1,42 @@
 package edu.ntnu.idatt2001.paths.model.filehandlers.json;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryCatalog;
+import edu.ntnu.idatt2001.paths.model.filehandlers.StoryReference;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.DirectoryIndex;
 import edu.ntnu.idatt2001.paths.model.game.Game;
 import edu.ntnu.idatt2001.paths.model.game.Player;
 import edu.ntnu.idatt2001.paths.model.goals.Goal;
 import edu.ntnu.idatt2001.paths.model.goals.HealthGoal;
 import edu.ntnu.idatt2001.paths.model.goals.ScoreGoal;
+import edu.ntnu.idatt2001.paths.model.story.Link;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 class GameFileHandlerTest {
 
-  private static Path savedGamePath;
+  private static final String REFERENCED_STORY_TITLE = "Referenced Story";
+  private static final long WATCH_TIMEOUT_MILLIS = 10_000;
+
+  private static final List<Path> savedSlotPaths = new ArrayList<>();
   private GameFileHandler gameFileHandler;
   private Game testGame;
   private Story testStory;
@@ -31,7 +47,17 @@ class GameFileHandlerTest {
   @AfterAll
   static void cleanUp() {
     try {
-      Files.delete(savedGamePath);
+      for (Path savedSlotPath : savedSlotPaths) {
+        Files.deleteIfExists(savedSlotPath);
+        DirectoryIndex.fileDeleted(savedSlotPath);
+      }
+      Path referencedGamePath =
+          new GameFileHandler().getFilePath().resolve(REFERENCED_STORY_TITLE + ".json");
+      Files.deleteIfExists(referencedGamePath);
+      DirectoryIndex.fileDeleted(referencedGamePath);
+      Files.deleteIfExists(StoryCatalog.getStoryFilePath(REFERENCED_STORY_TITLE + ".json"));
+      // Leaves the deleted saves out of the manifest, which removes it if no saves are left
+      GameFileHandler.getSaveSlots();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -50,56 +76,253 @@ class GameFileHandlerTest {
     testGame = new Game(testPlayer, testStory, testGoals);
     gameFileHandler = new GameFileHandler();
     Files.createDirectories(gameFileHandler.getFilePath());
-    savedGamePath = gameFileHandler.getFilePath().resolve(testGame.getStory().getTitle() + ".json");
-
   }
 
   @Test
-  void saveGameToFile_createsFileWithCorrectContent() throws IOException {
-    gameFileHandler.saveGameToFile(testGame, passage);
+  void saveGameToSlot_createsFileWithCorrectContent() throws IOException {
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
 
-    Game loadedGame = gameFileHandler.loadGameFromFile("Test Story").getGame();
+    Game loadedGame = gameFileHandler.loadGameFromFile(slotName).getGame();
     assertThat(loadedGame, equalTo(testGame));
   }
 
+  @Test
+  void saveGameToSlot_writesCompactJson() throws IOException {
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+
+    Path slotPath = gameFileHandler.getFilePath().resolve(slotName + ".json");
+    assertThat(Files.readAllLines(slotPath).size(), equalTo(1));
+  }
+
   @Test
   void loadGameFromFile_returnsCorrectGame() throws IOException {
-    gameFileHandler.saveGameToFile(testGame, passage);
-    Game loadedGame = gameFileHandler.loadGameFromFile("Test Story").getGame();
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    Game loadedGame = gameFileHandler.loadGameFromFile(slotName).getGame();
 
     assertThat(loadedGame, equalTo(testGame));
   }
 
   @Test
   void loadGameFromFile_ContainsAllPassages() throws IOException {
-    gameFileHandler.saveGameToFile(testGame, passage);
-    Game loadedGame = gameFileHandler.loadGameFromFile("Test Story").getGame();
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    Game loadedGame = gameFileHandler.loadGameFromFile(slotName).getGame();
     assertThat(
         loadedGame.getStory().getPassages().toArray(), equalTo(testStory.getPassages().toArray()));
   }
 
   @Test
   void loadGameFromFile_ContainsAllGoalsType() throws IOException {
-    gameFileHandler.saveGameToFile(testGame, passage);
-    Game loadedGame = gameFileHandler.loadGameFromFile("Test Story").getGame();
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    Game loadedGame = gameFileHandler.loadGameFromFile(slotName).getGame();
     assertThat(loadedGame.getGoals().toArray().getClass(), equalTo(testGoals.toArray().getClass()));
   }
 
   @Test
   void loadGameFromFile_returnsCorrectPassage() throws IOException {
-    gameFileHandler.saveGameToFile(testGame, passage);
-    Passage loadedPassage = gameFileHandler.loadGameFromFile("Test Story").getPassage();
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    Passage loadedPassage = gameFileHandler.loadGameFromFile(slotName).getPassage();
 
     assertThat(loadedPassage, equalTo(passage));
   }
 
   @Test
   void loadGameFromFile_returnsCorrectGameData() throws IOException {
-    gameFileHandler.saveGameToFile(testGame, passage);
-    GameData loadedGameData = gameFileHandler.loadGameFromFile("Test Story");
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    GameData loadedGameData = gameFileHandler.loadGameFromFile(slotName);
 
     GameData expectedGameData = new GameData(testGame, passage);
     assertThat(loadedGameData.getGame(), equalTo(expectedGameData.getGame()));
     assertThat(loadedGameData.getPassage(), equalTo(expectedGameData.getPassage()));
   }
+
+  @Test
+  void saveGameToSlot_withStoryReference_doesNotEmbedTheStory() throws IOException {
+    GameData gameData = saveReferencedGame();
+    Path gameFile = gameFileHandler.getFilePath().resolve(REFERENCED_STORY_TITLE + ".json");
+
+    String savedJson = Files.readString(gameFile);
+    assertThat(savedJson, containsString("\"version\":2"));
+    assertThat(savedJson, not(containsString("You are in a cave.")));
+
+    GameData loadedGameData = gameFileHandler.loadGameFromFile(REFERENCED_STORY_TITLE);
+    assertThat(loadedGameData.getStoryReference(), equalTo(gameData.getStoryReference()));
+    assertThat(loadedGameData.getGame().getPlayer(), equalTo(testGame.getPlayer()));
+    assertThat(loadedGameData.getPassage().getTitle(), equalTo("Cave"));
+    assertThat(loadedGameData.getPassage().getContent(), equalTo("You are in a cave."));
+    assertThat(
+        loadedGameData.getVisitedPassages().get(0),
+        sameInstance(loadedGameData.getGame().getStory().getOpeningPassage()));
+    assertThat(loadedGameData.getVisitedPassages().get(1).getTitle(), equalTo("Forest"));
+  }
+
+  @Test
+  void loadGameFromFile_withChangedStory_leavesOutRemovedVisitedPassages() throws IOException {
+    saveReferencedGame();
+    Story changedStory = createReferencedStory();
+    changedStory.removePassage(new Link("Forest", "Forest"));
+    new StoryFileHandler().saveStoryToFile(changedStory);
+
+    GameData loadedGameData = gameFileHandler.loadGameFromFile(REFERENCED_STORY_TITLE);
+
+    assertThat(loadedGameData.getPassage().getTitle(), equalTo("Cave"));
+    assertThat(loadedGameData.getVisitedPassages(), contains(changedStory.getOpeningPassage()));
+    assertThat(
+        loadedGameData.getStoryReference(),
+        equalTo(StoryCatalog.createReference(REFERENCED_STORY_TITLE + ".json")));
+  }
+
+  @Test
+  void loadGameFromFile_withChangedStory_failsIfTheCurrentPassageWasRemoved() throws IOException {
+    saveReferencedGame();
+    Story changedStory = createReferencedStory();
+    changedStory.removePassage(new Link("Cave", "Cave"));
+    new StoryFileHandler().saveStoryToFile(changedStory);
+
+    assertThrows(
+        IOException.class, () -> gameFileHandler.loadGameFromFile(REFERENCED_STORY_TITLE));
+  }
+
+  @Test
+  void saveGameToSlot_keepsTheEarlierSlotsOfTheStory() throws IOException {
+    String firstSlotName = saveToNewSlot(new GameData(testGame, passage));
+    Passage forest = testStory.getPassage(new Link("Forest", "Forest"));
+    String secondSlotName = saveToNewSlot(new GameData(testGame, forest));
+
+    assertThat(secondSlotName, not(equalTo(firstSlotName)));
+    assertThat(gameFileHandler.loadGameFromFile(firstSlotName).getPassage(), equalTo(passage));
+    assertThat(gameFileHandler.loadGameFromFile(secondSlotName).getPassage(), equalTo(forest));
+  }
+
+  @Test
+  void getSaveSlots_listsTheMetadataOfEachSave() throws IOException {
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    long savedAt =
+        Files.getLastModifiedTime(gameFileHandler.getFilePath().resolve(slotName + ".json"))
+            .toMillis();
+
+    SaveSlot expectedSlot = createTestSaveSlot(slotName, savedAt);
+    assertThat(GameFileHandler.getSaveSlots(), hasItem(expectedSlot));
+  }
+
+  @Test
+  void getSaveSlots_leavesOutRemovedSaves() throws Exception {
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    SaveSlot savedSlot = createTestSaveSlot(slotName, getSavedAt(slotName));
+    assertThat(GameFileHandler.getSaveSlots(), hasItem(savedSlot));
+    Files.delete(gameFileHandler.getFilePath().resolve(slotName + ".json"));
+
+    awaitSaveSlots(
+        saveSlots ->
+            saveSlots.stream().noneMatch(saveSlot -> saveSlot.getSlotName().equals(slotName)));
+    for (SaveSlot saveSlot : GameFileHandler.getSaveSlots()) {
+      assertThat(saveSlot.getSlotName(), not(equalTo(slotName)));
+    }
+  }
+
+  @Test
+  void getSaveSlots_rereadsSavesChangedOutsideTheManifest() throws Exception {
+    String slotName = saveToNewSlot(new GameData(testGame, passage));
+    Path slotPath = gameFileHandler.getFilePath().resolve(slotName + ".json");
+    long changedAt = getSavedAt(slotName) + 60_000;
+    GameFileHandler.getSaveSlots();
+    Files.setLastModifiedTime(slotPath, FileTime.fromMillis(changedAt));
+
+    SaveSlot expectedSlot = createTestSaveSlot(slotName, changedAt);
+    awaitSaveSlots(saveSlots -> saveSlots.contains(expectedSlot));
+    assertThat(GameFileHandler.getSaveSlots(), hasItem(expectedSlot));
+  }
+
+  /**
+   * Returns the time the game in the given save slot was saved, from its save file.
+   *
+   * @param slotName the name of the save slot
+   * @return the time the save file was last modified, in milliseconds since the epoch
+   * @throws IOException if the save file cannot be read
+   */
+  private long getSavedAt(String slotName) throws IOException {
+    return Files.getLastModifiedTime(gameFileHandler.getFilePath().resolve(slotName + ".json"))
+        .toMillis();
+  }
+
+  /**
+   * Waits until the listed save slots match the given condition, since saves changed by others
+   * are picked up by the watch service in the background.
+   *
+   * @param condition the condition the listed save slots should match
+   * @throws Exception if the thread is interrupted while waiting, or the saves cannot be listed
+   */
+  private void awaitSaveSlots(Predicate<List<SaveSlot>> condition) throws Exception {
+    long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+    while (!condition.test(GameFileHandler.getSaveSlots())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+  }
+
+  /**
+   * Saves the given game data in a new save slot of the test story.
+   *
+   * @param gameData the game data to save
+   * @return the name of the save slot
+   * @throws IOException if the game cannot be saved
+   */
+  private String saveToNewSlot(GameData gameData) throws IOException {
+    String slotName = GameFileHandler.createSlotName("Test Story");
+    savedSlotPaths.add(gameFileHandler.getFilePath().resolve(slotName + ".json"));
+    gameFileHandler.saveGameToSlot(gameData, slotName);
+    return slotName;
+  }
+
+  /**
+   * Creates the save slot expected for the test game saved at the test passage.
+   *
+   * @param slotName the name of the save slot
+   * @param savedAt  the time the game was saved
+   * @return the expected save slot
+   */
+  private SaveSlot createTestSaveSlot(String slotName, long savedAt) {
+    Player player = testGame.getPlayer();
+    return new SaveSlot(
+        slotName,
+        "Test Story",
+        player.getName(),
+        passage.getTitle(),
+        player.getHealth(),
+        player.getGold(),
+        player.getScore(),
+        savedAt);
+  }
+
+  /**
+   * Saves a story as a JSON file, and saves a game at its cave passage that refers to the story
+   * file.
+   *
+   * @return the saved game data
+   * @throws IOException if the story or game cannot be saved
+   */
+  private GameData saveReferencedGame() throws IOException {
+    Story story = createReferencedStory();
+    new StoryFileHandler().saveStoryToFile(story);
+    StoryReference storyReference = StoryCatalog.createReference(REFERENCED_STORY_TITLE + ".json");
+    Game game = new Game(testGame.getPlayer(), story, testGoals);
+    List<Passage> visitedPassages =
+        List.of(story.getOpeningPassage(), story.getPassage(new Link("Forest", "Forest")));
+    GameData gameData =
+        new GameData(
+            game, story.getPassage(new Link("Cave", "Cave")), visitedPassages, storyReference);
+    gameFileHandler.saveGameToSlot(gameData, REFERENCED_STORY_TITLE);
+    return gameData;
+  }
+
+  /**
+   * Creates the story that the referenced games are played in.
+   *
+   * @return the story
+   */
+  private Story createReferencedStory() {
+    Story story = new Story(REFERENCED_STORY_TITLE, new Passage("Home", "You are at home."));
+    story.addPassage(new Passage("Forest", "You are in a forest."));
+    story.addPassage(new Passage("Cave", "You are in a cave."));
+    return story;
+  }
 }
@@ -6,6 +6,7 @@ import static org.hamcrest.Matchers.*;
 import edu.ntnu.idatt2001.paths.model.actions.Action;
 import edu.ntnu.idatt2001.paths.model.actions.GoldAction;
 import edu.ntnu.idatt2001.paths.model.actions.HealthAction;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
 import edu.ntnu.idatt2001.paths.model.story.Link;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
@@ -30,6 +31,7 @@ class StoryFileHandlerTest {
   static void cleanUp() {
     try {
       Files.delete(savedStoryPath);
+      Files.deleteIfExists(PassageIndex.getSidecarPath(savedStoryPath));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -62,6 +64,43 @@ class StoryFileHandlerTest {
     assertThat("The story file should exist", Files.exists(savedStoryPath), is(true));
   }
 
+  @Test
+  void testSaveCompactStory_ShouldWriteOneLineAndLoadTheSameStory() throws IOException {
+    storyFileHandler.saveStoryToFile(testStory, true);
+
+    assertThat(Files.readAllLines(savedStoryPath), hasSize(1));
+    Story loadedStory = storyFileHandler.loadStoryFromFile(testStory.getTitle());
+    assertThat(loadedStory.getPassages(), containsInAnyOrder(testStory.getPassages().toArray()));
+    try (var files = Files.list(storyFileHandler.getFilePath())) {
+      assertThat(files.noneMatch(file -> file.toString().endsWith(".tmp")), is(true));
+    }
+  }
+
+  @Test
+  void testLoadPassage_ShouldOnlyReadTheRequestedPassage() throws IOException {
+    Passage forest = testStory.getPassage(new Link("Forest", "Forest"));
+    Passage loadedForest = storyFileHandler.loadPassageFromFile(testStory.getTitle(), "Forest");
+
+    assertThat(loadedForest, equalTo(forest));
+    assertThat(loadedForest.getContent(), equalTo(forest.getContent()));
+    assertThat(loadedForest.getLinks().get(0).getActions(), hasSize(2));
+    assertThat(Files.exists(PassageIndex.getSidecarPath(savedStoryPath)), is(true));
+    assertThat(
+        storyFileHandler.loadPassageFromFile(testStory.getTitle(), "Opening Passage").getContent(),
+        equalTo(testStory.getOpeningPassage().getContent()));
+  }
+
+  @Test
+  void testLoadPassage_ShouldRebuildStaleIndex() throws IOException {
+    storyFileHandler.loadPassageFromFile(testStory.getTitle(), "Cave");
+    testStory.getPassage(new Link("Cave", "Cave")).setContent("You are in a much larger cave.");
+    storyFileHandler.saveStoryToFile(testStory);
+
+    assertThat(
+        storyFileHandler.loadPassageFromFile(testStory.getTitle(), "Cave").getContent(),
+        equalTo("You are in a much larger cave."));
+  }
+
   @Test
   void testLoadStory() throws IOException {
     Story loadedStory = storyFileHandler.loadStoryFromFile(testStory.getTitle());
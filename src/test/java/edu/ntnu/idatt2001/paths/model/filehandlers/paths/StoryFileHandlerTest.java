@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import edu.ntnu.idatt2001.paths.model.actions.HealthAction;
 import edu.ntnu.idatt2001.paths.model.actions.InventoryAction;
+import edu.ntnu.idatt2001.paths.model.filehandlers.util.PassageIndex;
 import edu.ntnu.idatt2001.paths.model.story.Link;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
 import edu.ntnu.idatt2001.paths.model.story.Story;
@@ -34,6 +35,7 @@ class StoryFileHandlerTest {
     Path path = Path.of("src/main/resources/stories/paths/Test Story.paths");
     try {
       Files.delete(path);
+      Files.deleteIfExists(PassageIndex.getSidecarPath(path));
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -206,4 +208,200 @@ class StoryFileHandlerTest {
       }
     }
   }
+
+  @Test
+  void whenDefaultStoryIsReadWithDiagnostics_itShouldHaveNoDiagnostics() throws IOException {
+    StoryParseResult result = StoryFileReader.readStoryWithDiagnostics("Default Story");
+    assertThat(result.isValid(), is(true));
+    assertThat(result.getDiagnostics(), is(empty()));
+  }
+
+  @Test
+  void whenFileWithSeveralErrorsIsRead_itShouldReturnStoryAndAllDiagnostics() throws IOException {
+    String invalidFileTitle = "Invalid Test Story";
+    Path invalidFilePath = Path.of("src/main/resources/stories/paths/" + invalidFileTitle + ".paths");
+    String content =
+        String.join(
+            System.lineSeparator(),
+            invalidFileTitle,
+            "",
+            "::Opening Passage",
+            "This is the opening passage.",
+            "[Go to the forest](Forest)",
+            "{H:10,X:5,G:abc}",
+            "[Go nowhere](x",
+            "",
+            "::Forest",
+            "This is the forest",
+            "",
+            "::A title that is far too long",
+            "This passage is skipped",
+            "",
+            "::Cave",
+            "This is the cave",
+            "");
+    try {
+      Files.writeString(invalidFilePath, content);
+      StoryParseResult result = StoryFileReader.readStoryWithDiagnostics(invalidFileTitle);
+
+      assertThat(result.hasStory(), is(true));
+      assertThat(result.isValid(), is(false));
+      assertThat(result.getStory().getPassages(), hasSize(2));
+      assertThat(
+          result.getStory().getOpeningPassage().getLinks().get(0).getActions(),
+          contains(new HealthAction(10)));
+      assertThat(
+          result.getDiagnostics().stream().map(StoryParseDiagnostic::getLine).toList(),
+          contains(6, 6, 7, 12));
+      assertThat(
+          result.getDiagnostics().stream().map(StoryParseDiagnostic::getColumn).toList(),
+          contains(7, 11, 1, 1));
+      assertThrows(ParseException.class, () -> StoryFileReader.readStoryFromFile(invalidFileTitle));
+    } finally {
+      Files.deleteIfExists(invalidFilePath);
+    }
+  }
+
+  @Test
+  void whenSinglePassageIsRead_itShouldEqualTheSavedPassage() throws IOException, ParseException {
+    Passage passage1 = StoryFileReader.readPassage("Test Story", "Passage1");
+    Passage openingPassage = StoryFileReader.readPassage("Test Story", "Opening Passage");
+
+    assertThat(passage1.getContent(), equalTo("This is the first passage."));
+    assertThat(passage1.getLinks(), contains(new Link("Go to the forest", "Forest")));
+    assertThat(
+        openingPassage.getLinks().get(0).getActions(),
+        contains(new HealthAction(10), new InventoryAction("Sword")));
+    assertThat(
+        Files.exists(
+            PassageIndex.getSidecarPath(
+                Path.of("src/main/resources/stories/paths/Test Story.paths"))),
+        is(true));
+  }
+
+  @Test
+  void whenStoryIsReadLazily_itShouldLoadContentFromTheFile() throws IOException, ParseException {
+    Story lazyStory = StoryFileReader.readStoryLazily("Test Story");
+
+    assertThat(lazyStory, equalTo(story));
+    for (Passage passage : story.getPassages()) {
+      assertThat(
+          lazyStory.getPassages().stream()
+              .filter(lazyPassage -> lazyPassage.equals(passage))
+              .findFirst()
+              .orElseThrow()
+              .getContent(),
+          equalTo(passage.getContent()));
+    }
+  }
+
+  @Test
+  void whenLazilyReadFileIsRewritten_itShouldNotServeCachedContent()
+      throws IOException, ParseException {
+    Story lazyStory = StoryFileReader.readStoryLazily("Test Story");
+    Link forestLink = new Link("Forest", "Forest");
+    assertThat(lazyStory.getPassage(forestLink).getContent(), equalTo("This is the forest"));
+
+    loadedStory.getPassage(forestLink).setContent("This is the forest, now with tall trees.");
+    StoryFileWriter.saveChangedPassages(loadedStory);
+
+    assertThat(
+        lazyStory.getPassage(forestLink).getContent(),
+        equalTo("This is the forest, now with tall trees."));
+  }
+
+  @Test
+  void whenLazilyReadFileHasProblems_itShouldFailWithTheFirstProblem() throws IOException {
+    Path path = Path.of("src/main/resources/stories/paths/InvalidLazyStory.paths");
+    try {
+      Files.writeString(
+          path,
+          String.join(
+              System.lineSeparator(),
+              "Invalid Lazy Story",
+              "",
+              "::Opening",
+              "The opening.",
+              "[Go on](Next)",
+              "",
+              "::Next",
+              "The next passage.",
+              "Invalid Link",
+              ""));
+
+      ParseException exception =
+          assertThrows(
+              ParseException.class, () -> StoryFileReader.readStoryLazily("InvalidLazyStory"));
+      assertThat(exception.getErrorOffset(), equalTo(8));
+      assertThat(exception.getMessage(), containsString("Invalid link format: Invalid Link"));
+      ParseException fullReadException =
+          assertThrows(
+              ParseException.class, () -> StoryFileReader.readStoryFromFile("InvalidLazyStory"));
+      assertThat(exception.getMessage(), equalTo(fullReadException.getMessage()));
+    } finally {
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(PassageIndex.getSidecarPath(path));
+    }
+  }
+
+  @Test
+  void whenChangedPassagesAreSaved_itShouldLoadTheChangedStory()
+      throws IOException, ParseException {
+    Path path = Path.of("src/main/resources/stories/paths/Test Story.paths");
+    long originalSize = Files.size(path);
+    loadedStory.getOpeningPassage().setContent("Shorter opening.");
+    loadedStory.getPassages().stream()
+        .filter(passage -> passage.getTitle().equals("Forest"))
+        .findFirst()
+        .orElseThrow()
+        .setContent("This is the forest, which now has a much longer description than before.");
+    Passage cave = new Passage("Cave", "This is the cave");
+    cave.addLink(new Link("Back to the forest", "Forest"));
+    loadedStory.addPassage(cave);
+
+    StoryFileWriter.saveChangedPassages(loadedStory);
+
+    assertThat(loadedStory.isModified(), is(false));
+    assertThat(Files.size(path), greaterThan(originalSize));
+    assertThat(StoryFileReader.readStoryFromFile("Test Story"), equalTo(loadedStory));
+
+    loadedStory.removePassage(new Link("Cave", "Cave"));
+    StoryFileWriter.saveChangedPassages(loadedStory);
+
+    Story reloadedStory = StoryFileReader.readStoryFromFile("Test Story");
+    assertThat(reloadedStory, equalTo(loadedStory));
+    assertThat(reloadedStory.getPassages(), hasSize(2));
+  }
+
+  @Test
+  void whenFileIsChangedBySomeoneElse_itShouldSaveTheWholeStory()
+      throws IOException, ParseException {
+    Path path = Path.of("src/main/resources/stories/paths/Test Story.paths");
+    Files.writeString(path, Files.readString(path).replace("forest", "woods"));
+    loadedStory.getOpeningPassage().setContent("Changed opening.");
+
+    StoryFileWriter.saveChangedPassages(loadedStory);
+
+    Story reloadedStory = StoryFileReader.readStoryFromFile("Test Story");
+    assertThat(reloadedStory.getOpeningPassage().getContent(), equalTo("Changed opening."));
+    assertThat(
+        reloadedStory.getPassage(new Link("Forest", "Forest")).getContent(),
+        equalTo("This is the forest"));
+  }
+
+  @Test
+  void whenOpeningPassageIsInvalid_itShouldReturnNoStory() throws IOException {
+    String invalidPassageContent =
+        "Story Title\n\n:Passage1\nThis is the first passage.\nInvalid Link";
+    Path path = Path.of("src/main/resources/stories/paths/InvalidPassageFormatStory.paths");
+    try {
+      Files.writeString(path, invalidPassageContent);
+      StoryParseResult result =
+          StoryFileReader.readStoryWithDiagnostics("InvalidPassageFormatStory");
+      assertThat(result.hasStory(), is(false));
+      assertThat(result.getDiagnostics().isEmpty(), is(false));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
 }
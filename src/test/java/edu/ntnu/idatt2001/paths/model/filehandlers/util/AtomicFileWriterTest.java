@@ -0,0 +1,95 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AtomicFileWriterTest {
+
+  @TempDir
+  Path directory;
+  private Path target;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    target = directory.resolve("Test Story.paths");
+  }
+
+  @Test
+  void whenContentIsWritten_itShouldReplaceTheTargetFile() throws IOException {
+    Files.writeString(target, "old content");
+    AtomicFileWriter.write(target, out -> out.write("new content".getBytes(StandardCharsets.UTF_8)));
+    assertThat(Files.readString(target), equalTo("new content"));
+  }
+
+  @Test
+  void whenStreamIsClosedByContentWriter_itShouldStillWriteTheFile() throws IOException {
+    AtomicFileWriter.write(
+        target,
+        out -> {
+          out.write("content".getBytes(StandardCharsets.UTF_8));
+          out.close();
+        });
+    assertThat(Files.readString(target), equalTo("content"));
+  }
+
+  @Test
+  void whenWritingFails_itShouldLeaveTheTargetFileAndNoTemporaryFiles() throws IOException {
+    Files.writeString(target, "old content");
+    assertThrows(
+        IOException.class,
+        () ->
+            AtomicFileWriter.write(
+                target,
+                out -> {
+                  out.write("partial".getBytes(StandardCharsets.UTF_8));
+                  throw new IOException("Simulated failure");
+                }));
+    assertThat(Files.readString(target), equalTo("old content"));
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count(), is(1L));
+    }
+  }
+
+  @Test
+  void whenNewFileIsWritten_itShouldGetTheDefaultPermissions() throws IOException {
+    assumePosix();
+    Path plainFile = Files.createFile(directory.resolve("plain.txt"));
+
+    AtomicFileWriter.write(target, out -> out.write(1));
+
+    assertThat(
+        Files.getPosixFilePermissions(target), equalTo(Files.getPosixFilePermissions(plainFile)));
+  }
+
+  @Test
+  void whenFileIsReplaced_itShouldKeepItsPermissions() throws IOException {
+    assumePosix();
+    Files.writeString(target, "old content");
+    Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+    Files.setPosixFilePermissions(target, permissions);
+
+    AtomicFileWriter.write(target, out -> out.write(1));
+
+    assertThat(Files.getPosixFilePermissions(target), equalTo(permissions));
+  }
+
+  private void assumePosix() {
+    Assumptions.assumeTrue(
+        directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+  }
+}
@@ -0,0 +1,126 @@
+package edu.ntnu.idatt2001.paths.model.filehandlers.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DirectoryIndexTest {
+
+  private static final long WATCH_TIMEOUT_MILLIS = 10_000;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void whenIndexIsCreated_itShouldListTheFilesWithTheGivenEnding() throws IOException {
+    Files.writeString(directory.resolve("B Story.json"), "{}");
+    Files.writeString(directory.resolve("A Story.json"), "{}");
+    Files.writeString(directory.resolve("A Story.paths"), "A Story");
+
+    List<String> fileNames = DirectoryIndex.of(directory).getFileNames(".json");
+
+    assertThat(fileNames, contains("A Story.json", "B Story.json"));
+  }
+
+  @Test
+  void whenFileIsWrittenAtomically_itShouldBeListedAtOnce() throws IOException {
+    DirectoryIndex index = DirectoryIndex.of(directory);
+
+    AtomicFileWriter.write(
+        directory.resolve("Test Story.json"),
+        out -> out.write("{}".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(index.getFileNames(".json"), contains("Test Story.json"));
+  }
+
+  @Test
+  void whenFilesAreChangedByOthers_itShouldFollowTheChanges() throws Exception {
+    DirectoryIndex index = DirectoryIndex.of(directory);
+    Path storyFile = directory.resolve("Test Story.json");
+
+    Files.writeString(storyFile, "{}");
+    awaitFileNames(index, fileNames -> fileNames.contains("Test Story.json"));
+    assertThat(index.getFileNames(".json"), contains("Test Story.json"));
+
+    Files.delete(storyFile);
+    awaitFileNames(index, List::isEmpty);
+    assertThat(index.getFileNames(".json"), is(empty()));
+  }
+
+  @Test
+  void whenFileIsWrittenOrDeleted_itShouldTellTheListeners() throws IOException {
+    DirectoryIndex index = DirectoryIndex.of(directory);
+    List<String> changedFileNames = new CopyOnWriteArrayList<>();
+    index.addListener(changedFileNames::add);
+    Path storyFile = directory.resolve("Test Story.json");
+
+    AtomicFileWriter.write(storyFile, out -> out.write("{}".getBytes(StandardCharsets.UTF_8)));
+    assertThat(changedFileNames, hasItem("Test Story.json"));
+
+    changedFileNames.clear();
+    Files.delete(storyFile);
+    DirectoryIndex.fileDeleted(storyFile);
+    assertThat(changedFileNames, hasItem("Test Story.json"));
+    assertThat(index.getFileNames(".json"), is(empty()));
+  }
+
+  @Test
+  void whenDirectoryDoesNotExist_itShouldNotCreateItAndListItsFilesOnceItExists()
+      throws Exception {
+    Path missingDirectory = directory.resolve("Missing");
+    DirectoryIndex index = DirectoryIndex.of(missingDirectory);
+    List<String> changedFileNames = new CopyOnWriteArrayList<>();
+    index.addListener(changedFileNames::add);
+
+    assertThat(index.getFileNames(".json"), is(empty()));
+    assertThat(Files.exists(missingDirectory), is(false));
+
+    Files.createDirectories(missingDirectory);
+    Files.writeString(missingDirectory.resolve("A Story.json"), "{}");
+    assertThat(index.getFileNames(".json"), contains("A Story.json"));
+    assertThat(index.getFileNames(".json"), contains("A Story.json"));
+    assertThat(changedFileNames, contains("A Story.json"));
+
+    Files.writeString(missingDirectory.resolve("B Story.json"), "{}");
+    awaitFileNames(index, fileNames -> fileNames.size() == 2);
+    assertThat(index.getFileNames(".json"), contains("A Story.json", "B Story.json"));
+  }
+
+  @Test
+  void whenDirectoryIsAskedForAgain_itShouldReturnTheSameIndex() {
+    DirectoryIndex index = DirectoryIndex.of(directory);
+
+    Path samePath = directory.resolve("..").resolve(directory.getFileName());
+    assertThat(DirectoryIndex.of(samePath), sameInstance(index));
+  }
+
+  /**
+   * Waits until the files listed by the index match the given condition, since changes made by
+   * others are picked up by the watch service in the background.
+   *
+   * @param index     the index to wait for
+   * @param condition the condition the listed files should match
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  private void awaitFileNames(DirectoryIndex index, Predicate<List<String>> condition)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+    while (!condition.test(index.getFileNames(".json"))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import javafx.util.Duration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for AudioEngine only testing the cases that do not play any media. Additional testing
+ * is difficult to implement because of the MediaPlayer.
+ */
+class AudioEngineTest {
+
+  @Test
+  void whenPoolSizeIsNegative_itShouldThrow() {
+    assertThrows(IllegalArgumentException.class, () -> new AudioEngine(-1, Duration.ZERO));
+  }
+
+  @Test
+  void whenTrackCannotBeLoaded_itShouldNotBePreloaded() {
+    AudioEngine audioEngine = new AudioEngine();
+
+    assertDoesNotThrow(() -> audioEngine.preload("file:/nonexistent/track.mp3"));
+    assertDoesNotThrow(() -> audioEngine.preload(null));
+    assertNull(audioEngine.getCurrentTrack());
+  }
+
+  @Test
+  void whenTrackIsMissing_itShouldNotPlay() {
+    AudioEngine audioEngine = new AudioEngine();
+
+    assertThrows(NullPointerException.class, () -> audioEngine.play(null));
+    assertThrows(NullPointerException.class, () -> audioEngine.playEffect(null));
+  }
+}
@@ -5,37 +5,75 @@ import static org.hamcrest.Matchers.*;
 
 import edu.ntnu.idatt2001.paths.model.story.Mood;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Path;
+import javafx.scene.image.Image;
 import javafx.scene.layout.Region;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class BackgroundHandlerTest {
   private BackgroundHandler backgroundHandler;
+  private ImageCache imageCache;
+  private ThumbnailCache thumbnailCache;
+  @TempDir
+  Path thumbnailDirectory;
   private Passage passage;
   private Region region;
-  private String storyTitle;
+  private MediaManifest mediaManifest;
 
   @BeforeEach
-  void setUp() {
-    backgroundHandler = BackgroundHandler.getInstance();
+  void setUp() throws IOException {
+    imageCache = new ImageCache(64L * 1024 * 1024, false);
+    thumbnailCache = new ThumbnailCache(thumbnailDirectory);
+    backgroundHandler =
+        new BackgroundHandler(imageCache, thumbnailCache, Runnable::run, Runnable::run);
     passage = new Passage("Test Title", "Test Content", Mood.HAPPY, true);
     region = new Region();
-    storyTitle = "Test Story";
+    mediaManifest = MediaManifest.forStory(new Story("Test Story", passage));
   }
 
   @Test
   @DisplayName("Should return false when custom background image does not exist")
   void testNoBackground() {
-    boolean result = backgroundHandler.hasBackground(passage, storyTitle);
+    boolean result = backgroundHandler.hasBackground(passage, mediaManifest);
     assertThat(result, is(false));
   }
 
   @Test
   @DisplayName("Should update background image to default when custom background does not exist")
   void testUpdateBackgroundDefault() {
-    backgroundHandler.updateBackground(region, passage, storyTitle);
-    String style = region.getStyle();
-    assertThat(style, containsString("/images/passage-moods/happy.png"));
+    backgroundHandler.updateBackground(region, passage, mediaManifest);
+    assertThat(region.getBackground().getImages(), hasSize(1));
+    Image image = region.getBackground().getImages().get(0).getImage();
+    assertThat(image.getWidth(), is(800.0));
+  }
+
+  @Test
+  @DisplayName("Should show a mood placeholder until the background image is decoded")
+  void testUpdateBackgroundPlaceholder() {
+    BackgroundHandler pendingHandler =
+        new BackgroundHandler(imageCache, thumbnailCache, task -> { }, Runnable::run);
+
+    pendingHandler.updateBackground(region, passage, mediaManifest);
+
+    assertThat(region.getBackground().getImages(), empty());
+    assertThat(region.getBackground().getFills(), hasSize(1));
+  }
+
+  @Test
+  @DisplayName("Should apply an already decoded background image at once")
+  void testUpdateBackgroundCached() {
+    backgroundHandler.updateBackground(region, passage, mediaManifest);
+    Region otherRegion = new Region();
+    BackgroundHandler pendingHandler =
+        new BackgroundHandler(imageCache, thumbnailCache, task -> { }, Runnable::run);
+
+    pendingHandler.updateBackground(otherRegion, passage, mediaManifest);
+
+    assertThat(otherRegion.getBackground().getImages(), hasSize(1));
   }
 }
@@ -0,0 +1,111 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IconAtlasTest {
+
+  @TempDir
+  Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    copyIcon("happy", "sword.png");
+    copyIcon("sad", "Shield.png");
+    copyIcon("spooky", "potion.png");
+    Files.writeString(directory.resolve("notes.txt"), "not an icon");
+  }
+
+  @Test
+  void whenAtlasIsBuilt_itShouldPackEveryIconIntoItsOwnCell() throws IOException {
+    IconAtlas iconAtlas = IconAtlas.build(directory, 32);
+
+    assertThat(iconAtlas.getImage().getWidth(), is(64.0));
+    assertThat(iconAtlas.getImage().getHeight(), is(64.0));
+    assertThat(iconAtlas.getViewport("potion"), is(new Rectangle2D(0, 0, 32, 32)));
+    assertThat(iconAtlas.getViewport("shield"), is(new Rectangle2D(32, 0, 32, 32)));
+    assertThat(iconAtlas.getViewport("sword"), is(new Rectangle2D(0, 32, 32, 32)));
+    assertThat(iconAtlas.contains("notes"), is(false));
+  }
+
+  @Test
+  void whenIconIsShown_itShouldBeASliceOfTheSharedImage() throws IOException {
+    IconAtlas iconAtlas = IconAtlas.build(directory, 32);
+
+    ImageView swordView = iconAtlas.createView("Sword", 40);
+    ImageView shieldView = iconAtlas.createView("SHIELD", 40);
+
+    assertThat(swordView.getImage(), sameInstance(iconAtlas.getImage()));
+    assertThat(shieldView.getImage(), sameInstance(iconAtlas.getImage()));
+    assertThat(swordView.getViewport(), is(iconAtlas.getViewport("sword")));
+    assertThat(swordView.getFitWidth(), is(40.0));
+  }
+
+  @Test
+  void whenIconIsPacked_itShouldKeepThePixelsOfTheIcon() throws IOException {
+    IconAtlas iconAtlas = IconAtlas.build(directory, 32);
+    Image sword;
+    try (InputStream in = Files.newInputStream(directory.resolve("sword.png"))) {
+      sword = new Image(in, 32, 32, true, true);
+    }
+
+    Rectangle2D viewport = iconAtlas.getViewport("sword");
+    int x = (int) viewport.getMinX() + 16;
+    int y = (int) viewport.getMinY() + 16;
+
+    assertThat(
+        iconAtlas.getImage().getPixelReader().getArgb(x, y),
+        is(sword.getPixelReader().getArgb(16, 16)));
+    assertThat(
+        iconAtlas.getImage().getPixelReader().getArgb(x, y),
+        not(is(iconAtlas.getImage().getPixelReader().getArgb(16, 16))));
+  }
+
+  @Test
+  void whenIconIsMissing_itShouldNotCreateAView() throws IOException {
+    IconAtlas iconAtlas = IconAtlas.build(directory, 32);
+
+    assertThat(iconAtlas.createView("axe", 40), nullValue());
+  }
+
+  @Test
+  void whenIconCannotBeDecoded_itShouldLeaveItOutAndPackTheRest() throws IOException {
+    Files.writeString(directory.resolve("axe.png"), "not an image");
+
+    IconAtlas iconAtlas = IconAtlas.build(directory, 32);
+
+    assertThat(iconAtlas.contains("axe"), is(false));
+    assertThat(iconAtlas.createView("axe", 40), nullValue());
+    assertThat(iconAtlas.getViewport("potion"), is(new Rectangle2D(0, 0, 32, 32)));
+    assertThat(iconAtlas.getViewport("sword"), is(new Rectangle2D(0, 32, 32, 32)));
+  }
+
+  @Test
+  void whenFolderDoesNotExist_itShouldBuildAnEmptyAtlas() throws IOException {
+    IconAtlas iconAtlas = IconAtlas.build(directory.resolve("missing"), 32);
+
+    assertThat(iconAtlas.getImage(), nullValue());
+    assertThat(iconAtlas.contains("sword"), is(false));
+  }
+
+  private void copyIcon(String mood, String fileName) throws IOException {
+    try (InputStream in =
+        getClass().getResourceAsStream("/images/passage-moods/" + mood + ".png")) {
+      Files.copy(in, directory.resolve(fileName));
+    }
+  }
+}
@@ -9,9 +9,21 @@ import org.junit.jupiter.api.Test;
 class IconHandlerTest {
 
   @Test
-  void getInventoryIconReturnsNullForNonExistingFile() throws IOException {
-    Image image = IconHandler.getInventoryIcon("non-existing-file");
+  void getInventoryIconAtlasHasNoIconForNonExistingFile() throws IOException {
+    IconAtlas iconAtlas = IconHandler.getInventoryIconAtlas();
+    assertFalse(iconAtlas.contains("non-existing-file"));
+    assertNull(iconAtlas.createView("non-existing-file", 40));
+  }
+
+  @Test
+  void getIconCachesNonExistingFile() throws IOException {
+    IconHandler.getIcon("another-non-existing-file");
+    long hitCount = ImageCache.getInstance().getHitCount();
+
+    Image image = IconHandler.getIcon("Another-Non-Existing-File");
+
     assertNull(image);
+    assertEquals(hitCount + 1, ImageCache.getInstance().getHitCount());
   }
 
   @Test
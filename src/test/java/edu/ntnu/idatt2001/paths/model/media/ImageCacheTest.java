@@ -0,0 +1,118 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ImageCacheTest {
+
+  private AtomicInteger loadCount;
+  private ImageCache.ImageLoader loader;
+  private ImageCache.ImageLoader missingLoader;
+
+  @BeforeEach
+  void setUp() {
+    loadCount = new AtomicInteger();
+    loader =
+        () -> {
+          loadCount.incrementAndGet();
+          return new WritableImage(10, 10);
+        };
+    missingLoader =
+        () -> {
+          loadCount.incrementAndGet();
+          return null;
+        };
+  }
+
+  @Test
+  void whenImageIsAskedForAgain_itShouldOnlyBeLoadedOnce() throws IOException {
+    ImageCache imageCache = new ImageCache(1000, false);
+
+    Image firstImage = imageCache.get("sword", loader);
+    Image secondImage = imageCache.get("sword", loader);
+
+    assertThat(secondImage, sameInstance(firstImage));
+    assertThat(loadCount.get(), is(1));
+    assertThat(imageCache.getUsedBytes(), is(400L));
+    assertThat(imageCache.getHitRate(), is(0.5));
+  }
+
+  @Test
+  void whenImageIsMissing_itShouldCacheTheNegativeLookup() throws IOException {
+    ImageCache imageCache = new ImageCache(1000, false);
+
+    imageCache.get("shield", missingLoader);
+    Image image = imageCache.get("shield", missingLoader);
+
+    assertThat(image, nullValue());
+    assertThat(loadCount.get(), is(1));
+    assertThat(imageCache.getHitCount(), is(1L));
+  }
+
+  @Test
+  void whenNegativeLookupIsInvalidated_itShouldLookForTheImageAgain() throws IOException {
+    ImageCache imageCache = new ImageCache(1000, false);
+    imageCache.get("shield", missingLoader);
+
+    imageCache.invalidate("shield");
+    imageCache.get("shield", loader);
+
+    assertThat(loadCount.get(), is(2));
+    assertThat(imageCache.getUsedBytes(), is(400L));
+  }
+
+  @Test
+  void whenBudgetIsExceeded_itShouldEvictTheLeastRecentlyUsedImage() throws IOException {
+    ImageCache imageCache = new ImageCache(1000, false);
+
+    imageCache.get("sword", loader);
+    imageCache.get("shield", loader);
+    imageCache.get("sword", loader);
+    imageCache.get("potion", loader);
+    imageCache.get("sword", loader);
+    imageCache.get("shield", loader);
+
+    assertThat(loadCount.get(), is(4));
+    assertThat(imageCache.size(), is(2));
+    assertThat(imageCache.getUsedBytes(), is(800L));
+    assertThat(imageCache.getEvictionCount(), is(2L));
+  }
+
+  @Test
+  void whenImageIsLargerThanTheBudget_itShouldNotBeCached() throws IOException {
+    ImageCache imageCache = new ImageCache(100, true);
+
+    imageCache.get("sword", loader);
+    imageCache.get("sword", loader);
+
+    assertThat(loadCount.get(), is(2));
+    assertThat(imageCache.size(), is(0));
+  }
+
+  @Test
+  void whenImagesAreHeldThroughSoftReferences_itShouldReturnTheCachedImage()
+      throws IOException {
+    ImageCache imageCache = new ImageCache(1000, true);
+
+    Image firstImage = imageCache.get("sword", loader);
+    Image secondImage = imageCache.get("sword", loader);
+
+    assertThat(secondImage, sameInstance(firstImage));
+    assertThat(loadCount.get(), is(1));
+  }
+
+  @Test
+  void whenBudgetIsNotPositive_itShouldThrowIllegalArgumentException() {
+    assertThrows(IllegalArgumentException.class, () -> new ImageCache(0, false));
+  }
+}
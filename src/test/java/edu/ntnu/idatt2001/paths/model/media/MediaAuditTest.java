@@ -0,0 +1,95 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.json.StoryFileHandler;
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MediaAuditTest {
+
+  private static final String STORY_TITLE = "Media Audit Test Story";
+
+  @TempDir
+  Path directory;
+  private Path mediaFolder;
+  private Story story;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    mediaFolder = directory.resolve(STORY_TITLE);
+    Files.createDirectories(mediaFolder.resolve("images"));
+    Files.createDirectories(mediaFolder.resolve("sounds"));
+    Passage tavern = new Passage("Tavern", "You are in the tavern.");
+    tavern.addLink(new Link("Go to the cellar", "Cellar"));
+    story = new Story(STORY_TITLE, tavern);
+    story.addPassage(new Passage("Cellar", "It is dark."));
+  }
+
+  @Test
+  void whenMediaIsNamedAfterPassagesAndDecodes_itShouldFindNothingBroken() throws IOException {
+    copyResource("/images/passage-moods/happy.png", "images/tavern.png");
+    copyResource("/sound/defeat.mp3", "sounds/cellar.mp3");
+
+    MediaAudit mediaAudit = audit();
+
+    assertThat(mediaAudit.getImageCount(), is(1));
+    assertThat(mediaAudit.getSoundCount(), is(1));
+    assertThat(mediaAudit.getBrokenFiles(), is(empty()));
+  }
+
+  @Test
+  void whenMediaMatchesNoPassage_itShouldReportItUnmatched() throws IOException {
+    copyResource("/images/passage-moods/happy.png", "images/attic.png");
+    Files.writeString(mediaFolder.resolve("sounds/garden.mp3"), "not a sound");
+
+    MediaAudit mediaAudit = audit();
+
+    assertThat(mediaAudit.getUnmatchedFiles(), contains("garden.mp3", "attic.png"));
+    assertThat(mediaAudit.getUndecodableFiles(), is(empty()));
+  }
+
+  @Test
+  void whenMatchedMediaCannotBeDecoded_itShouldReportItUndecodable() throws IOException {
+    Files.writeString(mediaFolder.resolve("images/tavern.png"), "not an image");
+    Files.writeString(mediaFolder.resolve("sounds/cellar.mp3"), "not a sound");
+
+    MediaAudit mediaAudit = audit();
+
+    assertThat(mediaAudit.getUndecodableFiles(), containsInAnyOrder("tavern.png", "cellar.mp3"));
+    assertThat(mediaAudit.getUnmatchedFiles(), is(empty()));
+  }
+
+  @Test
+  void whenFileNameDiffersInCase_itShouldMatchThePassage() throws IOException {
+    copyResource("/images/passage-moods/happy.png", "images/TAVERN.png");
+
+    assertThat(audit().getBrokenFiles(), is(empty()));
+    assertThat(
+        StoryFileHandler.matchesPassage(
+            "TAVERN.png", StoryFileHandler.getPassageMediaNames(story)),
+        is(true));
+  }
+
+  private MediaAudit audit() throws IOException {
+    return MediaAudit.of(story, mediaFolder, MediaWorkers.getExecutor());
+  }
+
+  private void copyResource(String resource, String mediaName) throws IOException {
+    try (InputStream in = getClass().getResourceAsStream(resource)) {
+      Files.copy(in, mediaFolder.resolve(mediaName));
+    }
+  }
+}
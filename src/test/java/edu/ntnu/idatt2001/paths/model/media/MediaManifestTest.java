@@ -0,0 +1,60 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Mood;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MediaManifestTest {
+
+  private Passage tavern;
+  private Passage tavernLady;
+  private MediaManifest mediaManifest;
+
+  @BeforeEach
+  void setUp() {
+    tavern = new Passage("Tavern", "You are in the tavern.", Mood.SPOOKY, false);
+    tavernLady = new Passage("Tavern Lady", "The lady smiles.", Mood.HAPPY, false);
+    tavern.addLink(new Link("Talk to the lady", "Tavern Lady"));
+    Story story = new Story("Default Story", tavern);
+    story.addPassage(tavernLady);
+    mediaManifest = MediaManifest.forStory(story);
+  }
+
+  @Test
+  void whenStoryHasImageNamedAfterPassage_itShouldUseTheCustomBackground() {
+    assertThat(mediaManifest.hasBackground(tavernLady), is(true));
+    assertThat(
+        mediaManifest.getBackgroundUrl(tavernLady),
+        endsWith("/stories/Default%20Story/images/tavern%20lady.png"));
+  }
+
+  @Test
+  void whenPassageHasNoCustomBackground_itShouldFallBackToTheMoodBackground() {
+    assertThat(mediaManifest.hasBackground(tavern), is(false));
+    assertThat(
+        mediaManifest.getBackgroundUrl(tavern), endsWith("/images/passage-moods/spooky.png"));
+  }
+
+  @Test
+  void whenPassageWasAddedAfterTheManifestWasBuilt_itShouldFallBackToTheMoodMedia() {
+    Passage cellar = new Passage("Cellar", "It is dark.", Mood.SAD, false);
+
+    assertThat(mediaManifest.hasBackground(cellar), is(false));
+    assertThat(mediaManifest.hasMusic(cellar), is(false));
+    assertThat(mediaManifest.getBackgroundUrl(cellar), endsWith("/images/passage-moods/sad.png"));
+  }
+
+  @Test
+  void whenPassageTitleDiffersInCase_itShouldFindTheSameMedia() {
+    Passage shoutedTavernLady = new Passage("TAVERN LADY", "The lady smiles.", Mood.HAPPY, false);
+
+    assertThat(mediaManifest.hasBackground(shoutedTavernLady), is(true));
+  }
+}
@@ -0,0 +1,104 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import edu.ntnu.idatt2001.paths.model.story.Link;
+import edu.ntnu.idatt2001.paths.model.story.Mood;
+import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MediaPrefetcherTest {
+
+  private ImageCache imageCache;
+  @TempDir
+  Path thumbnailDirectory;
+  private List<Runnable> tasks;
+  private MediaPrefetcher mediaPrefetcher;
+  private Story story;
+  private Passage home;
+  private Passage garden;
+  private MediaManifest mediaManifest;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    imageCache = new ImageCache(64L * 1024 * 1024, false);
+    tasks = new ArrayList<>();
+    BackgroundHandler backgroundHandler =
+        new BackgroundHandler(
+            imageCache, new ThumbnailCache(thumbnailDirectory), task -> { }, task -> { });
+    mediaPrefetcher =
+        new MediaPrefetcher(backgroundHandler, SoundHandler.getInstance(), tasks::add);
+
+    home = new Passage("Home", "You are at home.", Mood.NONE, false);
+    garden = new Passage("Garden", "You are in the garden.", Mood.SAD, false);
+    Passage shed = new Passage("Shed", "You are in the shed.", Mood.SPOOKY, false);
+    home.addLink(new Link("Go outside", "Garden"));
+    home.addLink(new Link("Go to the cellar", "Cellar"));
+    garden.addLink(new Link("Go to the shed", "Shed"));
+    garden.addLink(new Link("Go home", "Home"));
+    story = new Story("Test Story", home);
+    story.addPassage(garden);
+    story.addPassage(shed);
+    mediaManifest = MediaManifest.forStory(story);
+  }
+
+  @Test
+  void whenLinkIsBroken_itShouldOnlyPrefetchTheExistingTargets() {
+    mediaPrefetcher.prefetch(home.getLinks(), story, mediaManifest);
+
+    assertThat(tasks, hasSize(1));
+    tasks.forEach(Runnable::run);
+    assertThat(imageCache.getIfPresent(getMoodCacheKey("sad")), notNullValue());
+  }
+
+  @Test
+  void whenLinkLeadsToTheOpeningPassage_itShouldPrefetchTheOpeningPassage() {
+    mediaPrefetcher.prefetch(garden.getLinks(), story, mediaManifest);
+
+    assertThat(tasks, hasSize(2));
+    tasks.forEach(Runnable::run);
+    assertThat(imageCache.getIfPresent(getMoodCacheKey("spooky")), notNullValue());
+    assertThat(imageCache.getIfPresent(getMoodCacheKey("none")), notNullValue());
+  }
+
+  @Test
+  void whenPlayerMovesOn_itShouldCancelTheStalePrefetches() {
+    mediaPrefetcher.prefetch(home.getLinks(), story, mediaManifest);
+    List<Runnable> staleTasks = new ArrayList<>(tasks);
+
+    mediaPrefetcher.prefetch(garden.getLinks(), story, mediaManifest);
+
+    for (Runnable staleTask : staleTasks) {
+      assertThat(((Future<?>) staleTask).isCancelled(), is(true));
+    }
+    staleTasks.forEach(Runnable::run);
+    assertThat(imageCache.getIfPresent(getMoodCacheKey("sad")), nullValue());
+  }
+
+  @Test
+  void whenPrefetchesAreCancelled_itShouldNotRunThem() {
+    mediaPrefetcher.prefetch(garden.getLinks(), story, mediaManifest);
+
+    mediaPrefetcher.cancel();
+
+    tasks.forEach(Runnable::run);
+    assertThat(imageCache.size(), is(0));
+  }
+
+  private String getMoodCacheKey(String mood) {
+    String url = getClass().getResource("/images/passage-moods/" + mood + ".png").toExternalForm();
+    return url + "@800x800";
+  }
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import edu.ntnu.idatt2001.paths.model.story.Mood;
 import edu.ntnu.idatt2001.paths.model.story.Passage;
+import edu.ntnu.idatt2001.paths.model.story.Story;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -23,6 +24,7 @@ class SoundHandlerTest {
 
   @Test
   void testHasMusic() {
-    assertFalse(soundHandler.hasMusic(passage, "Nonexistent Story"));
+    Story story = new Story("Nonexistent Story", passage);
+    assertFalse(soundHandler.hasMusic(passage, MediaManifest.forStory(story)));
   }
 }
@@ -0,0 +1,158 @@
+package edu.ntnu.idatt2001.paths.model.media;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import edu.ntnu.idatt2001.paths.model.filehandlers.AssetPack;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThumbnailCacheTest {
+
+  @TempDir
+  Path directory;
+  private Path thumbnailDirectory;
+  private Path imageFile;
+  private String imageUrl;
+  private ThumbnailCache thumbnailCache;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    thumbnailDirectory = directory.resolve("thumbnails");
+    imageFile = directory.resolve("happy.png");
+    try (InputStream in = getClass().getResourceAsStream("/images/passage-moods/happy.png")) {
+      Files.copy(in, imageFile);
+    }
+    imageUrl = imageFile.toUri().toString();
+    thumbnailCache = new ThumbnailCache(thumbnailDirectory);
+  }
+
+  @Test
+  void whenImageIsLargerThanTheSize_itShouldDecodeItScaledDown() throws IOException {
+    Image image = thumbnailCache.load(imageUrl, 200, 100);
+
+    assertThat(image.getWidth(), is(100.0));
+    assertThat(image.getHeight(), is(100.0));
+    assertThat(listThumbnails(), hasSize(1));
+  }
+
+  @Test
+  void whenThumbnailExists_itShouldLoadTheThumbnail() throws IOException {
+    Image decodedImage = thumbnailCache.load(imageUrl, 100, 100);
+
+    Image thumbnail = thumbnailCache.load(imageUrl, 100, 100);
+
+    assertThat(decodedImage, not(instanceOf(WritableImage.class)));
+    assertThat(thumbnail, instanceOf(WritableImage.class));
+    assertThat(thumbnail.getWidth(), is(100.0));
+    assertThat(
+        thumbnail.getPixelReader().getArgb(50, 50),
+        is(decodedImage.getPixelReader().getArgb(50, 50)));
+  }
+
+  @Test
+  void whenImageFileIsChanged_itShouldNotLoadTheOldThumbnail() throws IOException {
+    thumbnailCache.load(imageUrl, 100, 100);
+
+    try (InputStream in = getClass().getResourceAsStream("/images/passage-moods/sad.png")) {
+      Files.copy(in, imageFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    Image image = thumbnailCache.load(imageUrl, 100, 100);
+
+    assertThat(image, not(instanceOf(WritableImage.class)));
+    assertThat(listThumbnails(), hasSize(2));
+  }
+
+  @Test
+  void whenThumbnailsTakeUpTooMuchSpace_itShouldDeleteTheLeastRecentlyUsed() throws IOException {
+    thumbnailCache.load(imageUrl, 100, 100);
+    thumbnailCache.load(imageUrl, 80, 80);
+    Path usedThumbnail = findThumbnail("-100x100");
+    Path unusedThumbnail = findThumbnail("-80x80");
+    Files.setLastModifiedTime(usedThumbnail, FileTime.fromMillis(1000));
+    Files.setLastModifiedTime(unusedThumbnail, FileTime.fromMillis(2000));
+    long maxSize = Files.size(usedThumbnail) + Files.size(unusedThumbnail);
+    ThumbnailCache limitedCache = new ThumbnailCache(thumbnailDirectory, maxSize);
+
+    limitedCache.load(imageUrl, 100, 100);
+    limitedCache.load(imageUrl, 40, 40);
+
+    assertThat(listThumbnails(), hasSize(2));
+    assertThat(Files.exists(usedThumbnail), is(true));
+    assertThat(Files.exists(unusedThumbnail), is(false));
+  }
+
+  @Test
+  void whenImageFitsWithinTheSize_itShouldNotWriteThumbnail() throws IOException {
+    Image image = thumbnailCache.load(imageUrl, 2048, 2048);
+
+    assertThat(image.getWidth(), is(1024.0));
+    assertThat(Files.exists(thumbnailDirectory), is(false));
+  }
+
+  @Test
+  void whenImageIsInAnAssetPack_itShouldKeepItsThumbnailUnderTheStoredHash() throws IOException {
+    Path mediaFolder = directory.resolve("Test Story");
+    Files.createDirectories(mediaFolder.resolve("images"));
+    Files.copy(imageFile, mediaFolder.resolve("images/happy.png"));
+    Path packFile = directory.resolve("Test Story.pack");
+    AssetPack.write(mediaFolder, packFile);
+    AssetPack assetPack = AssetPack.open(packFile);
+    String packedImageUrl = assetPack.getUrl("images/happy.png");
+
+    thumbnailCache.load(packedImageUrl, 100, 100);
+    Image thumbnail = thumbnailCache.load(packedImageUrl, 100, 100);
+
+    assertThat(thumbnail, instanceOf(WritableImage.class));
+    assertThat(listThumbnails(), hasSize(1));
+    assertThat(
+        listThumbnails().get(0).getFileName().toString(),
+        startsWith(assetPack.getHash("images/happy.png")));
+  }
+
+  @Test
+  void whenThumbnailIsLargerThanItsSize_itShouldDecodeTheImageAgain() throws IOException {
+    thumbnailCache.load(imageUrl, 100, 100);
+    Path thumbnailFile = listThumbnails().get(0);
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(thumbnailFile))) {
+      out.writeInt(0x5054484d);
+      out.writeInt(1);
+      out.writeInt(Integer.MAX_VALUE);
+      out.writeInt(Integer.MAX_VALUE);
+    }
+
+    Image image = thumbnailCache.load(imageUrl, 100, 100);
+
+    assertThat(image, not(instanceOf(WritableImage.class)));
+    assertThat(image.getWidth(), is(100.0));
+  }
+
+  private Path findThumbnail(String size) throws IOException {
+    return listThumbnails().stream()
+        .filter(file -> file.getFileName().toString().contains(size))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private List<Path> listThumbnails() throws IOException {
+    try (Stream<Path> files = Files.list(thumbnailDirectory)) {
+      return files.toList();
+    }
+  }
+}
@@ -52,6 +52,13 @@ class LinkTest {
     assertThat(link.getActions(), empty());
   }
 
+  @Test
+  void testGetActions_ShouldNotAllowChangesOutsideTheLink() {
+    GoldAction action = new GoldAction(10);
+    assertThrows(UnsupportedOperationException.class, () -> link.getActions().add(action));
+    assertThat(link.isModified(), is(false));
+  }
+
   @Test
   void testAddAction() {
     GoldAction action = new GoldAction(10);
@@ -3,9 +3,12 @@ package edu.ntnu.idatt2001.paths.model.story;
 import static edu.ntnu.idatt2001.paths.model.story.Mood.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -43,6 +46,12 @@ class PassageTest {
     assertThat(passage.getLinks(), contains(link));
   }
 
+  @Test
+  void testGetLinks_ShouldNotAllowChangesOutsideThePassage() {
+    assertThrows(UnsupportedOperationException.class, () -> passage.getLinks().add(link));
+    assertThat(passage.isModified(), is(false));
+  }
+
   @Test
   void testAddLink_shouldAddLinkToPassage() {
     assertThat(passage.addLink(link), is(true));
@@ -127,6 +136,24 @@ class PassageTest {
     assertThat(passage.getContent(), is("New content"));
   }
 
+  @Test
+  void unloadContent_ShouldLoadContentOnDemand() {
+    List<String> loadedTitles = new ArrayList<>();
+    passage.unloadContent(
+        title -> {
+          loadedTitles.add(title);
+          return "Loaded classroom";
+        });
+
+    assertThat(passage.getContent(), is("Loaded classroom"));
+    assertThat(loadedTitles, contains("A4-110"));
+
+    passage.setContent("New content");
+    assertThat(passage.getContent(), is("New content"));
+    assertThat(passage.isModified(), is(true));
+    assertThat(loadedTitles, hasSize(2));
+  }
+
   @Test
   @DisplayName("Test if constructor throws exception when title is out of bounds")
   void testConstructorThrowsExceptionWhenTitleIsOutOfBounds() {
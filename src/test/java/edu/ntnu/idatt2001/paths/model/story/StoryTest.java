@@ -9,6 +9,7 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import edu.ntnu.idatt2001.paths.model.actions.GoldAction;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -56,6 +57,31 @@ class StoryTest {
         () -> new Story(null, new Passage("Opening Passage", "Content")));
   }
 
+  @Test
+  void testIsModified_ShouldTrackChangesUntilMarkedSaved() {
+    story.addPassage(passage1);
+    assertThat(story.isModified(), is(true));
+
+    story.markSaved();
+    assertThat(story.isModified(), is(false));
+
+    passage1.setContent(passage1.getContent());
+    assertThat(story.isModified(), is(false));
+
+    passage1.getLinks().get(0).addAction(new GoldAction(5));
+    assertThat(story.isModified(), is(true));
+  }
+
+  @Test
+  void testGetModifiedPassages_ShouldOnlyReturnChangedPassages() {
+    story.addPassage(passage1);
+    story.addPassage(passage2);
+    story.markSaved();
+
+    passage2.setMood(Mood.HAPPY);
+    assertThat(story.getModifiedPassages(), contains(passage2));
+  }
+
   @Test
   void testGetTitle() {
     assertThat("Test Story", is(story.getTitle()));
@@ -192,4 +218,25 @@ class StoryTest {
     story.removeAllLinksToPassage(passage1.getTitle());
     assertThat(passage2.getLinks(), is(empty()));
   }
+
+  @Test
+  void testCopyConstructor_ChangesToTheCopyShouldNotChangeTheOriginal() {
+    passage1.getLinks().get(0).addAction(new GoldAction(5));
+    story.addPassage(passage1);
+    story.markSaved();
+
+    Story copy = new Story(story);
+    Passage copiedPassage = copy.getPassage(new Link("Passage 1", "Passage 1"));
+    copiedPassage.setContent("This is a changed passage 1.");
+    copiedPassage.getLinks().get(0).addAction(new GoldAction(10));
+    copiedPassage.addLink(new Link("Go back", "Opening Passage"));
+    copy.addPassage(passage2);
+
+    assertThat(copy.isModified(), is(true));
+    assertThat(story.isModified(), is(false));
+    assertThat(story.getPassages(), contains(passage1));
+    assertThat(passage1.getContent(), is("This is passage 1."));
+    assertThat(passage1.getLinks().size(), is(1));
+    assertThat(passage1.getLinks().get(0).getActions(), contains(new GoldAction(5)));
+  }
 }
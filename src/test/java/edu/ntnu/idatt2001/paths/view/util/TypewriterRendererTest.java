@@ -0,0 +1,175 @@
+package edu.ntnu.idatt2001.paths.view.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TypewriterRendererTest {
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private StringProperty content;
+  private ManualTimer timer;
+  private TypewriterRenderer typewriter;
+  private AtomicInteger finishedCount;
+
+  @BeforeEach
+  void setUp() {
+    content = new SimpleStringProperty("");
+    typewriter =
+        new TypewriterRenderer(
+            content,
+            10,
+            onFrame -> {
+              timer = new ManualTimer(onFrame);
+              return timer;
+            });
+    finishedCount = new AtomicInteger();
+  }
+
+  @Test
+  void whenTimeHasPassed_itShouldRevealTheCharactersForThatTime() {
+    assertThat(TypewriterRenderer.revealedLength("Hello", 0, 10), is(0));
+    assertThat(TypewriterRenderer.revealedLength("Hello", NANOS_PER_SECOND / 5, 10), is(2));
+    assertThat(TypewriterRenderer.revealedLength("Hello", NANOS_PER_SECOND / 2, 100), is(5));
+  }
+
+  @Test
+  void whenLengthEndsWithinASurrogatePair_itShouldNotSplitThePair() {
+    String text = "a\uD83D\uDE00b";
+
+    assertThat(TypewriterRenderer.revealedLength(text, NANOS_PER_SECOND / 5, 10), is(1));
+    assertThat(TypewriterRenderer.revealedLength(text, NANOS_PER_SECOND * 3 / 10, 10), is(3));
+  }
+
+  @Test
+  void whenTextIsPlayed_itShouldRevealItFrameByFrameAndFinishOnce() {
+    typewriter.play("Hello", finishedCount::incrementAndGet);
+
+    timer.frame(NANOS_PER_SECOND);
+    timer.frame(NANOS_PER_SECOND + NANOS_PER_SECOND / 5);
+    assertThat(content.get(), is("He"));
+    assertThat(timer.isRunning(), is(true));
+
+    timer.frame(NANOS_PER_SECOND * 2);
+    assertThat(content.get(), is("Hello"));
+    assertThat(typewriter.isRunning(), is(false));
+    assertThat(timer.isRunning(), is(false));
+    assertThat(finishedCount.get(), is(1));
+  }
+
+  @Test
+  void whenFrameTimesAreNegative_itShouldStillRevealTheText() {
+    typewriter.play("Hello", finishedCount::incrementAndGet);
+
+    timer.frame(-2 * NANOS_PER_SECOND);
+    timer.frame(-2 * NANOS_PER_SECOND + NANOS_PER_SECOND / 5);
+
+    assertThat(content.get(), is("He"));
+  }
+
+  @Test
+  void whenSpeedIsChangedWhileRevealing_itShouldKeepTheSpeedOfThePlayingText() {
+    typewriter.play("Hello", finishedCount::incrementAndGet);
+    timer.frame(0);
+
+    typewriter.setCharactersPerSecond(1000);
+    timer.frame(NANOS_PER_SECOND / 5);
+
+    assertThat(content.get(), is("He"));
+  }
+
+  @Test
+  void whenSkipped_itShouldShowTheWholeTextAndFinishOnce() {
+    typewriter.play("Hello", finishedCount::incrementAndGet);
+
+    typewriter.skip();
+    typewriter.skip();
+
+    assertThat(content.get(), is("Hello"));
+    assertThat(typewriter.isRunning(), is(false));
+    assertThat(timer.isRunning(), is(false));
+    assertThat(finishedCount.get(), is(1));
+  }
+
+  @Test
+  void whenStopped_itShouldKeepTheTextAndNotFinish() {
+    typewriter.play("Hello", finishedCount::incrementAndGet);
+    timer.frame(0);
+    timer.frame(NANOS_PER_SECOND / 5);
+
+    typewriter.stop();
+    typewriter.skip();
+
+    assertThat(content.get(), is("He"));
+    assertThat(typewriter.isRunning(), is(false));
+    assertThat(finishedCount.get(), is(0));
+  }
+
+  @Test
+  void whenAnotherTextIsPlayed_itShouldNotFinishTheReplacedText() {
+    AtomicInteger replacedFinishedCount = new AtomicInteger();
+    typewriter.play("Hello", replacedFinishedCount::incrementAndGet);
+
+    typewriter.play("Bye", finishedCount::incrementAndGet);
+    typewriter.skip();
+
+    assertThat(content.get(), is("Bye"));
+    assertThat(replacedFinishedCount.get(), is(0));
+    assertThat(finishedCount.get(), is(1));
+  }
+
+  @Test
+  void whenTextIsEmpty_itShouldFinishAtOnce() {
+    typewriter.play("", finishedCount::incrementAndGet);
+
+    assertThat(typewriter.isRunning(), is(false));
+    assertThat(timer.isRunning(), is(false));
+    assertThat(finishedCount.get(), is(1));
+  }
+
+  /**
+   * A timer whose frames are run by the test, since the JavaFX pulse is not running in tests.
+   */
+  private static class ManualTimer extends AnimationTimer {
+
+    private final LongConsumer onFrame;
+    private boolean running;
+
+    ManualTimer(LongConsumer onFrame) {
+      this.onFrame = onFrame;
+    }
+
+    @Override
+    public void start() {
+      running = true;
+    }
+
+    @Override
+    public void stop() {
+      running = false;
+    }
+
+    @Override
+    public void handle(long now) {
+      onFrame.accept(now);
+    }
+
+    void frame(long now) {
+      if (running) {
+        handle(now);
+      }
+    }
+
+    boolean isRunning() {
+      return running;
+    }
+  }
+}